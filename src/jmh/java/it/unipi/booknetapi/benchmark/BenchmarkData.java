@@ -0,0 +1,259 @@
+package it.unipi.booknetapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unipi.booknetapi.dto.book.BookAuthorGoodReads;
+import it.unipi.booknetapi.dto.book.BookGoodReads;
+import it.unipi.booknetapi.dto.book.BookShelfGoodReads;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.book.FormatTypeEnum;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.review.ReviewSummary;
+import it.unipi.booknetapi.model.user.BookShelfStatus;
+import it.unipi.booknetapi.model.user.Reader;
+import it.unipi.booknetapi.model.user.ReaderPreference;
+import it.unipi.booknetapi.model.user.UserBookShelf;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.model.ExternalId;
+import org.bson.types.ObjectId;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic inputs of the benchmarks, sized like the GoodReads data (a few authors and genres per
+ * book, a shelf of some hundred books per reader). The seed is fixed so every run reads the same data.
+ */
+final class BenchmarkData {
+
+    private static final String TEXT = "Lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor incididunt ut labore et dolore magna aliqua ";
+
+    private BenchmarkData() {}
+
+    /**
+     * AppConfiguration reads the Spring Environment, here a mock holding only the given properties.
+     */
+    static AppConfiguration configuration(Map<String, String> properties) {
+        MockEnvironment environment = new MockEnvironment();
+        properties.forEach(environment::setProperty);
+
+        AppConfiguration configuration = new AppConfiguration();
+        ReflectionTestUtils.setField(configuration, "env", environment);
+        return configuration;
+    }
+
+    static String text(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        String[] tokens = TEXT.split(" ");
+        for (int i = 0; i < words; i++) {
+            builder.append(tokens[random.nextInt(tokens.length)]).append(' ');
+        }
+        return builder.toString().trim();
+    }
+
+
+    static List<AuthorEmbed> authors(Random random) {
+        List<AuthorEmbed> authors = new ArrayList<>();
+        for (int i = 0, n = 1 + random.nextInt(3); i < n; i++) {
+            authors.add(new AuthorEmbed(new ObjectId(), text(random, 2)));
+        }
+        return authors;
+    }
+
+    static List<GenreEmbed> genres(Random random) {
+        List<GenreEmbed> genres = new ArrayList<>();
+        for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+            genres.add(new GenreEmbed(new ObjectId(), text(random, 1)));
+        }
+        return genres;
+    }
+
+    static BookEmbed bookEmbed(Random random) {
+        return new BookEmbed(
+                new ObjectId(),
+                text(random, 4),
+                text(random, 60),
+                100 + random.nextInt(600),
+                random.nextBoolean() ? FormatTypeEnum.PAPERBACK : FormatTypeEnum.HARDCOVER,
+                new ArrayList<>(List.of("https://images.example.org/" + random.nextInt(1_000_000) + ".jpg")),
+                authors(random),
+                genres(random)
+        );
+    }
+
+    /**
+     * A full book document: legacy review ids, similar books and every optional field set.
+     */
+    static Book book(Random random) {
+        Book book = new Book();
+        book.setId(new ObjectId());
+        book.setIsbn(String.valueOf(1_000_000_000L + random.nextInt(1_000_000_000)));
+        book.setIsbn13("978" + (1_000_000_000L + random.nextInt(1_000_000_000)));
+        book.setTitle(text(random, 4));
+        book.setSubtitle(text(random, 6));
+        book.setDescription(text(random, 120));
+        book.setNumPage(100 + random.nextInt(600));
+        book.setPublicationDate(new Date(946_684_800_000L + random.nextInt(1_000_000) * 1_000_000L));
+        book.setPublicationYear(2000 + random.nextInt(25));
+        book.setPublicationMonth(1 + random.nextInt(12));
+        book.setPublicationDay(1 + random.nextInt(28));
+        book.setLanguages(new ArrayList<>(List.of("eng", "ita")));
+        book.setImages(new ArrayList<>(List.of("https://images.example.org/" + random.nextInt(1_000_000) + ".jpg")));
+        book.setPreviews(new ArrayList<>(List.of("https://books.example.org/preview/" + random.nextInt(1_000_000))));
+        book.setPublishers(new ArrayList<>(List.of(text(random, 2))));
+
+        List<ObjectId> reviews = new ArrayList<>();
+        for (int i = 0; i < 50; i++) reviews.add(new ObjectId());
+        book.setReviews(reviews);
+
+        book.setAuthors(authors(random));
+        book.setGenres(genres(random));
+
+        List<BookEmbed> similarBooks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) similarBooks.add(bookEmbed(random));
+        book.setSimilarBooks(similarBooks);
+
+        book.setRatingReview(new ReviewSummary(1 + random.nextFloat() * 4, 1 + random.nextInt(5000)));
+        book.setFormat(FormatTypeEnum.PAPERBACK);
+        book.setExternalId(ExternalId.builder().goodReads(String.valueOf(random.nextInt(10_000_000))).build());
+        return book;
+    }
+
+    static Reader reader(Random random, int shelfSize) {
+        List<UserBookShelf> shelf = new ArrayList<>();
+        for (int i = 0; i < shelfSize; i++) {
+            shelf.add(new UserBookShelf(bookEmbed(random), BookShelfStatus.ADDED, new Date(), new Date()));
+        }
+
+        List<ObjectId> reviews = new ArrayList<>();
+        for (int i = 0; i < shelfSize / 2; i++) reviews.add(new ObjectId());
+
+        Reader reader = Reader.builder()
+                .id(new ObjectId())
+                .name(text(random, 2))
+                .username("reader" + random.nextInt(1_000_000))
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z2hP8bQ1yQbqTQy1GzSx5k2S")
+                .imageUrl("https://images.example.org/users/" + random.nextInt(1_000_000) + ".jpg")
+                .dateAdd(new Date())
+                .reviews(reviews)
+                .shelf(shelf)
+                .preference(ReaderPreference.builder()
+                        .authors(authors(random))
+                        .genres(genres(random))
+                        .languages(new ArrayList<>(List.of("eng")))
+                        .build())
+                .build();
+        return reader;
+    }
+
+
+    /**
+     * books.csv of the Kaggle GoodReads dataset (the reader is configured without quotes).
+     */
+    static void writeBooksCsv(Path path, int rows, Random random) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("bookID,title,authors,average_rating,isbn,isbn13,language_code,num_pages,ratings_count,text_reviews_count,publication_date,publisher");
+            writer.newLine();
+
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.join(",",
+                        String.valueOf(i + 1),
+                        text(random, 4),
+                        text(random, 2) + "/" + text(random, 2),
+                        String.format("%.2f", 1 + random.nextDouble() * 4).replace(',', '.'),
+                        String.valueOf(1_000_000_000L + random.nextInt(1_000_000_000)),
+                        "978" + (1_000_000_000L + random.nextInt(1_000_000_000)),
+                        "eng",
+                        String.valueOf(100 + random.nextInt(600)),
+                        String.valueOf(random.nextInt(100_000)),
+                        String.valueOf(random.nextInt(5_000)),
+                        (1 + random.nextInt(12)) + "/" + (1 + random.nextInt(28)) + "/" + (1990 + random.nextInt(30)),
+                        text(random, 2)
+                ));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * books_data.csv of the Amazon/Google Books dataset, list fields written as "['a','b']".
+     */
+    static void writeGoogleBooksCsv(Path path, int rows, Random random) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("Title,description,authors,image,previewLink,publisher,publishedDate,infoLink,categories,ratingsCount");
+            writer.newLine();
+
+            for (int i = 0; i < rows; i++) {
+                writer.write(String.join(",",
+                        text(random, 4),
+                        "\"" + text(random, 80) + ", " + text(random, 20) + "\"",
+                        "\"['" + text(random, 2) + "','" + text(random, 2) + "']\"",
+                        "https://images.example.org/" + random.nextInt(1_000_000) + ".jpg",
+                        "https://books.example.org/preview/" + random.nextInt(1_000_000),
+                        text(random, 2),
+                        String.valueOf(1990 + random.nextInt(30)),
+                        "https://books.example.org/info/" + random.nextInt(1_000_000),
+                        "\"['" + text(random, 1) + "']\"",
+                        String.valueOf(random.nextInt(1_000))
+                ));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * goodreads_books.json: one book per line, with shelves and similar books like the real dump.
+     */
+    static void writeGoodReadsBooks(Path path, int rows, Random random) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                List<BookShelfGoodReads> shelves = new ArrayList<>();
+                for (int s = 0; s < 20; s++) {
+                    shelves.add(new BookShelfGoodReads(text(random, 1), String.valueOf(random.nextInt(10_000))));
+                }
+
+                List<String> similarBooks = new ArrayList<>();
+                for (int s = 0; s < 10; s++) similarBooks.add(String.valueOf(random.nextInt(10_000_000)));
+
+                BookGoodReads book = new BookGoodReads();
+                book.setIsbn(String.valueOf(1_000_000_000L + random.nextInt(1_000_000_000)));
+                book.setIsbn13("978" + (1_000_000_000L + random.nextInt(1_000_000_000)));
+                book.setTextReviewsCount(String.valueOf(random.nextInt(5_000)));
+                book.setCountryCode("US");
+                book.setLanguageCode("eng");
+                book.setPopularShelves(shelves);
+                book.setSimilarBooks(similarBooks);
+                book.setAuthors(List.of(new BookAuthorGoodReads(String.valueOf(random.nextInt(1_000_000)), "")));
+                book.setTitle(text(random, 4));
+                book.setTitleWithoutSeries(book.getTitle());
+                book.setDescription(text(random, 120));
+                book.setPublisher(text(random, 2));
+                book.setAverageRating(String.format("%.2f", 1 + random.nextDouble() * 4).replace(',', '.'));
+                book.setRatingCount(String.valueOf(random.nextInt(100_000)));
+                book.setImageUrl("https://images.example.org/" + random.nextInt(1_000_000) + ".jpg");
+                book.setBookId(String.valueOf(i + 1));
+                book.setUrl("https://www.goodreads.com/book/show/" + (i + 1));
+                book.setPublicationYear(String.valueOf(1990 + random.nextInt(30)));
+                book.setPublicationMonth(String.valueOf(1 + random.nextInt(12)));
+                book.setPublicationDay(String.valueOf(1 + random.nextInt(28)));
+
+                writer.write(objectMapper.writeValueAsString(book));
+                writer.newLine();
+            }
+        }
+    }
+
+}
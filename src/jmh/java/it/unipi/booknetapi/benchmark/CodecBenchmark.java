@@ -0,0 +1,100 @@
+package it.unipi.booknetapi.benchmark;
+
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.user.Reader;
+import it.unipi.booknetapi.shared.lib.database.MongoManager;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BSON decode and encode of a book and of a reader with its shelf, through the registry that
+ * MongoManager builds. "pojo" is the PojoCodec path, "model" adds the hand-written codecs
+ * (the reader stays on the PojoCodec there, its shelf books do not).
+ * The gc profiler gives the allocation per document (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"pojo", "model"})
+    public String codecs;
+
+    @Param({"100"})
+    public int shelfSize;
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+
+    private Codec<Book> bookCodec;
+    private Codec<Reader> readerCodec;
+
+    private Book book;
+    private Reader reader;
+    private byte[] bookBytes;
+    private byte[] readerBytes;
+
+    @Setup
+    public void setup() {
+        CodecRegistry registry = MongoManager.codecRegistry("model".equals(this.codecs));
+        this.bookCodec = registry.get(Book.class);
+        this.readerCodec = registry.get(Reader.class);
+
+        Random random = new Random(42);
+        this.book = BenchmarkData.book(random);
+        this.reader = BenchmarkData.reader(random, this.shelfSize);
+
+        // Same bytes for both paths, written by the PojoCodec like the documents already stored
+        CodecRegistry pojo = MongoManager.codecRegistry(false);
+        this.bookBytes = encode(pojo.get(Book.class), this.book);
+        this.readerBytes = encode(pojo.get(Reader.class), this.reader);
+    }
+
+    private static <T> byte[] encode(Codec<T> codec, T value) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, value, ENCODER_CONTEXT);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static <T> T decode(Codec<T> codec, byte[] bytes) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return codec.decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+    @Benchmark
+    public Book decodeBook() {
+        return decode(this.bookCodec, this.bookBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeBook() {
+        return encode(this.bookCodec, this.book);
+    }
+
+    @Benchmark
+    public Reader decodeReader() {
+        return decode(this.readerCodec, this.readerBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeReader() {
+        return encode(this.readerCodec, this.reader);
+    }
+
+}
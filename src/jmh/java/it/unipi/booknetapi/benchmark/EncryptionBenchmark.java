@@ -0,0 +1,77 @@
+package it.unipi.booknetapi.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.encryption.EncryptionManager;
+import it.unipi.booknetapi.shared.lib.encryption.PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AES-GCM of a short field and BCrypt verification at the configured cost. checkPassword goes
+ * through the PasswordHasher pool like a login does, so it includes the hand-off to the pool.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    @Param({"10"})
+    public int bcryptStrength;
+
+    private AsyncManager asyncManager;
+    private PasswordHasher passwordHasher;
+    private EncryptionManager encryptionManager;
+
+    private String plain;
+    private String encrypted;
+    private String hashedPassword;
+
+    @Setup
+    public void setup() {
+        AppConfiguration configuration = BenchmarkData.configuration(Map.of("app.password.bcrypt-strength", String.valueOf(this.bcryptStrength)));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        this.asyncManager = new AsyncManager(configuration, registry);
+        this.passwordHasher = new PasswordHasher(configuration, this.asyncManager, registry);
+
+        AppConfig appConfig = new AppConfig();
+        appConfig.setEncryptionKey("12345678901234567890123456789012");
+        this.encryptionManager = new EncryptionManager(appConfig, this.passwordHasher);
+
+        this.plain = "+39 050 2217111";
+        this.encrypted = this.encryptionManager.encrypt(this.plain);
+        this.hashedPassword = this.encryptionManager.hashPassword("benchmark-password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.asyncManager.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String encrypt() {
+        return this.encryptionManager.encrypt(this.plain);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String decrypt() {
+        return this.encryptionManager.decrypt(this.encrypted);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean checkPassword() {
+        return this.encryptionManager.checkPassword("benchmark-password", this.hashedPassword);
+    }
+
+}
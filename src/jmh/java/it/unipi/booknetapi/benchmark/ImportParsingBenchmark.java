@@ -0,0 +1,89 @@
+package it.unipi.booknetapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unipi.booknetapi.dto.book.BookCsvRecord;
+import it.unipi.booknetapi.dto.book.BookGoodReads;
+import it.unipi.booknetapi.dto.book.GoogleBookCsvRecord;
+import it.unipi.booknetapi.service.fetch.BookCsvReader;
+import it.unipi.booknetapi.service.fetch.ImportRecordReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing of the import files, one operation is a whole file of {@code rows} records.
+ * The NDJSON suite reads the GoodReads dump the way ImportService does (one ObjectMapper,
+ * a MappingIterator over the lines), the CSV suites both the list and the streaming readers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImportParsingBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path directory;
+    private Path booksCsv;
+    private Path googleBooksCsv;
+    private Path goodReadsBooks;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+
+        this.directory = Files.createTempDirectory("booknet-benchmark");
+        this.booksCsv = this.directory.resolve("books.csv");
+        this.googleBooksCsv = this.directory.resolve("books_data.csv");
+        this.goodReadsBooks = this.directory.resolve("goodreads_books.json");
+
+        BenchmarkData.writeBooksCsv(this.booksCsv, this.rows, random);
+        BenchmarkData.writeGoogleBooksCsv(this.googleBooksCsv, this.rows, random);
+        BenchmarkData.writeGoodReadsBooks(this.goodReadsBooks, this.rows, random);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for (Path file : files.toList()) Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(this.directory);
+    }
+
+    @Benchmark
+    public List<BookCsvRecord> readBooks() throws IOException {
+        return BookCsvReader.readBooks(this.booksCsv);
+    }
+
+    @Benchmark
+    public void openBooks(Blackhole blackhole) throws IOException {
+        try (ImportRecordReader<BookCsvRecord> reader = BookCsvReader.openBooks(this.booksCsv)) {
+            while (reader.hasNext()) blackhole.consume(reader.next());
+        }
+    }
+
+    @Benchmark
+    public List<GoogleBookCsvRecord> readGoogleBooks() throws IOException {
+        return BookCsvReader.readGoogleBooks(this.googleBooksCsv);
+    }
+
+    @Benchmark
+    public void readGoodReadsBooks(Blackhole blackhole) throws IOException {
+        try (ImportRecordReader<BookGoodReads> reader = ImportRecordReader.ndjson(this.objectMapper, this.goodReadsBooks, BookGoodReads.class)) {
+            while (reader.hasNext()) blackhole.consume(reader.next());
+        }
+    }
+
+}
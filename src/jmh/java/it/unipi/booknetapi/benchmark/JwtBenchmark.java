@@ -0,0 +1,61 @@
+package it.unipi.booknetapi.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unipi.booknetapi.model.user.Role;
+import it.unipi.booknetapi.shared.lib.authentication.JwtService;
+import it.unipi.booknetapi.shared.lib.authentication.KeyUtils;
+import it.unipi.booknetapi.shared.lib.authentication.UserToken;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RS256 signing and verification with the keys of the repository. validateToken is measured with
+ * the verified-token cache on (the steady state of a client sending the same token) and off
+ * (first sight of a token, or the cache disabled).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private JwtService jwtService;
+    private UserToken userToken;
+    private String token;
+
+    @Setup
+    public void setup() {
+        AppConfig appConfig = new AppConfig();
+        appConfig.setPrivateKeyPath("keys/private_key_pkcs8.pem");
+        appConfig.setPublicKeyPath("keys/public_key.pem");
+
+        this.jwtService = new JwtService(
+                new KeyUtils(appConfig),
+                BenchmarkData.configuration(Map.of("app.jwt.cache-enabled", String.valueOf(this.cacheEnabled))),
+                new SimpleMeterRegistry()
+        );
+
+        this.userToken = new UserToken(new ObjectId().toHexString(), "Benchmark Reader", "benchmark", Role.Reader);
+        this.token = this.jwtService.createToken(this.userToken);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return this.jwtService.createToken(this.userToken);
+    }
+
+    @Benchmark
+    public UserToken validateToken() {
+        return this.jwtService.validateToken(this.token);
+    }
+
+}
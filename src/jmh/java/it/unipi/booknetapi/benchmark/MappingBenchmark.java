@@ -0,0 +1,54 @@
+package it.unipi.booknetapi.benchmark;
+
+import it.unipi.booknetapi.dto.book.BookEmbedResponse;
+import it.unipi.booknetapi.dto.book.BookResponse;
+import it.unipi.booknetapi.dto.book.BookSimpleResponse;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model to DTO mapping of the book endpoints. BookResponse also maps the similar books.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    private Book book;
+    private BookEmbed bookEmbed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        this.book = BenchmarkData.book(random);
+        this.bookEmbed = BenchmarkData.bookEmbed(random);
+    }
+
+    @Benchmark
+    public BookEmbed toEmbed() {
+        return this.book.toEmbed();
+    }
+
+    @Benchmark
+    public BookResponse toResponse() {
+        return new BookResponse(this.book);
+    }
+
+    @Benchmark
+    public BookSimpleResponse toSimpleResponse() {
+        return new BookSimpleResponse(this.book);
+    }
+
+    @Benchmark
+    public BookEmbedResponse embedToResponse() {
+        return new BookEmbedResponse(this.bookEmbed);
+    }
+
+}
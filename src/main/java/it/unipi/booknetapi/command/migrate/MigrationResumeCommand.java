@@ -0,0 +1,22 @@
+package it.unipi.booknetapi.command.migrate;
+
+import it.unipi.booknetapi.shared.command.BaseCommand;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+import org.bson.types.ObjectId;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class MigrationResumeCommand extends BaseCommand {
+
+    private String id;
+
+
+    public boolean isValid() {
+        return this.id != null && ObjectId.isValid(this.id);
+    }
+
+}
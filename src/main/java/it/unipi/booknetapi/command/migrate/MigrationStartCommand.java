@@ -0,0 +1,22 @@
+package it.unipi.booknetapi.command.migrate;
+
+import it.unipi.booknetapi.shared.command.BaseCommand;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class MigrationStartCommand extends BaseCommand {
+
+    // Overrides app.migration.ranges-per-collection, null for the default
+    private Integer rangesPerCollection;
+
+
+    public boolean isValid() {
+        return this.hasUser() && (this.rangesPerCollection == null || this.rangesPerCollection > 0);
+    }
+
+}
@@ -12,6 +12,7 @@ import lombok.experimental.SuperBuilder;
 public class NotificationReadCommand extends BaseCommand {
 
     private String id;
+    private String idUser;
     private Boolean read;
 
 }
@@ -0,0 +1,17 @@
+package it.unipi.booknetapi.command.notification;
+
+import it.unipi.booknetapi.shared.command.BaseCommand;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class NotificationStreamCommand extends BaseCommand {
+
+    private String idUser;
+    private String lastEventId;
+
+}
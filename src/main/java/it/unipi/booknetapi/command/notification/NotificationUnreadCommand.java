@@ -0,0 +1,16 @@
+package it.unipi.booknetapi.command.notification;
+
+import it.unipi.booknetapi.shared.command.BaseCommand;
+import lombok.*;
+import lombok.experimental.SuperBuilder;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class NotificationUnreadCommand extends BaseCommand {
+
+    private String idUser;
+
+}
@@ -0,0 +1,22 @@
+package it.unipi.booknetapi.command.outbox;
+
+import it.unipi.booknetapi.shared.command.BaseCommand;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+import java.util.Date;
+
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class OutboxReplayCommand extends BaseCommand {
+
+    private Date since;
+    private Boolean failedOnly;
+
+}
@@ -13,6 +13,7 @@ import it.unipi.booknetapi.dto.author.AuthorResponse;
 import it.unipi.booknetapi.dto.author.AuthorSimpleResponse;
 import it.unipi.booknetapi.dto.author.AuthorStatResponse;
 import it.unipi.booknetapi.dto.book.BookEmbedResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.service.auth.AuthService;
@@ -212,6 +213,25 @@ public class AuthorController {
 
 
 
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest author names", description = "Typeahead: ranked matches of the typed words as prefixes.")
+    @SecurityRequirements(value = {})
+    public ResponseEntity<List<SearchSuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit
+    ) {
+        AuthorSearchCommand command = AuthorSearchCommand.builder()
+                .name(q)
+                .pagination(
+                        PaginationRequest.builder()
+                                .page(0)
+                                .size(limit != null ? limit : 10)
+                                .build()
+                ).build();
+
+        return ResponseEntity.ok(this.authorService.suggestAuthors(command));
+    }
+
     @GetMapping("/{idAuthor}/books")
     @Operation(summary = "Get list of books by author")
     @SecurityRequirements(value = {})
@@ -17,6 +17,7 @@ import it.unipi.booknetapi.command.user.ReaderUpdateBookStatusInShelfCommand;
 import it.unipi.booknetapi.dto.book.*;
 import it.unipi.booknetapi.dto.review.ReviewCreateRequest;
 import it.unipi.booknetapi.dto.review.ReviewResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
 import it.unipi.booknetapi.dto.user.ReaderBookShelfUpdateStatusRequest;
 import it.unipi.booknetapi.model.user.Role;
@@ -208,11 +209,15 @@ public class BookController {
     public ResponseEntity<PageResult<ReviewResponse>> getBookReviews(
             @PathVariable String idBook,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal
     ){
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 10)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         ReviewByBookListCommand command = ReviewByBookListCommand.builder()
@@ -377,12 +382,16 @@ public class BookController {
     public ResponseEntity<PageResult<BookSimpleResponse>> getAllBooks(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestParam(required = false) String name
     ){
 
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 10)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         if(name == null || name.isBlank()) {
@@ -401,6 +410,25 @@ public class BookController {
         }
     }
 
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest book titles", description = "Typeahead: ranked matches of the typed words as prefixes.")
+    @SecurityRequirements(value = {})
+    public ResponseEntity<List<SearchSuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit
+    ) {
+        BookSearchCommand command = BookSearchCommand.builder()
+                .title(q)
+                .pagination(
+                        PaginationRequest.builder()
+                                .page(0)
+                                .size(limit != null ? limit : 10)
+                                .build()
+                ).build();
+
+        return ResponseEntity.ok(this.bookService.suggestBooks(command));
+    }
+
     @GetMapping("by/genre/{idGenre}")
     @Operation(summary = "Get all Books by Genre")
     @SecurityRequirements(value = {})
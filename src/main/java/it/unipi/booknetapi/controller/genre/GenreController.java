@@ -10,6 +10,7 @@ import it.unipi.booknetapi.command.genre.*;
 import it.unipi.booknetapi.command.stat.AnalyticsGetListCommand;
 import it.unipi.booknetapi.dto.genre.GenreCreateRequest;
 import it.unipi.booknetapi.dto.genre.GenreResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.service.auth.AuthService;
@@ -208,6 +209,25 @@ public class GenreController {
 
 
 
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest genre names", description = "Typeahead: ranked matches of the typed words as prefixes.")
+    @SecurityRequirements(value = {})
+    public ResponseEntity<List<SearchSuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit
+    ) {
+        GenreSearchCommand command = GenreSearchCommand.builder()
+                .name(q)
+                .pagination(
+                        PaginationRequest.builder()
+                                .page(0)
+                                .size(limit != null ? limit : 10)
+                                .build()
+                ).build();
+
+        return ResponseEntity.ok(this.genreService.suggestGenres(command));
+    }
+
     @GetMapping("/{idGenre}/analytic/chart")
     @Operation(summary = "Get analytics chart data point", description = "Get list of chart data point relative to this genre.")
     public ResponseEntity<List<ChartDataPointResponse>> getAnalyticsChartData(
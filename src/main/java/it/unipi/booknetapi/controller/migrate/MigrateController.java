@@ -0,0 +1,92 @@
+package it.unipi.booknetapi.controller.migrate;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import it.unipi.booknetapi.command.migrate.MigrationGetCommand;
+import it.unipi.booknetapi.command.migrate.MigrationResumeCommand;
+import it.unipi.booknetapi.command.migrate.MigrationStartCommand;
+import it.unipi.booknetapi.dto.migrate.MigrationReportResponse;
+import it.unipi.booknetapi.model.user.Role;
+import it.unipi.booknetapi.service.auth.AuthService;
+import it.unipi.booknetapi.service.migrate.MigrateService;
+import it.unipi.booknetapi.shared.lib.authentication.UserToken;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/migrate")
+@Tag(name = "Migrate", description = "MongoDB -> Neo4j migration endpoints")
+@Profile("!local")
+public class MigrateController {
+
+    private final AuthService authService;
+    private final MigrateService migrateService;
+
+    public MigrateController(
+            AuthService authService,
+            MigrateService migrateService
+    ) {
+        this.authService = authService;
+        this.migrateService = migrateService;
+    }
+
+
+    @PostMapping
+    @Operation(summary = "Migrate all collections to neo4j (Admin only)", description = "Copies every collection in parallel _id ranges, in dependency order, with a checkpoint per range.")
+    public ResponseEntity<String> startMigration(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false) Integer ranges
+    ) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        MigrationStartCommand command = MigrationStartCommand.builder()
+                .rangesPerCollection(ranges)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.migrateService.start(command));
+    }
+
+    @GetMapping("/{idMigration}")
+    @Operation(summary = "Get migration report (Admin only)", description = "Status, documents migrated, throughput and errors of every entity.")
+    public ResponseEntity<MigrationReportResponse> getMigrationReport(@PathVariable String idMigration, @RequestHeader("Authorization") String token) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        MigrationGetCommand command = MigrationGetCommand.builder()
+                .id(idMigration)
+                .userToken(userToken)
+                .build();
+
+        MigrationReportResponse report = this.migrateService.getReport(command);
+        if(report == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(report);
+    }
+
+    @PostMapping("/{idMigration}/resume")
+    @Operation(summary = "Resume a failed or interrupted migration (Admin only)", description = "Runs the unfinished ranges again from their last checkpoint.")
+    public ResponseEntity<String> resumeMigration(@PathVariable String idMigration, @RequestHeader("Authorization") String token) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        MigrationResumeCommand command = MigrationResumeCommand.builder()
+                .id(idMigration)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.migrateService.resume(command));
+    }
+
+}
@@ -8,13 +8,16 @@ import it.unipi.booknetapi.dto.notification.NotificationEmbedResponse;
 import it.unipi.booknetapi.dto.notification.NotificationResponse;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.service.auth.AuthService;
+import it.unipi.booknetapi.service.notification.NotificationPushService;
 import it.unipi.booknetapi.service.notification.NotificationService;
 import it.unipi.booknetapi.shared.lib.authentication.UserToken;
 import it.unipi.booknetapi.shared.model.PageResult;
 import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -25,13 +28,16 @@ public class NotificationController {
 
     private final AuthService authService;
     private final NotificationService notificationService;
+    private final NotificationPushService notificationPushService;
 
     public NotificationController(
             AuthService authService,
-            NotificationService notificationService
+            NotificationService notificationService,
+            NotificationPushService notificationPushService
     ) {
         this.authService = authService;
         this.notificationService = notificationService;
+        this.notificationPushService = notificationPushService;
     }
 
 
@@ -41,6 +47,8 @@ public class NotificationController {
             @RequestHeader("Authorization") String token,
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestParam(required = false) Boolean read
     ) {
         UserToken userToken = this.authService.getUserToken(token);
@@ -52,6 +60,8 @@ public class NotificationController {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 10)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         NotificationGetByUserCommand command = NotificationGetByUserCommand.builder()
@@ -88,6 +98,114 @@ public class NotificationController {
         return ResponseEntity.ok(notifications);
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream new notifications as Server-Sent Events (Admin only)")
+    public ResponseEntity<SseEmitter> streamNotifications(
+            @RequestHeader("Authorization") String token,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) String lastEvent
+    ) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        NotificationStreamCommand command = NotificationStreamCommand.builder()
+                .idUser(userToken.getIdUser())
+                .lastEventId(lastEventId != null ? lastEventId : lastEvent)
+                .userToken(userToken)
+                .build();
+
+        SseEmitter emitter = this.notificationPushService.connect(command);
+
+        if(emitter == null) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/unread")
+    @Operation(summary = "Get the number of unread notifications (Admin only)")
+    public ResponseEntity<Long> getUnreadCount(@RequestHeader("Authorization") String token) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        NotificationUnreadCommand command = NotificationUnreadCommand.builder()
+                .idUser(userToken.getIdUser())
+                .userToken(userToken)
+                .build();
+
+        Long unread = this.notificationService.getUnreadCount(command);
+
+        if(unread == null) return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        return ResponseEntity.ok(unread);
+    }
+
+    @PostMapping("/read")
+    @Operation(summary = "Mark notifications as read, or unread with read=false (Admin only)")
+    public ResponseEntity<Long> readNotifications(
+            @RequestBody List<String> ids,
+            @RequestParam(required = false) Boolean read,
+            @RequestHeader("Authorization") String token
+    ) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        NotificationIdsReadCommand command = NotificationIdsReadCommand.builder()
+                .idUser(userToken.getIdUser())
+                .ids(ids)
+                .read(read)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.notificationService.read(command));
+    }
+
+    @PostMapping("/read/all")
+    @Operation(summary = "Mark all notifications as read (Admin only)")
+    public ResponseEntity<Long> readAllNotifications(@RequestHeader("Authorization") String token) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        NotificationReadAllCommand command = NotificationReadAllCommand.builder()
+                .idUser(userToken.getIdUser())
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.notificationService.read(command));
+    }
+
+    @PostMapping("/{idNotification}/read")
+    @Operation(summary = "Mark Notification as read, or unread with read=false (Admin only)")
+    public ResponseEntity<Boolean> readNotification(
+            @RequestHeader("Authorization") String token,
+            @PathVariable("idNotification") String idNotification,
+            @RequestParam(required = false) Boolean read
+    ) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        NotificationReadCommand command = NotificationReadCommand.builder()
+                .id(idNotification)
+                .idUser(userToken.getIdUser())
+                .read(read)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.notificationService.read(command));
+    }
+
     @GetMapping("/{idNotification}")
     @Operation(summary = "Get Notification information (Admin only)")
     public ResponseEntity<NotificationResponse> getNotification(
@@ -125,6 +243,7 @@ public class NotificationController {
 
         NotificationDeleteCommand command = NotificationDeleteCommand.builder()
                 .id(idNotification)
+                .idUser(userToken.getIdUser())
                 .userToken(userToken)
                 .build();
 
@@ -0,0 +1,73 @@
+package it.unipi.booknetapi.controller.outbox;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import it.unipi.booknetapi.command.outbox.OutboxReplayCommand;
+import it.unipi.booknetapi.dto.outbox.OutboxStatusResponse;
+import it.unipi.booknetapi.model.user.Role;
+import it.unipi.booknetapi.service.auth.AuthService;
+import it.unipi.booknetapi.service.outbox.OutboxService;
+import it.unipi.booknetapi.shared.lib.authentication.UserToken;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+
+@RestController
+@RequestMapping("/outbox")
+@Tag(name = "Outbox", description = "MongoDB -> Neo4j synchronization endpoints")
+@Profile("!local")
+public class OutboxController {
+
+    private final AuthService authService;
+    private final OutboxService outboxService;
+
+    public OutboxController(
+            AuthService authService,
+            OutboxService outboxService
+    ) {
+        this.authService = authService;
+        this.outboxService = outboxService;
+    }
+
+
+    @GetMapping
+    @Operation(summary = "Get outbox status (Admin only)", description = "Pending and failed events, and the replication lag towards neo4j.")
+    public ResponseEntity<OutboxStatusResponse> getStatus(@RequestHeader("Authorization") String token) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(this.outboxService.getStatus());
+    }
+
+    @PostMapping("/replay")
+    @Operation(summary = "Replay outbox events (Admin only)", description = "Re-queues processed/failed events so they are applied again to neo4j.")
+    public ResponseEntity<Long> replay(
+            @RequestHeader("Authorization") String token,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) // Accepts "yyyy-MM-dd"
+            Date since,
+            @RequestParam(required = false) Boolean failedOnly
+    ) {
+        UserToken userToken = this.authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        OutboxReplayCommand command = OutboxReplayCommand.builder()
+                .since(since)
+                .failedOnly(failedOnly)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.outboxService.replay(command));
+    }
+
+}
@@ -214,6 +214,8 @@ public class ReviewController {
     public ResponseEntity<PageResult<ReviewResponse>> getAllReviews(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestHeader("Authorization") String token
     ) {
         UserToken userToken = authService.getUserToken(token);
@@ -225,6 +227,8 @@ public class ReviewController {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 10)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         ReviewListCommand command = ReviewListCommand.builder()
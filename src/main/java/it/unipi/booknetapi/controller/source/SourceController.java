@@ -3,10 +3,14 @@ package it.unipi.booknetapi.controller.source;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirements;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import it.unipi.booknetapi.command.fetch.ImportGetCommand;
+import it.unipi.booknetapi.command.fetch.ImportResumeCommand;
+import it.unipi.booknetapi.dto.fetch.ImportProgressResponse;
 import it.unipi.booknetapi.dto.source.SourceCreateRequest;
 import it.unipi.booknetapi.dto.source.SourceResponse;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.service.auth.AuthService;
+import it.unipi.booknetapi.service.fetch.ImportService;
 import it.unipi.booknetapi.service.source.SourceService;
 import it.unipi.booknetapi.shared.lib.authentication.UserToken;
 import org.springframework.http.HttpStatus;
@@ -23,10 +27,12 @@ public class SourceController {
 
     private final AuthService authService;
     private final SourceService sourceService;
+    private final ImportService importService;
 
-    public SourceController(AuthService authService, SourceService sourceService) {
+    public SourceController(AuthService authService, SourceService sourceService, ImportService importService) {
         this.authService = authService;
         this.sourceService = sourceService;
+        this.importService = importService;
     }
 
 
@@ -76,4 +82,40 @@ public class SourceController {
         return ResponseEntity.ok("Source " + idSource + " deleted successfully.");
     }
 
+    @GetMapping("/import/{idImport}")
+    @Operation(summary = "Get import progress (Admin only)", description = "Processed/total records, rate, ETA and current stage of an import.")
+    public ResponseEntity<ImportProgressResponse> getImportProgress(@PathVariable String idImport, @RequestHeader("Authorization") String token) {
+        UserToken userToken = authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ImportGetCommand command = ImportGetCommand.builder()
+                .id(idImport)
+                .userToken(userToken)
+                .build();
+
+        ImportProgressResponse progress = this.importService.getProgress(command);
+        if(progress == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(progress);
+    }
+
+    @PostMapping("/import/{idImport}/resume")
+    @Operation(summary = "Resume an interrupted import (Admin only)", description = "Continues from the last checkpoint, the committed records are skipped.")
+    public ResponseEntity<String> resumeImport(@PathVariable String idImport, @RequestHeader("Authorization") String token) {
+        UserToken userToken = authService.getUserToken(token);
+
+        if(userToken == null || userToken.getRole() != Role.Admin) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ImportResumeCommand command = ImportResumeCommand.builder()
+                .id(idImport)
+                .userToken(userToken)
+                .build();
+
+        return ResponseEntity.ok(this.importService.resume(command));
+    }
+
 }
@@ -151,6 +151,8 @@ public class UserController {
     public ResponseEntity<PageResult<AdminResponse>> getAdminUser(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestHeader("Authorization") String token
     ) {
         UserToken userToken = authService.getUserToken(token);
@@ -162,6 +164,8 @@ public class UserController {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 100)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         AdminListCommand command = AdminListCommand.builder()
@@ -179,6 +183,8 @@ public class UserController {
     public ResponseEntity<PageResult<ReaderResponse>> getReaderUser(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestHeader("Authorization") String token
     ) {
         UserToken userToken = authService.getUserToken(token);
@@ -190,6 +196,8 @@ public class UserController {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 100)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         ReaderListCommand command = ReaderListCommand.builder()
@@ -207,6 +215,8 @@ public class UserController {
     public ResponseEntity<PageResult<ReviewerResponse>> getReviewerUser(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal,
             @RequestHeader("Authorization") String token
     ) {
         UserToken userToken = authService.getUserToken(token);
@@ -218,6 +228,8 @@ public class UserController {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 100)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         ReviewerListCommand command = ReviewerListCommand.builder()
@@ -361,11 +373,15 @@ public class UserController {
     public ResponseEntity<PageResult<ReviewResponse>> getUserReviews(
             @PathVariable String idUser,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean withTotal
     ) {
         PaginationRequest paginationRequest = PaginationRequest.builder()
                 .page(page != null ? page : 0)
                 .size(size != null ? size : 10)
+                .cursor(cursor)
+                .withTotal(withTotal)
                 .build();
 
         ReviewByReaderListCommand command = ReviewByReaderListCommand.builder()
@@ -0,0 +1,39 @@
+package it.unipi.booknetapi.dto.fetch;
+
+import it.unipi.booknetapi.model.fetch.EntityType;
+import it.unipi.booknetapi.model.fetch.ImportStatus;
+import it.unipi.booknetapi.service.fetch.ImportEntityType;
+import it.unipi.booknetapi.shared.model.Source;
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportProgressResponse {
+
+    private String id;
+    private Source source;
+    private EntityType entityType;
+    private ImportEntityType importEntityType;
+    private String fileName;
+
+    // Current stage of the run
+    private ImportStatus status;
+    private Long processedRecords;
+    // Estimated from the line count of the file
+    private Long totalRecords;
+    private Double percent;
+    private Double recordsPerSecond;
+    private Long etaSeconds;
+    private Long committedBatches;
+
+    private Date startedAt;
+    private Date updatedAt;
+    private String message;
+    private Boolean running;
+    private Boolean resumable;
+
+}
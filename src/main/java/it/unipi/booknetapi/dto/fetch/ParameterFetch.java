@@ -4,8 +4,7 @@ import it.unipi.booknetapi.model.fetch.EntityType;
 import it.unipi.booknetapi.shared.model.Source;
 import lombok.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
 
 @Data
 @Builder
@@ -20,6 +19,8 @@ public class ParameterFetch<T> {
     private String fileUrl;
     private String fileName;
     private String fileContentType;
-    private List<T> data = new ArrayList<>();
+
+    // Local copy of the upload, read in batches by the import task and deleted once the import completes (kept for a resume)
+    private Path filePath;
 
 }
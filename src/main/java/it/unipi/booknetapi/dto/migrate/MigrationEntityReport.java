@@ -0,0 +1,29 @@
+package it.unipi.booknetapi.dto.migrate;
+
+import it.unipi.booknetapi.model.migrate.MigrationEntity;
+import it.unipi.booknetapi.model.migrate.MigrationStatus;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationEntityReport {
+
+    private MigrationEntity entity;
+    private MigrationStatus status;
+
+    private Integer ranges;
+    private Integer completedRanges;
+    private Integer failedRanges;
+
+    private Long migrated;
+    // Average since the first range of the entity started
+    private Double documentsPerSecond;
+
+    // Last error of every failed range
+    private List<String> errors;
+
+}
@@ -0,0 +1,29 @@
+package it.unipi.booknetapi.dto.migrate;
+
+import it.unipi.booknetapi.model.migrate.MigrationStatus;
+import lombok.*;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationReportResponse {
+
+    private String id;
+    private MigrationStatus status;
+    private String message;
+
+    private Integer rangesPerCollection;
+    private Integer concurrency;
+    private List<MigrationEntityReport> entities;
+
+    private Date startedAt;
+    private Date updatedAt;
+    private Date finishedAt;
+    private Boolean running;
+    private Boolean resumable;
+
+}
@@ -0,0 +1,18 @@
+package it.unipi.booknetapi.dto.outbox;
+
+import lombok.*;
+
+import java.util.Date;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxStatusResponse {
+
+    private Long pending;
+    private Long failed;
+    private Date oldestPending;
+    private Long lagSeconds;
+
+}
@@ -0,0 +1,21 @@
+package it.unipi.booknetapi.dto.search;
+
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchSuggestionResponse {
+
+    private String id;
+    private String text;
+
+    public SearchSuggestionResponse(SearchIndex.Hit hit) {
+        this.id = hit.id().toHexString();
+        this.text = hit.text();
+    }
+
+}
@@ -12,6 +12,8 @@ import org.bson.types.ObjectId;
 @AllArgsConstructor
 public class AuthorEmbed {
 
+    public final static String[] FIELDS = {"_id", "name"};
+
     private ObjectId id;
     private String name;
 
@@ -36,7 +36,7 @@ public class Book {
     private List<String> images = new ArrayList<>();
     private List<String> previews = new ArrayList<>();
     private List<String> publishers = new ArrayList<>();
-    private List<ObjectId> reviews = new ArrayList<>(); // we should change List<Review> to List<String> to save the ids only for the review
+    private List<ObjectId> reviews = new ArrayList<>(); // Legacy: review ids are kept in book_review_buckets, the compaction job drains this array
     private List<AuthorEmbed> authors = new ArrayList<>();
     private List<GenreEmbed> genres = new ArrayList<>();
     private List<BookEmbed> similarBooks = new ArrayList<>();
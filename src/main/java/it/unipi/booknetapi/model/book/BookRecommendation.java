@@ -19,4 +19,9 @@ public class BookRecommendation extends BookEmbed {
         this.score = score;
     }
 
+    public BookRecommendation(BookEmbed book, Double score) {
+        super(book.getId(), book.getTitle(), book.getDescription(), book.getNumPage(), book.getFormat(), book.getImages(), book.getAuthors(), book.getGenres());
+        this.score = score;
+    }
+
 }
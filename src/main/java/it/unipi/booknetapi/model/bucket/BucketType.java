@@ -0,0 +1,24 @@
+package it.unipi.booknetapi.model.bucket;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Id lists moved out of their owner document into fixed-size buckets.
+ * legacyField is the array the ids were pushed to before, drained by the compaction job.
+ */
+@Getter
+@AllArgsConstructor
+public enum BucketType {
+
+    BOOK_REVIEWS("book_review_buckets", "books", "reviews")
+    , USER_REVIEWS("user_review_buckets", "users", "reviews")
+    , USER_NOTIFICATIONS("user_notification_buckets", "users", "notifications")
+
+    ;
+
+    private final String collection;
+    private final String ownerCollection;
+    private final String legacyField;
+
+}
@@ -0,0 +1,31 @@
+package it.unipi.booknetapi.model.bucket;
+
+import lombok.*;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of an owner's id list: a book's reviews, a reader's reviews or a user's notifications.
+ * Only the newest bucket (highest seq) receives appends, older ones only shrink until compacted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdBucket {
+
+    @Id @BsonId
+    private String id; // Composite String ID: "ownerId_seq"
+
+    private ObjectId ownerId;
+    private Integer seq;
+
+    private Integer count;
+    // Oldest first
+    private List<ObjectId> ids = new ArrayList<>();
+
+}
@@ -0,0 +1,22 @@
+package it.unipi.booknetapi.model.external;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Entities imported with a GoodReads id (externalId.goodReads) that other imports refer to.
+ */
+@Getter
+@AllArgsConstructor
+public enum ExternalIdType {
+
+    BOOK("book", "books")
+    , AUTHOR("author", "authors")
+    , REVIEWER("reviewer", "users")
+
+    ;
+
+    private final String key;
+    private final String collection;
+
+}
@@ -0,0 +1,32 @@
+package it.unipi.booknetapi.model.fetch;
+
+import lombok.*;
+
+import java.util.Date;
+
+/**
+ * Resume point of an import, embedded in its ImportLog and advanced after every committed batch.
+ * Batches are committed out of order by the pipeline, so committedBatches is the contiguous
+ * prefix of the file that is fully written: a resume skips committedBatches * batchSize records.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCheckpoint {
+
+    private String filePath;
+    // SHA-256 of the file, a resume is refused if the file changed
+    private String fileDigest;
+    private Long fileSize;
+    // Line count of the file, an estimate of the records (CSV headers and multi-line records are not excluded)
+    private Long totalRecords;
+
+    private Integer batchSize;
+    private Long committedBatches;
+    private Long committedRecords;
+
+    private Double recordsPerSecond;
+    private Date updatedAt;
+
+}
@@ -1,5 +1,6 @@
 package it.unipi.booknetapi.model.fetch;
 
+import it.unipi.booknetapi.service.fetch.ImportEntityType;
 import it.unipi.booknetapi.shared.model.Source;
 import lombok.*;
 import org.bson.codecs.pojo.annotations.BsonId;
@@ -41,4 +42,13 @@ public class ImportLog {
     private String fileUrl;
 
 
+    // Tracking of the run, the fields above are final totals
+    private ImportStatus status;
+    private ImportEntityType importEntityType;
+    private ObjectId userId;
+    private Date startedAt;
+    private Date updatedAt;
+    private ImportCheckpoint checkpoint;
+
+
 }
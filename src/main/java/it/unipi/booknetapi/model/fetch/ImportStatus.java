@@ -0,0 +1,21 @@
+package it.unipi.booknetapi.model.fetch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum ImportStatus {
+
+    QUEUED("QUEUED")
+    , SCANNING("SCANNING")
+    , SKIPPING("SKIPPING")
+    , RUNNING("RUNNING")
+    , COMPLETED("COMPLETED")
+    , FAILED("FAILED")
+
+    ;
+
+    private final String status;
+
+}
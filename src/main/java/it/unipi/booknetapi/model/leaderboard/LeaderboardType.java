@@ -0,0 +1,20 @@
+package it.unipi.booknetapi.model.leaderboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum LeaderboardType {
+
+    BOOKS_BY_RATING("books_by_rating")
+    , BOOKS_BY_SHELF("books_by_shelf")
+    , AUTHORS_MOST_WRITTEN("authors_most_written")
+    , AUTHORS_MOST_FOLLOWED("authors_most_followed")
+    , AUTHORS_MOST_READ("authors_most_read")
+
+    ;
+
+    private final String type;
+
+}
@@ -0,0 +1,27 @@
+package it.unipi.booknetapi.model.migrate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Collections copied to Neo4j by a migration. Entities of the same stage are migrated together,
+ * a stage starts when the previous one has completed: books link to their authors and genres,
+ * shelves and reviews match the books.
+ */
+@Getter
+@AllArgsConstructor
+public enum MigrationEntity {
+
+    GENRES("genres", 0)
+    , AUTHORS("authors", 0)
+    , BOOKS("books", 1)
+    , READERS("readers", 2)
+    , REVIEWERS("reviewers", 2)
+    , REVIEWS("reviews", 3)
+
+    ;
+
+    private final String key;
+    private final int stage;
+
+}
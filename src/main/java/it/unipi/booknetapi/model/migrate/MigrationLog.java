@@ -0,0 +1,36 @@
+package it.unipi.booknetapi.model.migrate;
+
+import lombok.*;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationLog {
+
+    @Id
+    @BsonId
+    private ObjectId id;
+
+    private ObjectId userId;
+
+    private MigrationStatus status;
+    private String message;
+
+    private Integer rangesPerCollection;
+    private Integer concurrency;
+
+    // Planned once, a resume keeps the same boundaries
+    private List<MigrationRange> ranges;
+
+    private Date startedAt;
+    private Date updatedAt;
+    private Date finishedAt;
+
+}
@@ -0,0 +1,35 @@
+package it.unipi.booknetapi.model.migrate;
+
+import lombok.*;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+
+/**
+ * One (afterId, upToId] slice of a collection, embedded in its MigrationLog.
+ * lastId is advanced after every batch written to Neo4j, a resume continues after it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationRange {
+
+    private MigrationEntity entity;
+    private Integer index;
+
+    // Exclusive lower bound, null for the start of the collection
+    private ObjectId afterId;
+    // Inclusive upper bound, null for the end of the collection
+    private ObjectId upToId;
+
+    private ObjectId lastId;
+    private Long migrated;
+
+    private MigrationStatus status;
+    private String error;
+
+    private Date startedAt;
+    private Date updatedAt;
+
+}
@@ -0,0 +1,20 @@
+package it.unipi.booknetapi.model.migrate;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum MigrationStatus {
+
+    QUEUED("QUEUED")
+    , PLANNING("PLANNING")
+    , RUNNING("RUNNING")
+    , COMPLETED("COMPLETED")
+    , FAILED("FAILED")
+
+    ;
+
+    private final String status;
+
+}
@@ -0,0 +1,49 @@
+package it.unipi.booknetapi.model.outbox;
+
+import lombok.*;
+import org.bson.Document;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+
+import java.util.Date;
+
+/**
+ * A pending Neo4j write, stored in the same MongoDB transaction as the document it mirrors.
+ * The payload holds one UNWIND row: plain strings/numbers only (dates as epoch millis).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @BsonId
+    private ObjectId id;
+
+    private OutboxEventType type;
+
+    private Document payload;
+
+    private OutboxStatus status;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    private Date createdAt;
+    private Date processedAt;
+
+
+    public static OutboxEvent of(OutboxEventType type, Document payload) {
+        return OutboxEvent.builder()
+                .type(type)
+                .payload(payload)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .createdAt(new Date())
+                .build();
+    }
+
+}
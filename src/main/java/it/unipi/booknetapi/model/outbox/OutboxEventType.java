@@ -0,0 +1,21 @@
+package it.unipi.booknetapi.model.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum OutboxEventType {
+
+    BOOK_UPSERT("BOOK_UPSERT")
+    , GENRE_UPSERT("GENRE_UPSERT")
+    , SHELF_UPSERT("SHELF_UPSERT")
+    , REVIEW_UPSERT("REVIEW_UPSERT")
+    , SHELF_DELETE("SHELF_DELETE")
+    , REVIEW_DELETE("REVIEW_DELETE")
+
+    ;
+
+    private final String type;
+
+}
@@ -0,0 +1,7 @@
+package it.unipi.booknetapi.model.outbox;
+
+public enum OutboxStatus {
+    PENDING,
+    DONE,
+    FAILED
+}
@@ -8,4 +8,12 @@ import lombok.*;
 public class ReviewSummary {
     private Float rating;
     private Integer count;
+    // Sum of the ratings, kept next to count so the average is updated without reading the book
+    private Double sum;
+
+    public ReviewSummary(Float rating, Integer count) {
+        this.rating = rating;
+        this.count = count;
+        this.sum = rating != null && count != null ? (double) rating * count : null;
+    }
 }
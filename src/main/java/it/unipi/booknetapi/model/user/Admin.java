@@ -16,9 +16,17 @@ import java.util.List;
 @BsonDiscriminator(key = "role", value = "Admin")
 public class Admin extends User {
 
+    // The discriminator is read so that the projected document still decodes as an Admin
+    public final static String[] NOTIFICATIONS_FIELDS = {"_id", "role", "lastNotifications"};
+    public final static String[] UNREAD_FIELDS = {"_id", "role", "unreadNotifications"};
+
     private Role role = Role.Admin;
 
     private List<NotificationEmbed> lastNotifications = new ArrayList<>();
+    // Maintained with $inc from 0 at registration; null for admins created before the counter
+    // until NotificationService counts it at startup
+    private Integer unreadNotifications;
+    // Legacy: notification ids are kept in user_notification_buckets
     private List<ObjectId> notifications = new ArrayList<>();
 
 }
@@ -19,6 +19,7 @@ public class Reader extends User {
 
     private Role role = Role.Reader;
 
+    // Legacy: review ids are kept in user_review_buckets, the compaction job drains this array
     private List<ObjectId> reviews = new ArrayList<>();
     private List<UserBookShelf> shelf = new ArrayList<>();
     private ReaderPreference preference;
@@ -9,6 +9,8 @@ import org.bson.types.ObjectId;
 @AllArgsConstructor
 public class UserEmbed {
 
+    public final static String[] FIELDS = {"_id", "name", "imageUrl", "role"};
+
     private ObjectId id;
 
     private String name;
@@ -10,10 +10,14 @@ import com.mongodb.client.result.UpdateResult;
 import io.micrometer.core.instrument.MeterRegistry;
 import it.unipi.booknetapi.dto.author.AuthorGoodReads;
 import it.unipi.booknetapi.model.author.Author;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
 import it.unipi.booknetapi.model.author.AuthorStats;
 import it.unipi.booknetapi.model.book.BookEmbed;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.database.MongoRanges;
 import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.ExternalId;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.bson.Document;
@@ -22,12 +26,15 @@ import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.regex.Pattern;
 
 @Repository
+@Profile("!local")
 public class AuthorRepository implements AuthorRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(AuthorRepository.class);
@@ -38,9 +45,11 @@ public class AuthorRepository implements AuthorRepositoryInterface {
     private final MongoCollection<Author> mongoCollection;
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
+    private final SearchIndex searchIndex;
 
     public AuthorRepository(
             AppConfig appConfig,
+            SearchIndexManager searchIndexManager,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -51,6 +60,7 @@ public class AuthorRepository implements AuthorRepositoryInterface {
         this.mongoCollection = mongoDatabase.getCollection("authors", Author.class);
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.searchIndex = searchIndexManager.authors();
     }
 
 
@@ -72,6 +82,7 @@ public class AuthorRepository implements AuthorRepositoryInterface {
 
                 if(insertOneResult.getInsertedId() != null) {
                     mongoSession.commitTransaction();
+                    this.searchIndex.put(author.getId(), author.getName());
                     saveAuthorToNeo4j(author);
                     return author;
                 } else {
@@ -128,6 +139,7 @@ public class AuthorRepository implements AuthorRepositoryInterface {
                 saveAuthorsToNeo4j(authors);
 
                 mongoSession.commitTransaction();
+                authors.forEach(author -> this.searchIndex.put(author.getId(), author.getName()));
 
                 logger.debug("[REPOSITORY] [AUTHOR] [INSERT] Many authors inserted successfully: {}", authors.size());
 
@@ -215,6 +227,8 @@ public class AuthorRepository implements AuthorRepositoryInterface {
 
             bulkUpdateAuthorsInNeo4j(authors);
 
+            // Renamed existing authors are not returned by the upserts, the search index reload picks them up
+            authors.forEach(author -> this.searchIndex.put(author.getId(), author.getName()));
             result.addAll(authors);
         }
 
@@ -447,6 +461,7 @@ public class AuthorRepository implements AuthorRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteAuthorFromNeo4j(idAuthor);
                     mongoSession.commitTransaction();
+                    this.searchIndex.remove(new ObjectId(idAuthor));
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -505,6 +520,7 @@ public class AuthorRepository implements AuthorRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteAuthorsFromNeo4j(ids);
                     mongoSession.commitTransaction();
+                    this.searchIndex.removeAll(ids.stream().map(ObjectId::new).toList());
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -643,6 +659,19 @@ public class AuthorRepository implements AuthorRepositoryInterface {
         Objects.requireNonNull(name);
         logger.debug("[REPOSITORY] [AUTHOR] [SEARCH] name: {}, page: {}, size: {}", name, page, size);
 
+        SearchIndex.Hits hits = this.searchIndex.search(name, page * size, size);
+        if(hits != null) {
+            Map<ObjectId, Author> found = new HashMap<>();
+            find(hits.hits().stream().map(SearchIndex.Hit::id).toList()).forEach(author -> found.put(author.getId(), author));
+
+            List<Author> authors = hits.hits().stream()
+                    .map(hit -> found.get(hit.id()))
+                    .filter(Objects::nonNull)
+                    .toList();
+
+            return new PageResult<>(authors, hits.total(), page, size);
+        }
+
         int skip = page * size;
 
         List<Author> authors = this.mongoCollection
@@ -698,6 +727,25 @@ public class AuthorRepository implements AuthorRepositoryInterface {
     }
 
 
+    /**
+     * @param idAuthors author's ids
+     * @return the embedded form of the authors found, read with a projection (the books array is not fetched)
+     */
+    @Override
+    public List<AuthorEmbed> findEmbeds(Collection<ObjectId> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [MANY] [EMBED] authors ids size: {}", idAuthors.size());
+
+        if(idAuthors.isEmpty()) return List.of();
+
+        return this.mongoCollection
+                .find(Filters.in("_id", idAuthors))
+                .projection(Projections.include(AuthorEmbed.FIELDS))
+                .map(AuthorEmbed::new)
+                .into(new ArrayList<>());
+    }
+
     /**
      * @param idAuthors extern goodreads author's ids
      * @return list of authors with the given ids, or empty if not found
@@ -859,44 +907,32 @@ public class AuthorRepository implements AuthorRepositoryInterface {
     public void migrate() {
         logger.debug("[REPOSITORY] [AUTHOR] [MIGRATE]");
 
-        /*long total = this.mongoCollection
-                .countDocuments();
-
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
-
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Author> authors = this.mongoCollection
-                    .find()
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            bulkUpdateAuthorsInNeo4j(authors);
-        }*/
-
-
-        int offset = 0;
-
-        ObjectId lastId = new ObjectId("000000000000000000000000");
-
-        while (true) {
-            logger.debug("[REPOSITORY] [AUTHOR] [MIGRATE] [MONGODB TO NEO4J] Migrated batch: {} to {}", offset, offset + batchSize);
-
-            List<Author> authors = this.mongoCollection
-                    .find(Filters.gt("_id", lastId))
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            if(authors.isEmpty()) break;
+        long migrated = migrate(null, null, null);
 
-            lastId = authors.getLast().getId();
+        logger.debug("[REPOSITORY] [AUTHOR] [MIGRATE] [END] authors: {}", migrated);
+    }
 
-            bulkUpdateAuthorsInNeo4j(authors);
+    /**
+     * @param ranges wanted number of ranges
+     * @return the upper bounds of the _id ranges, see {@link MongoRanges#split}
+     */
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return MongoRanges.split(this.mongoCollection, null, ranges);
+    }
 
-            offset += this.batchSize;
-        }
+    /**
+     * Copies the authors with afterId < _id <= upToId to Neo4j.
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return authors migrated
+     */
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [AUTHOR] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
 
+        return MongoRanges.walk(this.mongoCollection, null, afterId, upToId, this.batchSize, Author::getId, this::bulkUpdateAuthorsInNeo4j, onBatch);
     }
 
 }
@@ -9,8 +9,10 @@ import it.unipi.booknetapi.model.book.BookEmbed;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.bson.types.ObjectId;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface AuthorRepositoryInterface {
 
@@ -39,6 +41,7 @@ public interface AuthorRepositoryInterface {
     PageResult<Author> search(String name, int page, int size);
     List<Author> findAll(List<String> idAuthors);
     List<Author> find(List<ObjectId> idAuthors);
+    List<AuthorEmbed> findEmbeds(Collection<ObjectId> idAuthors);
     List<BookEmbed> findBooksByAuthor(String authorId);
     List<Author> findAuthorsByNames(List<String> names);
 
@@ -51,5 +54,7 @@ public interface AuthorRepositoryInterface {
     List<AuthorStats> findMostReadAuthors(int limit);
 
     void migrate();
+    List<ObjectId> splitForMigration(int ranges);
+    long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
 
 }
@@ -0,0 +1,483 @@
+package it.unipi.booknetapi.repository.author;
+
+import it.unipi.booknetapi.dto.author.AuthorGoodReads;
+import it.unipi.booknetapi.model.author.Author;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.author.AuthorStats;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.user.Reader;
+import it.unipi.booknetapi.model.user.UserBookShelf;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
+import it.unipi.booknetapi.shared.model.ExternalId;
+import it.unipi.booknetapi.shared.model.PageResult;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * AuthorRepository of the local profile, on the {@link InMemoryStore}.
+ * The author rankings walk the same relationships as the Cypher queries, taken from the documents:
+ * WRITTEN_BY from the authors of the books, FOLLOWS from the reader preferences, ADDED_TO_SHELF
+ * from the reader shelves.
+ */
+@Repository
+@Profile("local")
+public class InMemoryAuthorRepository implements AuthorRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryAuthorRepository.class);
+
+    private final InMemoryCollection<Author> collection;
+    private final InMemoryStore store;
+    private final SearchIndex searchIndex;
+
+    public InMemoryAuthorRepository(InMemoryStore store, SearchIndexManager searchIndexManager) {
+        this.store = store;
+        this.collection = store.authors();
+        this.searchIndex = searchIndexManager.authors();
+    }
+
+    private static List<ObjectId> toObjectIds(List<String> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+    }
+
+    private static boolean sameId(BookEmbed book, ObjectId idBook) {
+        return book != null && idBook.equals(book.getId());
+    }
+
+
+    @Override
+    public Author insert(Author author) {
+        Objects.requireNonNull(author);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [INSERT] author: {}", author);
+
+        this.collection.insert(author);
+        this.searchIndex.put(author.getId(), author.getName());
+        return author;
+    }
+
+    @Override
+    public List<Author> insert(List<Author> authors) {
+        Objects.requireNonNull(authors);
+
+        if(authors.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [AUTHOR] [INSERT MANY] author size: {}", authors.size());
+
+        authors.forEach(this::insert);
+        return authors;
+    }
+
+    @Override
+    public List<Author> insertUsingName(List<String> names) {
+        Objects.requireNonNull(names);
+
+        if(names.isEmpty()) return List.of();
+
+        List<Author> authors = names.stream()
+                .distinct()
+                .map(name -> Author.builder()
+                        .name(name)
+                        .books(List.of())
+                        .externalId(new ExternalId())
+                        .build()
+                )
+                .toList();
+
+        return insert(authors);
+    }
+
+    /**
+     * Upsert on externalId.goodReads, as the bulk write of AuthorRepository: the name is always set,
+     * the other fields only on insert.
+     * @return the inserted authors
+     */
+    @Override
+    public synchronized List<Author> importAuthors(List<AuthorGoodReads> importedAuthors) {
+        logger.debug("[REPOSITORY] [AUTHOR] [IMPORT] Importing {} authors from GoodReads", importedAuthors.size());
+
+        List<Author> inserted = new ArrayList<>();
+
+        for (AuthorGoodReads source : importedAuthors) {
+            String goodReadsId = source.getAuthorId();
+
+            Optional<Author> existing = goodReadsId != null
+                    ? this.collection.findFirstBy("externalId.goodReads", goodReadsId)
+                    : Optional.empty();
+
+            if (existing.isPresent()) {
+                this.collection.update(existing.get().getId(), author -> author.setName(source.getName()));
+                continue;
+            }
+
+            inserted.add(insert(Author.builder()
+                    .name(source.getName())
+                    .books(List.of())
+                    .externalId(ExternalId.builder().goodReads(goodReadsId).build())
+                    .build()));
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public boolean updateDescription(String idAuthor, String newDescription) {
+        Objects.requireNonNull(idAuthor);
+
+        if(!ObjectId.isValid(idAuthor)) return false;
+
+        return this.collection.update(new ObjectId(idAuthor), author -> author.setDescription(newDescription));
+    }
+
+    @Override
+    public boolean updateImage(String idAuthor, String newImageUrl) {
+        Objects.requireNonNull(idAuthor);
+
+        if(!ObjectId.isValid(idAuthor)) return false;
+
+        return this.collection.update(new ObjectId(idAuthor), author -> author.setImageUrl(newImageUrl));
+    }
+
+    @Override
+    public boolean updateBooks(String idAuthor, List<BookEmbed> books) {
+        Objects.requireNonNull(idAuthor);
+        Objects.requireNonNull(books);
+
+        if (books.isEmpty()) return false;
+        if(!ObjectId.isValid(idAuthor)) return false;
+
+        return updateBooks(new ObjectId(idAuthor), books);
+    }
+
+    /**
+     * Adds the books that are not in the list yet ($addToSet).
+     */
+    @Override
+    public boolean updateBooks(ObjectId idAuthor, List<BookEmbed> books) {
+        Objects.requireNonNull(idAuthor);
+        Objects.requireNonNull(books);
+
+        if (books.isEmpty()) return false;
+
+        logger.debug("[REPOSITORY] [AUTHOR] [SET BOOKS] author: {}, book size: {}", idAuthor, books.size());
+
+        return this.collection.update(idAuthor, author -> {
+            List<BookEmbed> current = author.getBooks() != null ? new ArrayList<>(author.getBooks()) : new ArrayList<>();
+            for (BookEmbed book : books) {
+                if (!current.contains(book)) current.add(book);
+            }
+            author.setBooks(current);
+        });
+    }
+
+    @Override
+    public boolean addBook(String idAuthor, BookEmbed book) {
+        Objects.requireNonNull(idAuthor);
+        Objects.requireNonNull(book);
+
+        if(!ObjectId.isValid(idAuthor)) return false;
+
+        logger.debug("[REPOSITORY] [AUTHOR] [ADD BOOK] author: {}, book: {}", idAuthor, book.getId().toHexString());
+
+        return this.collection.update(new ObjectId(idAuthor), author -> {
+            List<BookEmbed> current = author.getBooks() != null ? new ArrayList<>(author.getBooks()) : new ArrayList<>();
+            current.add(book);
+            author.setBooks(current);
+        });
+    }
+
+    @Override
+    public boolean removeBook(String idAuthor, String idBook) {
+        Objects.requireNonNull(idAuthor);
+        Objects.requireNonNull(idBook);
+
+        if(!ObjectId.isValid(idAuthor)) return false;
+        if(!ObjectId.isValid(idBook)) return false;
+
+        logger.debug("[REPOSITORY] [AUTHOR] [REMOVE BOOK] author: {}, book: {}", idAuthor, idBook);
+
+        ObjectId bookId = new ObjectId(idBook);
+        return this.collection.update(new ObjectId(idAuthor), author -> {
+            if (author.getBooks() == null) return;
+            author.setBooks(author.getBooks().stream().filter(book -> !sameId(book, bookId)).collect(Collectors.toList()));
+        });
+    }
+
+    @Override
+    public boolean delete(String idAuthor) {
+        Objects.requireNonNull(idAuthor);
+
+        if(!ObjectId.isValid(idAuthor)) return false;
+
+        logger.debug("[REPOSITORY] [AUTHOR] [DELETE] [BY ID] id: {}", idAuthor);
+
+        ObjectId id = new ObjectId(idAuthor);
+        if (!this.collection.delete(id)) return false;
+
+        this.searchIndex.remove(id);
+        return true;
+    }
+
+    @Override
+    public boolean delete(List<String> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [DELETE] [BY IDS] authors ids: {}", idAuthors);
+
+        List<ObjectId> ids = toObjectIds(idAuthors);
+        if(ids.isEmpty()) return true;
+
+        if (this.collection.delete(ids) == 0) return false;
+
+        this.searchIndex.removeAll(ids);
+        return true;
+    }
+
+    @Override
+    public Optional<Author> findById(String idAuthor) {
+        Objects.requireNonNull(idAuthor);
+
+        if(!ObjectId.isValid(idAuthor)) return Optional.empty();
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [BY ID] id: {}", idAuthor);
+
+        return this.collection.findById(new ObjectId(idAuthor));
+    }
+
+    @Override
+    public List<Author> findAllById(List<String> idAuthors) {
+        if (idAuthors == null || idAuthors.isEmpty()) return new ArrayList<>();
+
+        return this.collection.find(toObjectIds(idAuthors));
+    }
+
+    @Override
+    public PageResult<Author> findAll(int page, int size) {
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [ALL] page: {}, size: {}", page, size);
+
+        List<Author> authors = this.collection.stream()
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+
+        return new PageResult<>(authors, this.collection.count(), page, size);
+    }
+
+    @Override
+    public PageResult<Author> search(String name, int page, int size) {
+        Objects.requireNonNull(name);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [SEARCH] name: {}, page: {}, size: {}", name, page, size);
+
+        SearchIndex.Hits hits = this.searchIndex.search(name, page * size, size);
+        if(hits != null) {
+            List<Author> authors = this.collection.find(hits.hits().stream().map(SearchIndex.Hit::id).toList());
+            return new PageResult<>(authors, hits.total(), page, size);
+        }
+
+        // Same as the case-insensitive "contains" regex of AuthorRepository
+        String needle = name.toLowerCase(Locale.ROOT);
+        return this.collection.find(
+                author -> author.getName() != null && author.getName().toLowerCase(Locale.ROOT).contains(needle),
+                Comparator.comparing(Author::getId),
+                page,
+                size
+        );
+    }
+
+    @Override
+    public List<Author> findAll(List<String> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [MANY] authors: {}", idAuthors.size());
+
+        return find(toObjectIds(idAuthors));
+    }
+
+    @Override
+    public List<Author> find(List<ObjectId> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [MANY] authors ids size: {}", idAuthors.size());
+
+        if(idAuthors.isEmpty()) return List.of();
+
+        return this.collection.find(idAuthors);
+    }
+
+    @Override
+    public List<AuthorEmbed> findEmbeds(Collection<ObjectId> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        if(idAuthors.isEmpty()) return List.of();
+
+        return this.collection.find(idAuthors).stream()
+                .map(AuthorEmbed::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookEmbed> findBooksByAuthor(String authorId) {
+        Objects.requireNonNull(authorId);
+
+        if(!ObjectId.isValid(authorId)) return Collections.emptyList();
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [BOOK] [BY AUTHOR] [ID] id: {}", authorId);
+
+        return this.collection.findById(new ObjectId(authorId))
+                .map(Author::getBooks)
+                .orElse(Collections.emptyList());
+    }
+
+    @Override
+    public List<Author> findAuthorsByNames(List<String> names) {
+        if (names == null || names.isEmpty()) return new ArrayList<>();
+
+        return names.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .flatMap(name -> this.collection.findBy("name", name).stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Author> findByExternGoodReadIds(List<String> idAuthors) {
+        Objects.requireNonNull(idAuthors);
+
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND] [MANY] [BY EXTERN GOOD READ IDS] authors ids size: {}", idAuthors.size());
+
+        if(idAuthors.isEmpty()) return List.of();
+
+        return idAuthors.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .flatMap(id -> this.collection.findBy("externalId.goodReads", id).stream())
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * @param counts occurrences of each author id
+     * @param names name of each author id
+     * @return the limit authors with the highest count
+     */
+    private static List<AuthorStats> top(Map<ObjectId, Long> counts, Map<ObjectId, String> names, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<ObjectId, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> AuthorStats.builder()
+                        .id(entry.getKey().toHexString())
+                        .name(names.get(entry.getKey()))
+                        .count(entry.getValue())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AuthorStats> findMostWrittenBooksAuthors(int limit) {
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND MOST WRITTEN BOOKS] limit: {}", limit);
+
+        Map<ObjectId, Long> counts = new HashMap<>();
+        Map<ObjectId, String> names = new HashMap<>();
+
+        this.store.books().stream().forEach(book -> {
+            if (book.getAuthors() == null) return;
+            book.getAuthors().stream()
+                    .filter(author -> author != null && author.getId() != null)
+                    .forEach(author -> {
+                        counts.merge(author.getId(), 1L, Long::sum);
+                        names.putIfAbsent(author.getId(), author.getName());
+                    });
+        });
+
+        return top(counts, names, limit);
+    }
+
+    @Override
+    public List<AuthorStats> findMostFollowedAuthors(int limit) {
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND MOST FOLLOWED] limit: {}", limit);
+
+        Map<ObjectId, Long> counts = new HashMap<>();
+        Map<ObjectId, String> names = new HashMap<>();
+
+        this.store.users().stream().forEach(user -> {
+            if (!(user instanceof Reader reader) || reader.getPreference() == null || reader.getPreference().getAuthors() == null) return;
+            reader.getPreference().getAuthors().stream()
+                    .filter(author -> author != null && author.getId() != null)
+                    .distinct()
+                    .forEach(author -> {
+                        counts.merge(author.getId(), 1L, Long::sum);
+                        names.putIfAbsent(author.getId(), author.getName());
+                    });
+        });
+
+        return top(counts, names, limit);
+    }
+
+    @Override
+    public List<AuthorStats> findMostReadAuthors(int limit) {
+        logger.debug("[REPOSITORY] [AUTHOR] [FIND MOST READ] limit: {}", limit);
+
+        // Shelf entries per book first, then spread over the authors of each book
+        Map<ObjectId, Long> shelved = new HashMap<>();
+        this.store.users().stream().forEach(user -> {
+            if (!(user instanceof Reader reader) || reader.getShelf() == null) return;
+            reader.getShelf().stream()
+                    .map(UserBookShelf::getBook)
+                    .filter(book -> book != null && book.getId() != null)
+                    .forEach(book -> shelved.merge(book.getId(), 1L, Long::sum));
+        });
+
+        Map<ObjectId, Long> counts = new HashMap<>();
+        Map<ObjectId, String> names = new HashMap<>();
+
+        for (Book book : this.store.books().find(shelved.keySet())) {
+            if (book.getAuthors() == null) continue;
+            long reads = shelved.get(book.getId());
+            book.getAuthors().stream()
+                    .filter(author -> author != null && author.getId() != null)
+                    .forEach(author -> {
+                        counts.merge(author.getId(), reads, Long::sum);
+                        names.putIfAbsent(author.getId(), author.getName());
+                    });
+        }
+
+        return top(counts, names, limit);
+    }
+
+
+    /*
+     * Nothing to migrate: the local profile has no Neo4j, the graph queries read the store.
+     */
+
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [AUTHOR] [MIGRATE] no graph in the local profile");
+    }
+
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+}
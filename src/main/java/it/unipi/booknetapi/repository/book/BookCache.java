@@ -0,0 +1,84 @@
+package it.unipi.booknetapi.repository.book;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.shared.lib.cache.CacheInvalidationBroadcaster;
+import it.unipi.booknetapi.shared.lib.cache.NearCache;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Near-cache of the book documents (page views, reviews and shelf updates) and of their embedded form.
+ * Every BookRepository mutator evicts the book from both caches.
+ */
+@Component
+public class BookCache {
+
+    private final NearCache<Book> books;
+    private final NearCache<BookEmbed> embeds;
+
+    public BookCache(AppConfiguration config, MeterRegistry registry, CacheInvalidationBroadcaster broadcaster) {
+        Duration ttl = Duration.ofSeconds(config.getLong("app.cache.book.ttl-seconds", 600L));
+
+        // Weighted in KB: the reviews/similar books arrays are unbounded, so a count limit alone is not enough
+        this.books = new NearCache<>(
+                "books",
+                config.getLong("app.cache.book.max-weight-kb", 65536L),
+                (id, book) -> weightKb(book),
+                ttl,
+                registry,
+                broadcaster
+        );
+        this.embeds = new NearCache<>(
+                "books.embed",
+                config.getLong("app.cache.book-embed.max-size", 50000L),
+                (id, embed) -> 1,
+                ttl,
+                registry,
+                broadcaster
+        );
+    }
+
+    private static int weightKb(Book book) {
+        long bytes = 2048;
+        if (book.getReviews() != null) bytes += 24L * book.getReviews().size();
+        if (book.getSimilarBooks() != null) bytes += 512L * book.getSimilarBooks().size();
+        if (book.getDescription() != null) bytes += 2L * book.getDescription().length();
+        return (int) Math.max(1, bytes / 1024);
+    }
+
+    NearCache<Book> books() {
+        return this.books;
+    }
+
+    NearCache<BookEmbed> embeds() {
+        return this.embeds;
+    }
+
+    public void invalidate(String idBook) {
+        this.books.invalidate(idBook);
+        this.embeds.invalidate(idBook);
+    }
+
+    public void invalidate(ObjectId idBook) {
+        invalidate(idBook.toHexString());
+    }
+
+    public void invalidateAll(Collection<ObjectId> idBooks) {
+        List<String> keys = idBooks.stream().map(ObjectId::toHexString).toList();
+        this.books.invalidateAll(keys);
+        this.embeds.invalidateAll(keys);
+    }
+
+    public void clear() {
+        this.books.clear();
+        this.embeds.clear();
+    }
+
+}
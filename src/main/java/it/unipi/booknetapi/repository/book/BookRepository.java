@@ -13,16 +13,28 @@ import it.unipi.booknetapi.dto.book.BookGoodReads;
 import it.unipi.booknetapi.model.author.AuthorEmbed;
 import it.unipi.booknetapi.model.book.BookRecommendation;
 import it.unipi.booknetapi.model.book.BookStats;
+import it.unipi.booknetapi.model.bucket.BucketType;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.book.Book;
 import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxEventType;
 import it.unipi.booknetapi.model.review.ReviewSummary;
+import it.unipi.booknetapi.repository.bucket.IdBucketRepository;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
+import it.unipi.booknetapi.shared.lib.database.MongoRanges;
 import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import it.unipi.booknetapi.shared.lib.graph.GraphProjection;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.ExternalId;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import it.unipi.booknetapi.shared.utils.LanguageUtils;
+import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.neo4j.driver.Result;
@@ -30,13 +42,17 @@ import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Repository
+@Profile("!local")
 public class BookRepository implements BookRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(BookRepository.class);
@@ -47,9 +63,23 @@ public class BookRepository implements BookRepositoryInterface {
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
     private final MongoClient mongoClient;
+    private final OutboxRepositoryInterface outboxRepository;
+    private final BookCache bookCache;
+    private final SearchIndex searchIndex;
+    private final GraphProjection graphProjection;
+    private final BookSampler bookSampler;
+    private final IdBucketRepository idBucketRepository;
+    private final MongoCollection<Document> userCollection;
+    private final MongoCollection<Document> reviewCollection;
 
     public BookRepository(
             AppConfig appConfig,
+            OutboxRepositoryInterface outboxRepository,
+            BookCache bookCache,
+            SearchIndexManager searchIndexManager,
+            GraphProjection graphProjection,
+            BookSampler bookSampler,
+            IdBucketRepository idBucketRepository,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -60,9 +90,18 @@ public class BookRepository implements BookRepositoryInterface {
         this.mongoCollection = mongoDatabase.getCollection("books", Book.class);
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.outboxRepository = outboxRepository;
+        this.bookCache = bookCache;
+        this.searchIndex = searchIndexManager.books();
+        this.graphProjection = graphProjection;
+        this.bookSampler = bookSampler;
+        this.idBucketRepository = idBucketRepository;
+        this.userCollection = mongoDatabase.getCollection("users");
+        this.reviewCollection = mongoDatabase.getCollection("reviews");
     }
 
     private boolean handleUpdateResult(UpdateResult result, String idBook) {
+        if(result.getModifiedCount() > 0) this.bookCache.invalidate(idBook);
         return result.getModifiedCount() > 0;
     }
 
@@ -81,27 +120,33 @@ public class BookRepository implements BookRepositoryInterface {
             try{
                 boolean success;
                 if(book.getId() == null){
-                    InsertOneResult insertOneResult = this.mongoCollection.insertOne(book); //Upsert Logic (Update or Insert):
+                    InsertOneResult insertOneResult = this.mongoCollection.insertOne(session, book); //Upsert Logic (Update or Insert):
                     success = insertOneResult.wasAcknowledged();
                     if(success){
                         book.setId(Objects.requireNonNull(insertOneResult.getInsertedId()).asObjectId().getValue());
                     }
                 } else{
                     UpdateResult updateResult = this.mongoCollection.replaceOne(
-                            Filters.eq("_id", book.getId()), book
+                            session, Filters.eq("_id", book.getId()), book
                     );
                     success = updateResult.getModifiedCount() > 0;
                 }
                 if(success){
-                    saveBookToNeo4j(book);
+                    // The graph is updated by the outbox relay once the transaction is committed
+                    this.outboxRepository.insert(session, bookUpsertEvent(book));
                     session.commitTransaction();
+                    this.bookCache.invalidate(book.getId());
+                    this.searchIndex.put(book.getId(), book.getTitle());
+                    this.bookSampler.add(book.getId());
+                    this.graphProjection.onBook(book.getId().toHexString(), book.getTitle());
 
                     logger.info("Book inserted successfully: {}", book);
                     return book;
                 }
+                session.abortTransaction();
             } catch(Exception e){
                 session.abortTransaction();
-                logger.error("Error during inserting book in neo4j: {}",e.getMessage());
+                logger.error("Error during inserting book: {}",e.getMessage());
                 return null;
             }
         }
@@ -111,36 +156,37 @@ public class BookRepository implements BookRepositoryInterface {
     public Book insertWithThread(Book book) {
         Objects.requireNonNull(book);
 
-        InsertOneResult insertOneResult = this.mongoCollection.insertOne(book);
-        if(insertOneResult.wasAcknowledged()){
-            Thread thread = new Thread(() -> saveBookToNeo4j(book));
-            thread.start();
+        try(ClientSession session = this.mongoClient.startSession()){
+            session.startTransaction();
+
+            try{
+                InsertOneResult insertOneResult = this.mongoCollection.insertOne(session, book);
+                if(insertOneResult.wasAcknowledged()){
+                    book.setId(Objects.requireNonNull(insertOneResult.getInsertedId()).asObjectId().getValue());
+                    this.outboxRepository.insert(session, bookUpsertEvent(book));
+                    session.commitTransaction();
+                    this.searchIndex.put(book.getId(), book.getTitle());
+                    this.bookSampler.add(book.getId());
+                    this.graphProjection.onBook(book.getId().toHexString(), book.getTitle());
+                    return book;
+                }
+                session.abortTransaction();
+            } catch(Exception e){
+                session.abortTransaction();
+                logger.error("Error during inserting book: {}",e.getMessage());
+            }
         }
-        return insertOneResult.wasAcknowledged() ? book : null;
+        return null;
     }
 
-    private void saveBookToNeo4j(Book book) {
-        Objects.requireNonNull(book);
+    private OutboxEvent bookUpsertEvent(Book book) {
+        Document payload = new Document("id", book.getId().toHexString())
+                .append("title", book.getTitle())
+                .append("ratingAvg", book.getRatingReview() != null ? book.getRatingReview().getRating() : 0.0f);
 
-        this.registry.timer("neo4j.ops", "query", "save_book").record(() -> {
-            try(Session session = this.neo4jManager.getDriver().session()){
-                String cypher = "CREATE (b:Book {mid: $bookId, title : $title, ratingAvg: $ratingAvg})";
-                session.executeWrite(tx -> {
-                    tx.run(
-                            cypher,
-                            Values.parameters(
-                                    "bookId", book.getId().toHexString(),
-                                    "title", book.getTitle(),
-                                    "ratingAvg", book.getRatingReview()//getRatingReview actually gives you the document so think about this latter
-                            )
-                    );
-                    return null;
-                });
-            }
-        });
+        return OutboxEvent.of(OutboxEventType.BOOK_UPSERT, payload);
     }
 
-
     @Override
     public List<Book> saveAll(List<Book> books){
         Objects.requireNonNull(books);
@@ -155,6 +201,11 @@ public class BookRepository implements BookRepositoryInterface {
                 this.mongoCollection.insertMany(session, books);
                 saveBooksToNeo4j(books);
                 session.commitTransaction();
+                books.forEach(book -> {
+                    this.searchIndex.put(book.getId(), book.getTitle());
+                    this.bookSampler.add(book.getId());
+                    this.graphProjection.onBook(book.getId().toHexString(), book.getTitle());
+                });
 
                 logger.info("Books saved successfully : {}",books.size());
                 return books;
@@ -201,9 +252,18 @@ public class BookRepository implements BookRepositoryInterface {
                 bulkUpdateBooksInNeo4j(neo4jBatch);
             }
 
+            books.forEach(book -> {
+                this.searchIndex.put(book.getId(), book.getTitle());
+                this.bookSampler.add(book.getId());
+                this.graphProjection.onBook(book.getId().toHexString(), book.getTitle());
+            });
             result.addAll(books);
         }
 
+        // Existing books are matched by isbn, their ids are not returned by the upserts
+        // (the search index picks up their titles on its next reload)
+        this.bookCache.clear();
+
         return result;
     }
 
@@ -251,6 +311,7 @@ public class BookRepository implements BookRepositoryInterface {
             }
         }
 
+        this.bookCache.invalidateAll(bookAuthors.keySet());
     }
 
     private void importBooksAuthorsInNeo4j(Map<String, List<String>> bookAuthors) {
@@ -512,12 +573,19 @@ public class BookRepository implements BookRepositoryInterface {
 
                 saveBooksToNeo4jV2(books);
 
+                books.forEach(book -> {
+                    this.searchIndex.put(book.getId(), book.getTitle());
+                    this.bookSampler.add(book.getId());
+                    this.graphProjection.onBook(book.getId().toHexString(), book.getTitle());
+                });
                 allBooks.addAll(books);
             }
         }
 
         logger.debug("[REPOSITORY] [BOOK] [IMPORT] [MONGODB AND NEO4J] writes {} books", allBooks.size());
 
+        this.bookCache.clear();
+
         return allBooks;
     }
 
@@ -596,6 +664,11 @@ public class BookRepository implements BookRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0){
                     deleteBookFromNeo4J(idBook);
                     session.commitTransaction();
+                    this.bookCache.invalidate(idBook);
+                    this.searchIndex.remove(new ObjectId(idBook));
+                    this.bookSampler.remove(new ObjectId(idBook));
+                    this.graphProjection.onBookDeleted(idBook);
+                    this.idBucketRepository.deleteOwners(BucketType.BOOK_REVIEWS, List.of(new ObjectId(idBook)));
                     return true;
                 }
             }catch(Exception e){
@@ -630,24 +703,15 @@ public class BookRepository implements BookRepositoryInterface {
         Objects.requireNonNull(review.getUser());
         Objects.requireNonNull(review.getUser().getId());
 
-        Book book = this.mongoCollection.find(Filters.eq("_id", review.getBookId())).first();
-        if(book == null) return false;
-        ReviewSummary oldSummary = book.getRatingReview();
-
-        int newCount = oldSummary.getCount() + 1;
-        float newAvg = ((oldSummary.getRating() * oldSummary.getCount()) + review.getRating()) / newCount;
-
-        ReviewSummary updatedSummary = new ReviewSummary(newAvg, newCount);
-
         UpdateResult updateResult = this.mongoCollection.updateOne(
                 Filters.eq("_id", review.getBookId()),
-                Updates.combine(
-                        Updates.set("ratingReview", updatedSummary),
-                        Updates.push("reviews", review.getBookId())
-                )
+                addReviewsPipeline(List.of(review))
         );
+        if(updateResult.getMatchedCount() > 0) {
+            this.idBucketRepository.append(BucketType.BOOK_REVIEWS, review.getBookId(), List.of(review.getId()));
+        }
 
-        return updateResult.getModifiedCount() > 0;
+        return handleUpdateResult(updateResult, review.getBookId().toHexString());
     }
 
     @Override
@@ -655,43 +719,15 @@ public class BookRepository implements BookRepositoryInterface {
         if (idBook == null || !ObjectId.isValid(idBook)) return false;
         if (reviews == null || reviews.isEmpty()) return false;
 
-        ObjectId bookId = new ObjectId(idBook);
-
-        Book book = this.mongoCollection.find(Filters.eq("_id", bookId)).first();
-        if (book == null) return false;
-
-        ReviewSummary oldSummary = book.getRatingReview();
-
-        if (oldSummary == null) {
-            oldSummary = new ReviewSummary(0f, 0);
-        }
-
-        double oldTotalScore = oldSummary.getRating() * oldSummary.getCount();
-
-        double batchTotalScore = reviews.stream()
-                .mapToDouble(Review::getRating)
-                .sum();
-
-        int batchCount = reviews.size();
-        int newTotalCount = oldSummary.getCount() + batchCount;
-
-        float newAvg = (float) ((oldTotalScore + batchTotalScore) / newTotalCount);
-
-        ReviewSummary updatedSummary = new ReviewSummary(newAvg, newTotalCount);
-
-        List<ObjectId> newReviewIds = reviews.stream()
-                .map(Review::getId)
-                .collect(Collectors.toList());
-
         UpdateResult result = this.mongoCollection.updateOne(
-                Filters.eq("_id", bookId),
-                Updates.combine(
-                        Updates.set("ratingReview", updatedSummary),
-                        Updates.pushEach("reviews", newReviewIds) // Efficiently appends the whole list
-                )
+                Filters.eq("_id", new ObjectId(idBook)),
+                addReviewsPipeline(reviews)
         );
+        if(result.getMatchedCount() > 0) {
+            this.idBucketRepository.append(BucketType.BOOK_REVIEWS, new ObjectId(idBook), reviews.stream().map(Review::getId).toList());
+        }
 
-        return result.getModifiedCount() > 0;
+        return handleUpdateResult(result, idBook);
     }
 
     @Override
@@ -702,48 +738,67 @@ public class BookRepository implements BookRepositoryInterface {
                 .filter(r -> r.getBookId() != null)
                 .collect(Collectors.groupingBy(Review::getBookId));
 
-        int totalModified = 0;
-
-        for (Map.Entry<ObjectId, List<Review>> entry : reviewsByBook.entrySet()) {
-            ObjectId bookId = entry.getKey();
-            List<Review> batchReviews = entry.getValue();
+        if (reviewsByBook.isEmpty()) return false;
 
-            Book book = this.mongoCollection.find(Filters.eq("_id", bookId)).first();
-            if (book == null) continue;
-
-            ReviewSummary oldSummary = book.getRatingReview();
+        // One update per book, all of them in a single round trip
+        List<WriteModel<Book>> writes = reviewsByBook.entrySet().stream()
+                .<WriteModel<Book>>map(entry -> new UpdateOneModel<>(
+                        Filters.eq("_id", entry.getKey()),
+                        addReviewsPipeline(entry.getValue())
+                ))
+                .toList();
 
-            if (oldSummary == null) {
-                oldSummary = new ReviewSummary(0f, 0);
-            }
+        BulkWriteResult result = this.mongoCollection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        this.bookCache.invalidateAll(reviewsByBook.keySet());
 
-            double oldTotalScore = oldSummary.getRating() * oldSummary.getCount();
-            double batchTotalScore = batchReviews.stream().mapToDouble(Review::getRating).sum();
-            int batchCount = batchReviews.size();
+        Map<ObjectId, List<ObjectId>> reviewIdsByBook = new LinkedHashMap<>();
+        reviewsByBook.forEach((bookId, bookReviews) -> reviewIdsByBook.put(bookId, bookReviews.stream().map(Review::getId).toList()));
+        this.idBucketRepository.appendAll(BucketType.BOOK_REVIEWS, reviewIdsByBook);
 
-            int newTotalCount = oldSummary.getCount() + batchCount;
-            float newAvg = (float) ((oldTotalScore + batchTotalScore) / newTotalCount);
+        logger.debug("[REPOSITORY] [BOOK] [ADD REVIEWS] books: {}, modified: {}", writes.size(), result.getModifiedCount());
 
-            ReviewSummary updatedSummary = new ReviewSummary(newAvg, newTotalCount);
+        return result.getModifiedCount() > 0;
+    }
 
-            List<ObjectId> reviewIds = batchReviews.stream()
-                    .map(Review::getId)
-                    .toList();
+    /**
+     * Pipeline update that adds the ratings to ratingReview.sum/count, then derives
+     * ratingReview.rating from them. The review ids are not written here: the callers append them to the
+     * {@link BucketType#BOOK_REVIEWS} buckets. The whole update runs atomically on the server,
+     * so concurrent reviews on the same book can no longer overwrite each other's average.
+     * Reviews without a rating (0 or null) are linked to the book but not counted.
+     */
+    private List<Bson> addReviewsPipeline(List<Review> reviews) {
+        List<Integer> ratings = reviews.stream()
+                .map(Review::getRating)
+                .filter(rating -> rating != null && rating > 0)
+                .toList();
+        double ratingSum = ratings.stream().mapToDouble(Integer::doubleValue).sum();
+        int ratingCount = ratings.size();
+
+        Document currentCount = new Document("$ifNull", List.of("$ratingReview.count", 0));
+        // Books saved before the sum was stored: rebuild it from the average
+        Document currentSum = new Document("$ifNull", List.of(
+                "$ratingReview.sum",
+                new Document("$multiply", List.of(
+                        new Document("$ifNull", List.of("$ratingReview.rating", 0)),
+                        currentCount
+                ))
+        ));
 
-            UpdateResult result = this.mongoCollection.updateOne(
-                    Filters.eq("_id", bookId),
-                    Updates.combine(
-                            Updates.set("ratingReview", updatedSummary),
-                            Updates.pushEach("reviews", reviewIds)
-                    )
-            );
+        Bson counters = Aggregates.set(
+                new Field<>("ratingReview.sum", new Document("$add", List.of(currentSum, ratingSum))),
+                new Field<>("ratingReview.count", new Document("$add", List.of(currentCount, ratingCount)))
+        );
 
-            if (result.getModifiedCount() > 0) {
-                totalModified++;
-            }
-        }
+        Bson average = Aggregates.set(
+                new Field<>("ratingReview.rating", new Document("$cond", List.of(
+                        new Document("$gt", List.of("$ratingReview.count", 0)),
+                        new Document("$divide", List.of("$ratingReview.sum", "$ratingReview.count")),
+                        0
+                )))
+        );
 
-        return totalModified > 0;
+        return List.of(counters, average);
     }
 
     @Override
@@ -751,14 +806,11 @@ public class BookRepository implements BookRepositoryInterface {
         if (idBook == null || !ObjectId.isValid(idBook)) return false;
         if (reviewsIds == null || reviewsIds.isEmpty()) return false;
 
-        ObjectId bookId = new ObjectId(idBook);
+        boolean removed = this.idBucketRepository.remove(BucketType.BOOK_REVIEWS, new ObjectId(idBook), reviewsIds);
+        // The legacy array may have been modified
+        if(removed) this.bookCache.invalidate(idBook);
 
-        UpdateResult result = this.mongoCollection.updateOne(
-                Filters.eq("_id", bookId),
-                Updates.pullAll("reviews", reviewsIds)
-        );
-
-        return result.getModifiedCount() > 0;
+        return removed;
     }
 
     @Override
@@ -767,32 +819,24 @@ public class BookRepository implements BookRepositoryInterface {
         Objects.requireNonNull(idUser);
         Objects.requireNonNull(idReview);
 
-       UpdateResult updateResult = this.mongoCollection.updateOne(
-               Filters.eq("_id", new ObjectId(idBook)),
-               Updates.pull("reviews", Filters.eq("_id", new ObjectId(idReview)))
-        );
+        if(!ObjectId.isValid(idBook) || !ObjectId.isValid(idReview)) return false;
 
-        return updateResult.getModifiedCount() > 0;
+        return removeReviews(idBook, List.of(new ObjectId(idReview)));
     }
 
     /**
-     * @param idBook
-     * @return
+     * @param idBook book's id
+     * @param pagination page/size or cursor/size
+     * @return a page of the review ids of the book, newest first
      */
     @Override
-    public List<ObjectId> getReviewsIds(String idBook) {
+    public PageResult<ObjectId> getReviewsIds(String idBook, PaginationRequest pagination) {
         Objects.requireNonNull(idBook);
+        Objects.requireNonNull(pagination);
 
-        if(!ObjectId.isValid(idBook)) return List.of();
+        if(!ObjectId.isValid(idBook)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
 
-        Book book = this.mongoCollection
-                .find(Filters.eq("_id", new ObjectId(idBook)))
-                .projection(Projections.include("reviews"))
-                .first();
-
-        if(book == null) return List.of();
-
-        return book.getReviews();
+        return this.idBucketRepository.findIds(BucketType.BOOK_REVIEWS, new ObjectId(idBook), pagination);
     }
 
     @Override
@@ -867,6 +911,7 @@ public class BookRepository implements BookRepositoryInterface {
                 if (result.getModifiedCount() > 0) {
                     updateSimilarBooksInNeo4J(idBook, books);
                     mongoSession.commitTransaction();
+                    this.bookCache.invalidate(idBook);
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -995,6 +1040,7 @@ public class BookRepository implements BookRepositoryInterface {
                     bulkUpdateSimilarBooksInNeo4J(batch);
 
                     mongoSession.commitTransaction();
+                    this.bookCache.invalidateAll(batch.keySet().stream().filter(ObjectId::isValid).map(ObjectId::new).toList());
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -1075,6 +1121,8 @@ public class BookRepository implements BookRepositoryInterface {
                 if(result.getModifiedCount() > 0) {
                     updateGenresInNeo4J(idBook, genres);
                     mongoSession.commitTransaction();
+                    this.bookCache.invalidate(idBook);
+                    this.graphProjection.onBookGenres(idBook, genres.stream().map(genre -> genre.getId().toHexString()).toList());
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -1215,6 +1263,11 @@ public class BookRepository implements BookRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0){
                     deleteBookBatchFromNeo4j(idBooks);
                     session.commitTransaction();
+                    this.bookCache.invalidateAll(idBooks);
+                    this.searchIndex.removeAll(idBooks);
+                    this.bookSampler.removeAll(idBooks);
+                    idBooks.forEach(id -> this.graphProjection.onBookDeleted(id.toHexString()));
+                    this.idBucketRepository.deleteOwners(BucketType.BOOK_REVIEWS, idBooks);
                     return true;
                 }
             }catch(Exception e){
@@ -1245,11 +1298,57 @@ public class BookRepository implements BookRepositoryInterface {
     public Optional<Book> findById(String idBook) {
         Objects.requireNonNull(idBook);
 
-        Book book = this.mongoCollection
-                .find(Filters.eq("_id", new ObjectId(idBook)))
-                .first();
+        if(!ObjectId.isValid(idBook)) return Optional.empty();
+
+        return this.bookCache.books().get(idBook, id -> this.mongoCollection
+                .find(Filters.eq("_id", new ObjectId(id)))
+                .first()
+        );
+    }
 
-        return book != null ? Optional.of(book) : Optional.empty();
+    /**
+     * @param idBook book's id
+     * @return the embedded form of the book, read with a projection (the reviews array is not fetched)
+     */
+    @Override
+    public Optional<BookEmbed> findEmbedById(String idBook) {
+        Objects.requireNonNull(idBook);
+
+        if(!ObjectId.isValid(idBook)) return Optional.empty();
+
+        return this.bookCache.embeds().get(idBook, id -> {
+            Book book = this.bookCache.books().getIfPresent(id)
+                    .orElseGet(() -> this.mongoCollection
+                            .find(Filters.eq("_id", new ObjectId(id)))
+                            .projection(Projections.include(BookEmbed.FIELDS))
+                            .first()
+                    );
+            return book != null ? new BookEmbed(book) : null;
+        });
+    }
+
+    /**
+     * @param idBooks book's ids
+     * @return the embedded form of the books found, from the embed cache; the misses are read with one projected $in
+     */
+    @Override
+    public List<BookEmbed> findEmbeds(Collection<ObjectId> idBooks) {
+        Objects.requireNonNull(idBooks);
+
+        if(idBooks.isEmpty()) return List.of();
+
+        List<String> keys = idBooks.stream().map(ObjectId::toHexString).distinct().toList();
+
+        return new ArrayList<>(this.bookCache.embeds().getAll(keys, misses -> {
+            logger.debug("[REPOSITORY] [BOOK] [FIND] [MANY] [EMBED] ids: {}, misses: {}", keys.size(), misses.size());
+
+            Map<String, BookEmbed> embeds = new HashMap<>(misses.size());
+            this.mongoCollection
+                    .find(Filters.in("_id", misses.stream().map(ObjectId::new).toList()))
+                    .projection(Projections.include(BookEmbed.FIELDS))
+                    .forEach(book -> embeds.put(book.getId().toHexString(), new BookEmbed(book)));
+            return embeds;
+        }).values());
     }
 
     @Override
@@ -1266,6 +1365,9 @@ public class BookRepository implements BookRepositoryInterface {
         Objects.requireNonNull(title);
         logger.debug("[REPOSITORY] [BOOK] [SEARCH] title: {}, page: {}, size: {}", title, page, size);
 
+        PageResult<Book> indexed = searchIndexed(title, page, size, this::find, Book::getId);
+        if(indexed != null) return indexed;
+
         int skip = page * size;
 
         List<Book> books = this.mongoCollection
@@ -1305,11 +1407,14 @@ public class BookRepository implements BookRepositoryInterface {
     public PageResult<BookEmbed> findBooksByGenre(String idGenre, int page, int size) {
         Objects.requireNonNull(idGenre);
 
-        Long total = this.countBooksByGenre(idGenre);
+        int pageSize = size < 1 ? 10 : size;
+        GraphProjection.GenrePage projected = this.graphProjection.booksByGenre(idGenre, Math.max(page, 0) * pageSize, pageSize);
+
+        Long total = projected != null ? Long.valueOf(projected.total()) : this.countBooksByGenre(idGenre);
 
         if(total == null || total == 0) return new PageResult<>(List.of(), 0, page, size);
 
-        List<String> idBooks = this.findBooksByGenreNeo4j(idGenre, page, size);
+        List<String> idBooks = projected != null ? projected.ids() : this.findBooksByGenreNeo4j(idGenre, page, size);
 
         if(idBooks.isEmpty()) return new PageResult<>(List.of(), total, page, size);
 
@@ -1402,29 +1507,127 @@ public class BookRepository implements BookRepositoryInterface {
         return new PageResult<>(books, total, page, size);
     }
 
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of books
+     */
+    @Override
+    public PageResult<Book> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [ALL] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.mongoCollection, null, pagination, Book::getId, false);
+    }
+
+    /**
+     * Same page as {@link #findAll(PaginationRequest)}, reading only the {@link BookEmbed#FIELDS}:
+     * the reviews and similar books arrays are left on the server.
+     */
+    @Override
+    public PageResult<BookEmbed> findAllEmbeds(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [ALL] [EMBED] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        PageResult<Book> result = MongoPagination.find(this.mongoCollection, null, Projections.include(BookEmbed.FIELDS), pagination, Book::getId, false);
+
+        return new PageResult<>(
+                result.getContent().stream().map(BookEmbed::new).toList(),
+                result.getTotalElements(),
+                result.getCurrentPage(),
+                result.getPageSize(),
+                result.getNextCursor()
+        );
+    }
+
     @Override
     public PageResult<Book> search(String title, int page, int size) {
         Objects.requireNonNull(title);
 
         logger.debug("[REPOSITORY] [BOOK] [SEARCH] title: {}, page: {}, size: {}", title, page, size);
 
+        PageResult<Book> indexed = searchIndexed(title, page, size, this::find, Book::getId);
+        if(indexed != null) return indexed;
+
+        return searchPrefix(title, page, size, null);
+    }
+
+    @Override
+    public PageResult<BookEmbed> searchEmbeds(String title, int page, int size) {
+        Objects.requireNonNull(title);
+
+        logger.debug("[REPOSITORY] [BOOK] [SEARCH] [EMBED] title: {}, page: {}, size: {}", title, page, size);
+
+        PageResult<BookEmbed> indexed = searchIndexed(title, page, size, this::findEmbeds, BookEmbed::getId);
+        if(indexed != null) return indexed;
+
+        PageResult<Book> result = searchPrefix(title, page, size, Projections.include(BookEmbed.FIELDS));
+
+        return new PageResult<>(
+                result.getContent().stream().map(BookEmbed::new).toList(),
+                result.getTotalElements(),
+                page,
+                size
+        );
+    }
+
+    /**
+     * Case-insensitive word prefixes on the title, used while the title index is not loaded:
+     * the same titles as the index, in _id order instead of ranked.
+     * @param projection the fields to read, null for the whole document
+     */
+    private PageResult<Book> searchPrefix(String title, int page, int size, Bson projection) {
+        String regex = SearchIndex.wordPrefixRegex(title);
+        if(regex == null) return new PageResult<>(List.of(), 0, page, size);
+
         int skip = page * size;
 
-        List<Book> books = this.mongoCollection
+        FindIterable<Book> iterable = this.mongoCollection
                 .find(
-                        Filters.regex("title", "^" + title + "$", "i")
-                ).skip(skip)
+                        Filters.regex("title", regex, "i")
+                );
+        if(projection != null) iterable = iterable.projection(projection);
+
+        List<Book> books = iterable
+                .skip(skip)
                 .limit(size)
                 .into(new ArrayList<>());
 
         long total = this.mongoCollection
                 .countDocuments(
-                        Filters.regex("title", "^" + title + "$", "i")
+                        Filters.regex("title", regex, "i")
                 );
 
         return new PageResult<>(books, total, page, size);
     }
 
+    /**
+     * Ranked page from the title index, the documents are fetched by id in rank order.
+     * @param loader reads the documents of the hits, in any order
+     * @return null while the index is not loaded
+     */
+    private <T> PageResult<T> searchIndexed(
+            String title,
+            int page,
+            int size,
+            Function<List<ObjectId>, List<T>> loader,
+            Function<T, ObjectId> idGetter
+    ) {
+        SearchIndex.Hits hits = this.searchIndex.search(title, page * size, size);
+        if(hits == null) return null;
+
+        Map<ObjectId, T> found = new HashMap<>();
+        loader.apply(hits.hits().stream().map(SearchIndex.Hit::id).toList()).forEach(document -> found.put(idGetter.apply(document), document));
+
+        List<T> documents = hits.hits().stream()
+                .map(hit -> found.get(hit.id()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new PageResult<>(documents, hits.total(), page, size);
+    }
+
 
     private List<BookRecommendation> handleRecommendationResponse(List<BookStats> stats) {
         List<ObjectId> ids = stats.stream()
@@ -1461,7 +1664,16 @@ public class BookRepository implements BookRepositoryInterface {
      */
     @Override
     public List<BookRecommendation> findRandomBooks(int limit) {
-        return handleRecommendationResponse(this.findRandomBooksNeo4j(limit));
+        List<ObjectId> sample = this.bookSampler.sample(limit, Set.of());
+        if (sample == null) return handleRecommendationResponse(this.findRandomBooksNeo4j(limit));
+
+        return handleRecommendationResponse(randomStats(sample));
+    }
+
+    private static List<BookStats> randomStats(List<ObjectId> ids) {
+        return ids.stream()
+                .map(id -> BookStats.builder().id(id.toHexString()).totalScore(0.0).build())
+                .toList();
     }
 
     public List<BookStats> findRandomBooksNeo4j(int limit){
@@ -1495,7 +1707,38 @@ public class BookRepository implements BookRepositoryInterface {
      */
     @Override
     public List<BookRecommendation> findRandomBooks(String idUser, int limit) {
-        return handleRecommendationResponse(this.findRandomBooksNeo4j(idUser, limit));
+        if (idUser == null || !ObjectId.isValid(idUser)) return findRandomBooks(limit);
+
+        List<ObjectId> sample = this.bookSampler.sample(limit, findReaderBookIds(new ObjectId(idUser)));
+        if (sample == null) return handleRecommendationResponse(this.findRandomBooksNeo4j(idUser, limit));
+
+        return handleRecommendationResponse(randomStats(sample));
+    }
+
+    /**
+     * Books the reader has on the shelf or has rated, the ones the random sample must skip.
+     * Both lookups are by index (_id and reviews user._id), sized by the reader's history.
+     */
+    private Set<ObjectId> findReaderBookIds(ObjectId idUser) {
+        Set<ObjectId> ids = new HashSet<>();
+
+        Document reader = this.userCollection.find(Filters.eq("_id", idUser))
+                .projection(Projections.include("shelf.book._id"))
+                .first();
+        if (reader != null) {
+            for (Document shelfBook : reader.getList("shelf", Document.class, List.of())) {
+                Document book = shelfBook.get("book", Document.class);
+                if (book != null && book.getObjectId("_id") != null) ids.add(book.getObjectId("_id"));
+            }
+        }
+
+        this.reviewCollection.find(Filters.eq("user._id", idUser))
+                .projection(Projections.include("bookId"))
+                .forEach(review -> {
+                    if (review.getObjectId("bookId") != null) ids.add(review.getObjectId("bookId"));
+                });
+
+        return ids;
     }
 
     private List<BookStats> findRandomBooksNeo4j(String idUser, int limit) {
@@ -1661,10 +1904,57 @@ public class BookRepository implements BookRepositoryInterface {
      */
     @Override
     public List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit) {
-        return handleRecommendationResponse(this.findCollaborativeRecommendationsBooksNeo4J(idUser, limit));
+        return findCollaborativeRecommendationsBooks(idUser, limit, findRecommendationPopularBooks(50));
     }
 
-    private List<BookStats> findCollaborativeRecommendationsBooksNeo4J(String idUser, int limit) {
+    /**
+     * @param idUser reader id
+     * @param limit max number of books
+     * @param popular fallback candidates from {@link #findRecommendationPopularBooks(int)}, the same for every reader
+     * @return recommended books, best first
+     */
+    @Override
+    public List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit, List<BookStats> popular) {
+        if (idUser == null || idUser.isBlank()) return Collections.emptyList();
+
+        // The projection ranks its own popular books, computed at its last rebuild
+        List<BookStats> stats = this.graphProjection.recommend(idUser, limit);
+        if (stats == null) stats = this.findCollaborativeRecommendationsBooksNeo4J(idUser, limit, popular);
+
+        return handleRecommendationResponse(stats);
+    }
+
+    /**
+     * Books most rated (4+) or read by the readers. This scans every interaction of the graph,
+     * so it is computed apart from the per-reader query and shared between readers.
+     * @param limit max number of books
+     * @return books with the number of readers as score
+     */
+    @Override
+    public List<BookStats> findRecommendationPopularBooks(int limit) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [RECOMMENDATION] [POPULAR] limit: {}", limit);
+
+        String query = """
+            MATCH (r:Reader)-[interaction:RATED|ADDED_TO_SHELF]->(book:Book)
+            WHERE (TYPE(interaction) = 'RATED' AND interaction.rating >= 4)
+               OR (TYPE(interaction) = 'ADDED_TO_SHELF' AND interaction.status IN ['READING', 'FINISHED'])
+            WITH book, count(DISTINCT r) AS popularity
+            ORDER BY popularity DESC
+            LIMIT $limit
+            RETURN
+                book.mid AS id,
+                book.title AS title,
+                popularity AS score
+            """;
+
+        return this.registry.timer("neo4j.ops", "query", "recommendation_popular").record(() -> {
+            try (Session session = this.neo4jManager.getDriver().session()) {
+                return session.executeRead(tx -> handleStatsResult(tx.run(query, Values.parameters("limit", limit))));
+            }
+        });
+    }
+
+    private List<BookStats> findCollaborativeRecommendationsBooksNeo4J(String idUser, int limit, List<BookStats> popular) {
         if (idUser == null || idUser.isBlank()) return Collections.emptyList();
 
         logger.debug("[REPOSITORY] [BOOK] [FIND] [RECOMMENDATION] user id: {}, limit: {}", idUser, limit);
@@ -1704,18 +1994,12 @@ public class BookRepository implements BookRepositoryInterface {
             
                 UNION
             
-                // Strategy 4: Popular books (fallback)
+                // Strategy 4: Popular books (fallback), computed once for all readers
                 WITH excludedBooks
-                MATCH (r:Reader)-[interaction:RATED|ADDED_TO_SHELF]->(book:Book)
+                UNWIND $popular AS popular
+                MATCH (book:Book {mid: popular.id})
                 WHERE NOT book IN excludedBooks
-                  AND (
-                    (TYPE(interaction) = 'RATED' AND interaction.rating >= 4)
-                    OR (TYPE(interaction) = 'ADDED_TO_SHELF' AND interaction.status IN ['READING', 'FINISHED'])
-                  )
-                WITH book, count(DISTINCT r) AS popularity
-                ORDER BY popularity DESC
-                LIMIT 50
-                RETURN book, popularity * 0.1 AS priority, 'popular' AS source
+                RETURN book, popular.score * 0.1 AS priority, 'popular' AS source
             }
             
             // Final results
@@ -1729,11 +2013,16 @@ public class BookRepository implements BookRepositoryInterface {
             LIMIT $limit
             """;
 
+        List<Map<String, Object>> popularParameter = popular.stream()
+                .map(stats -> Map.<String, Object>of("id", stats.getId(), "score", stats.getTotalScore()))
+                .toList();
+
         try (Session session = this.neo4jManager.getDriver().session()) {
             return session.executeRead(tx -> {
                 var result = tx.run(query, Values.parameters(
                         "idUser", idUser,
-                        "limit", limit
+                        "limit", limit,
+                        "popular", popularParameter
                 ));
 
                 return handleStatsResult(result);
@@ -1749,47 +2038,32 @@ public class BookRepository implements BookRepositoryInterface {
     public void migrate() {
         logger.debug("[REPOSITORY] [BOOK] [MIGRATE]");
 
-        /*long total = this.mongoCollection
-                .countDocuments();
-
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
-
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Book> books = this.mongoCollection
-                    .find()
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            importBooksWithRelationships(books);
-        }*/
-
-        int offset = 0;
-
-        // Start with a "zero" ObjectId (minimum value)
-        ObjectId lastId = new ObjectId("000000000000000000000000");
+        long migrated = migrate(null, null, null);
 
-        while (true) {
-            logger.debug("[REPOSITORY] [BOOK] [MIGRATE] [MONGODB TO NEO4J] Migrated batch: {} to {}", offset, offset + batchSize);
-
-            // Find the next batch of books where _id > lastId
-            List<Book> books = this.mongoCollection
-                    .find(Filters.gt("_id", lastId)) // Use Index instead of Scan
-                    .sort(Sorts.ascending("_id"))    // Ensure order
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            if (books.isEmpty()) break; // Finished
+        logger.debug("[REPOSITORY] [BOOK] [MIGRATE] [END] books: {}", migrated);
+    }
 
-            // Update the cursor to the last processed ID
-            lastId = books.getLast().getId();
+    /**
+     * @param ranges wanted number of ranges
+     * @return the upper bounds of the _id ranges, see {@link MongoRanges#split}
+     */
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return MongoRanges.split(this.mongoCollection, null, ranges);
+    }
 
-            // Process migration
-            importBooksWithRelationships(books);
+    /**
+     * Copies the books with afterId < _id <= upToId to Neo4j, with their author, genre and similar-book relationships.
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return books migrated
+     */
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [BOOK] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
 
-            offset += this.batchSize;
-        }
+        return MongoRanges.walk(this.mongoCollection, null, afterId, upToId, this.batchSize, Book::getId, this::importBooksWithRelationships, onBatch);
     }
 
     private void importBooksWithRelationships(List<Book> books) {
@@ -6,14 +6,18 @@ import it.unipi.booknetapi.model.author.AuthorEmbed;
 import it.unipi.booknetapi.model.book.Book;
 import it.unipi.booknetapi.model.book.BookEmbed;
 import it.unipi.booknetapi.model.book.BookRecommendation;
+import it.unipi.booknetapi.model.book.BookStats;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.bson.types.ObjectId;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface BookRepositoryInterface {
     Book save(Book book);
@@ -28,7 +32,7 @@ public interface BookRepositoryInterface {
     boolean deleteAllBooks(List<ObjectId> idBooks);
     boolean addReview(Review review);
     boolean removeReview(String idBook, String idUser, String idReview);
-    List<ObjectId> getReviewsIds(String idBook);
+    PageResult<ObjectId> getReviewsIds(String idBook, PaginationRequest pagination);
     boolean addReviews(String idBook, List<Review> reviews);
     boolean addReviews(List<Review> reviews);
     boolean removeReviews(String idBook, List<ObjectId> reviewsIds);
@@ -46,8 +50,14 @@ public interface BookRepositoryInterface {
     List<Book> find(List<ObjectId> idBooks);
 
     PageResult<Book> findAll(int page, int size);
+    PageResult<Book> findAll(PaginationRequest pagination);
     PageResult<Book> search(String title, int page, int size);
+    PageResult<BookEmbed> findAllEmbeds(PaginationRequest pagination);
+    PageResult<BookEmbed> searchEmbeds(String title, int page, int size);
     Optional<Book> findById(String idBook);
+
+    Optional<BookEmbed> findEmbedById(String idBook);
+    List<BookEmbed> findEmbeds(Collection<ObjectId> idBooks);
     List<Book> findByTitle(String title);
     PageResult<Book> searchByTitle(String title, int page, int size);
     List<Book> findByTitle(List<String> titles);
@@ -62,7 +72,11 @@ public interface BookRepositoryInterface {
     List<BookRecommendation> findPopularBooksByRating(Long dayAgo, int limit);
     List<BookRecommendation> findPopularBooksByShelf(int limit);
     List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit);
+    List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit, List<BookStats> popular);
+    List<BookStats> findRecommendationPopularBooks(int limit);
 
     void migrate();
+    List<ObjectId> splitForMigration(int ranges);
+    long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
 
 }
@@ -0,0 +1,230 @@
+package it.unipi.booknetapi.repository.book;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Dense array of every book id for /book/random: k distinct books are k random indexes,
+ * instead of shuffling the whole Book label in Neo4j.
+ * BookRepository adds and removes ids as books are inserted and deleted (a removal moves the last
+ * id into the hole); the periodic reload picks up the books of bulk imports. Writes made while a
+ * reload is reading the collection are replayed on the loaded array.
+ * In the local profile the ids are read from the {@link InMemoryStore}.
+ */
+@Component
+public class BookSampler {
+
+    Logger logger = LoggerFactory.getLogger(BookSampler.class);
+
+    // Streams every book id into the consumer
+    private final Consumer<Consumer<ObjectId>> source;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ObjectId[] ids = new ObjectId[0];
+    private final Map<ObjectId, Integer> positions = new HashMap<>();
+    private int size;
+    private boolean loaded;
+
+    // Writes made during a reload, as (id, added)
+    private List<Map.Entry<ObjectId, Boolean>> journal;
+
+    public BookSampler(
+            AppConfiguration config,
+            AsyncManager asyncManager,
+            ObjectProvider<MongoDatabase> mongoDatabase,
+            ObjectProvider<InMemoryStore> inMemoryStore,
+            MeterRegistry registry
+    ) {
+        InMemoryStore store = inMemoryStore.getIfAvailable();
+        if (store != null) {
+            this.source = sink -> store.books().ids().forEach(sink);
+        } else {
+            MongoCollection<Document> books = mongoDatabase.getObject().getCollection("books");
+            this.source = sink -> books.find()
+                    .projection(Projections.include("_id"))
+                    .batchSize(10000)
+                    .forEach(document -> sink.accept(document.getObjectId("_id")));
+        }
+
+        Gauge.builder("book.sampler.size", this, BookSampler::size).register(registry);
+
+        if (config.getBoolean("app.book-sampler.enabled", true)) {
+            long reloadIntervalMinutes = config.getLong("app.book-sampler.reload-interval-minutes", 360L);
+            asyncManager.schedule(Workload.BACKGROUND, "book-sampler-reload", this::reloadSafely, 0, reloadIntervalMinutes, TimeUnit.MINUTES);
+        } else {
+            logger.info("[BOOK SAMPLER] disabled, random books come from Neo4j");
+        }
+    }
+
+
+    /**
+     * @param count number of distinct ids
+     * @param excluded ids that must not be drawn (the books of the reader)
+     * @return up to count distinct ids in random order; null until the ids are loaded
+     */
+    public List<ObjectId> sample(int count, Set<ObjectId> excluded) {
+        this.lock.readLock().lock();
+        try {
+            if (!this.loaded) return null;
+            if (count <= 0 || this.size == 0) return List.of();
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            // Small catalogue (or asking for most of it): rejection would spin, shuffle the candidates instead
+            if ((long) (count + excluded.size()) * 2 >= this.size) {
+                List<ObjectId> candidates = new ArrayList<>(this.size);
+                for (int i = 0; i < this.size; i++) {
+                    if (!excluded.contains(this.ids[i])) candidates.add(this.ids[i]);
+                }
+                Collections.shuffle(candidates, random);
+                return candidates.subList(0, Math.min(count, candidates.size()));
+            }
+
+            // At most half of the array is taken or excluded, so a draw hits a free id with probability >= 1/2
+            Set<Integer> drawn = new HashSet<>();
+            List<ObjectId> sample = new ArrayList<>(count);
+            int attempts = 8 * (count + excluded.size()) + 32;
+            while (sample.size() < count && attempts-- > 0) {
+                int index = random.nextInt(this.size);
+                if (!drawn.add(index)) continue;
+
+                ObjectId id = this.ids[index];
+                if (!excluded.contains(id)) sample.add(id);
+            }
+            return sample;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public void add(ObjectId id) {
+        if (id == null) return;
+
+        this.lock.writeLock().lock();
+        try {
+            if (this.journal != null) this.journal.add(Map.entry(id, true));
+            addLocked(id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(ObjectId id) {
+        if (id == null) return;
+
+        this.lock.writeLock().lock();
+        try {
+            if (this.journal != null) this.journal.add(Map.entry(id, false));
+            removeLocked(id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<ObjectId> ids) {
+        ids.forEach(this::remove);
+    }
+
+    private void addLocked(ObjectId id) {
+        if (this.positions.containsKey(id)) return;
+
+        if (this.size == this.ids.length) this.ids = Arrays.copyOf(this.ids, Math.max(1024, this.size * 2));
+        this.ids[this.size] = id;
+        this.positions.put(id, this.size);
+        this.size++;
+    }
+
+    private void removeLocked(ObjectId id) {
+        Integer position = this.positions.remove(id);
+        if (position == null) return;
+
+        int last = --this.size;
+        if (position != last) {
+            this.ids[position] = this.ids[last];
+            this.positions.put(this.ids[position], position);
+        }
+        this.ids[last] = null;
+    }
+
+    private int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+
+    public void reload() {
+        long start = System.currentTimeMillis();
+
+        this.lock.writeLock().lock();
+        try {
+            this.journal = new ArrayList<>();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        List<ObjectId> loadedIds = new ArrayList<>();
+        try {
+            this.source.accept(loadedIds::add);
+        } catch (RuntimeException e) {
+            this.lock.writeLock().lock();
+            try {
+                this.journal = null;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            this.ids = new ObjectId[Math.max(1024, loadedIds.size())];
+            this.positions.clear();
+            this.size = 0;
+            loadedIds.forEach(this::addLocked);
+
+            for (Map.Entry<ObjectId, Boolean> write : this.journal) {
+                if (write.getValue()) addLocked(write.getKey());
+                else removeLocked(write.getKey());
+            }
+            this.journal = null;
+            this.loaded = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        logger.info("[BOOK SAMPLER] [RELOAD] {} books in {} ms", loadedIds.size(), System.currentTimeMillis() - start);
+    }
+
+    private void reloadSafely() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("[BOOK SAMPLER] [RELOAD] failed: {}", e.getMessage());
+        }
+    }
+
+}
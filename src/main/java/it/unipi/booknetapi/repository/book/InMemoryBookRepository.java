@@ -0,0 +1,1024 @@
+package it.unipi.booknetapi.repository.book;
+
+import it.unipi.booknetapi.dto.book.BookCsvRecordWithAuthor;
+import it.unipi.booknetapi.dto.book.BookGoodReads;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.book.BookRecommendation;
+import it.unipi.booknetapi.model.book.BookStats;
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.model.review.ReviewSummary;
+import it.unipi.booknetapi.model.user.BookShelfStatus;
+import it.unipi.booknetapi.model.user.Reader;
+import it.unipi.booknetapi.model.user.ReaderPreference;
+import it.unipi.booknetapi.model.user.Reviewer;
+import it.unipi.booknetapi.model.user.User;
+import it.unipi.booknetapi.model.user.UserBookShelf;
+import it.unipi.booknetapi.repository.bucket.IdBucketRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
+import it.unipi.booknetapi.shared.model.ExternalId;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import it.unipi.booknetapi.shared.utils.LanguageUtils;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * BookRepository of the local profile. The book cache, the title index and the random sampler are the
+ * same as with MongoDB, so the service sees the same hit rates. The Neo4j queries (popularity and
+ * recommendations) are computed from the documents the graph is built from: shelves, reviews,
+ * the reader preferences and the similar books.
+ */
+@Repository
+@Profile("local")
+public class InMemoryBookRepository implements BookRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryBookRepository.class);
+
+    private static final double AUTHOR_PRIORITY = 5.0;
+    private static final double GENRE_PRIORITY = 4.0;
+    private static final double SIMILAR_PRIORITY = 3.0;
+    private static final double POPULAR_WEIGHT = 0.1;
+
+    private final InMemoryCollection<Book> collection;
+    private final InMemoryCollection<User> users;
+    private final InMemoryCollection<Review> reviews;
+    private final BookCache bookCache;
+    private final SearchIndex searchIndex;
+    private final BookSampler bookSampler;
+    private final IdBucketRepositoryInterface idBucketRepository;
+
+    public InMemoryBookRepository(
+            InMemoryStore store,
+            BookCache bookCache,
+            SearchIndexManager searchIndexManager,
+            BookSampler bookSampler,
+            IdBucketRepositoryInterface idBucketRepository
+    ) {
+        this.collection = store.books();
+        this.users = store.users();
+        this.reviews = store.reviews();
+        this.bookCache = bookCache;
+        this.searchIndex = searchIndexManager.books();
+        this.bookSampler = bookSampler;
+        this.idBucketRepository = idBucketRepository;
+    }
+
+    private boolean handleUpdate(boolean modified, String idBook) {
+        if(modified) this.bookCache.invalidate(idBook);
+        return modified;
+    }
+
+    private void indexed(Book book) {
+        this.searchIndex.put(book.getId(), book.getTitle());
+        this.bookSampler.add(book.getId());
+    }
+
+    private static List<String> addToSet(List<String> values, String value) {
+        List<String> result = values != null ? new ArrayList<>(values) : new ArrayList<>();
+        if(value != null && !value.isBlank() && !result.contains(value)) result.add(value);
+        return result;
+    }
+
+    private static Integer parseOrKeep(String value, Integer current) {
+        if (value == null || value.isBlank()) return current;
+        try { return Integer.parseInt(value); } catch (NumberFormatException e) { return current; }
+    }
+
+    private static float parseSafeFloat(String val) {
+        if (val == null) return 0f;
+        try { return Float.parseFloat(val); } catch (NumberFormatException e) { return 0f; }
+    }
+
+    private static int parseSafeInt(String val) {
+        if (val == null) return 0;
+        try { return Integer.parseInt(val); } catch (NumberFormatException e) { return 0; }
+    }
+
+
+    @Override
+    public Book save(Book book) {
+        Objects.requireNonNull(book);
+        logger.debug("Saving book: {}", book);
+
+        if(book.getRatingReview() == null) book.setRatingReview(new ReviewSummary(0f, 0));
+
+        boolean success;
+        if(book.getId() == null) {
+            this.collection.insert(book);
+            success = true;
+        } else {
+            success = this.collection.replace(book);
+        }
+
+        if(!success) return null;
+
+        this.bookCache.invalidate(book.getId());
+        indexed(book);
+        return book;
+    }
+
+    @Override
+    public List<Book> saveAll(List<Book> books) {
+        Objects.requireNonNull(books);
+
+        if(books.isEmpty()) return List.of();
+
+        logger.debug("Inserting many books: {}", books.size());
+
+        books.forEach(book -> {
+            this.collection.insert(book);
+            indexed(book);
+        });
+
+        return books;
+    }
+
+    /**
+     * Upserts by isbn like the bulk write of BookRepository: the fields of the document are only set
+     * on insert, the lists are merged. Synchronized so two imports of the same isbn cannot both insert.
+     * @return the inserted books
+     */
+    @Override
+    public synchronized List<Book> importBooksFromGoodReads(List<BookGoodReads> importedBooks) {
+        Objects.requireNonNull(importedBooks);
+
+        logger.debug("[REPOSITORY] [BOOK] [IMPORT] Importing {} books from GoodReads", importedBooks.size());
+
+        List<Book> result = new ArrayList<>(importedBooks.size());
+
+        for (BookGoodReads bookGoodRead : importedBooks) {
+            Optional<Book> existing = bookGoodRead.getIsbn() != null ? this.collection.findFirstBy("isbn", bookGoodRead.getIsbn()) : Optional.empty();
+
+            if (existing.isPresent()) {
+                this.collection.update(existing.get().getId(), book -> mergeGoodReads(book, bookGoodRead));
+                continue;
+            }
+
+            Book book = new Book();
+            book.setIsbn(bookGoodRead.getIsbn());
+            book.setIsbn13(bookGoodRead.getIsbn13());
+            book.setTitle(bookGoodRead.getTitle());
+            book.setSubtitle(bookGoodRead.getTitleWithoutSeries());
+            book.setDescription(bookGoodRead.getDescription());
+            book.setRatingReview(new ReviewSummary(parseSafeFloat(bookGoodRead.getAverageRating()), parseSafeInt(bookGoodRead.getRatingCount())));
+            mergeGoodReads(book, bookGoodRead);
+
+            this.collection.insert(book);
+            indexed(book);
+            result.add(book);
+        }
+
+        // Existing books are matched by isbn and may have changed
+        this.bookCache.clear();
+
+        return result;
+    }
+
+    private static void mergeGoodReads(Book book, BookGoodReads bookGoodRead) {
+        ExternalId externalId = book.getExternalId() != null ? book.getExternalId() : new ExternalId();
+        externalId.setGoodReads(bookGoodRead.getBookId());
+        book.setExternalId(externalId);
+
+        book.setPublicationYear(parseOrKeep(bookGoodRead.getPublicationYear(), book.getPublicationYear()));
+        book.setPublicationMonth(parseOrKeep(bookGoodRead.getPublicationMonth(), book.getPublicationMonth()));
+        book.setPublicationDay(parseOrKeep(bookGoodRead.getPublicationDay(), book.getPublicationDay()));
+
+        if(bookGoodRead.getCountryCode() != null && !bookGoodRead.getCountryCode().isBlank()) {
+            String language = LanguageUtils.getLanguageFromCountry(bookGoodRead.getCountryCode()).orElse(bookGoodRead.getCountryCode());
+            book.setLanguages(addToSet(book.getLanguages(), language));
+        }
+        if(bookGoodRead.getLanguageCode() != null && !bookGoodRead.getLanguageCode().isBlank()) {
+            book.setLanguages(addToSet(book.getLanguages(), bookGoodRead.getLanguageCode()));
+            if(bookGoodRead.getLanguageCode().length() > 2) {
+                book.setLanguages(addToSet(book.getLanguages(), bookGoodRead.getLanguageCode().substring(0, 2)));
+            }
+        }
+
+        book.setImages(addToSet(book.getImages(), bookGoodRead.getImageUrl()));
+        book.setPreviews(addToSet(book.getPreviews(), bookGoodRead.getUrl()));
+        book.setPublishers(addToSet(book.getPublishers(), bookGoodRead.getPublisher()));
+    }
+
+    @Override
+    public void importBooksAuthors(Map<ObjectId, List<AuthorEmbed>> bookAuthors) {
+        Objects.requireNonNull(bookAuthors);
+
+        if (bookAuthors.isEmpty()) return;
+
+        logger.debug("[IMPORT] [BOOK-AUTHORS] Processing {} books", bookAuthors.size());
+
+        bookAuthors.forEach((bookId, authors) -> this.collection.update(bookId, book -> book.setAuthors(authors)));
+        this.bookCache.invalidateAll(bookAuthors.keySet());
+    }
+
+    /**
+     * Same upsert by isbn as {@link #importBooksFromGoodReads(List)}.
+     * @return the inserted books
+     */
+    @Override
+    public synchronized List<Book> importBooksFromKaggle(List<BookCsvRecordWithAuthor> booksKaggle) {
+        logger.debug("[REPOSITORY] [BOOK] [IMPORT] Importing {} books from Kaggle", booksKaggle.size());
+
+        List<Book> allBooks = new ArrayList<>(booksKaggle.size());
+
+        for (BookCsvRecordWithAuthor bookKaggle : booksKaggle) {
+            Optional<Book> existing = bookKaggle.getIsbn() != null ? this.collection.findFirstBy("isbn", bookKaggle.getIsbn()) : Optional.empty();
+
+            if (existing.isPresent()) {
+                this.collection.update(existing.get().getId(), book -> mergeKaggle(book, bookKaggle));
+                continue;
+            }
+
+            Book book = new Book();
+            book.setIsbn(bookKaggle.getIsbn());
+            book.setIsbn13(bookKaggle.getIsbn13());
+            book.setTitle(bookKaggle.getTitle());
+            book.setRatingReview(new ReviewSummary((float) bookKaggle.getAverageRating(), (int) bookKaggle.getRatingsCount()));
+            mergeKaggle(book, bookKaggle);
+
+            this.collection.insert(book);
+            indexed(book);
+            allBooks.add(book);
+        }
+
+        logger.debug("[REPOSITORY] [BOOK] [IMPORT] writes {} books", allBooks.size());
+
+        this.bookCache.clear();
+
+        return allBooks;
+    }
+
+    private static void mergeKaggle(Book book, BookCsvRecordWithAuthor bookKaggle) {
+        ExternalId externalId = book.getExternalId() != null ? book.getExternalId() : new ExternalId();
+        externalId.setKaggle(String.valueOf(bookKaggle.getBookId()));
+        book.setExternalId(externalId);
+
+        if(bookKaggle.getPublicationDate() != null) {
+            book.setPublicationYear(bookKaggle.getPublicationDate().getYear());
+            book.setPublicationMonth(bookKaggle.getPublicationDate().getMonthValue());
+            book.setPublicationDay(bookKaggle.getPublicationDate().getDayOfMonth());
+        }
+
+        book.setLanguages(addToSet(book.getLanguages(), bookKaggle.getLanguageCode()));
+        book.setPublishers(addToSet(book.getPublishers(), bookKaggle.getPublisher()));
+    }
+
+    @Override
+    public boolean deleteBook(String idBook) {
+        Objects.requireNonNull(idBook);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        ObjectId id = new ObjectId(idBook);
+        if(!this.collection.delete(id)) return false;
+
+        this.bookCache.invalidate(idBook);
+        this.searchIndex.remove(id);
+        this.bookSampler.remove(id);
+        this.idBucketRepository.deleteOwners(BucketType.BOOK_REVIEWS, List.of(id));
+        return true;
+    }
+
+    @Override
+    public boolean deleteAllBooks(List<ObjectId> idBooks) {
+        Objects.requireNonNull(idBooks);
+
+        if(this.collection.delete(idBooks) == 0) return false;
+
+        this.bookCache.invalidateAll(idBooks);
+        this.searchIndex.removeAll(idBooks);
+        this.bookSampler.removeAll(idBooks);
+        this.idBucketRepository.deleteOwners(BucketType.BOOK_REVIEWS, idBooks);
+        return true;
+    }
+
+    /**
+     * Adds the ratings (reviews rated 1 or more) to ratingReview.sum/count and derives the average,
+     * like the pipeline update of BookRepository. The update runs atomically on the document.
+     */
+    private static void addRatings(Book book, List<Review> reviews) {
+        List<Integer> ratings = reviews.stream()
+                .map(Review::getRating)
+                .filter(rating -> rating != null && rating > 0)
+                .toList();
+
+        ReviewSummary summary = book.getRatingReview() != null ? book.getRatingReview() : new ReviewSummary();
+        int count = summary.getCount() != null ? summary.getCount() : 0;
+        // Books saved before the sum was stored: rebuild it from the average
+        double sum = summary.getSum() != null ? summary.getSum() : (summary.getRating() != null ? summary.getRating() : 0f) * count;
+
+        sum += ratings.stream().mapToDouble(Integer::doubleValue).sum();
+        count += ratings.size();
+
+        summary.setSum(sum);
+        summary.setCount(count);
+        summary.setRating(count > 0 ? (float) (sum / count) : 0f);
+        book.setRatingReview(summary);
+    }
+
+    @Override
+    public boolean addReview(Review review) {
+        Objects.requireNonNull(review);
+        Objects.requireNonNull(review.getBookId());
+        Objects.requireNonNull(review.getUser());
+        Objects.requireNonNull(review.getUser().getId());
+
+        if(!this.collection.exists(review.getBookId())) return false;
+
+        boolean modified = this.collection.update(review.getBookId(), book -> addRatings(book, List.of(review)));
+        this.idBucketRepository.append(BucketType.BOOK_REVIEWS, review.getBookId(), List.of(review.getId()));
+
+        return handleUpdate(modified, review.getBookId().toHexString());
+    }
+
+    @Override
+    public boolean addReviews(String idBook, List<Review> reviews) {
+        if (idBook == null || !ObjectId.isValid(idBook)) return false;
+        if (reviews == null || reviews.isEmpty()) return false;
+
+        ObjectId id = new ObjectId(idBook);
+        if(!this.collection.exists(id)) return false;
+
+        boolean modified = this.collection.update(id, book -> addRatings(book, reviews));
+        this.idBucketRepository.append(BucketType.BOOK_REVIEWS, id, reviews.stream().map(Review::getId).toList());
+
+        return handleUpdate(modified, idBook);
+    }
+
+    @Override
+    public boolean addReviews(List<Review> reviews) {
+        if (reviews == null || reviews.isEmpty()) return false;
+
+        Map<ObjectId, List<Review>> reviewsByBook = reviews.stream()
+                .filter(r -> r.getBookId() != null)
+                .collect(Collectors.groupingBy(Review::getBookId));
+
+        if (reviewsByBook.isEmpty()) return false;
+
+        long modified = 0;
+        Map<ObjectId, List<ObjectId>> reviewIdsByBook = new LinkedHashMap<>();
+        for (Map.Entry<ObjectId, List<Review>> entry : reviewsByBook.entrySet()) {
+            if (this.collection.update(entry.getKey(), book -> addRatings(book, entry.getValue()))) modified++;
+            reviewIdsByBook.put(entry.getKey(), entry.getValue().stream().map(Review::getId).toList());
+        }
+        this.idBucketRepository.appendAll(BucketType.BOOK_REVIEWS, reviewIdsByBook);
+        this.bookCache.invalidateAll(reviewsByBook.keySet());
+
+        logger.debug("[REPOSITORY] [BOOK] [ADD REVIEWS] books: {}, modified: {}", reviewsByBook.size(), modified);
+
+        return modified > 0;
+    }
+
+    @Override
+    public boolean removeReviews(String idBook, List<ObjectId> reviewsIds) {
+        if (idBook == null || !ObjectId.isValid(idBook)) return false;
+        if (reviewsIds == null || reviewsIds.isEmpty()) return false;
+
+        boolean removed = this.idBucketRepository.remove(BucketType.BOOK_REVIEWS, new ObjectId(idBook), reviewsIds);
+
+        return handleUpdate(removed, idBook);
+    }
+
+    @Override
+    public boolean removeReview(String idBook, String idUser, String idReview) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idReview);
+
+        if(!ObjectId.isValid(idBook) || !ObjectId.isValid(idReview)) return false;
+
+        return removeReviews(idBook, List.of(new ObjectId(idReview)));
+    }
+
+    @Override
+    public PageResult<ObjectId> getReviewsIds(String idBook, PaginationRequest pagination) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idBook)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
+
+        return this.idBucketRepository.findIds(BucketType.BOOK_REVIEWS, new ObjectId(idBook), pagination);
+    }
+
+    @Override
+    public boolean updateImage(String idBook, String newImageUrl) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(newImageUrl);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> {
+            List<String> images = book.getImages() != null ? new ArrayList<>(book.getImages()) : new ArrayList<>();
+            images.add(newImageUrl);
+            book.setImages(images);
+        }), idBook);
+    }
+
+    @Override
+    public boolean updatePreview(String idBook, String newPreviewImageUrl) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(newPreviewImageUrl);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> {
+            List<String> previews = book.getPreviews() != null ? new ArrayList<>(book.getPreviews()) : new ArrayList<>();
+            previews.add(newPreviewImageUrl);
+            book.setPreviews(previews);
+        }), idBook);
+    }
+
+    @Override
+    public boolean deletePreview(String idBook, String deletePreviewImageUrl) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(deletePreviewImageUrl);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> {
+            if(book.getPreviews() == null) return;
+            book.setPreviews(book.getPreviews().stream().filter(preview -> !deletePreviewImageUrl.equals(preview)).collect(Collectors.toList()));
+        }), idBook);
+    }
+
+    @Override
+    public boolean updateSimilarBooks(String idBook, List<BookEmbed> books) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(books);
+
+        if(!ObjectId.isValid(idBook)) return false;
+        logger.debug("[REPOSITORY] [BOOK] [SET BOOKS] book: {}, books size: {}", idBook, books.size());
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> book.setSimilarBooks(books)), idBook);
+    }
+
+    @Override
+    public boolean updateSimilarBooks(Map<String, List<BookEmbed>> mapBooks) {
+        if (mapBooks == null || mapBooks.isEmpty()) return false;
+
+        logger.debug("[REPOSITORY] [BOOK] [SET BOOKS] Processing {} books", mapBooks.size());
+
+        boolean matched = false;
+        for (Map.Entry<String, List<BookEmbed>> entry : mapBooks.entrySet()) {
+            if (!ObjectId.isValid(entry.getKey())) continue;
+
+            ObjectId id = new ObjectId(entry.getKey());
+            if (!this.collection.exists(id)) continue;
+
+            matched = true;
+            handleUpdate(this.collection.update(id, book -> book.setSimilarBooks(entry.getValue())), entry.getKey());
+        }
+        return matched;
+    }
+
+    @Override
+    public boolean updateGenres(String idBook, List<GenreEmbed> genres) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(genres);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        logger.debug("[REPOSITORY] [BOOK] [SET GENRES] book: {}, genre size: {}", idBook, genres.size());
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> book.setGenres(genres)), idBook);
+    }
+
+    @Override
+    public boolean addGenre(String idBook, GenreEmbed genre) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(genre);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        logger.debug("[REPOSITORY] [BOOK] [ADD GENRE] book: {}, genre: {}", idBook, genre.getId());
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> {
+            List<GenreEmbed> genres = book.getGenres() != null ? new ArrayList<>(book.getGenres()) : new ArrayList<>();
+            genres.add(genre);
+            book.setGenres(genres);
+        }), idBook);
+    }
+
+    @Override
+    public boolean removeGenre(String idBook, GenreEmbed genre) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(genre);
+
+        if(!ObjectId.isValid(idBook)) return false;
+
+        return handleUpdate(this.collection.update(new ObjectId(idBook), book -> {
+            if(book.getGenres() == null) return;
+            book.setGenres(book.getGenres().stream().filter(g -> g == null || !Objects.equals(g.getId(), genre.getId())).collect(Collectors.toList()));
+        }), idBook);
+    }
+
+    @Override
+    public List<Book> findAll(List<String> idBooks) {
+        Objects.requireNonNull(idBooks);
+
+        List<ObjectId> ids = idBooks.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+
+        return this.find(ids);
+    }
+
+    @Override
+    public List<Book> find(List<ObjectId> idBooks) {
+        Objects.requireNonNull(idBooks);
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [MANY] books ids size: {}", idBooks.size());
+
+        if(idBooks.isEmpty()) return List.of();
+
+        return this.collection.find(idBooks);
+    }
+
+    @Override
+    public Optional<Book> findById(String idBook) {
+        Objects.requireNonNull(idBook);
+
+        if(!ObjectId.isValid(idBook)) return Optional.empty();
+
+        return this.bookCache.books().get(idBook, id -> this.collection.findById(new ObjectId(id)).orElse(null));
+    }
+
+    @Override
+    public Optional<BookEmbed> findEmbedById(String idBook) {
+        Objects.requireNonNull(idBook);
+
+        if(!ObjectId.isValid(idBook)) return Optional.empty();
+
+        return this.bookCache.embeds().get(idBook, id -> {
+            Book book = this.bookCache.books().getIfPresent(id)
+                    .orElseGet(() -> this.collection.findById(new ObjectId(id)).orElse(null));
+            return book != null ? new BookEmbed(book) : null;
+        });
+    }
+
+    @Override
+    public List<BookEmbed> findEmbeds(Collection<ObjectId> idBooks) {
+        Objects.requireNonNull(idBooks);
+
+        if(idBooks.isEmpty()) return List.of();
+
+        List<String> keys = idBooks.stream().map(ObjectId::toHexString).distinct().toList();
+
+        return new ArrayList<>(this.bookCache.embeds().getAll(keys, misses -> {
+            logger.debug("[REPOSITORY] [BOOK] [FIND] [MANY] [EMBED] ids: {}, misses: {}", keys.size(), misses.size());
+
+            Map<String, BookEmbed> embeds = new HashMap<>(misses.size());
+            this.collection.find(misses.stream().map(ObjectId::new).toList())
+                    .forEach(book -> embeds.put(book.getId().toHexString(), new BookEmbed(book)));
+            return embeds;
+        }).values());
+    }
+
+    @Override
+    public List<Book> findByTitle(String title) {
+        Objects.requireNonNull(title);
+
+        return this.collection.stream()
+                .filter(book -> title.equals(book.getTitle()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public PageResult<Book> searchByTitle(String title, int page, int size) {
+        Objects.requireNonNull(title);
+        logger.debug("[REPOSITORY] [BOOK] [SEARCH] title: {}, page: {}, size: {}", title, page, size);
+
+        PageResult<Book> indexed = searchIndexed(title, page, size, this::find, Book::getId);
+        if(indexed != null) return indexed;
+
+        String lowerTitle = title.toLowerCase(Locale.ROOT);
+        return this.collection.find(
+                book -> book.getTitle() != null && book.getTitle().toLowerCase(Locale.ROOT).contains(lowerTitle),
+                Comparator.comparing(Book::getId),
+                page,
+                size
+        );
+    }
+
+    @Override
+    public List<Book> findByTitle(List<String> titles) {
+        Objects.requireNonNull(titles);
+
+        if(titles.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [BY TITLE] titles: {}", titles);
+
+        Set<String> wanted = new HashSet<>(titles);
+        return this.collection.stream()
+                .filter(book -> wanted.contains(book.getTitle()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The IN_GENRE relationships are the genres._id index, the page is in title order like the graph projection.
+     */
+    @Override
+    public PageResult<BookEmbed> findBooksByGenre(String idGenre, int page, int size) {
+        Objects.requireNonNull(idGenre);
+
+        if(!ObjectId.isValid(idGenre)) return new PageResult<>(List.of(), 0, page, size);
+
+        int pageSize = size < 1 ? 10 : size;
+        List<Book> books = this.collection.findBy("genres._id", new ObjectId(idGenre));
+
+        if(books.isEmpty()) return new PageResult<>(List.of(), 0, page, size);
+
+        List<BookEmbed> bookEmbeds = books.stream()
+                .sorted(Comparator.comparing(Book::getTitle, Comparator.nullsLast(Comparator.naturalOrder())))
+                .skip((long) Math.max(page, 0) * pageSize)
+                .limit(pageSize)
+                .map(BookEmbed::new)
+                .toList();
+
+        return new PageResult<>(bookEmbeds, books.size(), page, size);
+    }
+
+    @Override
+    public List<Book> findByGoodReadsExternIds(List<String> externBookIds) {
+        Objects.requireNonNull(externBookIds);
+
+        if(externBookIds.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [BY EXTERN IDS] ids: {}", externBookIds.size());
+
+        Set<ObjectId> ids = new TreeSet<>();
+        for (String externBookId : externBookIds) {
+            if (externBookId != null) ids.addAll(this.collection.findIds("externalId.goodReads", externBookId));
+        }
+        return this.collection.find(ids);
+    }
+
+    @Override
+    public PageResult<Book> findAll(int page, int size) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [ALL] page: {}, size: {}", page, size);
+
+        return this.collection.find(null, Comparator.comparing(Book::getId), page, size);
+    }
+
+    @Override
+    public PageResult<Book> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [ALL] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return this.collection.find(null, null, pagination, false);
+    }
+
+    @Override
+    public PageResult<BookEmbed> findAllEmbeds(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        PageResult<Book> result = findAll(pagination);
+
+        return new PageResult<>(
+                result.getContent().stream().map(BookEmbed::new).toList(),
+                result.getTotalElements(),
+                result.getCurrentPage(),
+                result.getPageSize(),
+                result.getNextCursor()
+        );
+    }
+
+    @Override
+    public PageResult<Book> search(String title, int page, int size) {
+        Objects.requireNonNull(title);
+
+        logger.debug("[REPOSITORY] [BOOK] [SEARCH] title: {}, page: {}, size: {}", title, page, size);
+
+        PageResult<Book> indexed = searchIndexed(title, page, size, this::find, Book::getId);
+        if(indexed != null) return indexed;
+
+        return searchPrefix(title, page, size);
+    }
+
+    @Override
+    public PageResult<BookEmbed> searchEmbeds(String title, int page, int size) {
+        Objects.requireNonNull(title);
+
+        logger.debug("[REPOSITORY] [BOOK] [SEARCH] [EMBED] title: {}, page: {}, size: {}", title, page, size);
+
+        PageResult<BookEmbed> indexed = searchIndexed(title, page, size, this::findEmbeds, BookEmbed::getId);
+        if(indexed != null) return indexed;
+
+        PageResult<Book> result = searchPrefix(title, page, size);
+
+        return new PageResult<>(
+                result.getContent().stream().map(BookEmbed::new).toList(),
+                result.getTotalElements(),
+                page,
+                size
+        );
+    }
+
+    /**
+     * Word prefixes of the title, as the index matches them, used while the title index is not loaded.
+     */
+    private PageResult<Book> searchPrefix(String title, int page, int size) {
+        return this.collection.find(
+                book -> SearchIndex.matchesWordPrefixes(book.getTitle(), title),
+                Comparator.comparing(Book::getId),
+                page,
+                size
+        );
+    }
+
+    /**
+     * @return null while the index is not loaded
+     */
+    private <T> PageResult<T> searchIndexed(
+            String title,
+            int page,
+            int size,
+            Function<List<ObjectId>, List<T>> loader,
+            Function<T, ObjectId> idGetter
+    ) {
+        SearchIndex.Hits hits = this.searchIndex.search(title, page * size, size);
+        if(hits == null) return null;
+
+        Map<ObjectId, T> found = new HashMap<>();
+        loader.apply(hits.hits().stream().map(SearchIndex.Hit::id).toList()).forEach(document -> found.put(idGetter.apply(document), document));
+
+        List<T> documents = hits.hits().stream()
+                .map(hit -> found.get(hit.id()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        return new PageResult<>(documents, hits.total(), page, size);
+    }
+
+
+    private List<BookRecommendation> handleRecommendationResponse(List<BookStats> stats) {
+        List<ObjectId> ids = stats.stream()
+                .filter(s -> ObjectId.isValid(s.getId()))
+                .map(s -> new ObjectId(s.getId()))
+                .toList();
+
+        Map<String, Book> mapBooks = new HashMap<>();
+        this.collection.find(ids).forEach(b -> mapBooks.put(b.getId().toHexString(), b));
+
+        return stats.stream()
+                .filter(s -> mapBooks.containsKey(s.getId()))
+                .map(s -> new BookRecommendation(mapBooks.get(s.getId()), s.getTotalScore()))
+                .toList();
+    }
+
+    /**
+     * @return the best scores first, ties in _id order, without titles (the response reads the books anyway)
+     */
+    private static List<BookStats> top(Map<ObjectId, Double> scores, int limit) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<ObjectId, Double>comparingByValue().reversed().thenComparing(Map.Entry.<ObjectId, Double>comparingByKey()))
+                .limit(Math.max(limit, 0))
+                .map(entry -> BookStats.builder().id(entry.getKey().toHexString()).totalScore(entry.getValue()).build())
+                .toList();
+    }
+
+    private static List<BookStats> randomStats(List<ObjectId> ids) {
+        return ids.stream()
+                .map(id -> BookStats.builder().id(id.toHexString()).totalScore(0.0).build())
+                .toList();
+    }
+
+    private static List<UserBookShelf> shelfOf(User user) {
+        List<UserBookShelf> shelf = null;
+        if (user instanceof Reader reader) shelf = reader.getShelf();
+        if (user instanceof Reviewer reviewer) shelf = reviewer.getShelf();
+        return shelf != null ? shelf : List.of();
+    }
+
+    private static ObjectId bookIdOf(UserBookShelf shelfBook) {
+        return shelfBook != null && shelfBook.getBook() != null ? shelfBook.getBook().getId() : null;
+    }
+
+    /**
+     * The ADDED_TO_SHELF and RATED relationships of the reader: the shelf and the reviews by user._id.
+     */
+    private Set<ObjectId> findReaderBookIds(User user) {
+        Set<ObjectId> ids = new HashSet<>();
+        for (UserBookShelf shelfBook : shelfOf(user)) {
+            ObjectId bookId = bookIdOf(shelfBook);
+            if (bookId != null) ids.add(bookId);
+        }
+        for (Review review : this.reviews.findBy("user._id", user.getId())) {
+            if (review.getBookId() != null) ids.add(review.getBookId());
+        }
+        return ids;
+    }
+
+    /**
+     * Without the sampler loaded, a shuffle of the whole collection, like ORDER BY rand().
+     */
+    private List<ObjectId> shuffle(int limit, Set<ObjectId> excluded) {
+        List<ObjectId> ids = this.collection.ids();
+        ids.removeAll(excluded);
+        Collections.shuffle(ids);
+        return ids.subList(0, Math.min(Math.max(limit, 0), ids.size()));
+    }
+
+    @Override
+    public List<BookRecommendation> findRandomBooks(int limit) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [RANDOM] limit: {}", limit);
+
+        List<ObjectId> sample = this.bookSampler.sample(limit, Set.of());
+        if (sample == null) sample = shuffle(limit, Set.of());
+
+        return handleRecommendationResponse(randomStats(sample));
+    }
+
+    @Override
+    public List<BookRecommendation> findRandomBooks(String idUser, int limit) {
+        if (idUser == null || !ObjectId.isValid(idUser)) return findRandomBooks(limit);
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [RANDOM] user id: {}, limit: {}", idUser, limit);
+
+        Optional<User> user = this.users.findById(new ObjectId(idUser));
+        if (user.isEmpty()) return List.of();
+
+        Set<ObjectId> excluded = findReaderBookIds(user.get());
+        List<ObjectId> sample = this.bookSampler.sample(limit, excluded);
+        if (sample == null) sample = shuffle(limit, excluded);
+
+        return handleRecommendationResponse(randomStats(sample));
+    }
+
+    @Override
+    public List<BookRecommendation> findPopularBooksByRating(int limit) {
+        return handleRecommendationResponse(popularByRating(null, limit < 1 ? 20 : limit));
+    }
+
+    @Override
+    public List<BookRecommendation> findPopularBooksByRating(Long dayAgo, int limit) {
+        Objects.requireNonNull(dayAgo);
+
+        Date cutoff = new Date(System.currentTimeMillis() - (dayAgo * 24 * 60 * 60 * 1000));
+        return handleRecommendationResponse(popularByRating(cutoff, limit));
+    }
+
+    /**
+     * Number of ratings of the books rated more than 3 on average, over the reviews added since the cutoff.
+     * @param cutoff null for every review
+     */
+    private List<BookStats> popularByRating(Date cutoff, int limit) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [POPULAR RATING] cutoff: {}, limit: {}", cutoff, limit);
+
+        Map<ObjectId, long[]> ratings = new HashMap<>();
+        this.reviews.stream()
+                .filter(review -> review.getBookId() != null && review.getRating() != null)
+                .filter(review -> cutoff == null || (review.getDateAdded() != null && !review.getDateAdded().before(cutoff)))
+                .forEach(review -> {
+                    long[] countAndSum = ratings.computeIfAbsent(review.getBookId(), id -> new long[2]);
+                    countAndSum[0]++;
+                    countAndSum[1] += review.getRating();
+                });
+
+        Map<ObjectId, Double> scores = new HashMap<>();
+        ratings.forEach((bookId, countAndSum) -> {
+            if ((double) countAndSum[1] / countAndSum[0] > 3.0) scores.put(bookId, (double) countAndSum[0]);
+        });
+        return top(scores, limit);
+    }
+
+    @Override
+    public List<BookRecommendation> findPopularBooksByShelf(int limit) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [POPULAR SHELF] limit: {}", limit);
+
+        Map<ObjectId, Double> scores = new HashMap<>();
+        this.users.stream().forEach(user -> {
+            for (UserBookShelf shelfBook : shelfOf(user)) {
+                ObjectId bookId = bookIdOf(shelfBook);
+                if (bookId != null) scores.merge(bookId, 1.0, Double::sum);
+            }
+        });
+        return handleRecommendationResponse(top(scores, limit));
+    }
+
+    @Override
+    public List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit) {
+        return findCollaborativeRecommendationsBooks(idUser, limit, findRecommendationPopularBooks(50));
+    }
+
+    /**
+     * Same strategies and weights as the graph: books of followed authors (5), of preferred genres (4),
+     * similar to the reader's books (3) and popular (readers × 0.1). A book reached by several
+     * strategies keeps its best score.
+     */
+    @Override
+    public List<BookRecommendation> findCollaborativeRecommendationsBooks(String idUser, int limit, List<BookStats> popular) {
+        if (idUser == null || idUser.isBlank() || !ObjectId.isValid(idUser)) return Collections.emptyList();
+
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [RECOMMENDATION] user id: {}, limit: {}", idUser, limit);
+
+        Optional<User> user = this.users.findById(new ObjectId(idUser));
+        if (user.isEmpty()) return Collections.emptyList();
+
+        Set<ObjectId> excluded = findReaderBookIds(user.get());
+        Map<ObjectId, Double> scores = new HashMap<>();
+        BiConsumer<Collection<ObjectId>, Double> collect = (bookIds, priority) -> {
+            for (ObjectId bookId : bookIds) {
+                if (bookId != null && !excluded.contains(bookId)) scores.merge(bookId, priority, Math::max);
+            }
+        };
+
+        ReaderPreference preference = user.get() instanceof Reader reader ? reader.getPreference() : null;
+        if (preference != null && preference.getAuthors() != null) {
+            for (AuthorEmbed author : preference.getAuthors()) {
+                if (author != null) collect.accept(this.collection.findIds("authors._id", author.getId()), AUTHOR_PRIORITY);
+            }
+        }
+        if (preference != null && preference.getGenres() != null) {
+            for (GenreEmbed genre : preference.getGenres()) {
+                if (genre != null) collect.accept(this.collection.findIds("genres._id", genre.getId()), GENRE_PRIORITY);
+            }
+        }
+        for (Book book : this.collection.find(excluded)) {
+            if (book.getSimilarBooks() == null) continue;
+            collect.accept(book.getSimilarBooks().stream().filter(Objects::nonNull).map(BookEmbed::getId).toList(), SIMILAR_PRIORITY);
+        }
+        if (popular != null) {
+            for (BookStats stats : popular) {
+                if (stats.getId() == null || !ObjectId.isValid(stats.getId()) || stats.getTotalScore() == null) continue;
+
+                ObjectId bookId = new ObjectId(stats.getId());
+                if (this.collection.exists(bookId)) collect.accept(List.of(bookId), stats.getTotalScore() * POPULAR_WEIGHT);
+            }
+        }
+
+        // Similar books may point to books that no longer exist: handleRecommendationResponse drops them
+        return handleRecommendationResponse(top(scores, limit));
+    }
+
+    /**
+     * Distinct readers per book who rated it 4 or more, or have it on the shelf as READING or FINISHED.
+     */
+    @Override
+    public List<BookStats> findRecommendationPopularBooks(int limit) {
+        logger.debug("[REPOSITORY] [BOOK] [FIND] [RECOMMENDATION] [POPULAR] limit: {}", limit);
+
+        Map<ObjectId, Set<ObjectId>> readers = new HashMap<>();
+        this.reviews.stream()
+                .filter(review -> review.getBookId() != null && review.getUser() != null && review.getRating() != null && review.getRating() >= 4)
+                .forEach(review -> readers.computeIfAbsent(review.getBookId(), id -> new HashSet<>()).add(review.getUser().getId()));
+        this.users.stream().forEach(user -> {
+            for (UserBookShelf shelfBook : shelfOf(user)) {
+                ObjectId bookId = bookIdOf(shelfBook);
+                if (bookId == null) continue;
+                if (shelfBook.getStatus() == BookShelfStatus.READING || shelfBook.getStatus() == BookShelfStatus.FINISHED) {
+                    readers.computeIfAbsent(bookId, id -> new HashSet<>()).add(user.getId());
+                }
+            }
+        });
+
+        Map<ObjectId, Double> scores = new HashMap<>();
+        readers.forEach((bookId, bookReaders) -> scores.put(bookId, (double) bookReaders.size()));
+
+        List<BookStats> stats = top(scores, limit);
+
+        Map<ObjectId, String> titles = new HashMap<>();
+        this.collection.find(stats.stream().map(s -> new ObjectId(s.getId())).toList())
+                .forEach(book -> titles.put(book.getId(), book.getTitle()));
+        stats.forEach(s -> s.setTitle(titles.get(new ObjectId(s.getId()))));
+
+        return stats;
+    }
+
+    /**
+     * Nothing to migrate: there is no graph in the local profile.
+     */
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [BOOK] [MIGRATE] skipped in the local profile");
+    }
+
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+}
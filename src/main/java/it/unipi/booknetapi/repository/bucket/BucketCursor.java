@@ -0,0 +1,43 @@
+package it.unipi.booknetapi.repository.bucket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation token of a page of bucketed ids (newest first): the bucket to resume in and the ids
+ * of it already returned from its newest end. The legacy array of the owner document, older than
+ * every bucket, is read as seq {@link #LEGACY}.
+ */
+record BucketCursor(int seq, int skip) {
+
+    static final int LEGACY = -1;
+
+    private static final String CURSOR_PREFIX = "bucket:";
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + this.seq + ":" + this.skip).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the position the cursor points to, null if the token is not valid
+     */
+    static BucketCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) return null;
+
+            String[] parts = decoded.substring(CURSOR_PREFIX.length()).split(":");
+            if (parts.length != 2) return null;
+
+            int seq = Integer.parseInt(parts[0]);
+            int skip = Integer.parseInt(parts[1]);
+            if (seq < LEGACY || skip < 0) return null;
+
+            return new BucketCursor(seq, skip);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package it.unipi.booknetapi.repository.bucket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic job that moves the ids still pushed in the owner documents (books.reviews, users.reviews,
+ * users.notifications) into buckets, and packs the buckets left half empty by removals.
+ * Each run works owner by owner until nothing is left or the time budget is spent.
+ */
+@Component
+@Profile("!local")
+public class IdBucketCompactor {
+
+    Logger logger = LoggerFactory.getLogger(IdBucketCompactor.class);
+
+    private final IdBucketRepository idBucketRepository;
+    private final MeterRegistry registry;
+
+    private final int batchSize;
+    private final long maxRunMillis;
+
+    public IdBucketCompactor(AppConfiguration config, AsyncManager asyncManager, IdBucketRepository idBucketRepository, MeterRegistry registry) {
+        this.idBucketRepository = idBucketRepository;
+        this.registry = registry;
+
+        this.batchSize = Math.max(1, config.getInt("app.buckets.compaction-batch", 200));
+        this.maxRunMillis = TimeUnit.SECONDS.toMillis(config.getLong("app.buckets.compaction-max-seconds", 300L));
+
+        if (config.getBoolean("app.buckets.compaction-enabled", true)) {
+            long intervalMinutes = config.getLong("app.buckets.compaction-interval-minutes", 60L);
+            asyncManager.schedule(Workload.BACKGROUND, "bucket-compaction", this::compactSafely, 1, intervalMinutes, TimeUnit.MINUTES);
+        } else {
+            logger.info("[BUCKET] [COMPACTION] disabled");
+        }
+    }
+
+
+    public void compact() {
+        long deadline = System.currentTimeMillis() + this.maxRunMillis;
+
+        for (BucketType type : BucketType.values()) {
+            int compacted = 0;
+            int failed = 0;
+
+            while (System.currentTimeMillis() < deadline) {
+                List<ObjectId> owners = this.idBucketRepository.findOwnersToCompact(type, this.batchSize);
+                if (owners.isEmpty()) break;
+
+                int batchFailed = 0;
+                for (ObjectId owner : owners) {
+                    if (System.currentTimeMillis() >= deadline) break;
+
+                    try {
+                        this.idBucketRepository.compact(type, owner);
+                        compacted++;
+                        this.registry.counter("buckets.compacted", "type", type.name()).increment();
+                    } catch (Exception e) {
+                        batchFailed++;
+                        this.registry.counter("buckets.compaction.failed", "type", type.name()).increment();
+                        logger.warn("[BUCKET] [COMPACTION] {} owner {} failed: {}", type, owner, e.getMessage());
+                    }
+                }
+                failed += batchFailed;
+
+                // Same owners would come back: leave them to the next run
+                if (owners.size() < this.batchSize || batchFailed == owners.size()) break;
+            }
+
+            if (compacted > 0 || failed > 0) {
+                logger.info("[BUCKET] [COMPACTION] {} owners compacted: {}, failed: {}", type, compacted, failed);
+            }
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (Exception e) {
+            logger.error("[BUCKET] [COMPACTION] failed: {}", e.getMessage());
+        }
+    }
+
+}
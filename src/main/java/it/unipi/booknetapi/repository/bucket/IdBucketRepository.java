@@ -0,0 +1,500 @@
+package it.unipi.booknetapi.repository.bucket;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.*;
+import com.mongodb.client.model.*;
+import com.mongodb.client.result.UpdateResult;
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.model.bucket.IdBucket;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
+import it.unipi.booknetapi.shared.model.InvalidPaginationException;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Bucketed id lists (see {@link BucketType}). An owner's ids are spread over documents of at most
+ * app.buckets.size ids keyed "ownerId_seq", so the owner document stays small and a page of ids
+ * is read without loading the whole list. Removals leave holes that {@link #compact} packs again.
+ */
+@Repository
+@Profile("!local")
+public class IdBucketRepository implements IdBucketRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(IdBucketRepository.class);
+
+    private final MongoClient mongoClient;
+    private final Map<BucketType, MongoCollection<IdBucket>> collections = new EnumMap<>(BucketType.class);
+    private final Map<BucketType, MongoCollection<Document>> ownerCollections = new EnumMap<>(BucketType.class);
+    private final int bucketSize;
+
+    public IdBucketRepository(AppConfiguration config, MongoClient mongoClient, MongoDatabase mongoDatabase) {
+        this.mongoClient = mongoClient;
+        this.bucketSize = Math.max(1, config.getInt("app.buckets.size", 500));
+
+        for (BucketType type : BucketType.values()) {
+            MongoCollection<IdBucket> collection = mongoDatabase.getCollection(type.getCollection(), IdBucket.class);
+            // Newest bucket of an owner, and paging from the newest
+            collection.createIndex(Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.descending("seq")));
+
+            this.collections.put(type, collection);
+            this.ownerCollections.put(type, mongoDatabase.getCollection(type.getOwnerCollection()));
+        }
+    }
+
+    private static String key(ObjectId ownerId, int seq) {
+        return ownerId.toHexString() + "_" + seq;
+    }
+
+    // Matches the bucket only while the chunk still fits in it
+    private Bson appendFilter(ObjectId ownerId, int seq, int chunkSize) {
+        return Filters.and(
+                Filters.eq("_id", key(ownerId, seq)),
+                Filters.lte("count", this.bucketSize - chunkSize)
+        );
+    }
+
+    private static Bson appendUpdate(ObjectId ownerId, int seq, List<ObjectId> chunk) {
+        return Updates.combine(
+                Updates.setOnInsert("ownerId", ownerId),
+                Updates.setOnInsert("seq", seq),
+                Updates.pushEach("ids", chunk),
+                Updates.inc("count", chunk.size())
+        );
+    }
+
+    // A write of appendAll: the owner and the offset of its chunk in the owner's ids
+    private record PlannedAppend(ObjectId ownerId, int from) {}
+
+
+    /**
+     * Appends to the newest bucket of the owner, or opens the next one when it is full.
+     * The fill check and the push are one conditional upsert: when the bucket is full the filter
+     * does not match and the insert of its _id fails, so two writers never overfill a bucket.
+     * @param ids appended in order
+     */
+    @Override
+    public void append(BucketType type, ObjectId ownerId, List<ObjectId> ids) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(ids);
+
+        List<ObjectId> values = ids.stream().filter(Objects::nonNull).toList();
+        if (values.isEmpty()) return;
+
+        MongoCollection<IdBucket> collection = this.collections.get(type);
+
+        IdBucket head = collection
+                .find(Filters.eq("ownerId", ownerId))
+                .sort(Sorts.descending("seq"))
+                .projection(Projections.include("seq"))
+                .first();
+        int seq = head != null && head.getSeq() != null ? head.getSeq() : 0;
+
+        int from = 0;
+        while (from < values.size()) {
+            List<ObjectId> chunk = values.subList(from, Math.min(values.size(), from + this.bucketSize));
+
+            try {
+                collection.updateOne(
+                        appendFilter(ownerId, seq, chunk.size()),
+                        appendUpdate(ownerId, seq, chunk),
+                        new UpdateOptions().upsert(true)
+                );
+                from += chunk.size();
+            } catch (MongoWriteException e) {
+                if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY) throw e;
+                // Bucket full
+                seq++;
+            }
+        }
+
+        logger.debug("[REPOSITORY] [BUCKET] [{}] [APPEND] owner: {}, ids: {}, seq: {}", type, ownerId, values.size(), seq);
+    }
+
+    /**
+     * {@link #append} for many owners in two round trips: one read of the newest bucket of every
+     * owner, then one ordered bulk write of the chunks planned from their fill. When a concurrent
+     * writer filled a bucket in between, the batch stops at that write and the ids left of every
+     * owner from there go through {@link #append}, so the order of an owner's ids is kept.
+     * @param idsByOwner ids to append per owner, in order
+     */
+    @Override
+    public void appendAll(BucketType type, Map<ObjectId, List<ObjectId>> idsByOwner) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(idsByOwner);
+
+        Map<ObjectId, List<ObjectId>> values = new LinkedHashMap<>();
+        idsByOwner.forEach((ownerId, ids) -> {
+            if (ownerId == null || ids == null) return;
+            List<ObjectId> owned = ids.stream().filter(Objects::nonNull).toList();
+            if (!owned.isEmpty()) values.put(ownerId, owned);
+        });
+        if (values.isEmpty()) return;
+
+        MongoCollection<IdBucket> collection = this.collections.get(type);
+
+        Map<ObjectId, Document> heads = new HashMap<>();
+        collection.aggregate(List.of(
+                        Aggregates.match(Filters.in("ownerId", values.keySet())),
+                        Aggregates.sort(Sorts.orderBy(Sorts.ascending("ownerId"), Sorts.descending("seq"))),
+                        Aggregates.group("$ownerId", Accumulators.first("seq", "$seq"), Accumulators.first("count", "$count"))
+                ), Document.class)
+                .forEach(head -> heads.put(head.getObjectId("_id"), head));
+
+        List<UpdateOneModel<IdBucket>> writes = new ArrayList<>();
+        List<PlannedAppend> planned = new ArrayList<>();
+        values.forEach((ownerId, ids) -> {
+            Document head = heads.get(ownerId);
+            int seq = head != null ? head.getInteger("seq", 0) : 0;
+            int free = head != null ? this.bucketSize - head.getInteger("count", 0) : this.bucketSize;
+            if (free <= 0) {
+                seq++;
+                free = this.bucketSize;
+            }
+
+            for (int from = 0; from < ids.size(); seq++) {
+                List<ObjectId> chunk = ids.subList(from, Math.min(ids.size(), from + free));
+                writes.add(new UpdateOneModel<>(
+                        appendFilter(ownerId, seq, chunk.size()),
+                        appendUpdate(ownerId, seq, chunk),
+                        new UpdateOptions().upsert(true)
+                ));
+                planned.add(new PlannedAppend(ownerId, from));
+
+                from += chunk.size();
+                free = this.bucketSize;
+            }
+        });
+
+        try {
+            collection.bulkWrite(writes, new BulkWriteOptions().ordered(true));
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteErrors().isEmpty()
+                    || e.getWriteErrors().stream().anyMatch(error -> error.getCategory() != ErrorCategory.DUPLICATE_KEY)) throw e;
+
+            Map<ObjectId, Integer> resumeFrom = new LinkedHashMap<>();
+            for (int i = e.getWriteErrors().getFirst().getIndex(); i < planned.size(); i++) {
+                resumeFrom.putIfAbsent(planned.get(i).ownerId(), planned.get(i).from());
+            }
+
+            logger.debug("[REPOSITORY] [BUCKET] [{}] [APPEND ALL] bucket filled concurrently, owners left: {}", type, resumeFrom.size());
+
+            resumeFrom.forEach((ownerId, from) -> {
+                List<ObjectId> ids = values.get(ownerId);
+                append(type, ownerId, ids.subList(from, ids.size()));
+            });
+        }
+
+        logger.debug("[REPOSITORY] [BUCKET] [{}] [APPEND ALL] owners: {}, writes: {}", type, values.size(), writes.size());
+    }
+
+    /**
+     * Removes the ids from every bucket of the owner, and from the legacy array of the owner
+     * document if it was not drained yet.
+     * @return true if at least one id was removed
+     */
+    @Override
+    public boolean remove(BucketType type, ObjectId ownerId, Collection<ObjectId> ids) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(ids);
+
+        List<ObjectId> values = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (values.isEmpty()) return false;
+
+        // Pipeline update: count follows the filtered array in the same write
+        UpdateResult result = this.collections.get(type).updateMany(
+                Filters.and(Filters.eq("ownerId", ownerId), Filters.in("ids", values)),
+                List.of(
+                        Aggregates.set(new Field<>("ids", new Document("$filter", new Document("input", "$ids")
+                                .append("cond", new Document("$not", List.of(new Document("$in", List.of("$$this", values)))))))),
+                        Aggregates.set(new Field<>("count", new Document("$size", "$ids")))
+                )
+        );
+
+        UpdateResult legacyResult = this.ownerCollections.get(type).updateOne(
+                Filters.and(Filters.eq("_id", ownerId), Filters.in(type.getLegacyField(), values)),
+                Updates.pullAll(type.getLegacyField(), values)
+        );
+
+        logger.debug("[REPOSITORY] [BUCKET] [{}] [REMOVE] owner: {}, ids: {}, buckets modified: {}", type, ownerId, values.size(), result.getModifiedCount());
+
+        return result.getModifiedCount() > 0 || legacyResult.getModifiedCount() > 0;
+    }
+
+    /**
+     * Drops the buckets of deleted owners.
+     */
+    @Override
+    public void deleteOwners(BucketType type, Collection<ObjectId> ownerIds) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerIds);
+
+        if (ownerIds.isEmpty()) return;
+
+        this.collections.get(type).deleteMany(Filters.in("ownerId", ownerIds));
+    }
+
+    /**
+     * @param beforeSeq cursor, the seq of the last bucket of the previous page; null for the newest buckets
+     * @param limit number of buckets
+     * @return buckets of the owner, newest first
+     */
+    @Override
+    public List<IdBucket> findBuckets(BucketType type, ObjectId ownerId, Integer beforeSeq, int limit) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+
+        Bson filter = beforeSeq == null
+                ? Filters.eq("ownerId", ownerId)
+                : Filters.and(Filters.eq("ownerId", ownerId), Filters.lt("seq", beforeSeq));
+
+        return this.collections.get(type)
+                .find(filter)
+                .sort(Sorts.descending("seq"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * The whole list, oldest first: ids still in the legacy array, then the buckets in seq order.
+     */
+    @Override
+    public List<ObjectId> findIds(BucketType type, ObjectId ownerId) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+
+        List<ObjectId> ids = new ArrayList<>(legacyIds(type, null, ownerId));
+
+        this.collections.get(type)
+                .find(Filters.eq("ownerId", ownerId))
+                .sort(Sorts.ascending("seq"))
+                .forEach(bucket -> {
+                    if (bucket.getIds() != null) ids.addAll(bucket.getIds());
+                });
+
+        return ids;
+    }
+
+    /**
+     * A page of the list, newest first, read bucket by bucket from the cursor position (see
+     * {@link BucketCursor}): a page costs the buckets it spans, whatever the length of the list.
+     * Without a cursor, page * size ids are skipped on the bucket counts before the ids are read.
+     * A removal between two pages shifts the next one by the ids removed before the cursor.
+     */
+    @Override
+    public PageResult<ObjectId> findIds(BucketType type, ObjectId ownerId, PaginationRequest pagination) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(pagination);
+
+        int size = MongoPagination.pageSize(pagination);
+        MongoCollection<IdBucket> collection = this.collections.get(type);
+
+        BucketCursor start;
+        if (pagination.hasCursor()) {
+            start = BucketCursor.decode(pagination.getCursor());
+            if (start == null) throw new InvalidPaginationException("Invalid pagination cursor");
+        } else {
+            start = skipTo(collection, ownerId, (long) pagination.getPage() * size);
+        }
+
+        List<ObjectId> content = new ArrayList<>(Math.max(0, size));
+        String nextCursor = null;
+
+        if (size > 0 && start.seq() != BucketCursor.LEGACY) {
+            int skip = start.skip();
+            // Buckets hold up to bucketSize ids: fetch about as many as one page spans
+            try (MongoCursor<IdBucket> buckets = collection
+                    .find(Filters.and(Filters.eq("ownerId", ownerId), Filters.lte("seq", start.seq())))
+                    .sort(Sorts.descending("seq"))
+                    .batchSize(size / this.bucketSize + 2)
+                    .iterator()) {
+                while (nextCursor == null && buckets.hasNext()) {
+                    IdBucket bucket = buckets.next();
+                    nextCursor = takeNewest(bucket.getIds(), bucket.getSeq(), skip, size, content);
+                    skip = 0;
+                }
+            }
+        }
+
+        if (size > 0 && nextCursor == null) {
+            int skip = start.seq() == BucketCursor.LEGACY ? start.skip() : 0;
+            nextCursor = takeNewest(legacyIds(type, null, ownerId), BucketCursor.LEGACY, skip, size, content);
+        }
+
+        long total = PageResult.UNKNOWN_TOTAL;
+        if (pagination.isTotalRequested()) total = countIds(type, ownerId);
+
+        return new PageResult<>(content, total, pagination.getPage(), size, nextCursor);
+    }
+
+    /**
+     * Adds the ids of a bucket (oldest first) to the page, newest first, from skip ids before its end.
+     * @return the cursor of the next page if the page is full and an id is left, null to go on with the next bucket
+     */
+    private static String takeNewest(List<ObjectId> ids, int seq, int skip, int size, List<ObjectId> content) {
+        if (ids == null || skip >= ids.size()) return null;
+        // Page filled by the previous bucket: the next one starts here
+        if (content.size() >= size) return new BucketCursor(seq, skip).encode();
+
+        int index = ids.size() - 1 - skip;
+        while (index >= 0 && content.size() < size) {
+            content.add(ids.get(index--));
+        }
+
+        return index >= 0 ? new BucketCursor(seq, ids.size() - 1 - index).encode() : null;
+    }
+
+    /**
+     * The position count ids after the newest one, read on the bucket counts only.
+     */
+    private BucketCursor skipTo(MongoCollection<IdBucket> collection, ObjectId ownerId, long count) {
+        if (count <= 0) return new BucketCursor(Integer.MAX_VALUE, 0);
+
+        long left = count;
+        for (IdBucket bucket : collection
+                .find(Filters.eq("ownerId", ownerId))
+                .projection(Projections.include("seq", "count"))
+                .sort(Sorts.descending("seq"))) {
+            int bucketCount = bucket.getCount() != null ? bucket.getCount() : 0;
+            if (left < bucketCount) return new BucketCursor(bucket.getSeq(), (int) left);
+            left -= bucketCount;
+        }
+
+        return new BucketCursor(BucketCursor.LEGACY, (int) Math.min(left, Integer.MAX_VALUE));
+    }
+
+    private long countIds(BucketType type, ObjectId ownerId) {
+        Document buckets = this.collections.get(type)
+                .aggregate(List.of(
+                        Aggregates.match(Filters.eq("ownerId", ownerId)),
+                        Aggregates.group(null, Accumulators.sum("ids", "$count"))
+                ), Document.class)
+                .first();
+
+        Document owner = this.ownerCollections.get(type)
+                .find(Filters.eq("_id", ownerId))
+                .projection(Projections.computed("legacy", new Document("$size",
+                        new Document("$ifNull", List.of("$" + type.getLegacyField(), List.of())))))
+                .first();
+
+        long ids = buckets != null ? ((Number) buckets.get("ids")).longValue() : 0;
+        if (owner != null) ids += ((Number) owner.get("legacy")).longValue();
+
+        return ids;
+    }
+
+    private List<ObjectId> legacyIds(BucketType type, ClientSession session, ObjectId ownerId) {
+        Bson filter = Filters.eq("_id", ownerId);
+        Bson projection = Projections.include(type.getLegacyField());
+
+        Document owner = session != null
+                ? this.ownerCollections.get(type).find(session, filter).projection(projection).first()
+                : this.ownerCollections.get(type).find(filter).projection(projection).first();
+
+        if (owner == null) return List.of();
+        return owner.getList(type.getLegacyField(), ObjectId.class, List.of());
+    }
+
+    /**
+     * Owners to compact: the ones with ids still in the legacy array of their document, then the ones
+     * with more buckets than their ids need (one partly filled bucket is allowed).
+     */
+    @Override
+    public List<ObjectId> findOwnersToCompact(BucketType type, int limit) {
+        Objects.requireNonNull(type);
+
+        Set<ObjectId> owners = new LinkedHashSet<>();
+
+        this.ownerCollections.get(type)
+                .find(Filters.exists(type.getLegacyField() + ".0"))
+                .projection(Projections.include("_id"))
+                .limit(limit)
+                .forEach(owner -> owners.add(owner.getObjectId("_id")));
+
+        if (owners.size() < limit) {
+            Document neededBuckets = new Document("$add", List.of(
+                    new Document("$ceil", new Document("$divide", List.of("$ids", this.bucketSize))),
+                    1
+            ));
+
+            this.collections.get(type)
+                    .aggregate(List.of(
+                            Aggregates.group("$ownerId", Accumulators.sum("buckets", 1), Accumulators.sum("ids", "$count")),
+                            Aggregates.match(Filters.expr(new Document("$gt", List.of("$buckets", neededBuckets)))),
+                            Aggregates.limit(limit - owners.size())
+                    ), Document.class)
+                    .allowDiskUse(true)
+                    .forEach(group -> owners.add(group.getObjectId("_id")));
+        }
+
+        return new ArrayList<>(owners);
+    }
+
+    /**
+     * Rewrites the list of an owner in full buckets numbered from 0: legacy ids first, then the
+     * buckets in order. Runs in a transaction, so a concurrent append or removal makes it retry
+     * instead of being lost. The buckets of an owner that no longer exists are dropped.
+     * @return buckets written
+     */
+    @Override
+    public int compact(BucketType type, ObjectId ownerId) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+
+        MongoCollection<IdBucket> collection = this.collections.get(type);
+        MongoCollection<Document> ownerCollection = this.ownerCollections.get(type);
+
+        try (ClientSession mongoSession = this.mongoClient.startSession()) {
+            return mongoSession.withTransaction(() -> {
+                boolean ownerExists = ownerCollection.countDocuments(mongoSession, Filters.eq("_id", ownerId)) > 0;
+                List<ObjectId> legacy = legacyIds(type, mongoSession, ownerId);
+
+                Set<ObjectId> ids = new LinkedHashSet<>(legacy);
+                collection.find(mongoSession, Filters.eq("ownerId", ownerId))
+                        .sort(Sorts.ascending("seq"))
+                        .forEach(bucket -> {
+                            if (bucket.getIds() != null) ids.addAll(bucket.getIds());
+                        });
+
+                collection.deleteMany(mongoSession, Filters.eq("ownerId", ownerId));
+                if (!ownerExists) return 0;
+
+                List<ObjectId> all = new ArrayList<>(ids);
+                List<IdBucket> buckets = new ArrayList<>();
+                for (int from = 0; from < all.size(); from += this.bucketSize) {
+                    List<ObjectId> chunk = new ArrayList<>(all.subList(from, Math.min(all.size(), from + this.bucketSize)));
+                    int seq = buckets.size();
+                    buckets.add(IdBucket.builder()
+                            .id(key(ownerId, seq))
+                            .ownerId(ownerId)
+                            .seq(seq)
+                            .count(chunk.size())
+                            .ids(chunk)
+                            .build());
+                }
+                if (!buckets.isEmpty()) collection.insertMany(mongoSession, buckets);
+
+                if (!legacy.isEmpty()) {
+                    ownerCollection.updateOne(mongoSession, Filters.eq("_id", ownerId), Updates.unset(type.getLegacyField()));
+                }
+
+                return buckets.size();
+            });
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package it.unipi.booknetapi.repository.bucket;
+
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.model.bucket.IdBucket;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface IdBucketRepositoryInterface {
+
+    void append(BucketType type, ObjectId ownerId, List<ObjectId> ids);
+    void appendAll(BucketType type, Map<ObjectId, List<ObjectId>> idsByOwner);
+    boolean remove(BucketType type, ObjectId ownerId, Collection<ObjectId> ids);
+    void deleteOwners(BucketType type, Collection<ObjectId> ownerIds);
+
+    List<IdBucket> findBuckets(BucketType type, ObjectId ownerId, Integer beforeSeq, int limit);
+    List<ObjectId> findIds(BucketType type, ObjectId ownerId);
+    PageResult<ObjectId> findIds(BucketType type, ObjectId ownerId, PaginationRequest pagination);
+
+    List<ObjectId> findOwnersToCompact(BucketType type, int limit);
+    int compact(BucketType type, ObjectId ownerId);
+
+}
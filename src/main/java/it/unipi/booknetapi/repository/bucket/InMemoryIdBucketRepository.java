@@ -0,0 +1,195 @@
+package it.unipi.booknetapi.repository.bucket;
+
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.model.bucket.IdBucket;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
+import it.unipi.booknetapi.shared.model.InvalidPaginationException;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Id lists of the local profile: one list per owner, cut in buckets of app.buckets.size ids only
+ * when they are read by bucket. The in-memory repositories never write the legacy arrays of the
+ * owner documents, so there is nothing to compact.
+ */
+@Repository
+@Profile("local")
+public class InMemoryIdBucketRepository implements IdBucketRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryIdBucketRepository.class);
+
+    private final Map<BucketType, ConcurrentMap<ObjectId, List<ObjectId>>> lists = new EnumMap<>(BucketType.class);
+    private final int bucketSize;
+
+    public InMemoryIdBucketRepository(AppConfiguration config) {
+        this.bucketSize = Math.max(1, config.getInt("app.buckets.size", 500));
+
+        for (BucketType type : BucketType.values()) {
+            this.lists.put(type, new ConcurrentHashMap<>());
+        }
+    }
+
+
+    @Override
+    public void append(BucketType type, ObjectId ownerId, List<ObjectId> ids) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(ids);
+
+        List<ObjectId> values = ids.stream().filter(Objects::nonNull).toList();
+        if (values.isEmpty()) return;
+
+        // Copy on write: readers iterate the list they got without locking
+        this.lists.get(type).compute(ownerId, (owner, current) -> {
+            List<ObjectId> next = current != null ? new ArrayList<>(current) : new ArrayList<>();
+            next.addAll(values);
+            return Collections.unmodifiableList(next);
+        });
+
+        logger.debug("[REPOSITORY] [BUCKET] [{}] [APPEND] owner: {}, ids: {}", type, ownerId, values.size());
+    }
+
+    @Override
+    public void appendAll(BucketType type, Map<ObjectId, List<ObjectId>> idsByOwner) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(idsByOwner);
+
+        idsByOwner.forEach((ownerId, ids) -> {
+            if (ownerId != null && ids != null) append(type, ownerId, ids);
+        });
+    }
+
+    @Override
+    public boolean remove(BucketType type, ObjectId ownerId, Collection<ObjectId> ids) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(ids);
+
+        Set<ObjectId> values = new HashSet<>(ids);
+        values.remove(null);
+        if (values.isEmpty()) return false;
+
+        boolean[] removed = {false};
+        this.lists.get(type).computeIfPresent(ownerId, (owner, current) -> {
+            List<ObjectId> next = current.stream().filter(id -> !values.contains(id)).toList();
+            removed[0] = next.size() < current.size();
+            return next.isEmpty() ? null : next;
+        });
+
+        logger.debug("[REPOSITORY] [BUCKET] [{}] [REMOVE] owner: {}, ids: {}, removed: {}", type, ownerId, values.size(), removed[0]);
+
+        return removed[0];
+    }
+
+    @Override
+    public void deleteOwners(BucketType type, Collection<ObjectId> ownerIds) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerIds);
+
+        ownerIds.forEach(this.lists.get(type)::remove);
+    }
+
+    /**
+     * The list cut in buckets of app.buckets.size ids, numbered from 0 (always compacted).
+     */
+    @Override
+    public List<IdBucket> findBuckets(BucketType type, ObjectId ownerId, Integer beforeSeq, int limit) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+
+        List<ObjectId> ids = findIds(type, ownerId);
+        int buckets = (ids.size() + this.bucketSize - 1) / this.bucketSize;
+        int seq = beforeSeq != null ? Math.min(beforeSeq, buckets) - 1 : buckets - 1;
+
+        List<IdBucket> result = new ArrayList<>();
+        for (; seq >= 0 && result.size() < limit; seq--) {
+            int from = seq * this.bucketSize;
+            List<ObjectId> chunk = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + this.bucketSize)));
+
+            result.add(IdBucket.builder()
+                    .id(ownerId.toHexString() + "_" + seq)
+                    .ownerId(ownerId)
+                    .seq(seq)
+                    .count(chunk.size())
+                    .ids(chunk)
+                    .build());
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<ObjectId> findIds(BucketType type, ObjectId ownerId) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+
+        return new ArrayList<>(this.lists.get(type).getOrDefault(ownerId, List.of()));
+    }
+
+    /**
+     * A page of the list, newest first, with the cursor of {@link IdBucketRepository} on the buckets
+     * of {@link #findBuckets}.
+     */
+    @Override
+    public PageResult<ObjectId> findIds(BucketType type, ObjectId ownerId, PaginationRequest pagination) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(ownerId);
+        Objects.requireNonNull(pagination);
+
+        List<ObjectId> ids = this.lists.get(type).getOrDefault(ownerId, List.of());
+        int size = MongoPagination.pageSize(pagination);
+
+        // Index of the newest id of the page, the list being oldest first
+        int index;
+        if (pagination.hasCursor()) {
+            BucketCursor cursor = BucketCursor.decode(pagination.getCursor());
+            if (cursor == null) throw new InvalidPaginationException("Invalid pagination cursor");
+
+            index = cursor.seq() == BucketCursor.LEGACY
+                    ? -1
+                    : bucketEnd(ids, cursor.seq()) - 1 - cursor.skip();
+        } else {
+            index = (int) Math.max(-1, ids.size() - 1 - (long) pagination.getPage() * size);
+        }
+
+        List<ObjectId> content = new ArrayList<>(Math.max(0, size));
+        while (index >= 0 && content.size() < size) {
+            content.add(ids.get(index--));
+        }
+
+        String nextCursor = null;
+        if (size > 0 && index >= 0) {
+            int seq = index / this.bucketSize;
+            nextCursor = new BucketCursor(seq, bucketEnd(ids, seq) - 1 - index).encode();
+        }
+
+        long total = pagination.isTotalRequested() ? ids.size() : PageResult.UNKNOWN_TOTAL;
+
+        return new PageResult<>(content, total, pagination.getPage(), size, nextCursor);
+    }
+
+    private int bucketEnd(List<ObjectId> ids, int seq) {
+        return (int) Math.min(ids.size(), ((long) seq + 1) * this.bucketSize);
+    }
+
+    @Override
+    public List<ObjectId> findOwnersToCompact(BucketType type, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public int compact(BucketType type, ObjectId ownerId) {
+        return findBuckets(type, ownerId, null, Integer.MAX_VALUE).size();
+    }
+
+}
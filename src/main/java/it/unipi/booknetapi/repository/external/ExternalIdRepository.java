@@ -0,0 +1,104 @@
+package it.unipi.booknetapi.repository.external;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import it.unipi.booknetapi.model.external.ExternalIdType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * GoodReads id to _id lookups that read the index only: (externalId.goodReads, _id) covers both the
+ * filter and the projection, so no document is fetched.
+ */
+@Repository
+@Profile("!local")
+public class ExternalIdRepository implements ExternalIdRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(ExternalIdRepository.class);
+
+    private static final String FIELD = "externalId.goodReads";
+    private static final int SCAN_BATCH_SIZE = 10000;
+
+    private final Map<ExternalIdType, MongoCollection<Document>> collections = new EnumMap<>(ExternalIdType.class);
+
+    public ExternalIdRepository(MongoDatabase mongoDatabase) {
+        for (ExternalIdType type : ExternalIdType.values()) {
+            MongoCollection<Document> collection = mongoDatabase.getCollection(type.getCollection());
+            // Also serves the upserts of the imports, which match on the GoodReads id
+            collection.createIndex(Indexes.compoundIndex(Indexes.ascending(FIELD), Indexes.ascending("_id")));
+
+            this.collections.put(type, collection);
+        }
+    }
+
+    private static Bson projection() {
+        return Projections.include("_id", FIELD);
+    }
+
+    private static String externalId(Document document) {
+        Document externalId = document.get("externalId", Document.class);
+        return externalId != null ? externalId.getString("goodReads") : null;
+    }
+
+
+    /**
+     * @return GoodReads id to _id, for the ids that exist (the first one if a GoodReads id is duplicated)
+     */
+    @Override
+    public Map<String, ObjectId> findIds(ExternalIdType type, Collection<String> externalIds) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(externalIds);
+
+        if (externalIds.isEmpty()) return new HashMap<>();
+
+        logger.debug("[REPOSITORY] [EXTERNAL ID] [{}] [FIND] ids: {}", type, externalIds.size());
+
+        Map<String, ObjectId> ids = new HashMap<>(externalIds.size());
+        this.collections.get(type)
+                .find(Filters.in(FIELD, externalIds))
+                .projection(projection())
+                .forEach(document -> {
+                    String externalId = externalId(document);
+                    if (externalId != null) ids.putIfAbsent(externalId, document.getObjectId("_id"));
+                });
+
+        return ids;
+    }
+
+    /**
+     * Streams every GoodReads id of the collection with its _id, from the index.
+     * @return documents read
+     */
+    @Override
+    public long scan(ExternalIdType type, BiConsumer<String, ObjectId> consumer) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(consumer);
+
+        logger.debug("[REPOSITORY] [EXTERNAL ID] [{}] [SCAN]", type);
+
+        long read = 0;
+        for (Document document : this.collections.get(type)
+                .find(Filters.type(FIELD, "string"))
+                .projection(projection())
+                .hint(Indexes.compoundIndex(Indexes.ascending(FIELD), Indexes.ascending("_id")))
+                .batchSize(SCAN_BATCH_SIZE)) {
+            String externalId = externalId(document);
+            if (externalId != null) consumer.accept(externalId, document.getObjectId("_id"));
+            read++;
+        }
+
+        return read;
+    }
+
+}
@@ -0,0 +1,15 @@
+package it.unipi.booknetapi.repository.external;
+
+import it.unipi.booknetapi.model.external.ExternalIdType;
+import org.bson.types.ObjectId;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public interface ExternalIdRepositoryInterface {
+
+    Map<String, ObjectId> findIds(ExternalIdType type, Collection<String> externalIds);
+    long scan(ExternalIdType type, BiConsumer<String, ObjectId> consumer);
+
+}
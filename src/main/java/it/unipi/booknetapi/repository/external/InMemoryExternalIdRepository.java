@@ -0,0 +1,68 @@
+package it.unipi.booknetapi.repository.external;
+
+import it.unipi.booknetapi.model.external.ExternalIdType;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * GoodReads id lookups of the local profile, on the externalId.goodReads indexes of the store:
+ * like the covered queries of ExternalIdRepository, no document is decoded.
+ */
+@Repository
+@Profile("local")
+public class InMemoryExternalIdRepository implements ExternalIdRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryExternalIdRepository.class);
+
+    private static final String INDEX = "externalId.goodReads";
+
+    private final Map<ExternalIdType, InMemoryCollection<?>> collections = new EnumMap<>(ExternalIdType.class);
+
+    public InMemoryExternalIdRepository(InMemoryStore store) {
+        this.collections.put(ExternalIdType.BOOK, store.books());
+        this.collections.put(ExternalIdType.AUTHOR, store.authors());
+        this.collections.put(ExternalIdType.REVIEWER, store.users());
+    }
+
+    @Override
+    public Map<String, ObjectId> findIds(ExternalIdType type, Collection<String> externalIds) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(externalIds);
+
+        if (externalIds.isEmpty()) return new HashMap<>();
+
+        logger.debug("[REPOSITORY] [EXTERNAL ID] [{}] [FIND] ids: {}", type, externalIds.size());
+
+        InMemoryCollection<?> collection = this.collections.get(type);
+
+        Map<String, ObjectId> ids = new HashMap<>(externalIds.size());
+        for (String externalId : externalIds) {
+            if (externalId == null || ids.containsKey(externalId)) continue;
+
+            NavigableSet<ObjectId> found = collection.findIds(INDEX, externalId);
+            if (!found.isEmpty()) ids.put(externalId, found.first());
+        }
+        return ids;
+    }
+
+    @Override
+    public long scan(ExternalIdType type, BiConsumer<String, ObjectId> consumer) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(consumer);
+
+        logger.debug("[REPOSITORY] [EXTERNAL ID] [{}] [SCAN]", type);
+
+        return this.collections.get(type).scanIndex(INDEX, (key, id) -> {
+            if (key instanceof String externalId) consumer.accept(externalId, id);
+        });
+    }
+
+}
@@ -3,22 +3,31 @@ package it.unipi.booknetapi.repository.fetch;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
 import it.unipi.booknetapi.model.fetch.EntityType;
 import it.unipi.booknetapi.model.fetch.ImportLog;
+import it.unipi.booknetapi.model.fetch.ImportStatus;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 @Repository
+@Profile("!local")
 public class ImportLogRepository implements ImportLogRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(ImportLogRepository.class);
@@ -46,6 +55,71 @@ public class ImportLogRepository implements ImportLogRepositoryInterface {
         return null;
     }
 
+    /**
+     * @param importLog import log with the final totals of its run
+     * @return true if the log exists
+     */
+    @Override
+    public boolean update(ImportLog importLog) {
+        Objects.requireNonNull(importLog);
+        Objects.requireNonNull(importLog.getId());
+
+        importLog.setUpdatedAt(new Date());
+
+        UpdateResult updateResult = this.mongoCollection.replaceOne(Filters.eq("_id", importLog.getId()), importLog);
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    /**
+     * @param idImportLog
+     * @param status
+     * @return true if the log exists
+     */
+    @Override
+    public boolean updateStatus(ObjectId idImportLog, ImportStatus status) {
+        Objects.requireNonNull(idImportLog);
+        Objects.requireNonNull(status);
+
+        UpdateResult updateResult = this.mongoCollection.updateOne(
+                Filters.eq("_id", idImportLog),
+                Updates.combine(
+                        Updates.set("status", status),
+                        Updates.set("updatedAt", new Date())
+                )
+        );
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    /**
+     * Advances the checkpoint of a running import. $max keeps the watermark monotonic
+     * even if two write workers report out of order.
+     * @param idImportLog
+     * @param committedBatches contiguous batches written from the start of the file
+     * @param committedRecords records in those batches
+     * @param recordsPerSecond current import rate
+     * @return true if the log exists
+     */
+    @Override
+    public boolean updateCheckpoint(ObjectId idImportLog, long committedBatches, long committedRecords, double recordsPerSecond) {
+        Objects.requireNonNull(idImportLog);
+
+        Date now = new Date();
+        UpdateResult updateResult = this.mongoCollection.updateOne(
+                Filters.eq("_id", idImportLog),
+                Updates.combine(
+                        Updates.max("checkpoint.committedBatches", committedBatches),
+                        Updates.max("checkpoint.committedRecords", committedRecords),
+                        Updates.set("checkpoint.recordsPerSecond", recordsPerSecond),
+                        Updates.set("checkpoint.updatedAt", now),
+                        Updates.set("updatedAt", now)
+                )
+        );
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
     /**
      * @param idImportLog
      * @return
@@ -193,4 +267,27 @@ public class ImportLogRepository implements ImportLogRepositoryInterface {
 
         return new PageResult<>(importLogs, total, page, size);
     }
+
+    /**
+     * @param entityType entity type filter, null for all
+     * @param success success filter, null for all
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of import logs, newest first
+     */
+    @Override
+    public PageResult<ImportLog> findAll(EntityType entityType, Boolean success, PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        List<Bson> filters = new ArrayList<>();
+        if(entityType != null) filters.add(Filters.eq("entityType", entityType));
+        if(success != null) filters.add(Filters.eq("success", success));
+
+        return MongoPagination.find(
+                this.mongoCollection,
+                filters.isEmpty() ? null : Filters.and(filters),
+                pagination,
+                ImportLog::getId,
+                true
+        );
+    }
 }
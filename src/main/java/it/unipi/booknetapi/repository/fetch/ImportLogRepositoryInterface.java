@@ -2,7 +2,10 @@ package it.unipi.booknetapi.repository.fetch;
 
 import it.unipi.booknetapi.model.fetch.EntityType;
 import it.unipi.booknetapi.model.fetch.ImportLog;
+import it.unipi.booknetapi.model.fetch.ImportStatus;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
 
 import java.util.List;
 import java.util.Optional;
@@ -10,6 +13,9 @@ import java.util.Optional;
 public interface ImportLogRepositoryInterface {
 
     ImportLog insert(ImportLog importLog);
+    boolean update(ImportLog importLog);
+    boolean updateStatus(ObjectId idImportLog, ImportStatus status);
+    boolean updateCheckpoint(ObjectId idImportLog, long committedBatches, long committedRecords, double recordsPerSecond);
 
     boolean delete(String idImportLog);
     boolean deleteAll(List<String> idImportLogs);
@@ -20,5 +26,6 @@ public interface ImportLogRepositoryInterface {
     PageResult<ImportLog> findAll(EntityType entityType, int page, int size);
     PageResult<ImportLog> findAll(Boolean success, int page, int size);
     PageResult<ImportLog> findAll(EntityType entityType, Boolean success, int page, int size);
+    PageResult<ImportLog> findAll(EntityType entityType, Boolean success, PaginationRequest pagination);
 
 }
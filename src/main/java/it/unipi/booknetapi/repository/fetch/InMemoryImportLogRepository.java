@@ -0,0 +1,158 @@
+package it.unipi.booknetapi.repository.fetch;
+
+import it.unipi.booknetapi.model.fetch.EntityType;
+import it.unipi.booknetapi.model.fetch.ImportCheckpoint;
+import it.unipi.booknetapi.model.fetch.ImportLog;
+import it.unipi.booknetapi.model.fetch.ImportStatus;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+@Repository
+@Profile("local")
+public class InMemoryImportLogRepository implements ImportLogRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryImportLogRepository.class);
+
+    private final InMemoryCollection<ImportLog> collection;
+
+    public InMemoryImportLogRepository(InMemoryStore store) {
+        this.collection = store.importLogs();
+    }
+
+    private static long max(Long current, long value) {
+        return current != null ? Math.max(current, value) : value;
+    }
+
+
+    @Override
+    public ImportLog insert(ImportLog importLog) {
+        Objects.requireNonNull(importLog);
+
+        logger.debug("Inserting import log: {}", importLog);
+
+        return this.collection.insert(importLog);
+    }
+
+    @Override
+    public boolean update(ImportLog importLog) {
+        Objects.requireNonNull(importLog);
+        Objects.requireNonNull(importLog.getId());
+
+        importLog.setUpdatedAt(new Date());
+
+        return this.collection.replace(importLog);
+    }
+
+    @Override
+    public boolean updateStatus(ObjectId idImportLog, ImportStatus status) {
+        Objects.requireNonNull(idImportLog);
+        Objects.requireNonNull(status);
+
+        if(!this.collection.exists(idImportLog)) return false;
+
+        this.collection.update(idImportLog, importLog -> {
+            importLog.setStatus(status);
+            importLog.setUpdatedAt(new Date());
+        });
+        return true;
+    }
+
+    /**
+     * Same as the $max of the MongoDB update: the watermark never goes back.
+     */
+    @Override
+    public boolean updateCheckpoint(ObjectId idImportLog, long committedBatches, long committedRecords, double recordsPerSecond) {
+        Objects.requireNonNull(idImportLog);
+
+        if(!this.collection.exists(idImportLog)) return false;
+
+        Date now = new Date();
+        this.collection.update(idImportLog, importLog -> {
+            ImportCheckpoint checkpoint = importLog.getCheckpoint() != null ? importLog.getCheckpoint() : new ImportCheckpoint();
+            checkpoint.setCommittedBatches(max(checkpoint.getCommittedBatches(), committedBatches));
+            checkpoint.setCommittedRecords(max(checkpoint.getCommittedRecords(), committedRecords));
+            checkpoint.setRecordsPerSecond(recordsPerSecond);
+            checkpoint.setUpdatedAt(now);
+
+            importLog.setCheckpoint(checkpoint);
+            importLog.setUpdatedAt(now);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean delete(String idImportLog) {
+        Objects.requireNonNull(idImportLog);
+
+        return this.collection.delete(new ObjectId(idImportLog));
+    }
+
+    @Override
+    public boolean deleteAll(List<String> idImportLogs) {
+        Objects.requireNonNull(idImportLogs);
+
+        return this.collection.delete(idImportLogs.stream().map(ObjectId::new).toList()) > 0;
+    }
+
+    @Override
+    public Optional<ImportLog> findById(String idImportLog) {
+        Objects.requireNonNull(idImportLog);
+
+        return this.collection.findById(new ObjectId(idImportLog));
+    }
+
+    @Override
+    public PageResult<ImportLog> findAll(int page, int size) {
+        return this.collection.find(null, Comparator.comparing(ImportLog::getId), page, size);
+    }
+
+    @Override
+    public PageResult<ImportLog> findAll(EntityType entityType, int page, int size) {
+        Objects.requireNonNull(entityType);
+
+        return this.collection.find(filter(entityType, null), Comparator.comparing(ImportLog::getId), page, size);
+    }
+
+    @Override
+    public PageResult<ImportLog> findAll(Boolean success, int page, int size) {
+        Objects.requireNonNull(success);
+
+        return this.collection.find(filter(null, success), Comparator.comparing(ImportLog::getId), page, size);
+    }
+
+    @Override
+    public PageResult<ImportLog> findAll(EntityType entityType, Boolean success, int page, int size) {
+        Objects.requireNonNull(entityType);
+        Objects.requireNonNull(success);
+
+        return this.collection.find(filter(entityType, success), Comparator.comparing(ImportLog::getId), page, size);
+    }
+
+    @Override
+    public PageResult<ImportLog> findAll(EntityType entityType, Boolean success, PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        return this.collection.find(null, filter(entityType, success), pagination, true);
+    }
+
+    /**
+     * @return null when there is nothing to filter on
+     */
+    private static Predicate<ImportLog> filter(EntityType entityType, Boolean success) {
+        if(entityType == null && success == null) return null;
+
+        return importLog -> (entityType == null || entityType.equals(importLog.getEntityType()))
+                && (success == null || success.equals(importLog.getSuccess()));
+    }
+
+}
@@ -11,21 +11,32 @@ import com.mongodb.client.result.InsertOneResult;
 import io.micrometer.core.instrument.MeterRegistry;
 import it.unipi.booknetapi.model.genre.Genre;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxEventType;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.database.MongoRanges;
 import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import it.unipi.booknetapi.shared.lib.graph.GraphProjection;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.PageResult;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Repository
+@Profile("!local")
 public class GenreRepository implements GenreRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(GenreRepository.class);
@@ -36,10 +47,16 @@ public class GenreRepository implements GenreRepositoryInterface {
     private final MongoCollection<Genre> mongoCollection;
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
+    private final OutboxRepositoryInterface outboxRepository;
+    private final SearchIndex searchIndex;
+    private final GraphProjection graphProjection;
 
 
     public GenreRepository(
             AppConfig appConfig,
+            OutboxRepositoryInterface outboxRepository,
+            SearchIndexManager searchIndexManager,
+            GraphProjection graphProjection,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -50,6 +67,9 @@ public class GenreRepository implements GenreRepositoryInterface {
         this.mongoCollection = mongoDatabase.getCollection("genres", Genre.class);
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.outboxRepository = outboxRepository;
+        this.searchIndex = searchIndexManager.genres();
+        this.graphProjection = graphProjection;
     }
 
     /**
@@ -70,8 +90,16 @@ public class GenreRepository implements GenreRepositoryInterface {
                         .insertOne(mongoSession, genre);
 
                 if(insertOneResult.getInsertedId() != null) {
-                    saveGenreInNeo4j(genre);
+                    this.outboxRepository.insert(
+                            mongoSession,
+                            OutboxEvent.of(
+                                    OutboxEventType.GENRE_UPSERT,
+                                    new Document("id", genre.getId().toHexString()).append("name", genre.getName())
+                            )
+                    );
                     mongoSession.commitTransaction();
+                    this.searchIndex.put(genre.getId(), genre.getName());
+                    this.graphProjection.onGenre(genre.getId().toHexString());
                     return genre;
                 } else {
                     mongoSession.abortTransaction();
@@ -84,28 +112,6 @@ public class GenreRepository implements GenreRepositoryInterface {
         return null;
     }
 
-    private void saveGenreInNeo4j(Genre genre) {
-        Objects.requireNonNull(genre);
-
-        this.registry.timer("neo4j.ops", "query", "save_genre").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-                String cypher = "CREATE (g:Genre {mid: $id, name: $name})";
-                session.executeWrite(
-                        tx -> {
-                            tx.run(
-                                    cypher,
-                                    Values.parameters(
-                                            "id", genre.getId().toHexString(),
-                                            "name", genre.getName()
-                                    )
-                            );
-                            return null;
-                        }
-                );
-            }
-        });
-    }
-
     /**
      * @param genres genre list to insert
      * @return the inserted genre list
@@ -152,6 +158,10 @@ public class GenreRepository implements GenreRepositoryInterface {
                 if(!insertManyResult.getInsertedIds().isEmpty()) {
                     saveGenresInNeo4j(newGenres);
                     mongoSession.commitTransaction();
+                    newGenres.forEach(genre -> {
+                        this.searchIndex.put(genre.getId(), genre.getName());
+                        this.graphProjection.onGenre(genre.getId().toHexString());
+                    });
 
                     return Stream.concat(existingGenres.stream(), newGenres.stream())
                             .collect(Collectors.toList());
@@ -215,6 +225,8 @@ public class GenreRepository implements GenreRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteGenreFromNeo4j(idGenre);
                     mongoSession.commitTransaction();
+                    this.searchIndex.remove(new ObjectId(idGenre));
+                    this.graphProjection.onGenreDeleted(idGenre);
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -275,6 +287,8 @@ public class GenreRepository implements GenreRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteAllGenresFromNeo4j(ids);
                     mongoSession.commitTransaction();
+                    this.searchIndex.removeAll(oIds);
+                    ids.forEach(this.graphProjection::onGenreDeleted);
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -429,18 +443,35 @@ public class GenreRepository implements GenreRepositoryInterface {
 
         logger.debug("[REPOSITORY] [GENRE] [SEARCH] name: {}, page: {}, size: {}", name, page, size);
 
+        SearchIndex.Hits hits = this.searchIndex.search(name, page * size, size);
+        if(hits != null) {
+            Map<ObjectId, Genre> found = new HashMap<>();
+            find(hits.hits().stream().map(hit -> hit.id().toHexString()).toList()).forEach(genre -> found.put(genre.getId(), genre));
+
+            List<Genre> genres = hits.hits().stream()
+                    .map(hit -> found.get(hit.id()))
+                    .filter(Objects::nonNull)
+                    .toList();
+
+            return new PageResult<>(genres, hits.total(), page, size);
+        }
+
+        // Index not loaded: the same word prefixes as the index, in _id order
+        String regex = SearchIndex.wordPrefixRegex(name);
+        if(regex == null) return new PageResult<>(List.of(), 0, page, size);
+
         int skip = page * size;
 
         List<Genre> genres = this.mongoCollection
                 .find(
-                        Filters.regex("name", "^" + name + "$", "i")
+                        Filters.regex("name", regex, "i")
                 ).skip(skip)
                 .limit(size)
                 .into(new ArrayList<>());
 
         long total = this.mongoCollection
                 .countDocuments(
-                        Filters.regex("name", "^" + name + "$", "i")
+                        Filters.regex("name", regex, "i")
                 );
 
         return new PageResult<>(genres, total, page, size);
@@ -453,23 +484,32 @@ public class GenreRepository implements GenreRepositoryInterface {
     public void migrate() {
         logger.debug("[REPOSITORY] [GENRE] [MIGRATE] [BEGIN]");
 
-        long total = this.mongoCollection
-                .countDocuments();
+        long migrated = migrate(null, null, null);
 
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
+        logger.debug("[REPOSITORY] [GENRE] [MIGRATE] [END] genres: {}", migrated);
+    }
 
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Genre> genres = this.mongoCollection
-                    .find()
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
+    /**
+     * @param ranges wanted number of ranges
+     * @return the upper bounds of the _id ranges, see {@link MongoRanges#split}
+     */
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return MongoRanges.split(this.mongoCollection, null, ranges);
+    }
 
-            saveGenresInNeo4j(genres);
-        }
+    /**
+     * Copies the genres with afterId < _id <= upToId to Neo4j.
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return genres migrated
+     */
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [GENRE] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
 
-        logger.debug("[REPOSITORY] [GENRE] [MIGRATE] [END]");
+        return MongoRanges.walk(this.mongoCollection, null, afterId, upToId, this.batchSize, Genre::getId, this::saveGenresInNeo4j, onBatch);
     }
 
 }
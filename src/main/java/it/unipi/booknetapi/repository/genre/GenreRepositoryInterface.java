@@ -3,9 +3,11 @@ package it.unipi.booknetapi.repository.genre;
 import it.unipi.booknetapi.model.genre.Genre;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.shared.model.PageResult;
+import org.bson.types.ObjectId;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface GenreRepositoryInterface {
 
@@ -27,5 +29,7 @@ public interface GenreRepositoryInterface {
     PageResult<Genre> search(String name, int page, int size);
 
     void migrate();
+    List<ObjectId> splitForMigration(int ranges);
+    long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
 
 }
@@ -0,0 +1,219 @@
+package it.unipi.booknetapi.repository.genre;
+
+import it.unipi.booknetapi.model.genre.Genre;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
+import it.unipi.booknetapi.shared.model.PageResult;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * GenreRepository of the local profile, on the {@link InMemoryStore}. There is no graph to keep in
+ * sync: the Genre nodes are the genre documents themselves.
+ */
+@Repository
+@Profile("local")
+public class InMemoryGenreRepository implements GenreRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryGenreRepository.class);
+
+    private final InMemoryCollection<Genre> collection;
+    private final SearchIndex searchIndex;
+
+    public InMemoryGenreRepository(InMemoryStore store, SearchIndexManager searchIndexManager) {
+        this.collection = store.genres();
+        this.searchIndex = searchIndexManager.genres();
+    }
+
+    private static List<ObjectId> toObjectIds(List<String> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+    }
+
+
+    @Override
+    public Genre insert(Genre genre) {
+        Objects.requireNonNull(genre);
+
+        logger.debug("[REPOSITORY] [GENRE] [INSERT] [ONE] genre: {}", genre);
+
+        this.collection.insert(genre);
+        this.searchIndex.put(genre.getId(), genre.getName());
+        return genre;
+    }
+
+    /**
+     * Names are unique, like in the graph (MERGE on name): the existing genres are returned instead of
+     * inserted again. Synchronized so that two imports do not both insert a new name.
+     */
+    @Override
+    public synchronized List<Genre> insert(List<Genre> genres) {
+        Objects.requireNonNull(genres);
+
+        List<Genre> distinctInput = genres.stream()
+                .filter(g -> g.getName() != null)
+                .collect(Collectors.toMap(Genre::getName, g -> g, (existing, replacement) -> existing, LinkedHashMap::new))
+                .values()
+                .stream()
+                .toList();
+
+        if(distinctInput.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [GENRE] [INSERT] [MANY] genres size: {}", genres.size());
+
+        List<Genre> result = new ArrayList<>();
+        for (Genre genre : distinctInput) {
+            Optional<Genre> existing = this.collection.findFirstBy("name", genre.getName());
+            if (existing.isPresent()) {
+                result.add(existing.get());
+            } else {
+                result.add(insert(genre));
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean delete(String idGenre) {
+        Objects.requireNonNull(idGenre);
+
+        if(!ObjectId.isValid(idGenre)) return false;
+
+        logger.debug("[REPOSITORY] [GENRE] [DELETE] [BY ID] id: {}", idGenre);
+
+        ObjectId id = new ObjectId(idGenre);
+        if (!this.collection.delete(id)) return false;
+
+        this.searchIndex.remove(id);
+        return true;
+    }
+
+    @Override
+    public boolean delete(List<String> idGenres) {
+        Objects.requireNonNull(idGenres);
+
+        List<ObjectId> ids = toObjectIds(idGenres);
+        if(ids.isEmpty()) return true;
+
+        logger.debug("[REPOSITORY] [GENRE] [DELETE] [BY IDS] genres ids: {}", ids.size());
+
+        if (this.collection.delete(ids) == 0) return false;
+
+        this.searchIndex.removeAll(ids);
+        return true;
+    }
+
+    @Override
+    public Optional<Genre> findById(String idGenre) {
+        Objects.requireNonNull(idGenre);
+
+        if(!ObjectId.isValid(idGenre)) return Optional.empty();
+
+        logger.debug("[REPOSITORY] [GENRE] [FIND] [BY ID] id: {}", idGenre);
+
+        return this.collection.findById(new ObjectId(idGenre));
+    }
+
+    @Override
+    public List<GenreEmbed> findAllById(List<String> idGenres) {
+        if (idGenres == null || idGenres.isEmpty()) return new ArrayList<>();
+
+        return this.collection.find(toObjectIds(idGenres)).stream()
+                .map(GenreEmbed::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Genre> find(List<String> idGenres) {
+        Objects.requireNonNull(idGenres);
+
+        List<ObjectId> ids = toObjectIds(idGenres);
+        if(ids.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [GENRE] [FIND] [BY IDS] ids: {}", ids.size());
+
+        return this.collection.find(ids);
+    }
+
+    @Override
+    public PageResult<Genre> findAll(int page, int size) {
+        logger.debug("[REPOSITORY] [GENRE] [FIND] [ALL] page: {}, size: {}", page, size);
+
+        List<Genre> genres = this.collection.stream()
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+
+        return new PageResult<>(genres, this.collection.count(), page, size);
+    }
+
+    @Override
+    public List<Genre> findByName(List<String> genreNames) {
+        if (genreNames.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [GENRE] [FIND] [BY NAME] names: {}", genreNames.size());
+
+        return genreNames.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .flatMap(name -> this.collection.findBy("name", name).stream())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public PageResult<Genre> search(String name, int page, int size) {
+        Objects.requireNonNull(name);
+
+        logger.debug("[REPOSITORY] [GENRE] [SEARCH] name: {}, page: {}, size: {}", name, page, size);
+
+        SearchIndex.Hits hits = this.searchIndex.search(name, page * size, size);
+        if(hits != null) {
+            List<Genre> genres = this.collection.find(hits.hits().stream().map(SearchIndex.Hit::id).toList());
+            return new PageResult<>(genres, hits.total(), page, size);
+        }
+
+        // Same word prefixes as the index and the regex of GenreRepository
+        return this.collection.find(
+                genre -> SearchIndex.matchesWordPrefixes(genre.getName(), name),
+                Comparator.comparing(Genre::getId),
+                page,
+                size
+        );
+    }
+
+
+    /*
+     * Nothing to migrate: the local profile has no Neo4j, the graph queries read the store.
+     */
+
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [GENRE] [MIGRATE] no graph in the local profile");
+    }
+
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+}
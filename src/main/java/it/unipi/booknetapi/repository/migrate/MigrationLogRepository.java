@@ -0,0 +1,170 @@
+package it.unipi.booknetapi.repository.migrate;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import it.unipi.booknetapi.model.migrate.MigrationEntity;
+import it.unipi.booknetapi.model.migrate.MigrationLog;
+import it.unipi.booknetapi.model.migrate.MigrationStatus;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Repository
+@Profile("!local")
+public class MigrationLogRepository implements MigrationLogRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(MigrationLogRepository.class);
+
+    private final MongoCollection<MigrationLog> mongoCollection;
+
+    public MigrationLogRepository(MongoDatabase mongoDatabase) {
+        this.mongoCollection = mongoDatabase.getCollection("migration_logs", MigrationLog.class);
+    }
+
+    /**
+     * @param migrationLog
+     * @return the inserted log, null if not acknowledged
+     */
+    @Override
+    public MigrationLog insert(MigrationLog migrationLog) {
+        Objects.requireNonNull(migrationLog);
+
+        logger.debug("[REPOSITORY] [MIGRATION LOG] [INSERT] {}", migrationLog.getId());
+
+        InsertOneResult insertOneResult = this.mongoCollection.insertOne(migrationLog);
+
+        if(insertOneResult.wasAcknowledged()) return migrationLog;
+
+        return null;
+    }
+
+    /**
+     * @param migrationLog
+     * @return true if the log exists
+     */
+    @Override
+    public boolean update(MigrationLog migrationLog) {
+        Objects.requireNonNull(migrationLog);
+        Objects.requireNonNull(migrationLog.getId());
+
+        migrationLog.setUpdatedAt(new Date());
+
+        UpdateResult updateResult = this.mongoCollection.replaceOne(Filters.eq("_id", migrationLog.getId()), migrationLog);
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    /**
+     * @param idMigration
+     * @param status
+     * @param message null clears the message
+     * @return true if the log exists
+     */
+    @Override
+    public boolean updateStatus(ObjectId idMigration, MigrationStatus status, String message) {
+        Objects.requireNonNull(idMigration);
+        Objects.requireNonNull(status);
+
+        Date now = new Date();
+        List<Bson> updates = new ArrayList<>();
+        updates.add(Updates.set("status", status));
+        updates.add(Updates.set("message", message));
+        updates.add(Updates.set("updatedAt", now));
+        if(status == MigrationStatus.COMPLETED || status == MigrationStatus.FAILED) updates.add(Updates.set("finishedAt", now));
+        else updates.add(Updates.unset("finishedAt"));
+
+        UpdateResult updateResult = this.mongoCollection.updateOne(Filters.eq("_id", idMigration), Updates.combine(updates));
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    /**
+     * The first time a range runs its startedAt is set, a resume keeps it.
+     * @param error null clears the last error
+     * @return true if the range exists
+     */
+    @Override
+    public boolean updateRangeStatus(ObjectId idMigration, MigrationEntity entity, int index, MigrationStatus status, String error) {
+        Objects.requireNonNull(idMigration);
+        Objects.requireNonNull(entity);
+        Objects.requireNonNull(status);
+
+        Date now = new Date();
+        List<Bson> updates = new ArrayList<>();
+        updates.add(Updates.set("ranges.$.status", status));
+        updates.add(Updates.set("ranges.$.error", error));
+        updates.add(Updates.set("ranges.$.updatedAt", now));
+        updates.add(Updates.set("updatedAt", now));
+        // $min on a missing field sets it
+        if(status == MigrationStatus.RUNNING) updates.add(Updates.min("ranges.$.startedAt", now));
+
+        UpdateResult updateResult = this.mongoCollection.updateOne(rangeFilter(idMigration, entity, index), Updates.combine(updates));
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    /**
+     * Advances the resume point of a range after a batch is written to Neo4j.
+     * @param lastId last _id of the batch
+     * @param migrated documents of the range written so far
+     * @return true if the range exists
+     */
+    @Override
+    public boolean updateRangeCheckpoint(ObjectId idMigration, MigrationEntity entity, int index, ObjectId lastId, long migrated) {
+        Objects.requireNonNull(idMigration);
+        Objects.requireNonNull(entity);
+        Objects.requireNonNull(lastId);
+
+        Date now = new Date();
+        UpdateResult updateResult = this.mongoCollection.updateOne(
+                rangeFilter(idMigration, entity, index),
+                Updates.combine(
+                        Updates.set("ranges.$.lastId", lastId),
+                        Updates.set("ranges.$.migrated", migrated),
+                        Updates.set("ranges.$.updatedAt", now),
+                        Updates.set("updatedAt", now)
+                )
+        );
+
+        return updateResult.getMatchedCount() > 0;
+    }
+
+    private Bson rangeFilter(ObjectId idMigration, MigrationEntity entity, int index) {
+        return Filters.and(
+                Filters.eq("_id", idMigration),
+                Filters.elemMatch("ranges", Filters.and(
+                        Filters.eq("entity", entity),
+                        Filters.eq("index", index)
+                ))
+        );
+    }
+
+    /**
+     * @param idMigration
+     * @return
+     */
+    @Override
+    public Optional<MigrationLog> findById(String idMigration) {
+        Objects.requireNonNull(idMigration);
+
+        MigrationLog migrationLog = this.mongoCollection
+                .find(Filters.eq("_id", new ObjectId(idMigration)))
+                .first();
+
+        return Optional.ofNullable(migrationLog);
+    }
+
+}
@@ -0,0 +1,21 @@
+package it.unipi.booknetapi.repository.migrate;
+
+import it.unipi.booknetapi.model.migrate.MigrationEntity;
+import it.unipi.booknetapi.model.migrate.MigrationLog;
+import it.unipi.booknetapi.model.migrate.MigrationStatus;
+import org.bson.types.ObjectId;
+
+import java.util.Optional;
+
+public interface MigrationLogRepositoryInterface {
+
+    MigrationLog insert(MigrationLog migrationLog);
+    boolean update(MigrationLog migrationLog);
+    boolean updateStatus(ObjectId idMigration, MigrationStatus status, String message);
+
+    boolean updateRangeStatus(ObjectId idMigration, MigrationEntity entity, int index, MigrationStatus status, String error);
+    boolean updateRangeCheckpoint(ObjectId idMigration, MigrationEntity entity, int index, ObjectId lastId, long migrated);
+
+    Optional<MigrationLog> findById(String idMigration);
+
+}
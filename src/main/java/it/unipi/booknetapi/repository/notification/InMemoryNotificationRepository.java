@@ -0,0 +1,263 @@
+package it.unipi.booknetapi.repository.notification;
+
+import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * NotificationRepository of the local profile. The queries of a user go through the userId index
+ * of the store, like the (userId, _id) index of the collection.
+ */
+@Repository
+@Profile("local")
+public class InMemoryNotificationRepository implements NotificationRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryNotificationRepository.class);
+
+    // Sorts.descending("createdAt"): the missing dates come last
+    private static final Comparator<Notification> NEWEST_FIRST =
+            Comparator.comparing(Notification::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final InMemoryCollection<Notification> collection;
+
+    public InMemoryNotificationRepository(InMemoryStore store) {
+        this.collection = store.notifications();
+    }
+
+    private List<ObjectId> toObjectIds(List<String> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * @return the ids of the user's notifications among the given ones
+     */
+    private List<ObjectId> ofUser(String idUser, List<ObjectId> ids) {
+        NavigableSet<ObjectId> owned = this.collection.findIds("userId", new ObjectId(idUser));
+        return ids.stream().filter(owned::contains).toList();
+    }
+
+    private static boolean isRead(Notification notification) {
+        return Boolean.TRUE.equals(notification.getRead());
+    }
+
+
+    @Override
+    public Notification insert(Notification notification) {
+        Objects.requireNonNull(notification);
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [INSERT] notification: {}", notification);
+
+        return this.collection.insert(notification);
+    }
+
+    @Override
+    public boolean read(String idNotification, Boolean read) {
+        Objects.requireNonNull(idNotification);
+
+        if(read == null) read = true;
+        if(!ObjectId.isValid(idNotification)) return false;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [UPDATE] [READ] notification: {} - read: {}", idNotification, read);
+
+        Boolean value = read;
+        return this.collection.update(new ObjectId(idNotification), notification -> notification.setRead(value));
+    }
+
+    @Override
+    public long read(String idUser, List<String> idNotifications, boolean read) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotifications);
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(!ObjectId.isValid(idUser) || ids.isEmpty()) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [UPDATE] [READ MANY] user: {}, notification size: {}, read: {}", idUser, ids.size(), read);
+
+        return this.collection.update(ofUser(idUser, ids), notification -> notification.setRead(read));
+    }
+
+    @Override
+    public long readAll(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [UPDATE] [READ ALL] user: {}", idUser);
+
+        return this.collection.update(this.collection.findIds("userId", new ObjectId(idUser)), notification -> notification.setRead(true));
+    }
+
+    @Override
+    public long countUnread(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return 0;
+
+        return this.collection.findBy("userId", new ObjectId(idUser)).stream()
+                .filter(notification -> !isRead(notification))
+                .count();
+    }
+
+    @Override
+    public boolean delete(String idNotification) {
+        Objects.requireNonNull(idNotification);
+
+        if(!ObjectId.isValid(idNotification)) return true;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [DELETE] notification: {}", idNotification);
+
+        return this.collection.delete(new ObjectId(idNotification));
+    }
+
+    @Override
+    public boolean delete(List<String> idNotifications) {
+        Objects.requireNonNull(idNotifications);
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(ids.isEmpty()) return true;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [DELETE MANY] notification size: {}", ids.size());
+
+        return this.collection.delete(ids) > 0;
+    }
+
+    @Override
+    public long delete(String idUser, List<String> idNotifications, Boolean read) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotifications);
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(!ObjectId.isValid(idUser) || ids.isEmpty()) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [DELETE MANY] user: {}, notification size: {}, read: {}", idUser, ids.size(), read);
+
+        List<ObjectId> owned = ofUser(idUser, ids);
+        if(read == null) return this.collection.delete(owned);
+
+        List<ObjectId> matching = this.collection.find(owned).stream()
+                .filter(notification -> isRead(notification) == read)
+                .map(Notification::getId)
+                .toList();
+        return this.collection.delete(matching);
+    }
+
+    @Override
+    public Optional<Notification> findById(String idNotification) {
+        Objects.requireNonNull(idNotification);
+
+        if(!ObjectId.isValid(idNotification)) return Optional.empty();
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [FIND BY ID] notification: {}", idNotification);
+
+        return this.collection.findById(new ObjectId(idNotification));
+    }
+
+    @Override
+    public List<Notification> findByIds(List<String> idNotifications) {
+        Objects.requireNonNull(idNotifications);
+
+        if(idNotifications.isEmpty()) return new ArrayList<>();
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(ids.isEmpty()) return new ArrayList<>();
+
+        return findByOIds(ids);
+    }
+
+    @Override
+    public List<Notification> findByOIds(List<ObjectId> idNotifications) {
+        Objects.requireNonNull(idNotifications);
+
+        if(idNotifications.isEmpty()) return new ArrayList<>();
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [FIND BY IDS] notification size: {}", idNotifications.size());
+
+        List<Notification> notifications = this.collection.find(new LinkedHashSet<>(idNotifications));
+        notifications.sort(NEWEST_FIRST);
+        return notifications;
+    }
+
+    @Override
+    public PageResult<Notification> findAll(int page, int pageSize) {
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [ALL] page: {}, page size: {}", page, pageSize);
+
+        return this.collection.find(null, NEWEST_FIRST, page, pageSize);
+    }
+
+    @Override
+    public PageResult<Notification> findAll(String idUser, int page, int pageSize) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(new ArrayList<>(), 0, page, pageSize);
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [BY USER ID] user: {}, page: {}, page size: {}", idUser, page, pageSize);
+
+        return page(idUser, null, page, pageSize);
+    }
+
+    @Override
+    public PageResult<Notification> findAll(String idUser, Boolean read, int page, int pageSize) {
+        Objects.requireNonNull(idUser);
+
+        if(read == null) read = false;
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(new ArrayList<>(), 0, page, pageSize);
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [BY USER ID] user: {}, page: {}, page size: {}", idUser, page, pageSize);
+
+        // Filters.eq("read", read): a missing flag is neither read nor unread here
+        Boolean value = read;
+        return page(idUser, notification -> value.equals(notification.getRead()), page, pageSize);
+    }
+
+    private PageResult<Notification> page(String idUser, Predicate<Notification> filter, int page, int pageSize) {
+        List<Notification> matching = this.collection.findBy("userId", new ObjectId(idUser)).stream()
+                .filter(filter != null ? filter : notification -> true)
+                .sorted(NEWEST_FIRST)
+                .toList();
+
+        List<Notification> content = matching.stream()
+                .skip((long) page * pageSize)
+                .limit(pageSize)
+                .toList();
+
+        return new PageResult<>(new ArrayList<>(content), matching.size(), page, pageSize);
+    }
+
+    @Override
+    public PageResult<Notification> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [ALL] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return this.collection.find(null, null, pagination, true);
+    }
+
+    @Override
+    public PageResult<Notification> findAll(String idUser, Boolean read, PaginationRequest pagination) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [BY USER ID] user: {}, cursor: {}, size: {}", idUser, pagination.getCursor(), pagination.getSize());
+
+        Predicate<Notification> filter = read == null ? null : notification -> read.equals(notification.getRead());
+        return this.collection.find(this.collection.findIds("userId", new ObjectId(idUser)), filter, pagination, true);
+    }
+
+}
@@ -3,16 +3,21 @@ package it.unipi.booknetapi.repository.notification;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
@@ -21,6 +26,7 @@ import java.util.Objects;
 import java.util.Optional;
 
 @Repository
+@Profile("!local")
 public class NotificationRepository implements NotificationRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(NotificationRepository.class);
@@ -29,6 +35,10 @@ public class NotificationRepository implements NotificationRepositoryInterface {
 
     public NotificationRepository(MongoDatabase mongoDatabase) {
         this.mongoCollection = mongoDatabase.getCollection("notifications", Notification.class);
+        // Keyset pagination of the notifications of a user, newest first
+        this.mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"), Indexes.descending("_id")));
+        // Same with the read filter of the inbox, and the unread count
+        this.mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"), Indexes.ascending("read"), Indexes.descending("_id")));
     }
 
 
@@ -71,6 +81,76 @@ public class NotificationRepository implements NotificationRepositoryInterface {
         return updateResult.getModifiedCount() > 0;
     }
 
+    /**
+     * Marks notifications of a user, the ids of other users are ignored.
+     * @param idUser owner of the notifications
+     * @param idNotifications
+     * @param read new state
+     * @return notifications whose state changed
+     */
+    @Override
+    public long read(String idUser, List<String> idNotifications, boolean read) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotifications);
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(!ObjectId.isValid(idUser) || ids.isEmpty()) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [UPDATE] [READ MANY] user: {}, notification size: {}, read: {}", idUser, ids.size(), read);
+
+        UpdateResult updateResult = this.mongoCollection.updateMany(
+                Filters.and(
+                        Filters.eq("userId", new ObjectId(idUser)),
+                        Filters.in("_id", ids),
+                        Filters.ne("read", read)
+                ),
+                Updates.set("read", read)
+        );
+
+        return updateResult.getModifiedCount();
+    }
+
+    /**
+     * @param idUser owner of the notifications
+     * @return notifications marked as read
+     */
+    @Override
+    public long readAll(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [UPDATE] [READ ALL] user: {}", idUser);
+
+        UpdateResult updateResult = this.mongoCollection.updateMany(
+                Filters.and(
+                        Filters.eq("userId", new ObjectId(idUser)),
+                        Filters.ne("read", true)
+                ),
+                Updates.set("read", true)
+        );
+
+        return updateResult.getModifiedCount();
+    }
+
+    /**
+     * @param idUser owner of the notifications
+     * @return unread notifications, counted on the (userId, read) index
+     */
+    @Override
+    public long countUnread(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return 0;
+
+        return this.mongoCollection.countDocuments(
+                Filters.and(
+                        Filters.eq("userId", new ObjectId(idUser)),
+                        Filters.ne("read", true)
+                )
+        );
+    }
+
     /**
      * @param idNotification
      * @return
@@ -110,6 +190,38 @@ public class NotificationRepository implements NotificationRepositoryInterface {
         return deleteResult.getDeletedCount() > 0;
     }
 
+    /**
+     * Deletes notifications of a user, the ids of other users are ignored.
+     * @param idUser owner of the notifications
+     * @param idNotifications
+     * @param read only the notifications in this state, null for all
+     * @return notifications deleted
+     */
+    @Override
+    public long delete(String idUser, List<String> idNotifications, Boolean read) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotifications);
+
+        List<ObjectId> ids = toObjectIds(idNotifications);
+        if(!ObjectId.isValid(idUser) || ids.isEmpty()) return 0;
+
+        logger.debug("[NOTIFICATION] [REPOSITORY] [DELETE MANY] user: {}, notification size: {}, read: {}", idUser, ids.size(), read);
+
+        Bson filter = Filters.and(Filters.eq("userId", new ObjectId(idUser)), Filters.in("_id", ids));
+        if(read != null) filter = Filters.and(filter, read ? Filters.eq("read", true) : Filters.ne("read", true));
+
+        return this.mongoCollection.deleteMany(filter).getDeletedCount();
+    }
+
+    private List<ObjectId> toObjectIds(List<String> ids) {
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .distinct()
+                .toList();
+    }
+
     /**
      * @param idNotification
      * @return
@@ -264,4 +376,41 @@ public class NotificationRepository implements NotificationRepositoryInterface {
         return new PageResult<>(notifications, total, page, pageSize);
     }
 
+    /**
+     * Newest first; _id order follows createdAt since both are set on insert.
+     *
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of notifications
+     */
+    @Override
+    public PageResult<Notification> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [ALL] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.mongoCollection, null, pagination, Notification::getId, true);
+    }
+
+    /**
+     * @param idUser user id
+     * @param read read filter, null for all notifications
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of notifications, newest first
+     */
+    @Override
+    public PageResult<Notification> findAll(String idUser, Boolean read, PaginationRequest pagination) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
+
+        logger.debug("[REPOSITORY] [NOTIFICATION] [FIND] [BY USER ID] user: {}, cursor: {}, size: {}", idUser, pagination.getCursor(), pagination.getSize());
+
+        Bson filter = read == null
+                ? Filters.eq("userId", new ObjectId(idUser))
+                : Filters.and(Filters.eq("userId", new ObjectId(idUser)), Filters.eq("read", read));
+
+        return MongoPagination.find(this.mongoCollection, filter, pagination, Notification::getId, true);
+    }
+
 }
@@ -2,6 +2,7 @@ package it.unipi.booknetapi.repository.notification;
 
 import it.unipi.booknetapi.model.notification.Notification;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.bson.types.ObjectId;
 
 import java.util.List;
@@ -12,9 +13,13 @@ public interface NotificationRepositoryInterface {
     Notification insert(Notification notification);
 
     boolean read(String idNotification, Boolean read);
+    long read(String idUser, List<String> idNotifications, boolean read);
+    long readAll(String idUser);
+    long countUnread(String idUser);
 
     boolean delete(String idNotification);
     boolean delete(List<String> idNotifications);
+    long delete(String idUser, List<String> idNotifications, Boolean read);
 
     Optional<Notification> findById(String idNotification);
 
@@ -24,5 +29,7 @@ public interface NotificationRepositoryInterface {
     PageResult<Notification> findAll(int page, int pageSize);
     PageResult<Notification> findAll(String idUser, int page, int pageSize);
     PageResult<Notification> findAll(String idUser, Boolean read, int page, int pageSize);
+    PageResult<Notification> findAll(PaginationRequest pagination);
+    PageResult<Notification> findAll(String idUser, Boolean read, PaginationRequest pagination);
 
 }
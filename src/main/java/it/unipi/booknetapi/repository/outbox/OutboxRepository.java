@@ -0,0 +1,268 @@
+package it.unipi.booknetapi.repository.outbox;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxStatus;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+@Profile("!local")
+public class OutboxRepository implements OutboxRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(OutboxRepository.class);
+
+    private static final String RELAY_LEASE = "relay";
+
+    private final MongoCollection<OutboxEvent> mongoCollection;
+    private final MongoCollection<Document> leaseCollection;
+
+    public OutboxRepository(MongoDatabase mongoDatabase) {
+        this.mongoCollection = mongoDatabase.getCollection("outbox", OutboxEvent.class);
+        this.leaseCollection = mongoDatabase.getCollection("outbox_leases");
+        // The relay polls pending events in insertion order
+        this.mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.ascending("_id")));
+    }
+
+    /**
+     * @param mongoSession the session of the transaction that writes the source document
+     * @param event the event to enqueue
+     */
+    @Override
+    public void insert(ClientSession mongoSession, OutboxEvent event) {
+        Objects.requireNonNull(mongoSession);
+        Objects.requireNonNull(event);
+
+        this.mongoCollection.insertOne(mongoSession, event);
+    }
+
+    /**
+     * For source writes that cannot share a transaction with the event (bucket updates):
+     * the event is written right after them.
+     *
+     * @param event the event to enqueue
+     */
+    @Override
+    public void insert(OutboxEvent event) {
+        Objects.requireNonNull(event);
+
+        this.mongoCollection.insertOne(event);
+    }
+
+    /**
+     * @param mongoSession the session of the transaction that writes the source documents
+     * @param events the events to enqueue
+     */
+    @Override
+    public void insertAll(ClientSession mongoSession, List<OutboxEvent> events) {
+        Objects.requireNonNull(mongoSession);
+        Objects.requireNonNull(events);
+
+        if(events.isEmpty()) return;
+
+        this.mongoCollection.insertMany(mongoSession, events);
+    }
+
+    /**
+     * Takes or renews the relay lease. Only the holder reads pending events, so two instances never
+     * apply the same events nor the events of one key out of order.
+     *
+     * @param owner the relay instance
+     * @param leaseMs how long the lease is held without being renewed
+     * @return true if the owner holds the lease until now + leaseMs
+     */
+    @Override
+    public boolean acquireLease(String owner, long leaseMs) {
+        Objects.requireNonNull(owner);
+
+        Date now = new Date();
+        try {
+            Document lease = this.leaseCollection.findOneAndUpdate(
+                    Filters.and(
+                            Filters.eq("_id", RELAY_LEASE),
+                            Filters.or(Filters.eq("owner", owner), Filters.lt("leaseUntil", now))
+                    ),
+                    Updates.combine(
+                            Updates.set("owner", owner),
+                            Updates.set("leaseUntil", new Date(now.getTime() + leaseMs))
+                    ),
+                    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER)
+            );
+            return lease != null && owner.equals(lease.getString("owner"));
+        } catch (MongoException e) {
+            // Duplicate key: the lease exists and another owner holds it, so the upsert tried to insert it again
+            if(e.getCode() == 11000) return false;
+            throw e;
+        }
+    }
+
+    /**
+     * Lets another instance take the lease without waiting for it to expire.
+     *
+     * @param owner the relay instance
+     */
+    @Override
+    public void releaseLease(String owner) {
+        Objects.requireNonNull(owner);
+
+        this.leaseCollection.updateOne(
+                Filters.and(Filters.eq("_id", RELAY_LEASE), Filters.eq("owner", owner)),
+                Updates.set("leaseUntil", new Date(0))
+        );
+    }
+
+    /**
+     * @param limit max number of events
+     * @return the oldest pending events, in insertion order
+     */
+    @Override
+    public List<OutboxEvent> findPending(int limit) {
+        return this.mongoCollection
+                .find(Filters.eq("status", OutboxStatus.PENDING))
+                .sort(Sorts.ascending("_id"))
+                .limit(limit)
+                .into(new ArrayList<>());
+    }
+
+    /**
+     * @param ids the events applied to Neo4j
+     */
+    @Override
+    public void markDone(List<ObjectId> ids) {
+        Objects.requireNonNull(ids);
+
+        if(ids.isEmpty()) return;
+
+        this.mongoCollection.updateMany(
+                Filters.in("_id", ids),
+                Updates.combine(
+                        Updates.set("status", OutboxStatus.DONE),
+                        Updates.set("processedAt", new Date()),
+                        Updates.unset("lastError")
+                )
+        );
+    }
+
+    /**
+     * Increments the attempts of the event and parks it as FAILED once maxAttempts is reached.
+     *
+     * @param id the event id
+     * @param error the error message of the last attempt
+     * @param maxAttempts number of attempts before giving up
+     */
+    @Override
+    public void markAttemptFailed(ObjectId id, String error, int maxAttempts) {
+        Objects.requireNonNull(id);
+
+        OutboxEvent event = this.mongoCollection
+                .findOneAndUpdate(
+                        Filters.eq("_id", id),
+                        Updates.combine(
+                                Updates.inc("attempts", 1),
+                                Updates.set("lastError", error)
+                        )
+                );
+
+        int attempts = event != null && event.getAttempts() != null ? event.getAttempts() + 1 : 1;
+        if(attempts >= maxAttempts) {
+            logger.warn("[REPOSITORY] [OUTBOX] [FAILED] event id: {}, attempts: {}, error: {}", id, attempts, error);
+            this.mongoCollection.updateOne(
+                    Filters.eq("_id", id),
+                    Updates.set("status", OutboxStatus.FAILED)
+            );
+        }
+    }
+
+    /**
+     * Puts events back in the PENDING state, so the relay applies them again.
+     * The Cypher statements MERGE on mid, so replaying already applied events is harmless.
+     *
+     * @param since only events created from this date (all events when null)
+     * @param failedOnly only replay FAILED events
+     * @return the number of events re-queued
+     */
+    @Override
+    public long replay(Date since, boolean failedOnly) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(failedOnly
+                ? Filters.eq("status", OutboxStatus.FAILED)
+                : Filters.ne("status", OutboxStatus.PENDING));
+        if(since != null) filters.add(Filters.gte("createdAt", since));
+
+        UpdateResult updateResult = this.mongoCollection.updateMany(
+                Filters.and(filters),
+                Updates.combine(
+                        Updates.set("status", OutboxStatus.PENDING),
+                        Updates.set("attempts", 0)
+                )
+        );
+
+        logger.info("[REPOSITORY] [OUTBOX] [REPLAY] since: {}, failed only: {}, events: {}", since, failedOnly, updateResult.getModifiedCount());
+
+        return updateResult.getModifiedCount();
+    }
+
+    /**
+     * @param status the status
+     * @return number of events with the given status
+     */
+    @Override
+    public long count(OutboxStatus status) {
+        Objects.requireNonNull(status);
+
+        return this.mongoCollection.countDocuments(Filters.eq("status", status));
+    }
+
+    /**
+     * @return the creation date of the oldest pending event, null when the outbox is drained
+     */
+    @Override
+    public Date findOldestPendingDate() {
+        OutboxEvent event = this.mongoCollection
+                .find(Filters.eq("status", OutboxStatus.PENDING))
+                .sort(Sorts.ascending("_id"))
+                .projection(Projections.include("createdAt"))
+                .first();
+
+        return event != null ? event.getCreatedAt() : null;
+    }
+
+    /**
+     * @param date processed events older than this date are removed
+     * @return number of deleted events
+     */
+    @Override
+    public long deleteProcessedBefore(Date date) {
+        Objects.requireNonNull(date);
+
+        DeleteResult deleteResult = this.mongoCollection.deleteMany(Filters.and(
+                Filters.eq("status", OutboxStatus.DONE),
+                Filters.lt("processedAt", date)
+        ));
+
+        return deleteResult.getDeletedCount();
+    }
+
+}
@@ -0,0 +1,32 @@
+package it.unipi.booknetapi.repository.outbox;
+
+import com.mongodb.client.ClientSession;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxStatus;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+
+public interface OutboxRepositoryInterface {
+
+    void insert(ClientSession mongoSession, OutboxEvent event);
+    void insert(OutboxEvent event);
+    void insertAll(ClientSession mongoSession, List<OutboxEvent> events);
+
+    boolean acquireLease(String owner, long leaseMs);
+    void releaseLease(String owner);
+
+    List<OutboxEvent> findPending(int limit);
+
+    void markDone(List<ObjectId> ids);
+    void markAttemptFailed(ObjectId id, String error, int maxAttempts);
+
+    long replay(Date since, boolean failedOnly);
+
+    long count(OutboxStatus status);
+    Date findOldestPendingDate();
+
+    long deleteProcessedBefore(Date date);
+
+}
@@ -0,0 +1,270 @@
+package it.unipi.booknetapi.repository.review;
+
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.model.user.ReviewerRead;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import it.unipi.booknetapi.shared.model.Source;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * ReviewRepository of the local profile. A review document is also the RATED relationship of the
+ * graph: the in-memory book repository reads the ratings from here.
+ */
+@Repository
+@Profile("local")
+public class InMemoryReviewRepository implements ReviewRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryReviewRepository.class);
+
+    private final InMemoryCollection<Review> collection;
+
+    public InMemoryReviewRepository(InMemoryStore store) {
+        this.collection = store.reviews();
+    }
+
+    private static PaginationRequest pageRequest(int page, int size) {
+        return PaginationRequest.builder().page(page).size(size).build();
+    }
+
+
+    @Override
+    public Review insert(Review review) {
+        Objects.requireNonNull(review);
+
+        logger.debug("[REPOSITORY] [REVIEW] [INSERT] Inserting review: {}", review);
+
+        return this.collection.insert(review);
+    }
+
+    @Override
+    public List<Review> insert(List<Review> reviews) {
+        Objects.requireNonNull(reviews);
+
+        reviews = reviews.stream()
+                .filter(
+                        r -> r.getBookId() != null
+                                && r.getUser() != null && r.getUser().getId() != null
+                                && (r.getRating() != null || r.getComment() != null)
+                ).collect(Collectors.toList());
+
+        if (reviews.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [REVIEW] [INSERT MANY] Inserting reviews: {}", reviews.size());
+
+        reviews.forEach(this.collection::insert);
+        return reviews;
+    }
+
+    /**
+     * Upsert on externalId.goodReads, synchronized so that two imports of the same file do not both
+     * insert a review.
+     * @return the reviews inserted, not the ones updated
+     */
+    @Override
+    public synchronized List<Review> insertFromGoodReads(List<Review> reviews) {
+        Objects.requireNonNull(reviews);
+
+        reviews = reviews.stream()
+                .filter(
+                        r -> r.getBookId() != null
+                                && r.getUser() != null && r.getUser().getId() != null
+                                && ((r.getRating() != null && r.getRating() > 0) || r.getComment() != null)
+                ).collect(Collectors.toList());
+
+        if (reviews.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [REVIEW] [INSERT MANY] [FROM GOODREADS] Inserting reviews: {}", reviews.size());
+
+        List<Review> result = new ArrayList<>();
+        for (Review review : reviews) {
+            String goodReadsId = review.getExternalId() != null ? review.getExternalId().getGoodReads() : null;
+            if (goodReadsId == null) continue;
+
+            Optional<Review> existing = this.collection.findFirstBy("externalId.goodReads", goodReadsId);
+            if (existing.isPresent()) {
+                this.collection.update(existing.get().getId(), stored -> {
+                    stored.setBookId(review.getBookId());
+                    stored.setUser(review.getUser());
+                    stored.setRating(review.getRating());
+                    stored.setComment(review.getComment());
+                    stored.setDateAdded(review.getDateAdded());
+                    stored.setDateUpdated(review.getDateUpdated());
+                });
+            } else {
+                review.setId(null);
+                review.setSource(Source.GOOD_READS);
+                result.add(this.collection.insert(review));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The reads are shelf entries, written by the user repository.
+     */
+    @Override
+    public void importGoodReadsReviewsRead(List<ReviewerRead> reads) {
+        if (reads == null || reads.isEmpty()) return;
+
+        logger.debug("[REPOSITORY] [REVIEW] [INSERT RELATIONSHIPS] [FROM GOODREADS] reads in the shelves: {}", reads.size());
+    }
+
+    @Override
+    public boolean updateReview(String idReview, Integer rating, String comment) {
+        Objects.requireNonNull(idReview);
+
+        if(!ObjectId.isValid(idReview)) return false;
+
+        logger.debug("[REPOSITORY] [REVIEW] [UPDATE] review id: {}", idReview);
+
+        return this.collection.update(new ObjectId(idReview), review -> {
+            if (rating != null) review.setRating(rating);
+            if (comment != null) review.setComment(comment);
+            review.setDateUpdated(new Date());
+        });
+    }
+
+    @Override
+    public boolean delete(String idReview) {
+        Objects.requireNonNull(idReview);
+
+        if(!ObjectId.isValid(idReview)) return false;
+
+        logger.debug("Deleting review: {}", idReview);
+
+        return this.collection.delete(new ObjectId(idReview));
+    }
+
+    @Override
+    public boolean delete(List<String> idReviews) {
+        Objects.requireNonNull(idReviews);
+
+        List<Review> reviews = this.findAll(idReviews);
+        if(reviews.isEmpty()) return true;
+
+        logger.debug("Deleting review: {}", reviews.size());
+
+        long deleted = this.collection.delete(reviews.stream().map(Review::getId).toList());
+        return deleted == idReviews.size();
+    }
+
+    @Override
+    public Optional<Review> findById(String idReview) {
+        Objects.requireNonNull(idReview);
+
+        if(!ObjectId.isValid(idReview)) return Optional.empty();
+
+        logger.debug("Find review: {}", idReview);
+
+        return this.collection.findById(new ObjectId(idReview));
+    }
+
+    @Override
+    public List<Review> findAll(List<String> idReviews) {
+        Objects.requireNonNull(idReviews);
+
+        logger.debug("Find reviews: size: {}", idReviews.size());
+
+        if(idReviews.isEmpty()) return List.of();
+
+        List<ObjectId> ids = idReviews.stream()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+
+        if(ids.isEmpty()) return List.of();
+
+        return findAllByOI(ids);
+    }
+
+    @Override
+    public List<Review> findAllByOI(List<ObjectId> idReviews) {
+        Objects.requireNonNull(idReviews);
+
+        logger.debug("Find reviews oi: size: {}", idReviews.size());
+
+        if(idReviews.isEmpty()) return List.of();
+
+        return this.collection.find(new LinkedHashSet<>(idReviews));
+    }
+
+    @Override
+    public PageResult<Review> findByBook(String idBook, int page, int size) {
+        Objects.requireNonNull(idBook);
+
+        return findByBook(idBook, pageRequest(page, size));
+    }
+
+    @Override
+    public PageResult<Review> findByReader(String idReader, int page, int size) {
+        Objects.requireNonNull(idReader);
+
+        return findByReader(idReader, pageRequest(page, size));
+    }
+
+    @Override
+    public PageResult<Review> findAll(int page, int size) {
+        return findAll(pageRequest(page, size));
+    }
+
+    @Override
+    public PageResult<Review> findByBook(String idBook, PaginationRequest pagination) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idBook)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
+
+        return this.collection.find(this.collection.findIds("bookId", new ObjectId(idBook)), null, pagination, false);
+    }
+
+    @Override
+    public PageResult<Review> findByReader(String idReader, PaginationRequest pagination) {
+        Objects.requireNonNull(idReader);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idReader)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
+
+        return this.collection.find(this.collection.findIds("user._id", new ObjectId(idReader)), null, pagination, false);
+    }
+
+    @Override
+    public PageResult<Review> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        return this.collection.find(null, null, pagination, false);
+    }
+
+
+    /*
+     * Nothing to migrate: the local profile has no Neo4j, the graph queries read the store.
+     */
+
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [REVIEW] [MIGRATE] no graph in the local profile");
+    }
+
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+}
@@ -12,29 +12,40 @@ import com.mongodb.client.result.InsertManyResult;
 import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxEventType;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.user.BookShelfStatus;
 import it.unipi.booknetapi.model.user.ReviewerRead;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.database.MongoPagination;
+import it.unipi.booknetapi.shared.lib.database.MongoRanges;
 import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import it.unipi.booknetapi.shared.lib.graph.GraphProjection;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import it.unipi.booknetapi.shared.model.Source;
+import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static org.neo4j.driver.Values.parameters;
 
 @Repository
+@Profile("!local")
 public class ReviewRepository implements ReviewRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(ReviewRepository.class);
@@ -45,10 +56,14 @@ public class ReviewRepository implements ReviewRepositoryInterface {
     private final MongoCollection<Review> mongoCollection;
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
+    private final OutboxRepositoryInterface outboxRepository;
+    private final GraphProjection graphProjection;
 
 
     public ReviewRepository(
             AppConfig appConfig,
+            OutboxRepositoryInterface outboxRepository,
+            GraphProjection graphProjection,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -58,8 +73,13 @@ public class ReviewRepository implements ReviewRepositoryInterface {
 
         this.mongoClient = mongoClient;
         this.mongoCollection = mongoDatabase.getCollection("reviews", Review.class);
+        // Keyset pagination of the reviews of a book / of a reader
+        this.mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("bookId"), Indexes.ascending("_id")));
+        this.mongoCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("user._id"), Indexes.ascending("_id")));
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.outboxRepository = outboxRepository;
+        this.graphProjection = graphProjection;
     }
 
 
@@ -80,9 +100,10 @@ public class ReviewRepository implements ReviewRepositoryInterface {
             try {
                 InsertOneResult insertOneResult = this.mongoCollection.insertOne(mongoSession, review);
                 if(insertOneResult.getInsertedId() != null) {
-                    saveReviewToNeo4j(review);
+                    this.outboxRepository.insert(mongoSession, reviewUpsertEvent(review));
 
                     mongoSession.commitTransaction();
+                    this.graphProjection.onRating(review.getUser().getId().toHexString(), review.getBookId().toHexString(), review.getRating());
 
                     logger.info("[REPOSITORY] [REVIEW] [INSERT] Review inserted successfully: {}", review);
                     return review;
@@ -101,47 +122,17 @@ public class ReviewRepository implements ReviewRepositoryInterface {
     }
 
     /**
-     * Insert a review relationship (:Reader)-[RATER {rating, ts}]->(:Book)
+     * Outbox event for the (:Reader)-[RATED {rating, ts}]->(:Book) relationship
      *
-     * @param review the review to insert
+     * @param review the inserted review
      * */
-    private void saveReviewToNeo4j(Review review) {
-        Objects.requireNonNull(review);
-
-        // Convert Date to ZonedDateTime for Neo4j
-        ZonedDateTime timestamp = review.getDateAdded() != null
-                ? review.getDateAdded().toInstant().atZone(ZoneId.systemDefault())
-                : ZonedDateTime.now();
-
-        this.registry.timer("neo4j.ops", "query", "save_review").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
+    private OutboxEvent reviewUpsertEvent(Review review) {
+        Document payload = new Document("userId", review.getUser().getId().toHexString())
+                .append("bookId", review.getBookId().toHexString())
+                .append("rating", review.getRating())
+                .append("ts", review.getDateAdded() != null ? review.getDateAdded().getTime() : System.currentTimeMillis());
 
-                session.executeWrite(tx -> {
-                    String cypher = """
-                    // Try to find the Reader AND the Book
-                    MATCH (r:Reader {mid: $userId})
-                    MATCH (b:Book {mid: $bookId})
-                    
-                    // Create or Update the RATED relationship
-                    MERGE (r)-[rel:RATED]->(b)
-                    
-                    // Set properties
-                    SET rel.rating = $rating,
-                        rel.ts = $ts
-                    """;
-
-                    tx.run(cypher,
-                            parameters(
-                                    "userId", review.getUser().getId().toHexString(),
-                                    "bookId", review.getBookId().toHexString(),
-                                    "rating", review.getRating(),
-                                    "ts", timestamp
-                            )
-                    );
-                    return null;
-                });
-            }
-        });
+        return OutboxEvent.of(OutboxEventType.REVIEW_UPSERT, payload);
     }
 
     /**
@@ -449,6 +440,7 @@ public class ReviewRepository implements ReviewRepositoryInterface {
                         }
 
                         mongoSession.commitTransaction();
+                        if(rating != null) this.graphProjection.onRating(review.getUser().getId().toHexString(), review.getBookId().toHexString(), rating);
                         return true;
                     }
                 } catch (Exception e) {
@@ -516,9 +508,10 @@ public class ReviewRepository implements ReviewRepositoryInterface {
                     DeleteResult deleteResult = this.mongoCollection.deleteOne(mongoSession, Filters.eq("_id", new ObjectId(idReview)));
 
                     if(deleteResult.getDeletedCount() > 0) {
-                        deleteReviewInNeo4j(review.getUser().getId().toHexString(), review.getBookId().toHexString());
+                        this.outboxRepository.insert(mongoSession, reviewDeleteEvent(review.getUser().getId().toHexString(), review.getBookId().toHexString()));
 
                         mongoSession.commitTransaction();
+                        this.graphProjection.onRatingRemoved(review.getUser().getId().toHexString(), review.getBookId().toHexString());
                         return true;
                     } else {
                         mongoSession.abortTransaction();
@@ -533,34 +526,11 @@ public class ReviewRepository implements ReviewRepositoryInterface {
         return false;
     }
 
-    private void deleteReviewInNeo4j(String idReader, String idBook) {
-        Objects.requireNonNull(idReader);
-        Objects.requireNonNull(idBook);
-
-        // Cypher query explanation:
-        // 1. MATCH finds the path from the specific Reader to the specific Book.
-        // 2. DELETE rel removes ONLY the relationship. The Reader and Book nodes remain.
-        String query = """
-        MATCH (:Reader {mid: $idReader})-[rel:RATED]->(:Book {mid: $idBook})
-        DELETE rel
-        """;
-
-        this.registry.timer("neo4j.ops", "query", "update_review").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-                session.executeWrite(
-                        tx -> {
-                            tx.run(
-                                    query,
-                                    parameters(
-                                            "idReader", idReader,
-                                            "idBook", idBook
-                                    )
-                            );
-                            return null;
-                        }
-                );
-            }
-        });
+    /**
+     * Outbox event removing the (:Reader)-[RATED]->(:Book) relationship, applied after the pending upserts of the same edge
+     */
+    private OutboxEvent reviewDeleteEvent(String idReader, String idBook) {
+        return OutboxEvent.of(OutboxEventType.REVIEW_DELETE, new Document("userId", idReader).append("bookId", idBook));
     }
 
     /**
@@ -590,8 +560,12 @@ public class ReviewRepository implements ReviewRepositoryInterface {
                 DeleteResult deleteResult = this.mongoCollection.deleteMany(mongoSession, Filters.in("_id", idReviewsObjIds));
 
                 if(deleteResult.getDeletedCount() == idReviews.size()) {
-                    deleteReviewsInNeo4j(idReadersBooks);
+                    this.outboxRepository.insertAll(
+                            mongoSession,
+                            idReadersBooks.stream().map(row -> reviewDeleteEvent(row.get("idReader"), row.get("idBook"))).toList()
+                    );
                     mongoSession.commitTransaction();
+                    idReadersBooks.forEach(row -> this.graphProjection.onRatingRemoved(row.get("idReader"), row.get("idBook")));
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -605,32 +579,6 @@ public class ReviewRepository implements ReviewRepositoryInterface {
         return false;
     }
 
-    private void deleteReviewsInNeo4j(List<Map<String, String>> idReadersBooks) {
-        // Map => (idReader, id reader), (idBook, id book)
-
-        // Cypher query explanation:
-        // 1. UNWIND iterates through the list provided in the $batch parameter.
-        // 2. MATCH finds the specific relationship for the current row (pair of IDs).
-        // 3. DELETE removes that specific relationship.
-        String cypher = """
-        UNWIND $batch AS row
-        MATCH (:Reader {id: row.idReader})-[rel:REVIEWED]->(:Book {id: row.idBook})
-        DELETE rel
-        """;
-
-        try (Session session = this.neo4jManager.getDriver().session()) {
-            session.executeWrite(
-                    tx -> {
-                        tx.run(
-                                cypher,
-                                parameters("batch", idReadersBooks)
-                        );
-                        return null;
-                    }
-            );
-        }
-    }
-
     /**
      * @param idReview review id
      * @return review
@@ -757,54 +705,78 @@ public class ReviewRepository implements ReviewRepositoryInterface {
     }
 
     /**
-     *
+     * @param idBook book id
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of reviews
      */
     @Override
-    public void migrate() {
-        logger.debug("[REPOSITORY] [REVIEW] [MIGRATE]");
-
-        /*long total = this.mongoCollection
-                .countDocuments();
+    public PageResult<Review> findByBook(String idBook, PaginationRequest pagination) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(pagination);
 
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
+        if(!ObjectId.isValid(idBook)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
 
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Review> reviews = this.mongoCollection
-                    .find()
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
+        return MongoPagination.find(this.mongoCollection, Filters.eq("bookId", new ObjectId(idBook)), pagination, Review::getId, false);
+    }
 
-            saveReviewToNeo4j(reviews);
-        }*/
+    /**
+     * @param idReader reader id
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of reviews
+     */
+    @Override
+    public PageResult<Review> findByReader(String idReader, PaginationRequest pagination) {
+        Objects.requireNonNull(idReader);
+        Objects.requireNonNull(pagination);
 
+        if(!ObjectId.isValid(idReader)) return new PageResult<>(new ArrayList<>(), 0, pagination.getPage(), pagination.getSize());
 
-        int offset = 0;
+        return MongoPagination.find(this.mongoCollection, Filters.eq("user._id", new ObjectId(idReader)), pagination, Review::getId, false);
+    }
 
-        // Start with a "zero" ObjectId (minimum value)
-        ObjectId lastId = new ObjectId("000000000000000000000000");
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of reviews
+     */
+    @Override
+    public PageResult<Review> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
 
-        while (true) {
-            logger.debug("[REPOSITORY] [REVIEW] [MIGRATE] [MONGODB TO NEO4J] Migrated batch: {} to {}", offset, offset + batchSize);
+        return MongoPagination.find(this.mongoCollection, null, pagination, Review::getId, false);
+    }
 
-            // Find the next batch of books where _id > lastId
-            List<Review> reviews = this.mongoCollection
-                    .find(Filters.gt("_id", lastId)) // Use Index instead of Scan
-                    .sort(Sorts.ascending("_id"))    // Ensure order
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
+    /**
+     *
+     */
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [REVIEW] [MIGRATE]");
 
-            if (reviews.isEmpty()) break; // Finished
+        long migrated = migrate(null, null, null);
 
-            // Update the cursor to the last processed ID
-            lastId = reviews.getLast().getId();
+        logger.debug("[REPOSITORY] [REVIEW] [MIGRATE] [END] reviews: {}", migrated);
+    }
 
-            // Process migration
-            saveReviewToNeo4j(reviews);
+    /**
+     * @param ranges wanted number of ranges
+     * @return the upper bounds of the _id ranges, see {@link MongoRanges#split}
+     */
+    @Override
+    public List<ObjectId> splitForMigration(int ranges) {
+        return MongoRanges.split(this.mongoCollection, null, ranges);
+    }
 
-            offset += this.batchSize;
-        }
+    /**
+     * Copies the reviews with afterId < _id <= upToId to Neo4j as RATED relationships (the books must be migrated first).
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return reviews migrated
+     */
+    @Override
+    public long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [REVIEW] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
 
+        return MongoRanges.walk(this.mongoCollection, null, afterId, upToId, this.batchSize, Review::getId, this::saveReviewToNeo4j, onBatch);
     }
 }
@@ -3,10 +3,12 @@ package it.unipi.booknetapi.repository.review;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.user.ReviewerRead;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.bson.types.ObjectId;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface ReviewRepositoryInterface {
 
@@ -29,8 +31,13 @@ public interface ReviewRepositoryInterface {
     PageResult<Review> findByBook(String idBook, int page, int size);
     PageResult<Review> findByReader(String idReader, int page, int size);
     PageResult<Review> findAll(int page, int size);
+    PageResult<Review> findByBook(String idBook, PaginationRequest pagination);
+    PageResult<Review> findByReader(String idReader, PaginationRequest pagination);
+    PageResult<Review> findAll(PaginationRequest pagination);
 
 
     void migrate();
+    List<ObjectId> splitForMigration(int ranges);
+    long migrate(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
 
 }
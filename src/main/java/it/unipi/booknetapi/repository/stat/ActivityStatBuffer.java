@@ -0,0 +1,263 @@
+package it.unipi.booknetapi.repository.stat;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.model.stat.ActivityStat;
+import it.unipi.booknetapi.model.stat.ActivityType;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind buffer for the activity_stats counters.
+ * Increments are coalesced in memory per (entityId, day) and flushed
+ * periodically (or when the buffer is full) as a single unordered bulkWrite of $inc upserts.
+ * Entries whose write failed are merged back into the buffer and retried by the next flushes,
+ * up to MAX_FLUSH_ATTEMPTS; then they are dropped and counted in analytics.flush.dropped.
+ */
+public class ActivityStatBuffer {
+
+    public enum OverflowPolicy {
+        DROP,   // Discard increments for new keys while the buffer is full
+        FLUSH   // Flush synchronously on the caller thread (backpressure)
+    }
+
+    // Flushes an entry may fail before it is dropped
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    Logger logger = LoggerFactory.getLogger(ActivityStatBuffer.class);
+
+    private final MongoCollection<ActivityStat> mongoCollection;
+    private final int maxBufferSize;
+    private final OverflowPolicy overflowPolicy;
+
+    // ConcurrentHashMap locks per bin, so increments on different keys do not contend
+    private final ConcurrentHashMap<String, PendingStat> buffer = new ConcurrentHashMap<>();
+    private final AsyncManager asyncManager;
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    // The periodic flush runs until the manager stops, after close() it has nothing to write to
+    private volatile boolean closed;
+    private final Object flushLock = new Object();
+
+    private final Timer flushTimer;
+    private final Counter droppedCounter;
+    private final Counter writtenCounter;
+    private final Counter flushDroppedCounter;
+
+    public ActivityStatBuffer(
+            MongoCollection<ActivityStat> mongoCollection,
+            long flushIntervalMs,
+            int maxBufferSize,
+            OverflowPolicy overflowPolicy,
+            AsyncManager asyncManager,
+            MeterRegistry registry
+    ) {
+        this.mongoCollection = mongoCollection;
+        this.asyncManager = asyncManager;
+        this.maxBufferSize = maxBufferSize;
+        this.overflowPolicy = overflowPolicy;
+
+        registry.gauge("analytics.buffer.depth", this.buffer, Map::size);
+        this.flushTimer = registry.timer("analytics.flush.latency");
+        this.droppedCounter = registry.counter("analytics.buffer.dropped");
+        this.writtenCounter = registry.counter("analytics.flush.writes");
+        this.flushDroppedCounter = registry.counter("analytics.flush.dropped");
+
+        asyncManager.schedule(Workload.BACKGROUND, "analytics-flush", this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+
+    public void add(ObjectId entityId, String type, String name, Date date, ActivityType activityType, int rating) {
+        String compositeId = entityId.toHexString() + "_" + date.toInstant().toString();
+
+        if (this.buffer.size() >= this.maxBufferSize && !this.buffer.containsKey(compositeId)) {
+            if (this.overflowPolicy == OverflowPolicy.DROP) {
+                this.droppedCounter.increment();
+                requestFlush();
+                return;
+            }
+            flush();
+        }
+
+        // compute() runs under the bin lock, so a concurrent flush either sees the
+        // increment or removes the entry before it and a fresh one is created
+        this.buffer.compute(compositeId, (key, pending) -> {
+            if (pending == null) pending = new PendingStat(entityId, type, name, date);
+            pending.increment(activityType, rating);
+            return pending;
+        });
+
+        if (this.buffer.size() >= this.maxBufferSize) requestFlush();
+    }
+
+    private void requestFlush() {
+        if (this.flushRequested.compareAndSet(false, true) && !this.asyncManager.tryExecute(Workload.BACKGROUND, this::flushSafely)) {
+            // The periodic flush writes the buffer anyway, a later add may ask again
+            this.flushRequested.set(false);
+        }
+    }
+
+    private void flushSafely() {
+        if (this.closed) return;
+
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("[REPOSITORY] [ACTIVITY STATS] [FLUSH] Error during flush: {}", e.getMessage());
+        }
+    }
+
+    public void flush() {
+        synchronized (this.flushLock) {
+            this.flushRequested.set(false);
+            if (this.buffer.isEmpty()) return;
+
+            List<String> keys = new ArrayList<>(this.buffer.size());
+            List<PendingStat> taken = new ArrayList<>(this.buffer.size());
+            List<WriteModel<ActivityStat>> writes = new ArrayList<>(this.buffer.size());
+            for (String key : this.buffer.keySet()) {
+                PendingStat pending = this.buffer.remove(key);
+                if (pending != null) {
+                    keys.add(key);
+                    taken.add(pending);
+                    writes.add(pending.toWriteModel(key));
+                }
+            }
+
+            if (writes.isEmpty()) return;
+
+            try {
+                this.flushTimer.record(() -> {
+                    BulkWriteResult result = this.mongoCollection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+                    logger.debug("[REPOSITORY] [ACTIVITY STATS] [FLUSH] writes: {}, upserts: {}", writes.size(), result.getUpserts().size());
+                });
+                this.writtenCounter.increment(writes.size());
+            } catch (MongoBulkWriteException e) {
+                // Unordered: every write but the failed ones was applied
+                List<BulkWriteError> errors = e.getWriteErrors();
+                errors.forEach(error -> requeue(keys.get(error.getIndex()), taken.get(error.getIndex())));
+                this.writtenCounter.increment(writes.size() - errors.size());
+
+                logger.error("[REPOSITORY] [ACTIVITY STATS] [FLUSH] writes failed: {}/{}, first error: {}", errors.size(), writes.size(), e.getMessage());
+            } catch (RuntimeException e) {
+                // Nothing tells which writes reached the server: retry them all, a write applied
+                // before the connection broke is then counted twice rather than lost
+                for (int i = 0; i < keys.size(); i++) {
+                    requeue(keys.get(i), taken.get(i));
+                }
+
+                logger.error("[REPOSITORY] [ACTIVITY STATS] [FLUSH] flush failed, writes requeued: {}, error: {}", writes.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Merges a failed entry back with the increments buffered since it was taken.
+     */
+    private void requeue(String key, PendingStat failed) {
+        if (++failed.attempts >= MAX_FLUSH_ATTEMPTS) {
+            this.flushDroppedCounter.increment();
+            logger.warn("[REPOSITORY] [ACTIVITY STATS] [FLUSH] dropped after {} attempts: {}", failed.attempts, key);
+            return;
+        }
+
+        this.buffer.merge(key, failed, (current, retry) -> {
+            retry.merge(current);
+            return retry;
+        });
+    }
+
+    public void close() {
+        flushSafely();
+        this.closed = true;
+
+        // A failed last flush has nothing left to retry it
+        if (!this.buffer.isEmpty()) {
+            this.flushDroppedCounter.increment(this.buffer.size());
+            logger.error("[REPOSITORY] [ACTIVITY STATS] [CLOSE] entries not written: {}", this.buffer.size());
+        }
+    }
+
+
+    private static final class PendingStat {
+
+        private final ObjectId entityId;
+        private final String type;
+        private final String name;
+        private final Date date;
+
+        private int readCount;
+        private int viewCount;
+        private int reviewCount;
+        private int ratingCount;
+        private long ratingSum;
+
+        // Failed flushes of this entry
+        private int attempts;
+
+        PendingStat(ObjectId entityId, String type, String name, Date date) {
+            this.entityId = entityId;
+            this.type = type;
+            this.name = name;
+            this.date = date;
+        }
+
+        void increment(ActivityType activityType, int rating) {
+            switch (activityType) {
+                case READ -> this.readCount++;
+                case REVIEW -> this.reviewCount++;
+                case RATING -> {
+                    this.ratingCount++;
+                    this.ratingSum += rating;
+                }
+                case VIEW -> this.viewCount++;
+            }
+        }
+
+        void merge(PendingStat other) {
+            this.readCount += other.readCount;
+            this.viewCount += other.viewCount;
+            this.reviewCount += other.reviewCount;
+            this.ratingCount += other.ratingCount;
+            this.ratingSum += other.ratingSum;
+        }
+
+        WriteModel<ActivityStat> toWriteModel(String compositeId) {
+            List<Bson> updates = new ArrayList<>();
+
+            updates.add(Updates.setOnInsert("entityId", this.entityId));
+            updates.add(Updates.setOnInsert("type", this.type));
+            updates.add(Updates.setOnInsert("name", this.name));
+            updates.add(Updates.setOnInsert("date", this.date));
+
+            if (this.readCount > 0) updates.add(Updates.inc("readCount", this.readCount));
+            if (this.viewCount > 0) updates.add(Updates.inc("viewCount", this.viewCount));
+            if (this.reviewCount > 0) updates.add(Updates.inc("reviewCount", this.reviewCount));
+            if (this.ratingCount > 0) {
+                updates.add(Updates.inc("ratingCount", this.ratingCount));
+                updates.add(Updates.inc("ratingSum", this.ratingSum));
+            }
+
+            return new UpdateOneModel<>(
+                    Filters.eq("_id", compositeId),
+                    Updates.combine(updates),
+                    new UpdateOptions().upsert(true)
+            );
+        }
+    }
+
+}
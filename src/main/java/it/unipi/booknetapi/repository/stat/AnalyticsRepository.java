@@ -9,12 +9,15 @@ import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.stat.ActivityStat;
 import it.unipi.booknetapi.model.stat.ActivityType;
 import it.unipi.booknetapi.model.stat.ChartDataPoint;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
 import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import jakarta.annotation.PreDestroy;
 import org.bson.Document;
-import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -22,6 +25,7 @@ import java.time.ZoneOffset;
 import java.util.*;
 
 @Repository
+@Profile("!local")
 public class AnalyticsRepository implements AnalyticsRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(AnalyticsRepository.class);
@@ -30,8 +34,11 @@ public class AnalyticsRepository implements AnalyticsRepositoryInterface {
     private final MongoCollection<ActivityStat> mongoCollection;
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
+    private final ActivityStatBuffer activityStatBuffer;
 
     public AnalyticsRepository(
+            AppConfig appConfig,
+            AsyncManager asyncManager,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -41,11 +48,34 @@ public class AnalyticsRepository implements AnalyticsRepositoryInterface {
         this.mongoCollection = mongoDatabase.getCollection("activity_stats", ActivityStat.class);
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.activityStatBuffer = new ActivityStatBuffer(
+                this.mongoCollection,
+                appConfig.getAnalyticsFlushIntervalMs() != null ? appConfig.getAnalyticsFlushIntervalMs() : 1000L,
+                appConfig.getAnalyticsMaxBufferSize() != null ? appConfig.getAnalyticsMaxBufferSize() : 10000,
+                parseOverflowPolicy(appConfig.getAnalyticsOverflowPolicy()),
+                asyncManager,
+                registry
+        );
+    }
+
+    private static ActivityStatBuffer.OverflowPolicy parseOverflowPolicy(String policy) {
+        if(policy == null || policy.isBlank()) return ActivityStatBuffer.OverflowPolicy.FLUSH;
+        try {
+            return ActivityStatBuffer.OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ActivityStatBuffer.OverflowPolicy.FLUSH;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.activityStatBuffer.close();
     }
 
 
     /**
      * Updates stats for the Book, the Author, and all Genres in one go.
+     * Increments are buffered and written in bulk by the {@link ActivityStatBuffer}.
      */
     public void recordActivity(
             ObjectId bookId, String bookTitle,
@@ -72,33 +102,17 @@ public class AnalyticsRepository implements AnalyticsRepositoryInterface {
         }
     }
 
-    private void upsertStat(ObjectId entityId, String type, String name, Date date, ActivityType activityType, int rating) {
-        String compositeId = entityId.toHexString() + "_" + date.toInstant().toString();
-
-        logger.debug("[REPOSITORY] [ACTIVITY STATS] [RECORD ACTIVITY] composite id: {}, type: {}, name: {}, activityType: {}", compositeId, type, name, activityType);
-
-        List<Bson> updates = new ArrayList<>();
-
-        updates.add(Updates.setOnInsert("entityId", entityId));
-        updates.add(Updates.setOnInsert("type", type));
-        updates.add(Updates.setOnInsert("name", name)); // Store name for easy chart labeling
-        updates.add(Updates.setOnInsert("date", date));
+    /**
+     * Writes every buffered increment to MongoDB right away.
+     */
+    public void flush() {
+        this.activityStatBuffer.flush();
+    }
 
-        switch (activityType) {
-            case READ -> updates.add(Updates.inc("readCount", 1));
-            case REVIEW -> updates.add(Updates.inc("reviewCount", 1));
-            case RATING -> {
-                updates.add(Updates.inc("ratingCount", 1));
-                updates.add(Updates.inc("ratingSum", rating));
-            }
-            case VIEW -> updates.add(Updates.inc("viewCount", 1));
-        }
+    private void upsertStat(ObjectId entityId, String type, String name, Date date, ActivityType activityType, int rating) {
+        logger.debug("[REPOSITORY] [ACTIVITY STATS] [RECORD ACTIVITY] entity id: {}, type: {}, name: {}, activityType: {}", entityId, type, name, activityType);
 
-        this.mongoCollection.updateOne(
-                Filters.eq("_id", compositeId),
-                Updates.combine(updates),
-                new UpdateOptions().upsert(true)
-        );
+        this.activityStatBuffer.add(entityId, type, name, date, activityType, rating);
     }
 
 
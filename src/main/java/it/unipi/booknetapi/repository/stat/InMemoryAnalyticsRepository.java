@@ -0,0 +1,132 @@
+package it.unipi.booknetapi.repository.stat;
+
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.stat.ActivityStat;
+import it.unipi.booknetapi.model.stat.ActivityType;
+import it.unipi.booknetapi.model.stat.ChartDataPoint;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AnalyticsRepository of the local profile: the daily buckets are written straight to a map, so
+ * there is no buffer to flush. A bucket is replaced on every increment, never changed in place,
+ * so the chart queries read consistent values without locking.
+ */
+@Repository
+@Profile("local")
+public class InMemoryAnalyticsRepository implements AnalyticsRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryAnalyticsRepository.class);
+
+    private final ConcurrentMap<String, ActivityStat> stats = new ConcurrentHashMap<>();
+
+
+    @Override
+    public void recordActivity(
+            ObjectId bookId, String bookTitle,
+            ObjectId authorId, String authorName,
+            List<GenreEmbed> genres,
+            ActivityType type,
+            int ratingValue
+    ) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Date date = Date.from(today.atStartOfDay(ZoneOffset.UTC).toInstant());
+
+        if(bookId != null) {
+            upsertStat(bookId, "BOOK", bookTitle, date, type, ratingValue);
+        }
+
+        if (authorId != null) {
+            upsertStat(authorId, "AUTHOR", authorName, date, type, ratingValue);
+        }
+
+        if (genres != null) {
+            genres.forEach(genre -> upsertStat(genre.getId(), "GENRE", genre.getName(), date, type, ratingValue));
+        }
+    }
+
+    private void upsertStat(ObjectId entityId, String type, String name, Date date, ActivityType activityType, int rating) {
+        if (entityId == null) return;
+
+        logger.debug("[REPOSITORY] [ACTIVITY STATS] [RECORD ACTIVITY] entity id: {}, type: {}, name: {}, activityType: {}", entityId, type, name, activityType);
+
+        String compositeId = entityId.toHexString() + "_" + date.toInstant().toString();
+
+        this.stats.compute(compositeId, (key, current) -> {
+            ActivityStat next = current != null
+                    ? new ActivityStat(key, current.getEntityId(), current.getType(), current.getName(), current.getDate(),
+                            current.getReadCount(), current.getViewCount(), current.getReviewCount(), current.getRatingCount(), current.getRatingSum())
+                    : ActivityStat.builder().id(key).entityId(entityId).type(type).name(name).date(date).build();
+
+            switch (activityType) {
+                case READ -> next.setReadCount(next.getReadCount() + 1);
+                case REVIEW -> next.setReviewCount(next.getReviewCount() + 1);
+                case RATING -> {
+                    next.setRatingCount(next.getRatingCount() + 1);
+                    next.setRatingSum(next.getRatingSum() + rating);
+                }
+                case VIEW -> next.setViewCount(next.getViewCount() + 1);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Same buckets as the $dateTrunc of the MongoDB pipeline, in UTC (weeks start on Sunday).
+     */
+    @Override
+    public List<ChartDataPoint> getChartData(ObjectId entityId, Date start, Date end, String granularity) {
+        logger.debug("[REPOSITORY] [ACTIVITY STATS] [CHART DATA] entity id: {}, start date: {}, end date: {}, granularity: {}", entityId, start, end, granularity);
+
+        Map<Date, ActivityStat> totals = new TreeMap<>();
+        for (ActivityStat stat : this.stats.values()) {
+            if (!Objects.equals(stat.getEntityId(), entityId) || stat.getDate() == null) continue;
+            if (start != null && stat.getDate().before(start)) continue;
+            if (end != null && stat.getDate().after(end)) continue;
+
+            ActivityStat total = totals.computeIfAbsent(truncate(stat.getDate(), granularity), date -> new ActivityStat());
+            total.setReadCount(total.getReadCount() + stat.getReadCount());
+            total.setViewCount(total.getViewCount() + stat.getViewCount());
+            total.setReviewCount(total.getReviewCount() + stat.getReviewCount());
+            total.setRatingCount(total.getRatingCount() + stat.getRatingCount());
+            total.setRatingSum(total.getRatingSum() + stat.getRatingSum());
+        }
+
+        List<ChartDataPoint> points = new ArrayList<>(totals.size());
+        totals.forEach((date, total) -> points.add(ChartDataPoint.builder()
+                .date(date)
+                .reads(total.getReadCount())
+                .views(total.getViewCount())
+                .reviews(total.getReviewCount())
+                .avgRating(total.getRatingCount() == 0 ? 0.0 : (double) total.getRatingSum() / total.getRatingCount())
+                .build()));
+        return points;
+    }
+
+    private static Date truncate(Date date, String granularity) {
+        LocalDate day = date.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
+
+        LocalDate truncated = switch (granularity != null ? granularity.toLowerCase(Locale.ROOT) : "day") {
+            case "week" -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+            case "month" -> day.withDayOfMonth(1);
+            case "quarter" -> day.with(IsoFields.DAY_OF_QUARTER, 1);
+            case "year" -> day.withDayOfYear(1);
+            default -> day;
+        };
+
+        return Date.from(truncated.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+}
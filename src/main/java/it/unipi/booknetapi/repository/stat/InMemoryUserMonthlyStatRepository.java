@@ -0,0 +1,144 @@
+package it.unipi.booknetapi.repository.stat;
+
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.stat.ReadEvent;
+import it.unipi.booknetapi.model.stat.UserMonthlyStat;
+import it.unipi.booknetapi.model.stat.UserYearlyStat;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * UserMonthlyStatRepository of the local profile. The documents have a composite string _id, so
+ * they are kept in a map of their own, as BSON like the collections of the {@link InMemoryStore}.
+ */
+@Repository
+@Profile("local")
+public class InMemoryUserMonthlyStatRepository implements UserMonthlyStatRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryUserMonthlyStatRepository.class);
+
+    private final InMemoryStore store;
+    private final ConcurrentMap<String, byte[]> stats = new ConcurrentHashMap<>();
+
+    public InMemoryUserMonthlyStatRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    private UserMonthlyStat decode(byte[] bytes) {
+        return bytes != null ? this.store.decode(bytes, UserMonthlyStat.class) : null;
+    }
+
+
+    @Override
+    public UserMonthlyStat getMonthlyStats(String userId, int year, int month) {
+        if(userId == null || !ObjectId.isValid(userId)) return null;
+
+        String compositeId = userId + "_" + year + "_" + month;
+
+        return decode(this.stats.get(compositeId));
+    }
+
+    @Override
+    public List<UserMonthlyStat> getMonthlyStats(String userId, int year) {
+        if(userId == null || !ObjectId.isValid(userId)) return null;
+
+        // One document per month at most: look the twelve ids up instead of scanning
+        List<UserMonthlyStat> results = new ArrayList<>();
+        for (int month = 1; month <= 12; month++) {
+            UserMonthlyStat stat = getMonthlyStats(userId, year, month);
+            if (stat != null) results.add(stat);
+        }
+        return results;
+    }
+
+    @Override
+    public void addReadEvent(ObjectId userId, BookEmbed book) {
+        Objects.requireNonNull(userId);
+        Objects.requireNonNull(book);
+
+        logger.debug("[REPOSITORY] [USER MONTHLY STAT] [ADD READ EVENT] user id: {}, book id: {}", userId.toHexString(), book.getId());
+
+        LocalDate nowLocal = LocalDate.now();
+        int year = nowLocal.getYear();
+        int month = nowLocal.getMonthValue();
+
+        String compositeId = userId.toHexString() + "_" + year + "_" + month;
+
+        ReadEvent newEvent = ReadEvent.builder()
+                .book(book)
+                .pages(book.getNumPage())
+                .genres(book.getGenres())
+                .dateRead(Date.from(nowLocal.atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .build();
+
+        this.stats.compute(compositeId, (key, current) -> {
+            UserMonthlyStat stat = current != null ? decode(current) : UserMonthlyStat.builder()
+                    .id(key)
+                    .userId(userId)
+                    .year(year)
+                    .month(month)
+                    .totalBooksRead(0)
+                    .totalPagesRead(0)
+                    .genreDistribution(new HashMap<>())
+                    .readingLog(new ArrayList<>())
+                    .build();
+
+            stat.setTotalBooksRead((stat.getTotalBooksRead() != null ? stat.getTotalBooksRead() : 0) + 1);
+            stat.setTotalPagesRead((stat.getTotalPagesRead() != null ? stat.getTotalPagesRead() : 0) + (book.getNumPage() != null ? book.getNumPage() : 0));
+
+            Map<String, Integer> distribution = stat.getGenreDistribution() != null ? new HashMap<>(stat.getGenreDistribution()) : new HashMap<>();
+            if(book.getGenres() != null) {
+                for (GenreEmbed genre : book.getGenres()) {
+                    distribution.merge(genre.getName(), 1, Integer::sum);
+                }
+            }
+            stat.setGenreDistribution(distribution);
+
+            List<ReadEvent> readingLog = stat.getReadingLog() != null ? new ArrayList<>(stat.getReadingLog()) : new ArrayList<>();
+            readingLog.add(newEvent);
+            stat.setReadingLog(readingLog);
+
+            return this.store.encode(stat);
+        });
+    }
+
+    /**
+     * topMonth is the highest monthly count, like the $max of the pipeline.
+     */
+    @Override
+    public UserYearlyStat getYearlyStats(String userId, int year) {
+        if(userId == null || !ObjectId.isValid(userId)) return null;
+
+        List<UserMonthlyStat> months = getMonthlyStats(userId, year);
+        if(months.isEmpty()) return null;
+
+        int books = 0;
+        int pages = 0;
+        Integer topMonth = null;
+        for (UserMonthlyStat stat : months) {
+            int read = stat.getTotalBooksRead() != null ? stat.getTotalBooksRead() : 0;
+            books += read;
+            pages += stat.getTotalPagesRead() != null ? stat.getTotalPagesRead() : 0;
+            if (stat.getTotalBooksRead() != null && (topMonth == null || read > topMonth)) topMonth = read;
+        }
+
+        return UserYearlyStat.builder()
+                .userId(new ObjectId(userId))
+                .yearlyBooks(books)
+                .yearlyPages(pages)
+                .topMonth(topMonth)
+                .build();
+    }
+
+}
@@ -15,6 +15,7 @@ import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -22,6 +23,7 @@ import java.time.ZoneId;
 import java.util.*;
 
 @Repository
+@Profile("!local")
 public class UserMonthlyStatRepository implements UserMonthlyStatRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(UserMonthlyStatRepository.class);
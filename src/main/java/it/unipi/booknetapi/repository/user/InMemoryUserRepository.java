@@ -0,0 +1,710 @@
+package it.unipi.booknetapi.repository.user;
+
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.bucket.BucketType;
+import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.model.notification.NotificationEmbed;
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.model.user.*;
+import it.unipi.booknetapi.repository.bucket.IdBucketRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * UserRepository of the local profile. The Reader nodes and their relationships are not written
+ * anywhere: the shelves, preferences and reviews in the store are the graph the in-memory book
+ * repository queries.
+ */
+@Repository
+@Profile("local")
+public class InMemoryUserRepository implements UserRepositoryInterface {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryUserRepository.class);
+
+    private static final int MAX_LAST_NOTIFICATIONS = 10;
+
+    private final InMemoryCollection<User> collection;
+    private final InMemoryCollection<Notification> notifications;
+    private final IdBucketRepositoryInterface idBucketRepository;
+
+    public InMemoryUserRepository(InMemoryStore store, IdBucketRepositoryInterface idBucketRepository) {
+        this.collection = store.users();
+        this.notifications = store.notifications();
+        this.idBucketRepository = idBucketRepository;
+    }
+
+    /**
+     * @return the shelf of a reader or reviewer, as a mutable list set on the user; null for an admin
+     */
+    private static List<UserBookShelf> shelfOf(User user) {
+        if (user instanceof Reader reader) {
+            reader.setShelf(reader.getShelf() != null ? new ArrayList<>(reader.getShelf()) : new ArrayList<>());
+            return reader.getShelf();
+        }
+        if (user instanceof Reviewer reviewer) {
+            reviewer.setShelf(reviewer.getShelf() != null ? new ArrayList<>(reviewer.getShelf()) : new ArrayList<>());
+            return reviewer.getShelf();
+        }
+        return null;
+    }
+
+    private static Predicate<User> hasRole(Role role) {
+        return user -> role.equals(user.getRole());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <U extends User> PageResult<U> narrow(PageResult<User> page) {
+        return new PageResult<>(
+                new ArrayList<>((List<U>) (List<?>) page.getContent()),
+                page.getTotalElements(),
+                page.getCurrentPage(),
+                page.getPageSize(),
+                page.getNextCursor()
+        );
+    }
+
+
+    @Override
+    public <T extends User> T insert(T user) {
+        Objects.requireNonNull(user);
+
+        user.setDateAdd(new Date());
+        user.setId(null);
+
+        logger.debug("[REPOSITORY] [USER] [INSERT] user: {}", user);
+
+        this.collection.insert(user);
+        return user;
+    }
+
+    @Override
+    public <T extends User> T insertWithThread(T user) {
+        Objects.requireNonNull(user);
+
+        user.setDateAdd(new Date());
+
+        logger.debug("[REPOSITORY] [USER] [INSERT] user: {}", user);
+
+        this.collection.insert(user);
+        return user;
+    }
+
+    @Override
+    public <T extends User> List<T> insert(List<T> users) {
+        Objects.requireNonNull(users);
+        if(users.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [USER] [INSERT MANY] users size: {}", users.size());
+
+        users.forEach(this.collection::insert);
+        return users;
+    }
+
+    @Override
+    public boolean updateName(String idUser, String newName) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(newName);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [NAME] user id: {}", idUser);
+
+        return this.collection.update(new ObjectId(idUser), user -> user.setName(newName));
+    }
+
+    @Override
+    public boolean updatePassword(String idUser, String newPassword) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(newPassword);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [PASSWORD] user id: {}", idUser);
+
+        return this.collection.update(new ObjectId(idUser), user -> user.setPassword(newPassword));
+    }
+
+    @Override
+    public boolean rehashPassword(String idUser, String currentHash, String newHash) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(currentHash);
+        Objects.requireNonNull(newHash);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [REHASH PASSWORD] user id: {}", idUser);
+
+        return this.collection.update(
+                new ObjectId(idUser),
+                user -> currentHash.equals(user.getPassword()),
+                user -> user.setPassword(newHash)
+        );
+    }
+
+    @Override
+    public boolean updateImage(String idUser, String newImageUrl) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(newImageUrl);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [IMAGE] user id: {}", idUser);
+
+        return this.collection.update(new ObjectId(idUser), user -> user.setImageUrl(newImageUrl));
+    }
+
+    @Override
+    public boolean updatePreference(String idUser, ReaderPreference preference) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(preference);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [READER] [UPDATE PREFERENCE] user id: {}", idUser);
+
+        return this.collection.update(new ObjectId(idUser), user -> {
+            if (user instanceof Reader reader) reader.setPreference(preference);
+        });
+    }
+
+    @Override
+    public int importGoodReadsReviewsRead(List<ReviewerRead> reads) {
+        if (reads == null || reads.isEmpty()) return 0;
+
+        logger.debug("[REPOSITORY] [REVIEWER] [INSERT RELATIONSHIPS] [FROM GOODREADS] Inserting reads: {}", reads.size());
+
+        int count = 0;
+        for (ReviewerRead read : reads) {
+            if (read.getUserId() == null) continue;
+
+            UserBookShelf bookShelf = new UserBookShelf(read);
+            boolean modified = this.collection.update(read.getUserId(), user -> {
+                List<UserBookShelf> shelf = shelfOf(user);
+                if (shelf != null) shelf.add(bookShelf);
+            });
+            if (modified) count++;
+        }
+
+        return count;
+    }
+
+
+    @Override
+    public List<UserBookShelf> getShelf(String idUser) {
+        Objects.requireNonNull(idUser);
+        if(!ObjectId.isValid(idUser)) return List.of();
+
+        logger.debug("[REPOSITORY] [USER] [GET SHELF] user id: {}", idUser);
+
+        return this.collection.findById(new ObjectId(idUser))
+                .map(InMemoryUserRepository::shelfOf)
+                .orElse(List.of());
+    }
+
+    @Override
+    public boolean updateShelf(String idUser, List<BookEmbed> books) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(books);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [READER] [UPDATE] [SHELF] user id: {}", idUser);
+
+        List<UserBookShelf> items = books.stream()
+                .filter(b -> b.getId() != null)
+                .map(b -> new UserBookShelf(b, BookShelfStatus.ADDED, new Date(), new Date()))
+                .toList();
+
+        return this.collection.update(new ObjectId(idUser), user -> {
+            List<UserBookShelf> shelf = shelfOf(user);
+            if (shelf == null) return;
+
+            shelf.clear();
+            shelf.addAll(items);
+        });
+    }
+
+    @Override
+    public boolean addBookInShelf(String idUser, BookEmbed book) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(book);
+
+        if(!ObjectId.isValid(idUser)) return false;
+        if(book.getId() == null) return false;
+
+        logger.debug("[REPOSITORY] [READER] [UPDATE] [ADD BOOK IN SHELF] user id: {}", idUser);
+
+        UserBookShelf bookShelf = new UserBookShelf(book, BookShelfStatus.ADDED, new Date(), new Date());
+
+        return this.collection.update(new ObjectId(idUser), user -> {
+            List<UserBookShelf> shelf = shelfOf(user);
+            if (shelf != null) shelf.add(bookShelf);
+        });
+    }
+
+    @Override
+    public boolean removeBookFromShelf(String idUser, String idBook) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idBook);
+        if(!ObjectId.isValid(idUser) || !ObjectId.isValid(idBook)) return false;
+
+        logger.debug("[REPOSITORY] [READER] [UPDATE] [REMOVE BOOK FROM SHELF] user id: {}", idUser);
+
+        ObjectId bookId = new ObjectId(idBook);
+
+        return this.collection.update(new ObjectId(idUser), user -> {
+            List<UserBookShelf> shelf = shelfOf(user);
+            if (shelf != null) shelf.removeIf(item -> item.getBook() != null && bookId.equals(item.getBook().getId()));
+        });
+    }
+
+    @Override
+    public boolean updateShelfStatus(String idUser, BookEmbed book, BookShelfStatus newStatus) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(book);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [READER] [UPDATE] [SHELF STATUS] user id: {}", idUser);
+
+        BookShelfStatus status = newStatus != null ? newStatus : BookShelfStatus.ADDED;
+
+        // Like the positional update: matched is enough, the date changes anyway
+        boolean[] matched = {false};
+        this.collection.update(new ObjectId(idUser), user -> {
+            List<UserBookShelf> shelf = shelfOf(user);
+            if (shelf == null) return;
+
+            for (UserBookShelf item : shelf) {
+                if (item.getBook() != null && Objects.equals(item.getBook().getId(), book.getId())) {
+                    item.setStatus(status);
+                    item.setDateUpdated(new Date());
+                    matched[0] = true;
+                    return;
+                }
+            }
+        });
+
+        if (!matched[0]) return this.addBookInShelf(idUser, book);
+
+        return true;
+    }
+
+
+    @Override
+    public boolean addReview(Review review) {
+        Objects.requireNonNull(review);
+        Objects.requireNonNull(review.getBookId());
+        Objects.requireNonNull(review.getUser());
+        Objects.requireNonNull(review.getUser().getId());
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [ADD REVIEW] user id: {}", review.getUser().getId().toHexString());
+
+        if(!this.collection.exists(review.getUser().getId())) return false;
+
+        this.idBucketRepository.append(BucketType.USER_REVIEWS, review.getUser().getId(), List.of(review.getId()));
+        return true;
+    }
+
+    @Override
+    public boolean deleteReview(String idUser, String idBook, String idReview) {
+        Objects.requireNonNull(idBook);
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idReview);
+
+        if(!ObjectId.isValid(idUser) || !ObjectId.isValid(idBook) || !ObjectId.isValid(idReview)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [DELETE REVIEW] user id: {}", idUser);
+
+        return this.idBucketRepository.remove(BucketType.USER_REVIEWS, new ObjectId(idUser), List.of(new ObjectId(idReview)));
+    }
+
+    @Override
+    public PageResult<ObjectId> getReviewsIds(String idUser, PaginationRequest pagination) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
+
+        logger.debug("[REPOSITORY] [USER] [GET REVIEWS IDS] user id: {}", idUser);
+
+        return this.idBucketRepository.findIds(BucketType.USER_REVIEWS, new ObjectId(idUser), pagination);
+    }
+
+
+    @Override
+    public boolean addNotification(String idUser, NotificationEmbed notification) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(notification);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [ADD NOTIFICATION] user id: {}", idUser);
+
+        ObjectId oidUser = new ObjectId(idUser);
+
+        boolean modified = this.collection.update(oidUser, user -> {
+            if (!(user instanceof Admin admin)) return;
+
+            List<NotificationEmbed> last = new ArrayList<>();
+            last.add(notification);
+            if (admin.getLastNotifications() != null) last.addAll(admin.getLastNotifications());
+            admin.setLastNotifications(new ArrayList<>(last.subList(0, Math.min(last.size(), MAX_LAST_NOTIFICATIONS))));
+        });
+
+        if(modified) {
+            this.idBucketRepository.append(BucketType.USER_NOTIFICATIONS, oidUser, List.of(notification.getId()));
+            incrementUnreadNotifications(idUser, 1);
+        }
+
+        return modified;
+    }
+
+    @Override
+    public void incrementUnreadNotifications(String idUser, long delta) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser) || delta == 0) return;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [UNREAD NOTIFICATIONS] user id: {}, delta: {}", idUser, delta);
+
+        this.collection.update(
+                new ObjectId(idUser),
+                user -> user instanceof Admin admin && admin.getUnreadNotifications() != null,
+                user -> {
+                    Admin admin = (Admin) user;
+                    admin.setUnreadNotifications(admin.getUnreadNotifications() + (int) delta);
+                }
+        );
+    }
+
+    // The count runs in the write of the admin, so it sees the notifications of every increment skipped before it
+    @Override
+    public long initUnreadNotifications() {
+        List<ObjectId> admins = this.collection.stream()
+                .filter(user -> user instanceof Admin admin && admin.getUnreadNotifications() == null)
+                .map(User::getId)
+                .toList();
+
+        for (ObjectId id : admins) {
+            this.collection.update(
+                    id,
+                    user -> user instanceof Admin admin && admin.getUnreadNotifications() == null,
+                    user -> ((Admin) user).setUnreadNotifications((int) this.notifications.findBy("userId", id).stream()
+                            .filter(notification -> !Boolean.TRUE.equals(notification.getRead()))
+                            .count())
+            );
+        }
+
+        return admins.size();
+    }
+
+    @Override
+    public boolean deleteNotification(String idUser, String idNotification) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotification);
+
+        if(!ObjectId.isValid(idUser) || !ObjectId.isValid(idNotification)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [DELETE NOTIFICATION] user id: {}", idUser);
+
+        return deleteNotifications(new ObjectId(idUser), List.of(new ObjectId(idNotification)));
+    }
+
+    @Override
+    public boolean deleteNotification(String idUser, List<String> idNotification) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(idNotification);
+
+        if (idNotification.isEmpty()) return false;
+        if (!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [DELETE MULTI NOFITICATION] user id: {}", idUser);
+
+        List<ObjectId> notificationIds = idNotification.stream()
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+
+        if(notificationIds.isEmpty()) return true;
+
+        return deleteNotifications(new ObjectId(idUser), notificationIds);
+    }
+
+    private boolean deleteNotifications(ObjectId idUser, List<ObjectId> notificationIds) {
+        boolean removed = this.idBucketRepository.remove(BucketType.USER_NOTIFICATIONS, idUser, notificationIds);
+
+        boolean modified = this.collection.update(idUser, user -> {
+            if (user instanceof Admin admin && admin.getLastNotifications() != null) {
+                admin.setLastNotifications(new ArrayList<>(admin.getLastNotifications().stream()
+                        .filter(n -> !notificationIds.contains(n.getId()))
+                        .toList()));
+            }
+        });
+
+        return removed || modified;
+    }
+
+    @Override
+    public PageResult<ObjectId> getNotificationsIds(String idUser, PaginationRequest pagination) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
+
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
+
+        logger.debug("[REPOSITORY] [ADMIN] [GET NOTIFICATION IDS] user id: {}", idUser);
+
+        return this.idBucketRepository.findIds(BucketType.USER_NOTIFICATIONS, new ObjectId(idUser), pagination);
+    }
+
+
+    @Override
+    public boolean delete(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [DELETE] user id: {}", idUser);
+
+        ObjectId id = new ObjectId(idUser);
+        if (!this.collection.delete(id)) return false;
+
+        deleteBuckets(List.of(id));
+        return true;
+    }
+
+    @Override
+    public boolean deleteAll(List<String> idUsers) {
+        Objects.requireNonNull(idUsers);
+
+        List<ObjectId> ids = idUsers.stream()
+                .distinct()
+                .filter(Objects::nonNull)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+
+        if(ids.isEmpty()) return true;
+
+        logger.debug("[REPOSITORY] [USER] [DELETE MANY] user id: {}", ids.size());
+
+        if (this.collection.delete(ids) == 0) return false;
+
+        deleteBuckets(ids);
+        return true;
+    }
+
+    private void deleteBuckets(List<ObjectId> idUsers) {
+        this.idBucketRepository.deleteOwners(BucketType.USER_REVIEWS, idUsers);
+        this.idBucketRepository.deleteOwners(BucketType.USER_NOTIFICATIONS, idUsers);
+    }
+
+
+    @Override
+    public Optional<User> findById(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return Optional.empty();
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [BY ID] user id: {}", idUser);
+
+        return this.collection.findById(new ObjectId(idUser));
+    }
+
+    @Override
+    public List<NotificationEmbed> findLastNotifications(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return null;
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [LAST NOTIFICATIONS] user id: {}", idUser);
+
+        Optional<User> user = this.collection.findById(new ObjectId(idUser));
+        if(user.isEmpty() || !(user.get() instanceof Admin admin)) return null;
+
+        return admin.getLastNotifications() != null ? admin.getLastNotifications() : List.of();
+    }
+
+    @Override
+    public Admin findUnreadNotifications(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return null;
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [UNREAD NOTIFICATIONS] user id: {}", idUser);
+
+        return this.collection.findById(new ObjectId(idUser))
+                .filter(Admin.class::isInstance)
+                .map(Admin.class::cast)
+                .orElse(null);
+    }
+
+    @Override
+    public Optional<Reader> findReaderById(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return Optional.empty();
+
+        logger.debug("[REPOSITORY] [READER] [FIND BY ID] user id: {}", idUser);
+
+        return this.collection.findById(new ObjectId(idUser))
+                .filter(user -> user instanceof Reader && Role.Reader.equals(user.getRole()))
+                .map(Reader.class::cast);
+    }
+
+    @Override
+    public Optional<User> findByUsername(String username) {
+        Objects.requireNonNull(username);
+
+        logger.debug("[REPOSITORY] [USER] [FIND BY USERNAME] user id: {}", username);
+
+        return this.collection.findFirstBy("username", username);
+    }
+
+    @Override
+    public PageResult<User> findAll(int page, int size) {
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] page: {}, size: {}", page, size);
+
+        return this.collection.find(null, Comparator.comparing(User::getId), page, size);
+    }
+
+    @Override
+    public PageResult<Admin> findAllAdmin(int page, int size) {
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [ADMIN] page: {}, size: {}", page, size);
+
+        return narrow(this.collection.find(hasRole(Role.Admin), Comparator.comparing(User::getId), page, size));
+    }
+
+    @Override
+    public PageResult<Reader> findAllReader(int page, int size) {
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [READER] page: {}, size: {}", page, size);
+
+        return narrow(this.collection.find(hasRole(Role.Reader), Comparator.comparing(User::getId), page, size));
+    }
+
+    @Override
+    public PageResult<Reviewer> findAllReviewer(int page, int size) {
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [REVIEWER] page: {}, size: {}", page, size);
+
+        return narrow(this.collection.find(hasRole(Role.Reviewer), Comparator.comparing(User::getId), page, size));
+    }
+
+    @Override
+    public PageResult<User> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return this.collection.find(null, null, pagination, false);
+    }
+
+    @Override
+    public PageResult<Admin> findAllAdmin(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [ADMIN] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return narrow(this.collection.find(null, hasRole(Role.Admin), pagination, false));
+    }
+
+    @Override
+    public PageResult<Reader> findAllReader(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [READER] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return narrow(this.collection.find(null, hasRole(Role.Reader), pagination, false));
+    }
+
+    @Override
+    public PageResult<Reviewer> findAllReviewer(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [REVIEWER] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return narrow(this.collection.find(null, hasRole(Role.Reviewer), pagination, false));
+    }
+
+    @Override
+    public List<UserEmbed> findEmbeds(Collection<ObjectId> idUsers) {
+        Objects.requireNonNull(idUsers);
+
+        if(idUsers.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [MANY] [EMBED] ids: {}", idUsers.size());
+
+        return this.collection.find(idUsers).stream()
+                .map(UserEmbed::new)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Reviewer> findByGoodReadsExternIds(List<String> externUserIds) {
+        Objects.requireNonNull(externUserIds);
+
+        if(externUserIds.isEmpty()) return List.of();
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [BY EXTERN IDS] ids: {}", externUserIds.size());
+
+        List<Reviewer> reviewers = new ArrayList<>();
+        for (String externId : new LinkedHashSet<>(externUserIds)) {
+            for (User user : this.collection.findBy("externalId.goodReads", externId)) {
+                if (user instanceof Reviewer reviewer) reviewers.add(reviewer);
+            }
+        }
+        return reviewers;
+    }
+
+
+    /*
+     * Nothing to migrate: the local profile has no Neo4j, the graph queries read the store.
+     */
+
+    @Override
+    public void migrateReaders() {
+        logger.debug("[REPOSITORY] [USER] [MIGRATE READERS] no graph in the local profile");
+    }
+
+    @Override
+    public void migrateReviewers() {
+        logger.debug("[REPOSITORY] [USER] [MIGRATE REVIEWERS] no graph in the local profile");
+    }
+
+    @Override
+    public List<ObjectId> splitReadersForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public List<ObjectId> splitReviewersForMigration(int ranges) {
+        return List.of();
+    }
+
+    @Override
+    public long migrateReaders(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+    @Override
+    public long migrateReviewers(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return 0;
+    }
+
+    @Override
+    public void migrate() {
+        logger.debug("[REPOSITORY] [USER] [MIGRATE] no graph in the local profile");
+    }
+
+}
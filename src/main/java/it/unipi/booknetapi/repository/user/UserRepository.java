@@ -11,23 +11,40 @@ import com.mongodb.client.result.InsertOneResult;
 import com.mongodb.client.result.UpdateResult;
 import io.micrometer.core.instrument.MeterRegistry;
 import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.bucket.BucketType;
 import it.unipi.booknetapi.model.notification.NotificationEmbed;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxEventType;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.user.*;
+import it.unipi.booknetapi.repository.bucket.IdBucketRepository;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.cache.CacheInvalidationBroadcaster;
+import it.unipi.booknetapi.shared.lib.cache.NearCache;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
 import it.unipi.booknetapi.shared.lib.database.*;
+import it.unipi.booknetapi.shared.lib.graph.GraphProjection;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Values;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Repository
+@Profile("!local")
 public class UserRepository implements UserRepositoryInterface {
 
     Logger logger = LoggerFactory.getLogger(UserRepository.class);
@@ -41,13 +58,26 @@ public class UserRepository implements UserRepositoryInterface {
     private final MongoCollection<Admin> adminCollection;
     private final MongoCollection<Reader> readerCollection;
     private final MongoCollection<Reviewer> reviewerCollection;
+    private final MongoCollection<Document> notificationCollection;
     private final Neo4jManager neo4jManager;
     private final MeterRegistry registry;
+    private final AsyncManager asyncManager;
+    private final OutboxRepositoryInterface outboxRepository;
+    private final GraphProjection graphProjection;
+    private final IdBucketRepository idBucketRepository;
+    // Embedded form of the users (name, image, role), read per batch by the review imports
+    private final NearCache<UserEmbed> userEmbeds;
 
 
 
     public UserRepository(
             AppConfig appConfig,
+            AppConfiguration config,
+            CacheInvalidationBroadcaster broadcaster,
+            AsyncManager asyncManager,
+            OutboxRepositoryInterface outboxRepository,
+            GraphProjection graphProjection,
+            IdBucketRepository idBucketRepository,
             MongoClient mongoClient,
             MongoDatabase mongoDatabase,
             Neo4jManager neo4jManager,
@@ -59,8 +89,23 @@ public class UserRepository implements UserRepositoryInterface {
         this.adminCollection = mongoDatabase.getCollection("users", Admin.class);
         this.readerCollection = mongoDatabase.getCollection("users", Reader.class);
         this.reviewerCollection = mongoDatabase.getCollection("users", Reviewer.class);
+        this.notificationCollection = mongoDatabase.getCollection("notifications");
+        // Keyset pagination of the role lists
+        this.userCollection.createIndex(Indexes.compoundIndex(Indexes.ascending("role"), Indexes.ascending("_id")));
         this.neo4jManager = neo4jManager;
         this.registry = registry;
+        this.asyncManager = asyncManager;
+        this.outboxRepository = outboxRepository;
+        this.graphProjection = graphProjection;
+        this.idBucketRepository = idBucketRepository;
+        this.userEmbeds = new NearCache<>(
+                "users.embed",
+                config.getLong("app.cache.user-embed.max-size", 100000L),
+                (id, embed) -> 1,
+                Duration.ofSeconds(config.getLong("app.cache.user-embed.ttl-seconds", 600L)),
+                registry,
+                broadcaster
+        );
     }
 
 
@@ -118,8 +163,7 @@ public class UserRepository implements UserRepositoryInterface {
 
         InsertOneResult insertOneResult = this.userCollection.insertOne(user);
         if(insertOneResult.getInsertedId() != null && user.getRole() != null && user.getRole().isAddInNeo4j()) {
-            Thread thread = new Thread(() -> saveReaderToNeo4j(user));
-            thread.start();
+            this.asyncManager.execute(Workload.NEO4J_SYNC, () -> saveReaderToNeo4j(user));
         }
 
         return insertOneResult.wasAcknowledged() ? user : null;
@@ -130,7 +174,8 @@ public class UserRepository implements UserRepositoryInterface {
 
         this.registry.timer("neo4j.ops", "query", "save_reader").record(() -> {
             try (Session session = this.neo4jManager.getDriver().session()) {
-                String cypher = "CREATE (r:Reader {mid: $userId, name: $userName})";
+                // MERGE: the outbox relay may have created the node first, from a shelf or review event
+                String cypher = "MERGE (r:Reader {mid: $userId}) SET r.name = $userName";
                 session.executeWrite(
                         tx -> {
                             tx.run(
@@ -198,7 +243,7 @@ public class UserRepository implements UserRepositoryInterface {
                     session.executeWrite(
                             tx -> {
                                 tx.run(
-                                        "UNWIND $users as user CREATE (r:Reader {mid: user.userId, name: user.userName})",
+                                        "UNWIND $users as user MERGE (r:Reader {mid: user.userId}) SET r.name = user.userName",
                                         Values.parameters("users", noe4jBatch)
                                 );
                                 return null;
@@ -235,6 +280,7 @@ public class UserRepository implements UserRepositoryInterface {
                 if(updateResult.getModifiedCount() > 0) {
                     this.updateReaderNameInNeo4j(idUser, newName);
                     mongoSession.commitTransaction();
+                    this.userEmbeds.invalidate(idUser);
 
                     return true;
                 }
@@ -308,6 +354,36 @@ public class UserRepository implements UserRepositoryInterface {
         return updateResult.getModifiedCount() > 0;
     }
 
+    /**
+     * Replaces the password hash only if it is still the one that was checked,
+     * so a password changed in the meantime is not overwritten.
+     * @param idUser user's id
+     * @param currentHash hash the new one replaces
+     * @param newHash new hash of the same password
+     * @return true if the hash was replaced
+     */
+    @Override
+    public boolean rehashPassword(String idUser, String currentHash, String newHash) {
+        Objects.requireNonNull(idUser);
+        Objects.requireNonNull(currentHash);
+        Objects.requireNonNull(newHash);
+
+        if(!ObjectId.isValid(idUser)) return false;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [REHASH PASSWORD] user id: {}", idUser);
+
+        UpdateResult updateResult = this.userCollection
+                .updateOne(
+                        Filters.and(
+                                Filters.eq("_id", new ObjectId(idUser)),
+                                Filters.eq("password", currentHash)
+                        ),
+                        Updates.set("password", newHash)
+                );
+
+        return updateResult.getModifiedCount() > 0;
+    }
+
     /**
      * @param idUser user's id
      * @param newImageUrl user's new image url
@@ -325,6 +401,7 @@ public class UserRepository implements UserRepositoryInterface {
                         Filters.eq("_id", new ObjectId(idUser)),
                         Updates.set("imageUrl", newImageUrl)
                 );
+        this.userEmbeds.invalidate(idUser);
 
         return updateResult.getModifiedCount() > 0;
     }
@@ -349,6 +426,11 @@ public class UserRepository implements UserRepositoryInterface {
 
         if(updateResult.getModifiedCount() > 0) {
             updateNeo4jPreferenceThread(idUser, preference);
+            this.graphProjection.onPreference(
+                    idUser,
+                    preference.getAuthors() == null ? List.of() : preference.getAuthors().stream().filter(a -> a.getId() != null).map(a -> a.getId().toHexString()).toList(),
+                    preference.getGenres() == null ? List.of() : preference.getGenres().stream().filter(g -> g.getId() != null).map(g -> g.getId().toHexString()).toList()
+            );
             return true;
         }
 
@@ -357,8 +439,7 @@ public class UserRepository implements UserRepositoryInterface {
 
 
     private void updateNeo4jPreferenceThread(String idUser, ReaderPreference preference) {
-        Thread thread = new Thread(() -> updateNeo4jPreference(idUser, preference));
-        thread.start();
+        this.asyncManager.execute(Workload.NEO4J_SYNC, () -> updateNeo4jPreference(idUser, preference));
     }
 
     private void updateNeo4jPreference(String idUser, ReaderPreference preference) {
@@ -542,7 +623,7 @@ public class UserRepository implements UserRepositoryInterface {
 
     /**
      * @param idUser user's id
-     * @return list of books in the shelf
+     * @return list of books in the shelf, the rest of the reader is not read
      */
     @Override
     public List<UserBookShelf> getShelf(String idUser) {
@@ -553,8 +634,11 @@ public class UserRepository implements UserRepositoryInterface {
 
         ObjectId userId = new ObjectId(idUser);
 
-        Reader reader = this.readerCollection.find(Filters.eq("_id", userId)).first();
-        if(reader == null) return List.of();
+        Reader reader = this.readerCollection
+                .find(Filters.eq("_id", userId))
+                .projection(Projections.include("shelf"))
+                .first();
+        if(reader == null || reader.getShelf() == null) return List.of();
 
         return reader.getShelf();
     }
@@ -583,74 +667,44 @@ public class UserRepository implements UserRepositoryInterface {
             try {
                 UpdateResult updateResult = this.userCollection
                         .updateOne(
+                                mongoSession,
                                 Filters.eq("_id", new ObjectId(idUser)),
                                 Updates.set("shelf", shelf)
                         );
 
                 if(updateResult.getModifiedCount() > 0) {
-                    updateShelfNeo4j(idUser, shelf);
+                    this.outboxRepository.insertAll(
+                            mongoSession,
+                            shelf.stream()
+                                    .map(item -> shelfUpsertEvent(idUser, item.getBook(), item.getStatus(), item.getDateUpdated()))
+                                    .toList()
+                    );
                     mongoSession.commitTransaction();
+                    shelf.forEach(item -> this.graphProjection.onShelf(idUser, item.getBook().getId().toHexString(), item.getStatus()));
                     return true;
                 } else {
                     mongoSession.abortTransaction();
                 }
             } catch (Exception e) {
                 mongoSession.abortTransaction();
+                logger.error("[REPOSITORY] [READER] [UPDATE] [SHELF] Error during shelf update: {}", e.getMessage());
             }
         }
 
         return false;
     }
 
-    private void updateShelfNeo4j(String idUser, List<UserBookShelf> shelf) {
-        Objects.requireNonNull(idUser);
-        Objects.requireNonNull(shelf);
-
-        logger.debug("[REPOSITORY] [READER] [UPDATE] [SHELF] user id: {}", idUser);
-
-        List<Map<String, Object>> batch = shelf.stream()
-                .map(item -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("bookId", item.getBook().getId().toHexString());
-                    map.put("status", item.getStatus());
-                    // No need for 'bookTitle' or other fields
-                    return map;
-                })
-                .toList();
-
-        this.registry.timer("neo4j.ops", "query", "update_shelf").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-                session.executeWrite(tx -> {
-                    String cypher = """
-                        // 1. Find the User
-                        MATCH (r:Reader {mid: $userId})
-                    
-                        // 2. Iterate through the list of books
-                        UNWIND $batch AS row
-                    
-                        // 3. STRICT MATCH: Find the book by its Mongo ID
-                        // If the book does not exist in Neo4j, this line fails for that row,
-                        // and the rest of the operations (MERGE relationship) are SKIPPED for that specific book.
-                        MATCH (b:Book {mid: row.bookId})
-                    
-                        // 4. If we survived the MATCH above, create/update the relationship
-                        MERGE (r)-[rel:ADDED_TO_SHELF]->(b)
-                    
-                        // 5. Update Relationship Properties
-                        SET rel.ts = datetime(),
-                            rel.status = row.status
-                    """;
-                    tx.run(
-                            cypher,
-                            Values.parameters(
-                                "userId", idUser,
-                                    "batch", batch
-                            )
-                    );
-                    return null;
-                });
-            }
-        });
+    /**
+     * @param status the new status, null to keep the one already in the graph
+     */
+    private OutboxEvent shelfUpsertEvent(String idUser, BookEmbed book, BookShelfStatus status, Date date) {
+        Document payload = new Document("userId", idUser)
+                .append("bookId", book.getId().toHexString())
+                .append("bookTitle", book.getTitle())
+                .append("status", status != null ? status.name() : null)
+                .append("ts", date != null ? date.getTime() : System.currentTimeMillis());
+
+        return OutboxEvent.of(OutboxEventType.SHELF_UPSERT, payload);
     }
 
     /**
@@ -676,71 +730,28 @@ public class UserRepository implements UserRepositoryInterface {
             try {
                 UpdateResult updateResult = this.userCollection
                         .updateOne(
+                                mongoSession,
                                 Filters.eq("_id", new ObjectId(idUser)),
                                 Updates.push("shelf", bookShelf)
                         );
 
                 if(updateResult.getModifiedCount() > 0) {
-                    addBookInShelfNeo4j(idUser, book);
+                    this.outboxRepository.insert(mongoSession, shelfUpsertEvent(idUser, book, null, bookShelf.getDateAdded()));
                     mongoSession.commitTransaction();
+                    this.graphProjection.onShelf(idUser, book.getId().toHexString(), null);
                     return true;
                 } else {
                     mongoSession.abortTransaction();
                 }
             } catch (Exception e) {
                 mongoSession.abortTransaction();
+                logger.error("[REPOSITORY] [READER] [UPDATE] [ADD BOOK IN SHELF] Error during shelf update: {}", e.getMessage());
             }
         }
 
         return false;
     }
 
-    private void addBookInShelfNeo4j(String idUser, BookEmbed book) {
-        Objects.requireNonNull(idUser);
-        Objects.requireNonNull(book);
-
-        logger.debug("[REPOSITORY] [READER] [UPDATE] [ADD BOOK IN SHELF] user id: {}", idUser);
-
-        this.registry.timer("neo4j.ops", "query", "add_to_shelf").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-
-                session.executeWrite(tx -> {
-                    String cypher = """
-                    MATCH (r:Reader {mid: $userId})
-                    
-                    // 1. Ensure the Book exists in the Graph
-                    // We merge on 'mid' (Mongo ID) to avoid duplicates
-                    MERGE (b:Book {mid: $bookId})
-                    
-                    // 2. If the book is new to Neo4j, initialize its properties
-                    ON CREATE SET
-                        b.id = randomUUID(),  // Generate a Neo4j-specific UUID
-                        b.title = $bookTitle
-                    
-                    // 3. Create the Shelf Relationship
-                    MERGE (r)-[rel:ADDED_TO_SHELF]->(b)
-                    
-                    // 4. Update Relationship Properties
-                    SET rel.ts = datetime(),
-                        // Default to 'WANT_TO_READ' if status is missing,
-                        // otherwise keep the existing status
-                        rel.status = COALESCE(rel.status, 'ADDED')
-                    """;
-
-                    tx.run(
-                            cypher,
-                            Values.parameters(
-                                "userId", idUser,
-                                "bookId", book.getId().toHexString(),
-                                "bookTitle", book.getTitle()
-                            )
-                    );
-                    return null;
-                });
-            }
-        });
-    }
-
     /**
      * @param idUser user's id
      * @param idBook book's id
@@ -754,39 +765,37 @@ public class UserRepository implements UserRepositoryInterface {
 
         logger.debug("[REPOSITORY] [READER] [UPDATE] [REMOVE BOOK FROM SHELF] user id: {}", idUser);
 
-        UpdateResult updateResult = this.userCollection.updateOne(
-                Filters.eq("_id", new ObjectId(idUser)),
-                Updates.pull("shelf", Filters.eq("_id", new ObjectId(idBook)))
-        );
+        try (ClientSession mongoSession = this.mongoClient.startSession()) {
+            mongoSession.startTransaction();
 
-        if(updateResult.getModifiedCount() > 0) {
-            Runnable task = () -> this.removeBookFromShelfNeo4j(idUser, idBook);
-            Thread thread = new Thread(task);
-            thread.start();
+            try {
+                UpdateResult updateResult = this.userCollection.updateOne(
+                        mongoSession,
+                        Filters.eq("_id", new ObjectId(idUser)),
+                        Updates.pull("shelf", Filters.eq("_id", new ObjectId(idBook)))
+                );
+
+                if(updateResult.getModifiedCount() > 0) {
+                    // Through the outbox: applied after the pending upserts of the same edge
+                    this.outboxRepository.insert(mongoSession, OutboxEvent.of(
+                            OutboxEventType.SHELF_DELETE,
+                            new Document("userId", idUser).append("bookId", idBook)
+                    ));
+                    mongoSession.commitTransaction();
+                    this.graphProjection.onShelfRemoved(idUser, idBook);
+                    return true;
+                } else {
+                    mongoSession.abortTransaction();
+                }
+            } catch (Exception e) {
+                mongoSession.abortTransaction();
+                logger.error("[REPOSITORY] [READER] [UPDATE] [REMOVE BOOK FROM SHELF] Error during shelf update: {}", e.getMessage());
+            }
         }
 
         return false;
     }
 
-    private void removeBookFromShelfNeo4j(String idUser, String idBook) {
-        Objects.requireNonNull(idUser);
-        Objects.requireNonNull(idBook);
-
-        logger.debug("[REPOSITORY] [READER] [UPDATE] [REMOVE BOOK FROM SHELF] [NEO4J] user id: {}", idUser);
-
-        this.registry.timer("neo4j.ops", "query", "remove_from_shelf").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-                session.executeWrite(tx -> {
-                    tx.run(
-                            "MATCH (r:Reader {mid: $userId})-[rel:ADDED_TO_SHELF]->(b:Book {mid: $bookId}) DELETE rel",
-                            Values.parameters("userId", idUser, "bookId", idBook)
-                    );
-                    return null;
-                });
-            }
-        });
-    }
-
 
     /**
      * @param idUser user's id
@@ -821,6 +830,7 @@ public class UserRepository implements UserRepositoryInterface {
         if (result.getMatchedCount() == 0) return this.addBookInShelf(idUser, book);
 
         updateShelfStatusNeo4j(idUser, book, newStatus);
+        this.graphProjection.onShelf(idUser, book.getId().toHexString(), newStatus);
 
         return true;
     }
@@ -874,23 +884,23 @@ public class UserRepository implements UserRepositoryInterface {
 
         logger.debug("[REPOSITORY] [USER] [UPDATE] [ADD REVIEW] user id: {}", review.getUser().getId().toHexString());
 
-        UpdateResult updateResult = this.userCollection.updateOne(
-                Filters.eq("_id", review.getUser().getId()),
-                Updates.push("reviews", review.getId())
-        );
+        boolean exists = this.userCollection
+                .find(Filters.eq("_id", review.getUser().getId()))
+                .projection(Projections.include("_id"))
+                .first() != null;
+        if(!exists) return false;
 
-        if(updateResult.getModifiedCount() > 0) {
-            Runnable task = () -> this.addReviewInNeo4j(
-                    review.getUser().getId().toHexString(),
-                    review.getBookId().toHexString(),
-                    review.getRating(),
-                    review.getDateAdded()
-            );
-            Thread thread = new Thread(task);
-            thread.start();
-        }
+        this.idBucketRepository.append(BucketType.USER_REVIEWS, review.getUser().getId(), List.of(review.getId()));
 
-        return updateResult.getModifiedCount() > 0;
+        Runnable task = () -> this.addReviewInNeo4j(
+                review.getUser().getId().toHexString(),
+                review.getBookId().toHexString(),
+                review.getRating(),
+                review.getDateAdded()
+        );
+        this.asyncManager.execute(Workload.NEO4J_SYNC, task);
+
+        return true;
     }
 
     private void addReviewInNeo4j(String idUser, String idBook, Integer rating, Date date) {
@@ -929,62 +939,34 @@ public class UserRepository implements UserRepositoryInterface {
 
         logger.debug("[REPOSITORY] [USER] [UPDATE] [DELETE REVIEW] user id: {}", idUser);
 
-        UpdateResult updateResult = this.userCollection.updateOne(
-                Filters.and(
-                    Filters.eq("_id", new ObjectId(idUser)),
-                    Filters.elemMatch("reviews", Filters.eq("$_id", new ObjectId(idReview)))
-                ),
-                Updates.pull("reviews", Filters.eq("$_id", new ObjectId(idReview)))
-        );
+        boolean removed = this.idBucketRepository.remove(BucketType.USER_REVIEWS, new ObjectId(idUser), List.of(new ObjectId(idReview)));
 
-        if(updateResult.getModifiedCount() > 0) {
-            Runnable task = () -> this.deleteReviewInNeo4j(idUser, idBook);
-            Thread thread = new Thread(task);
-            thread.start();
+        if(removed) {
+            // The bucket update spans several documents, the event is written right after it
+            this.outboxRepository.insert(OutboxEvent.of(
+                    OutboxEventType.REVIEW_DELETE,
+                    new Document("userId", idUser).append("bookId", idBook)
+            ));
         }
 
-        return updateResult.getModifiedCount() > 0;
-    }
-
-    private void deleteReviewInNeo4j(String idUser, String idBook) {
-        Objects.requireNonNull(idBook);
-        Objects.requireNonNull(idUser);
-
-        logger.debug("[REPOSITORY] [USER] [UPDATE] [DELETE REVIEW] [NEO4J] user id: {}", idUser);
-
-        this.registry.timer("neo4j.ops", "query", "delete_review").record(() -> {
-            try (Session session = this.neo4jManager.getDriver().session()) {
-                session.executeWrite(tx -> {
-                    tx.run(
-                            "MATCH (r:Reader {mid: $userId})-[rel:RATER]->(b:Book {mid: $bookId}) DELETE rel",
-                            Values.parameters("userId", idUser, "bookId", idBook)
-                    );
-                    return null;
-                });
-            }
-        });
+        return removed;
     }
 
     /**
-     * @param idUser
-     * @return
+     * @param idUser user's id
+     * @param pagination page/size or cursor/size
+     * @return a page of the review ids of the user, newest first
      */
     @Override
-    public List<ObjectId> getReviewsIds(String idUser) {
+    public PageResult<ObjectId> getReviewsIds(String idUser, PaginationRequest pagination) {
         Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
 
-        if(!ObjectId.isValid(idUser)) return List.of();
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
 
         logger.debug("[REPOSITORY] [USER] [GET REVIEWS IDS] user id: {}", idUser);
 
-        Reader reader = this.readerCollection
-                .find(Filters.eq("_id", new ObjectId(idUser)))
-                .projection(Projections.include("reviews"))
-                .first();
-
-        if(reader == null) return List.of();
-
-        return reader.getReviews();
+        return this.idBucketRepository.findIds(BucketType.USER_REVIEWS, new ObjectId(idUser), pagination);
     }
 
     /**
@@ -1000,21 +982,95 @@ public class UserRepository implements UserRepositoryInterface {
 
         ObjectId oidUser = new ObjectId(idUser);
 
-        Bson update = Updates.combine(
-                Updates.push("notifications", notification.getId()),
-
-                Updates.pushEach("lastNotifications",
-                        List.of(notification),
-                        new PushOptions()
-                                .position(0)
-                                .slice(MAX_LAST_NOTIFICATIONS)
-                )
+        // The full list goes to the buckets, the user document only keeps the latest ones
+        Bson update = Updates.pushEach("lastNotifications",
+                List.of(notification),
+                new PushOptions()
+                        .position(0)
+                        .slice(MAX_LAST_NOTIFICATIONS)
         );
 
         UpdateResult result = this.userCollection.updateOne(Filters.eq("_id", oidUser), update);
+        if(result.getModifiedCount() > 0) {
+            this.idBucketRepository.append(BucketType.USER_NOTIFICATIONS, oidUser, List.of(notification.getId()));
+            incrementUnreadNotifications(idUser, 1);
+        }
         return result.getModifiedCount() > 0;
     }
 
+    /**
+     * Adds delta to the unread counter of the user. Users without a counter are left alone:
+     * their counter is initialized from a count at startup (NotificationService).
+     * @param idUser admin's id
+     * @param delta negative to decrement
+     */
+    @Override
+    public void incrementUnreadNotifications(String idUser, long delta) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser) || delta == 0) return;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [UNREAD NOTIFICATIONS] user id: {}, delta: {}", idUser, delta);
+
+        this.userCollection.updateOne(
+                Filters.and(
+                        Filters.eq("_id", new ObjectId(idUser)),
+                        Filters.exists("unreadNotifications")
+                ),
+                Updates.inc("unreadNotifications", (int) delta)
+        );
+    }
+
+    /**
+     * Sets the unread counter of the admins created before it, from their unread notifications.
+     * The count and the write are one aggregation ending in a $merge on the user: a counter is only
+     * written where it is still absent, so an admin initialized meanwhile (by another instance) keeps
+     * the counter its increments already moved.
+     * @return number of admins whose counter was absent
+     */
+    @Override
+    public long initUnreadNotifications() {
+        List<ObjectId> admins = new ArrayList<>();
+        this.userCollection
+                .find(Filters.and(
+                        Filters.eq("role", Role.Admin),
+                        Filters.exists("unreadNotifications", false)
+                ))
+                .projection(Projections.include("_id", "role"))
+                .forEach(user -> admins.add(user.getId()));
+
+        if(admins.isEmpty()) return 0;
+
+        logger.debug("[REPOSITORY] [USER] [UPDATE] [INIT UNREAD NOTIFICATIONS] admins: {}", admins.size());
+
+        this.notificationCollection.aggregate(List.of(
+                Aggregates.match(Filters.and(
+                        Filters.in("userId", admins),
+                        Filters.ne("read", true)
+                )),
+                Aggregates.group("$userId", Accumulators.sum("unread", 1)),
+                Aggregates.merge("users", new MergeOptions()
+                        .whenMatched(MergeOptions.WhenMatched.PIPELINE)
+                        .whenMatchedPipeline(List.of(Aggregates.set(new Field<>(
+                                "unreadNotifications",
+                                new Document("$ifNull", List.of("$unreadNotifications", "$$new.unread"))
+                        ))))
+                        .whenNotMatched(MergeOptions.WhenNotMatched.DISCARD)
+                )
+        )).toCollection();
+
+        // Admins without unread notifications are not in the aggregation
+        this.userCollection.updateMany(
+                Filters.and(
+                        Filters.in("_id", admins),
+                        Filters.exists("unreadNotifications", false)
+                ),
+                Updates.set("unreadNotifications", 0)
+        );
+
+        return admins.size();
+    }
+
     /**
      * @param idUser
      * @param idNotification
@@ -1032,14 +1088,13 @@ public class UserRepository implements UserRepositoryInterface {
         ObjectId oidUser = new ObjectId(idUser);
         ObjectId oidNotification = new ObjectId(idNotification);
 
-        Bson update = Updates.combine(
-                Updates.pull("notifications", oidNotification),
+        boolean removed = this.idBucketRepository.remove(BucketType.USER_NOTIFICATIONS, oidUser, List.of(oidNotification));
 
+        UpdateResult result = this.userCollection.updateOne(
+                Filters.eq("_id", oidUser),
                 Updates.pull("lastNotifications", Filters.eq("_id", oidNotification))
         );
-
-        UpdateResult result = this.userCollection.updateOne(Filters.eq("_id", oidUser), update);
-        return result.getModifiedCount() > 0;
+        return removed || result.getModifiedCount() > 0;
     }
 
     /**
@@ -1066,18 +1121,14 @@ public class UserRepository implements UserRepositoryInterface {
 
             if(notificationIds.isEmpty()) return true;
 
-            Bson update = Updates.combine(
-                    Updates.pullAll("notifications", notificationIds),
-
-                    Updates.pull("lastNotifications", Filters.in("_id", notificationIds))
-            );
+            boolean removed = this.idBucketRepository.remove(BucketType.USER_NOTIFICATIONS, userObjectId, notificationIds);
 
             UpdateResult result = this.userCollection.updateOne(
                     Filters.eq("_id", userObjectId),
-                    update
+                    Updates.pull("lastNotifications", Filters.in("_id", notificationIds))
             );
 
-            return result.getModifiedCount() > 0;
+            return removed || result.getModifiedCount() > 0;
 
         } catch (IllegalArgumentException e) {
             return false;
@@ -1086,24 +1137,19 @@ public class UserRepository implements UserRepositoryInterface {
 
     /**
      * @param idUser admin's id
-     * @return list of notification ids if this user has notifications or empty list if the user has no notifications or if the user is not an admin
+     * @param pagination page/size or cursor/size
+     * @return a page of the notification ids of the user, newest first; empty if the user has no notifications or is not an admin
      */
     @Override
-    public List<ObjectId> getNotificationsIds(String idUser) {
+    public PageResult<ObjectId> getNotificationsIds(String idUser, PaginationRequest pagination) {
         Objects.requireNonNull(idUser);
+        Objects.requireNonNull(pagination);
 
-        if(!ObjectId.isValid(idUser)) return List.of();
+        if(!ObjectId.isValid(idUser)) return new PageResult<>(List.of(), 0, pagination.getPage(), pagination.getSize());
 
         logger.debug("[REPOSITORY] [ADMIN] [GET NOTIFICATION IDS] user id: {}", idUser);
 
-        Admin admin = this.adminCollection
-                .find(Filters.eq("_id", new ObjectId(idUser)))
-                .projection(Projections.include("notifications"))
-                .first();
-
-        if(admin == null) return List.of();
-
-        return admin.getNotifications();
+        return this.idBucketRepository.findIds(BucketType.USER_NOTIFICATIONS, new ObjectId(idUser), pagination);
     }
 
     /**
@@ -1126,6 +1172,8 @@ public class UserRepository implements UserRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteUserFromNeo4j(idUser);
                     mongoSession.commitTransaction();
+                    deleteBuckets(List.of(new ObjectId(idUser)));
+                    this.userEmbeds.invalidate(idUser);
                     return true;
                 } else {
                     mongoSession.abortTransaction();
@@ -1138,6 +1186,11 @@ public class UserRepository implements UserRepositoryInterface {
         return false;
     }
 
+    private void deleteBuckets(List<ObjectId> idUsers) {
+        this.idBucketRepository.deleteOwners(BucketType.USER_REVIEWS, idUsers);
+        this.idBucketRepository.deleteOwners(BucketType.USER_NOTIFICATIONS, idUsers);
+    }
+
     private void deleteUserFromNeo4j(String idUser) {
         Objects.requireNonNull(idUser);
 
@@ -1188,6 +1241,8 @@ public class UserRepository implements UserRepositoryInterface {
                 if(deleteResult.getDeletedCount() > 0) {
                     deleteUsersBatchFromNeo4j(ids);
                     mongoSession.commitTransaction();
+                    deleteBuckets(ids.stream().map(ObjectId::new).toList());
+                    this.userEmbeds.invalidateAll(ids);
                     return true;
                 }
             } catch (Exception e) {
@@ -1244,6 +1299,48 @@ public class UserRepository implements UserRepositoryInterface {
         return user != null ? Optional.of(user) : Optional.empty();
     }
 
+    /**
+     * @param idUser admin's id
+     * @return the embedded latest notifications, null if there is no admin with this id
+     */
+    @Override
+    public List<NotificationEmbed> findLastNotifications(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return null;
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [LAST NOTIFICATIONS] user id: {}", idUser);
+
+        User user = this.userCollection
+                .find(Filters.eq("_id", new ObjectId(idUser)))
+                .projection(Projections.include(Admin.NOTIFICATIONS_FIELDS))
+                .first();
+
+        if(!(user instanceof Admin admin)) return null;
+
+        return admin.getLastNotifications() != null ? admin.getLastNotifications() : List.of();
+    }
+
+    /**
+     * @param idUser admin's id
+     * @return the admin with only its unread counter read, null if there is no admin with this id
+     */
+    @Override
+    public Admin findUnreadNotifications(String idUser) {
+        Objects.requireNonNull(idUser);
+
+        if(!ObjectId.isValid(idUser)) return null;
+
+        logger.debug("[REPOSITORY] [USER] [FIND] [UNREAD NOTIFICATIONS] user id: {}", idUser);
+
+        User user = this.userCollection
+                .find(Filters.eq("_id", new ObjectId(idUser)))
+                .projection(Projections.include(Admin.UNREAD_FIELDS))
+                .first();
+
+        return user instanceof Admin admin ? admin : null;
+    }
+
     /**
      * @param idUser user's id
      * @return a reader associated with the given id or empty if not found
@@ -1366,6 +1463,82 @@ public class UserRepository implements UserRepositoryInterface {
         return new PageResult<>(users, total, page, size);
     }
 
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of users
+     */
+    @Override
+    public PageResult<User> findAll(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.userCollection, null, pagination, User::getId, false);
+    }
+
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of users with role ADMIN
+     */
+    @Override
+    public PageResult<Admin> findAllAdmin(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [ADMIN] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.adminCollection, Filters.eq("role", Role.Admin), pagination, Admin::getId, false);
+    }
+
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of users with role READER
+     */
+    @Override
+    public PageResult<Reader> findAllReader(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [READER] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.readerCollection, Filters.eq("role", Role.Reader), pagination, Reader::getId, false);
+    }
+
+    /**
+     * @param pagination page/size, or cursor/size for keyset pagination on _id
+     * @return page of users with role REVIEWER
+     */
+    @Override
+    public PageResult<Reviewer> findAllReviewer(PaginationRequest pagination) {
+        Objects.requireNonNull(pagination);
+
+        logger.debug("[REPOSITORY] [USER] [FIND MANY] [REVIEWER] page: {}, cursor: {}, size: {}", pagination.getPage(), pagination.getCursor(), pagination.getSize());
+
+        return MongoPagination.find(this.reviewerCollection, Filters.eq("role", Role.Reviewer), pagination, Reviewer::getId, false);
+    }
+
+    /**
+     * @param idUsers user's ids
+     * @return the embedded form of the users found, from the embed cache; the misses are read with one projected $in
+     */
+    @Override
+    public List<UserEmbed> findEmbeds(Collection<ObjectId> idUsers) {
+        Objects.requireNonNull(idUsers);
+
+        if(idUsers.isEmpty()) return List.of();
+
+        List<String> keys = idUsers.stream().map(ObjectId::toHexString).distinct().toList();
+
+        return new ArrayList<>(this.userEmbeds.getAll(keys, misses -> {
+            logger.debug("[REPOSITORY] [USER] [FIND] [MANY] [EMBED] ids: {}, misses: {}", keys.size(), misses.size());
+
+            Map<String, UserEmbed> embeds = new HashMap<>(misses.size());
+            this.userCollection
+                    .find(Filters.in("_id", misses.stream().map(ObjectId::new).toList()))
+                    .projection(Projections.include(UserEmbed.FIELDS))
+                    .forEach(user -> embeds.put(user.getId().toHexString(), new UserEmbed(user)));
+            return embeds;
+        }).values());
+    }
+
     /**
      * @param externUserIds extern user ids
      * @return list of user associate at these ids
@@ -1390,51 +1563,37 @@ public class UserRepository implements UserRepositoryInterface {
     public void migrateReaders() {
         logger.debug("[REPOSITORY] [USER] [MIGRATE READERS]");
 
-        /*long total = this.userCollection
-                .countDocuments(Filters.eq("role", Role.Reader.name()));
+        long migrated = migrateReaders(null, null, null);
 
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
-
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Reader> readers = this.readerCollection
-                    .find(Filters.eq("role", Role.Reader.name()))
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            importReadersWithRelationships(readers);
-        }*/
-
-
-        int offset = 0;
-
-        ObjectId lastId = new ObjectId("000000000000000000000000");
-
-        while(true) {
-            logger.debug("[REPOSITORY] [READER] [MIGRATE] [MONGODB TO NEO4J] Migrated batch: {} to {}", offset, offset + batchSize);
-
-            List<Reader> readers = this.readerCollection
-                    .find(
-                            Filters.and(
-                                    Filters.gt("_id", lastId),
-                                    Filters.eq("role", Role.Reader.name())
-                            )
-                    )
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>())
-                    // .stream().filter(u -> u.getRole() != null && u.getRole() == Role.Reviewer)
-                    // .toList()
-                    ;
-
-            if(readers.isEmpty()) break;
-
-            lastId = readers.getLast().getId();
+        logger.debug("[REPOSITORY] [USER] [MIGRATE READERS] [END] readers: {}", migrated);
+    }
 
-            importReadersWithRelationships(readers);
+    @Override
+    public List<ObjectId> splitReadersForMigration(int ranges) {
+        return MongoRanges.split(this.readerCollection, Filters.eq("role", Role.Reader.name()), ranges);
+    }
 
-            offset += this.batchSize;
-        }
+    /**
+     * Copies the readers with afterId < _id <= upToId to Neo4j, with their shelf and preferences.
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return readers migrated
+     */
+    @Override
+    public long migrateReaders(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [READER] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
+
+        return MongoRanges.walk(
+                this.readerCollection,
+                Filters.eq("role", Role.Reader.name()),
+                afterId,
+                upToId,
+                this.batchSize,
+                Reader::getId,
+                this::importReadersWithRelationships,
+                onBatch
+        );
     }
 
     private void importReadersWithRelationships(List<Reader> readers) {
@@ -1543,51 +1702,37 @@ public class UserRepository implements UserRepositoryInterface {
     public void migrateReviewers() {
         logger.debug("[REPOSITORY] [USER] [MIGRATE] Reviewers");
 
-        /*long total = this.userCollection
-                .countDocuments(Filters.eq("role", Role.Reader.name()));
-
-        int totalPages = (int) Math.ceil((double) total / this.batchSize);
-
-        for(int page = 0; page < totalPages; page++) {
-            int skip = page * this.batchSize;
-            List<Reviewer> reviewers = this.reviewerCollection
-                    .find(Filters.eq("role", Role.Reviewer.name()))
-                    .skip(skip)
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>());
-
-            bulkUpsertUsers(reviewers);
-        }*/
-
-        int offset = 0;
+        long migrated = migrateReviewers(null, null, null);
 
-        ObjectId lastId = new ObjectId("000000000000000000000000");
-
-        while(true) {
-            logger.debug("[REPOSITORY] [REVIEWER] [MIGRATE] [MONGODB TO NEO4J] Migrated batch: {} to {}", offset, offset + batchSize);
-
-            List<Reviewer> reviewers = this.reviewerCollection
-                    .find(
-                            Filters.and(
-                                    Filters.gt("_id", lastId),
-                                    Filters.eq("role", Role.Reviewer.name())
-                            )
-                    )
-                    .limit(this.batchSize)
-                    .into(new ArrayList<>())
-                    // .stream().filter(u -> u.getRole() != null && u.getRole() == Role.Reviewer)
-                    // .toList()
-                    ;
-
-            if(reviewers.isEmpty()) break;
-
-            lastId = reviewers.getLast().getId();
-
-            bulkUpsertUsers(reviewers);
+        logger.debug("[REPOSITORY] [USER] [MIGRATE] Reviewers: {}", migrated);
+    }
 
-            offset += this.batchSize;
-        }
+    @Override
+    public List<ObjectId> splitReviewersForMigration(int ranges) {
+        return MongoRanges.split(this.reviewerCollection, Filters.eq("role", Role.Reviewer.name()), ranges);
+    }
 
+    /**
+     * Copies the reviewers with afterId < _id <= upToId to Neo4j, as Reader nodes.
+     * @param afterId exclusive lower bound, null for the start of the collection
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param onBatch receives the last _id and the size of every written batch, may be null
+     * @return reviewers migrated
+     */
+    @Override
+    public long migrateReviewers(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        logger.debug("[REPOSITORY] [REVIEWER] [MIGRATE] [RANGE] ({}, {}]", afterId, upToId);
+
+        return MongoRanges.walk(
+                this.reviewerCollection,
+                Filters.eq("role", Role.Reviewer.name()),
+                afterId,
+                upToId,
+                this.batchSize,
+                Reviewer::getId,
+                this::bulkUpsertUsers,
+                onBatch
+        );
     }
 
     private <T extends User> void bulkUpsertUsers(List<T> users) {
@@ -5,10 +5,13 @@ import it.unipi.booknetapi.model.notification.NotificationEmbed;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.user.*;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.bson.types.ObjectId;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
 
 public interface UserRepositoryInterface {
 
@@ -19,6 +22,7 @@ public interface UserRepositoryInterface {
     boolean updateName(String idUser, String newName);
     // boolean updateRole(String idUser, Role newRole);
     boolean updatePassword(String idUser, String newPassword);
+    boolean rehashPassword(String idUser, String currentHash, String newHash);
     boolean updateImage(String idUser, String newImageUrl);
     boolean updatePreference(String idUser, ReaderPreference preference);
 
@@ -32,17 +36,21 @@ public interface UserRepositoryInterface {
 
     boolean addReview(Review review);
     boolean deleteReview(String idUser, String idBook, String idReview);
-    List<ObjectId> getReviewsIds(String idUser);
+    PageResult<ObjectId> getReviewsIds(String idUser, PaginationRequest pagination);
 
     boolean addNotification(String idUser, NotificationEmbed notification);
     boolean deleteNotification(String idUser, String idNotification);
     boolean deleteNotification(String idUser, List<String> idNotification);
-    List<ObjectId> getNotificationsIds(String idUser);
+    PageResult<ObjectId> getNotificationsIds(String idUser, PaginationRequest pagination);
+    void incrementUnreadNotifications(String idUser, long delta);
+    long initUnreadNotifications();
 
     boolean delete(String idUser);
     boolean deleteAll(List<String> idUsers);
 
     Optional<User> findById(String idUser);
+    List<NotificationEmbed> findLastNotifications(String idUser);
+    Admin findUnreadNotifications(String idUser);
     Optional<Reader> findReaderById(String idUser);
 
     Optional<User> findByUsername(String username);
@@ -51,11 +59,20 @@ public interface UserRepositoryInterface {
     PageResult<Admin> findAllAdmin(int page, int size);
     PageResult<Reader> findAllReader(int page, int size);
     PageResult<Reviewer> findAllReviewer(int page, int size);
+    PageResult<User> findAll(PaginationRequest pagination);
+    PageResult<Admin> findAllAdmin(PaginationRequest pagination);
+    PageResult<Reader> findAllReader(PaginationRequest pagination);
+    PageResult<Reviewer> findAllReviewer(PaginationRequest pagination);
 
     List<Reviewer> findByGoodReadsExternIds(List<String> externUserIds);
+    List<UserEmbed> findEmbeds(Collection<ObjectId> idUsers);
 
     void migrateReaders();
     void migrateReviewers();
+    List<ObjectId> splitReadersForMigration(int ranges);
+    List<ObjectId> splitReviewersForMigration(int ranges);
+    long migrateReaders(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
+    long migrateReviewers(ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch);
 
     void migrate();
 
@@ -9,12 +9,14 @@ import it.unipi.booknetapi.model.author.AuthorEmbed;
 import it.unipi.booknetapi.model.genre.Genre;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.user.*;
-import it.unipi.booknetapi.repository.author.AuthorRepository;
-import it.unipi.booknetapi.repository.genre.GenreRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.author.AuthorRepositoryInterface;
+import it.unipi.booknetapi.repository.genre.GenreRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
 import it.unipi.booknetapi.shared.lib.authentication.JwtService;
 import it.unipi.booknetapi.shared.lib.authentication.UserToken;
 import it.unipi.booknetapi.shared.lib.encryption.EncryptionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -23,16 +25,18 @@ import java.util.List;
 @Service
 public class AuthService {
 
-    private final AuthorRepository authorRepository;
-    private final GenreRepository genreRepository;
-    private final UserRepository userRepository;
+    Logger logger = LoggerFactory.getLogger(AuthService.class);
+
+    private final AuthorRepositoryInterface authorRepository;
+    private final GenreRepositoryInterface genreRepository;
+    private final UserRepositoryInterface userRepository;
     private final JwtService jwtService;
     private final EncryptionManager encryptionManager;
 
     public AuthService(
-            AuthorRepository authorRepository,
-            GenreRepository genreRepository,
-            UserRepository userRepository,
+            AuthorRepositoryInterface authorRepository,
+            GenreRepositoryInterface genreRepository,
+            UserRepositoryInterface userRepository,
             JwtService jwtService,
             EncryptionManager encryptionManager
     ) {
@@ -50,6 +54,7 @@ public class AuthService {
         admin.setUsername(registrationRequest.getUsername());
         admin.setPassword(encryptionManager.hashPassword(registrationRequest.getPassword()));
         admin.setRole(Role.Admin);
+        admin.setUnreadNotifications(0);
         return new UserResponse(userRepository.insertWithThread(admin));
     }
 
@@ -100,9 +105,34 @@ public class AuthService {
             return null;
         }
 
+        if (encryptionManager.passwordNeedsRehash(user.getPassword())) {
+            rehashPassword(user, loginRequest.getPassword());
+        }
+
         return jwtService.createToken(user);
     }
 
+    /**
+     * Re-hashes with the configured cost in the background, the login does not wait for it.
+     * If the pool is busy the hash stays as it is until the next login.
+     */
+    private void rehashPassword(User user, String rawPassword) {
+        String idUser = user.getId().toHexString();
+        String currentHash = user.getPassword();
+
+        encryptionManager.hashPasswordAsync(rawPassword).whenComplete((newHash, error) -> {
+            if (error != null) {
+                logger.debug("[AUTH] [REHASH] user id: {} skipped: {}", idUser, error.getMessage());
+                return;
+            }
+            try {
+                userRepository.rehashPassword(idUser, currentHash, newHash);
+            } catch (Exception e) {
+                logger.warn("[AUTH] [REHASH] user id: {} failed: {}", idUser, e.getMessage());
+            }
+        });
+    }
+
     public String loginAlt(UserLoginRequest loginRequest) {
         User user = userRepository.findByUsername(loginRequest.getUsername())
                 .orElse(null);
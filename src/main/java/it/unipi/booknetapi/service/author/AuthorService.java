@@ -6,6 +6,7 @@ import it.unipi.booknetapi.dto.author.AuthorResponse;
 import it.unipi.booknetapi.dto.author.AuthorSimpleResponse;
 import it.unipi.booknetapi.dto.author.AuthorStatResponse;
 import it.unipi.booknetapi.dto.book.BookEmbedResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
 import it.unipi.booknetapi.model.author.Author;
 import it.unipi.booknetapi.model.author.AuthorEmbed;
@@ -14,8 +15,13 @@ import it.unipi.booknetapi.model.book.BookEmbed;
 import it.unipi.booknetapi.model.stat.ActivityType;
 import it.unipi.booknetapi.model.stat.ChartDataPoint;
 import it.unipi.booknetapi.model.stat.ChartHelper;
-import it.unipi.booknetapi.repository.author.AuthorRepository;
-import it.unipi.booknetapi.repository.stat.AnalyticsRepository;
+import it.unipi.booknetapi.repository.author.AuthorRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.AnalyticsRepositoryInterface;
+import it.unipi.booknetapi.service.leaderboard.LeaderboardService;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
@@ -26,20 +32,28 @@ import java.util.Objects;
 @Service
 public class AuthorService {
 
-    private final AnalyticsRepository analyticsRepository;
-    private final AuthorRepository authorRepository;
+    private final AnalyticsRepositoryInterface analyticsRepository;
+    private final AsyncManager asyncManager;
+    private final AuthorRepositoryInterface authorRepository;
+    private final LeaderboardService leaderboardService;
+    private final SearchIndexManager searchIndexManager;
 
     public AuthorService(
-            AnalyticsRepository analyticsRepository,
-            AuthorRepository authorRepository
+            AnalyticsRepositoryInterface analyticsRepository,
+            AsyncManager asyncManager,
+            AuthorRepositoryInterface authorRepository,
+            LeaderboardService leaderboardService,
+            SearchIndexManager searchIndexManager
     ) {
         this.analyticsRepository = analyticsRepository;
+        this.asyncManager = asyncManager;
         this.authorRepository = authorRepository;
+        this.leaderboardService = leaderboardService;
+        this.searchIndexManager = searchIndexManager;
     }
 
     public void migrate() {
-        Thread thread = new Thread(this.authorRepository::migrate);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.authorRepository::migrate);
     }
 
 
@@ -64,11 +78,6 @@ public class AuthorService {
         );
     }
 
-    private void logAuthorActivityInThread(Author author, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logAuthorActivity(author, type, ratingValue));
-        thread.start();
-    }
-
 
     private void logAuthorActivity(AuthorEmbed author, ActivityType type, int ratingValue) {
         this.analyticsRepository.recordActivity(
@@ -80,11 +89,6 @@ public class AuthorService {
         );
     }
 
-    private void logAuthorActivityInThread(AuthorEmbed author, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logAuthorActivity(author, type, ratingValue));
-        thread.start();
-    }
-
 
     public AuthorResponse getAuthorById(AuthorGetCommand command) {
         if(command.getId() == null) return null;
@@ -92,7 +96,7 @@ public class AuthorService {
         Author author = this.authorRepository.findById(command.getId()).orElse(null);
         if(author == null) return null;
 
-        logAuthorActivityInThread(author, ActivityType.READ, 0);
+        logAuthorActivity(author, ActivityType.READ, 0);
 
         return new AuthorResponse(author);
     }
@@ -138,6 +142,20 @@ public class AuthorService {
         );
     }
 
+    /**
+     * Author names matching the typed prefix, served from the search index only.
+     */
+    public List<SearchSuggestionResponse> suggestAuthors(AuthorSearchCommand command) {
+        if(command.getName() == null || command.getName().isBlank()) return List.of();
+
+        int limit = command.getPagination() == null ? 10 : command.getPagination().getSize();
+
+        List<SearchIndex.Hit> hits = this.searchIndexManager.authors().suggest(command.getName(), limit);
+        if(hits == null) return List.of();
+
+        return hits.stream().map(SearchSuggestionResponse::new).toList();
+    }
+
     public List<AuthorSimpleResponse> getAuthors(AuthorIdsListCommand command) {
         Objects.requireNonNull(command.getIds());
 
@@ -179,7 +197,7 @@ public class AuthorService {
 
 
     public List<AuthorStatResponse> getMostWrittenBooksAuthors(AuthorGetMostWrittenBooksCommand command) {
-        List<AuthorStats> stats = this.authorRepository.findMostWrittenBooksAuthors(command.getLimit() != null ? command.getLimit() : 20);
+        List<AuthorStats> stats = this.leaderboardService.getMostWrittenBooksAuthors(command.getLimit() != null ? command.getLimit() : 20);
 
         return stats.stream()
                 .map(AuthorStatResponse::new)
@@ -187,7 +205,7 @@ public class AuthorService {
     }
 
     public List<AuthorStatResponse> getMostFollowedAuthors(AuthorGetMostFollowedAuthors command) {
-        List<AuthorStats> stats = this.authorRepository.findMostFollowedAuthors(command.getLimit() != null ? command.getLimit() : 20);
+        List<AuthorStats> stats = this.leaderboardService.getMostFollowedAuthors(command.getLimit() != null ? command.getLimit() : 20);
 
         return stats.stream()
                 .map(AuthorStatResponse::new)
@@ -195,7 +213,7 @@ public class AuthorService {
     }
 
     public List<AuthorStatResponse> getMostReadAuthors(AuthorGetMostReadCommand command) {
-        List<AuthorStats> stats = this.authorRepository.findMostReadAuthors(command.getLimit() != null ? command.getLimit() : 20);
+        List<AuthorStats> stats = this.leaderboardService.getMostReadAuthors(command.getLimit() != null ? command.getLimit() : 20);
 
         return stats.stream()
                 .map(AuthorStatResponse::new)
@@ -11,6 +11,7 @@ import it.unipi.booknetapi.dto.book.BookRecommendationResponse;
 import it.unipi.booknetapi.dto.book.BookResponse;
 import it.unipi.booknetapi.dto.book.BookSimpleResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.user.UserBookShelfResponse;
 import it.unipi.booknetapi.model.book.Book;
 import it.unipi.booknetapi.model.book.BookEmbed;
@@ -20,11 +21,18 @@ import it.unipi.booknetapi.model.stat.ChartDataPoint;
 import it.unipi.booknetapi.model.stat.ChartHelper;
 import it.unipi.booknetapi.model.user.BookShelfStatus;
 import it.unipi.booknetapi.model.user.UserBookShelf;
-import it.unipi.booknetapi.repository.book.BookRepository;
-import it.unipi.booknetapi.repository.stat.AnalyticsRepository;
-import it.unipi.booknetapi.repository.stat.UserMonthlyStatRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.AnalyticsRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.UserMonthlyStatRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
+import it.unipi.booknetapi.service.leaderboard.LeaderboardService;
+import it.unipi.booknetapi.service.recommendation.RecommendationService;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
 import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
@@ -36,27 +44,38 @@ import java.util.List;
 @Service
 public class BookService {
 
-    private final AnalyticsRepository analyticsRepository;
-    private final BookRepository bookRepository;
-    private final UserMonthlyStatRepository userMonthlyStatRepository;
-    private final UserRepository userRepository;
+    private final AnalyticsRepositoryInterface analyticsRepository;
+    private final AsyncManager asyncManager;
+    private final BookRepositoryInterface bookRepository;
+    private final LeaderboardService leaderboardService;
+    private final RecommendationService recommendationService;
+    private final SearchIndexManager searchIndexManager;
+    private final UserMonthlyStatRepositoryInterface userMonthlyStatRepository;
+    private final UserRepositoryInterface userRepository;
 
     public BookService(
-            AnalyticsRepository analyticsRepository,
-            BookRepository bookRepository,
-            UserMonthlyStatRepository userMonthlyStatRepository,
-            UserRepository userRepository
+            AnalyticsRepositoryInterface analyticsRepository,
+            AsyncManager asyncManager,
+            BookRepositoryInterface bookRepository,
+            LeaderboardService leaderboardService,
+            RecommendationService recommendationService,
+            SearchIndexManager searchIndexManager,
+            UserMonthlyStatRepositoryInterface userMonthlyStatRepository,
+            UserRepositoryInterface userRepository
     ) {
         this.analyticsRepository = analyticsRepository;
+        this.asyncManager = asyncManager;
         this.bookRepository = bookRepository;
+        this.leaderboardService = leaderboardService;
+        this.recommendationService = recommendationService;
+        this.searchIndexManager = searchIndexManager;
         this.userMonthlyStatRepository = userMonthlyStatRepository;
         this.userRepository = userRepository;
     }
 
 
     public void migrate() {
-        Thread thread = new Thread(this.bookRepository::migrate);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.bookRepository::migrate);
     }
 
 
@@ -100,11 +119,6 @@ public class BookService {
         );
     }
 
-    private void logBookActivityInThread(Book book, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logBookActivity(book, type, ratingValue));
-        thread.start();
-    }
-
     private void logBookActivity(BookEmbed book, ActivityType type, int ratingValue) {
         this.analyticsRepository.recordActivity(
                 book.getId(), book.getTitle(),
@@ -115,11 +129,6 @@ public class BookService {
         );
     }
 
-    private void logBookActivityInThread(BookEmbed book, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logBookActivity(book, type, ratingValue));
-        thread.start();
-    }
-
     public BookResponse getBookById(BookGetCommand command) {
         if (command.getId() == null) return null;
         if(!ObjectId.isValid(command.getId())) return null;
@@ -127,7 +136,7 @@ public class BookService {
         Book book = this.bookRepository.findById(command.getId()).orElse(null);
         if (book == null) return null;
 
-        logBookActivityInThread(book, ActivityType.VIEW, 0);
+        logBookActivity(book, ActivityType.VIEW, 0);
 
         return new BookResponse(book);
     }
@@ -144,16 +153,18 @@ public class BookService {
     }
 
     public PageResult<BookSimpleResponse> getAllBooks(BookListCommand command){
-        int page = command.getPagination() == null ? 0 : command.getPagination().getPage();
-        int size = command.getPagination() == null ? 10 : command.getPagination().getSize();
+        PaginationRequest pagination = command.getPagination() != null
+                ? command.getPagination()
+                : PaginationRequest.builder().page(0).size(10).build();
 
-        PageResult<Book> result = this.bookRepository.findAll(page, size);
+        PageResult<BookEmbed> result = this.bookRepository.findAllEmbeds(pagination);
 
         return new PageResult<>(
                 result.getContent().stream().map(BookSimpleResponse::new).toList(),
                 result.getTotalElements(),
                 result.getCurrentPage(),
-                result.getPageSize()
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
@@ -164,7 +175,7 @@ public class BookService {
         int page = command.getPagination() == null ? 0 : command.getPagination().getPage();
         int size = command.getPagination() == null ? 10 : command.getPagination().getSize();
 
-        PageResult<Book> result = this.bookRepository.search(command.getTitle(), page, size);
+        PageResult<BookEmbed> result = this.bookRepository.searchEmbeds(command.getTitle(), page, size);
 
         return new PageResult<>(
                 result.getContent().stream().map(BookSimpleResponse::new).toList(),
@@ -175,6 +186,22 @@ public class BookService {
     }
 
 
+    /**
+     * Typeahead on the title index. While the index is loading the list is empty:
+     * falling back to a regex query would run a collection scan per keystroke.
+     */
+    public List<SearchSuggestionResponse> suggestBooks(BookSearchCommand command) {
+        if(command.getTitle() == null || command.getTitle().isBlank()) return List.of();
+
+        int limit = command.getPagination() == null ? 10 : command.getPagination().getSize();
+
+        List<SearchIndex.Hit> hits = this.searchIndexManager.books().suggest(command.getTitle(), limit);
+        if(hits == null) return List.of();
+
+        return hits.stream().map(SearchSuggestionResponse::new).toList();
+    }
+
+
     public PageResult<BookEmbedResponse> getBooksByGenre(BookGetByGenreCommand command){
         if(command.getIdGenre() == null) return new PageResult<>(List.of(), 0, 0, 0);
 
@@ -219,19 +246,19 @@ public class BookService {
 
     public List<BookRecommendationResponse> getPopularBooksRating(BookPopularByRatingCommand command) {
         int limit = getDefaultLimitIfNull(command.getLimit());
-        List<BookRecommendation> books = command.getDayAgo() == null ? this.bookRepository.findPopularBooksByRating(limit) : this.bookRepository.findPopularBooksByRating(command.getDayAgo(), limit);
+        List<BookRecommendation> books = command.getDayAgo() == null ? this.leaderboardService.getPopularBooksByRating(limit) : this.leaderboardService.getPopularBooksByRating(command.getDayAgo(), limit);
         return books.stream().map(BookRecommendationResponse::new).toList();
     }
 
     public List<BookRecommendationResponse> getPopularBooksShelf(BookPopularByShelfCommand command) {
         int limit = getDefaultLimitIfNull(command.getLimit());
-        List<BookRecommendation> books = this.bookRepository.findPopularBooksByShelf(limit);
+        List<BookRecommendation> books = this.leaderboardService.getPopularBooksByShelf(limit);
         return books.stream().map(BookRecommendationResponse::new).toList();
     }
 
     public List<BookRecommendationResponse> getCollaborativeBooks(BookRecommendationCommand command) {
         int limit = getDefaultLimitIfNull(command.getLimit());
-        List<BookRecommendation> books = this.bookRepository.findCollaborativeRecommendationsBooks(command.getIdUser(), limit);
+        List<BookRecommendation> books = this.recommendationService.getCollaborativeBooks(command.getIdUser(), limit);
         return books.stream().map(BookRecommendationResponse::new).toList();
     }
 
@@ -241,21 +268,22 @@ public class BookService {
 
         if(!ObjectId.isValid(command.getIdBook())) return false;
 
-        Book book = this.bookRepository.findById(command.getIdBook()).orElse(null);
-        if(book == null) return false;
+        BookEmbed bookEmbed = this.bookRepository.findEmbedById(command.getIdBook()).orElse(null);
+        if(bookEmbed == null) return false;
 
-        BookEmbed bookEmbed = new BookEmbed(book);
         boolean added = this.userRepository.addBookInShelf(command.getUserToken().getIdUser(), bookEmbed);
 
         if(added) {
+            this.leaderboardService.onShelfAdd(bookEmbed);
+            this.recommendationService.onShelfChange(command.getUserToken().getIdUser());
+
             Runnable task = () -> {
                 ObjectId userId = new ObjectId(command.getUserToken().getIdUser());
                 this.userMonthlyStatRepository.addReadEvent(userId, bookEmbed);
 
-                this.logBookActivityInThread(bookEmbed, ActivityType.READ, 0);
+                this.logBookActivity(bookEmbed, ActivityType.READ, 0);
             };
-            Thread thread = new Thread(task);
-            thread.start();
+            this.asyncManager.execute(Workload.USER_STATS, task);
         }
 
 
@@ -268,12 +296,12 @@ public class BookService {
 
         if(!ObjectId.isValid(command.getIdBook())) return false;
 
-        Book book = this.bookRepository.findById(command.getIdBook()).orElse(null);
-        if(book == null) return false;
+        BookEmbed bookEmbed = this.bookRepository.findEmbedById(command.getIdBook()).orElse(null);
+        if(bookEmbed == null) return false;
 
         List<UserBookShelf> shelf = this.userRepository.getShelf(command.getUserToken().getIdUser());
         UserBookShelf shelfBook = shelf == null ? null : shelf.stream()
-                .filter(s -> s.getBook().getId().equals(book.getId()))
+                .filter(s -> s.getBook().getId().equals(bookEmbed.getId()))
                 .findFirst()
                 .orElse(null);
 
@@ -287,10 +315,11 @@ public class BookService {
 
         BookShelfStatus status = command.getStatus() != null ? command.getStatus() : BookShelfStatus.nextStatus(shelfBook.getStatus());
 
-        BookEmbed bookEmbed = new BookEmbed(book);
         boolean updated = this.userRepository.updateShelfStatus(command.getUserToken().getIdUser(), bookEmbed, status);
 
         if(updated) {
+            this.recommendationService.onShelfChange(command.getUserToken().getIdUser());
+
             Runnable task = () -> {
                 LocalDate updateDate = shelfBook.getDateUpdated().toInstant()
                         .atZone(ZoneId.systemDefault())
@@ -299,16 +328,14 @@ public class BookService {
                 if(isNotCurrentMonth) {
                     ObjectId userId = new ObjectId(command.getUserToken().getIdUser());
                     this.userMonthlyStatRepository.addReadEvent(userId, bookEmbed);
-
-                    this.logBookActivityInThread(bookEmbed, ActivityType.READ, 0);
                 }
 
-                if(status == BookShelfStatus.READING || status == BookShelfStatus.FINISHED) {
-                    logBookActivity(book, ActivityType.READ, 0);
+                // One READ per status change, also when it is both the first of the month and a READING/FINISHED
+                if(isNotCurrentMonth || status == BookShelfStatus.READING || status == BookShelfStatus.FINISHED) {
+                    this.logBookActivity(bookEmbed, ActivityType.READ, 0);
                 }
             };
-            Thread thread = new Thread(task);
-            thread.start();
+            this.asyncManager.execute(Workload.USER_STATS, task);
         }
 
         return updated;
@@ -320,7 +347,13 @@ public class BookService {
 
         if(!ObjectId.isValid(command.getIdBook())) return false;
 
-        return this.userRepository.removeBookFromShelf(command.getUserToken().getIdUser(), command.getIdBook());
+        boolean removed = this.userRepository.removeBookFromShelf(command.getUserToken().getIdUser(), command.getIdBook());
+        if(removed) {
+            this.bookRepository.findEmbedById(command.getIdBook()).ifPresent(this.leaderboardService::onShelfRemove);
+            this.recommendationService.onShelfChange(command.getUserToken().getIdUser());
+        }
+
+        return removed;
     }
 
 }
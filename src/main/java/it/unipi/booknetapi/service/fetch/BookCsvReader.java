@@ -50,30 +50,54 @@ public class BookCsvReader {
         List<BookCsvRecord> result = new ArrayList<>();
 
         try (CSVParser parser = GOODREADS_FORMAT.parse(reader)) {
-
             for (CSVRecord record : parser) {
-                BookCsvRecord book = new BookCsvRecord();
-
-                book.setBookId(parseInt(record.get("bookID")));
-                book.setTitle(record.get("title"));
-                book.setAuthors(getAuthorNames(record.get("authors")));
-                book.setAverageRating(parseDouble(record.get("average_rating")));
-                book.setIsbn(record.get("isbn"));
-                book.setIsbn13(record.get("isbn13"));
-                book.setLanguageCode(record.get("language_code").trim());
-                book.setNumPages(parseInt(record.get("num_pages").trim())); // if header has extra spaces, trim helps
-                book.setRatingsCount(parseLong(record.get("ratings_count").trim()));
-                book.setTextReviewsCount(parseLong(record.get("text_reviews_count").trim()));
-                book.setPublicationDate(parseDate(record.get("publication_date")));
-                book.setPublisher(record.get("publisher"));
-
-                result.add(book);
+                result.add(toBookRecord(record));
             }
         }
 
         return result;
     }
 
+    /**
+     * Streaming variant for imports: records are parsed while iterating.
+     */
+    public static ImportRecordReader<BookCsvRecord> openBooks(Path csvPath) throws IOException {
+        Reader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8);
+        try {
+            CSVParser parser = GOODREADS_FORMAT.parse(reader);
+            return ImportRecordReader.of(parser.iterator(), BookCsvReader::toBookRecord, parser);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Records of the file, header excluded; quoted fields may span several lines.
+     */
+    public static long countBooks(Path csvPath) throws IOException {
+        return count(csvPath, GOODREADS_FORMAT);
+    }
+
+    private static BookCsvRecord toBookRecord(CSVRecord record) {
+        BookCsvRecord book = new BookCsvRecord();
+
+        book.setBookId(parseInt(record.get("bookID")));
+        book.setTitle(record.get("title"));
+        book.setAuthors(getAuthorNames(record.get("authors")));
+        book.setAverageRating(parseDouble(record.get("average_rating")));
+        book.setIsbn(record.get("isbn"));
+        book.setIsbn13(record.get("isbn13"));
+        book.setLanguageCode(record.get("language_code").trim());
+        book.setNumPages(parseInt(record.get("num_pages").trim())); // if header has extra spaces, trim helps
+        book.setRatingsCount(parseLong(record.get("ratings_count").trim()));
+        book.setTextReviewsCount(parseLong(record.get("text_reviews_count").trim()));
+        book.setPublicationDate(parseDate(record.get("publication_date")));
+        book.setPublisher(record.get("publisher"));
+
+        return book;
+    }
+
     private static List<String> getAuthorNames(String authors) {
         if(authors == null) return Collections.emptyList();
         return Arrays.stream(authors.split("/"))
@@ -105,28 +129,58 @@ public class BookCsvReader {
         List<GoogleBookCsvRecord> result = new ArrayList<>();
 
         try (CSVParser parser = CSVParser.parse(reader, GOOGLE_BOOKS_FORMAT)) {
-
             for (CSVRecord record : parser) {
-                GoogleBookCsvRecord book = new GoogleBookCsvRecord();
-
-                book.setTitle(record.get("Title"));
-                book.setDescription(record.get("description"));
-                book.setAuthors(parseListField(record.get("authors")));
-                book.setImage(record.get("image"));
-                book.setPreviewLink(record.get("previewLink"));
-                book.setPublisher(record.get("publisher"));
-                book.setPublishedDate(record.get("publishedDate")); // keep raw
-                book.setInfoLink(record.get("infoLink"));
-                book.setCategories(parseListField(record.get("categories")));
-                book.setRatingsCount(parseDouble(record.get("ratingsCount")));
-
-                result.add(book);
+                result.add(toGoogleBookRecord(record));
             }
         }
 
         return result;
     }
 
+    public static ImportRecordReader<GoogleBookCsvRecord> openGoogleBooks(Path csvPath) throws IOException {
+        Reader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8);
+        try {
+            CSVParser parser = CSVParser.parse(reader, GOOGLE_BOOKS_FORMAT);
+            return ImportRecordReader.of(parser.iterator(), BookCsvReader::toGoogleBookRecord, parser);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    public static long countGoogleBooks(Path csvPath) throws IOException {
+        return count(csvPath, GOOGLE_BOOKS_FORMAT);
+    }
+
+    /**
+     * Parses without mapping, the records are only counted.
+     */
+    private static long count(Path csvPath, CSVFormat format) throws IOException {
+        try (Reader reader = Files.newBufferedReader(csvPath, StandardCharsets.UTF_8);
+             CSVParser parser = CSVParser.parse(reader, format)) {
+            long count = 0;
+            for (CSVRecord ignored : parser) count++;
+            return count;
+        }
+    }
+
+    private static GoogleBookCsvRecord toGoogleBookRecord(CSVRecord record) {
+        GoogleBookCsvRecord book = new GoogleBookCsvRecord();
+
+        book.setTitle(record.get("Title"));
+        book.setDescription(record.get("description"));
+        book.setAuthors(parseListField(record.get("authors")));
+        book.setImage(record.get("image"));
+        book.setPreviewLink(record.get("previewLink"));
+        book.setPublisher(record.get("publisher"));
+        book.setPublishedDate(record.get("publishedDate")); // keep raw
+        book.setInfoLink(record.get("infoLink"));
+        book.setCategories(parseListField(record.get("categories")));
+        book.setRatingsCount(parseDouble(record.get("ratingsCount")));
+
+        return book;
+    }
+
 
     private static int parseInt(String s) {
         return (s == null || s.isBlank()) ? 0 : Integer.parseInt(s.trim());
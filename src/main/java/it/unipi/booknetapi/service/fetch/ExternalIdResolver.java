@@ -0,0 +1,168 @@
+package it.unipi.booknetapi.service.fetch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.external.ExternalIdType;
+import it.unipi.booknetapi.repository.external.ExternalIdRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.external.LongObjectIdMap;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * GoodReads id to ObjectId for the imports, one {@link LongObjectIdMap} per entity type.
+ * A type is warmed in the background the first time it is asked for (a scan of the covering index);
+ * ids missing from the dictionary, numeric or not, are looked up with an index-only $in and remembered.
+ * Only ids seen in the database are kept: a GoodReads id missing here may still be created elsewhere.
+ * The importers add the ids they create with {@link #register}, and {@link #evict} the ones whose
+ * document turns out to be deleted.
+ */
+@Service
+public class ExternalIdResolver {
+
+    Logger logger = LoggerFactory.getLogger(ExternalIdResolver.class);
+
+    private static final int WARM_BATCH_SIZE = 10000;
+
+    private final ExternalIdRepositoryInterface externalIdRepository;
+
+    private final boolean warmEnabled;
+
+    private final Map<ExternalIdType, LongObjectIdMap> dictionaries = new EnumMap<>(ExternalIdType.class);
+    private final Map<ExternalIdType, AtomicBoolean> warmStarted = new EnumMap<>(ExternalIdType.class);
+
+    private final Map<ExternalIdType, Counter> hitCounters = new EnumMap<>(ExternalIdType.class);
+    private final Map<ExternalIdType, Counter> fallbackCounters = new EnumMap<>(ExternalIdType.class);
+    private final Map<ExternalIdType, Counter> missCounters = new EnumMap<>(ExternalIdType.class);
+    private final MeterRegistry registry;
+
+    private final AsyncManager asyncManager;
+
+    public ExternalIdResolver(AppConfiguration config, AsyncManager asyncManager, ExternalIdRepositoryInterface externalIdRepository, MeterRegistry registry) {
+        this.asyncManager = asyncManager;
+        this.externalIdRepository = externalIdRepository;
+        this.registry = registry;
+
+        this.warmEnabled = config.getBoolean("app.external-ids.warm-enabled", true);
+        int maxEntries = config.getInt("app.external-ids.max-entries", 5_000_000);
+
+        for (ExternalIdType type : ExternalIdType.values()) {
+            LongObjectIdMap dictionary = new LongObjectIdMap(1024, maxEntries);
+            this.dictionaries.put(type, dictionary);
+            this.warmStarted.put(type, new AtomicBoolean());
+
+            this.hitCounters.put(type, registry.counter("external.ids.lookups", "type", type.getKey(), "result", "hit"));
+            this.fallbackCounters.put(type, registry.counter("external.ids.lookups", "type", type.getKey(), "result", "fallback"));
+            this.missCounters.put(type, registry.counter("external.ids.lookups", "type", type.getKey(), "result", "miss"));
+            Gauge.builder("external.ids.size", dictionary, LongObjectIdMap::size)
+                    .tag("type", type.getKey())
+                    .register(registry);
+            Gauge.builder("external.ids.memory", dictionary, LongObjectIdMap::memoryBytes)
+                    .tag("type", type.getKey())
+                    .baseUnit("bytes")
+                    .register(registry);
+        }
+    }
+
+
+    /**
+     * @return GoodReads id to _id for the ids that exist
+     */
+    public Map<String, ObjectId> resolve(ExternalIdType type, Collection<String> externalIds) {
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(externalIds);
+
+        warmLazily(type);
+
+        LongObjectIdMap dictionary = this.dictionaries.get(type);
+        Map<String, ObjectId> ids = new HashMap<>(externalIds.size());
+        Set<String> misses = new HashSet<>();
+
+        for (String externalId : externalIds) {
+            if (externalId == null || ids.containsKey(externalId)) continue;
+
+            ObjectId id = dictionary.get(LongObjectIdMap.key(externalId));
+            if (id != null) ids.put(externalId, id);
+            else misses.add(externalId);
+        }
+        this.hitCounters.get(type).increment(ids.size());
+
+        if (!misses.isEmpty()) {
+            Map<String, ObjectId> found = this.externalIdRepository.findIds(type, misses);
+            registerAll(type, found);
+            ids.putAll(found);
+
+            this.fallbackCounters.get(type).increment(found.size());
+            this.missCounters.get(type).increment(misses.size() - found.size());
+        }
+
+        return ids;
+    }
+
+    public void register(ExternalIdType type, String externalId, ObjectId id) {
+        if (externalId == null || id == null) return;
+
+        this.dictionaries.get(type).put(LongObjectIdMap.key(externalId), id);
+    }
+
+    public void registerAll(ExternalIdType type, Map<String, ObjectId> ids) {
+        ids.forEach((externalId, id) -> register(type, externalId, id));
+    }
+
+    public void evict(ExternalIdType type, Collection<String> externalIds) {
+        LongObjectIdMap dictionary = this.dictionaries.get(type);
+        for (String externalId : externalIds) dictionary.remove(LongObjectIdMap.key(externalId));
+    }
+
+    private void warmLazily(ExternalIdType type) {
+        if (!this.warmEnabled || !this.warmStarted.get(type).compareAndSet(false, true)) return;
+
+        // Queue full: the lookups fall back to the database, the next resolve tries again
+        if (!this.asyncManager.tryExecute(Workload.BACKGROUND, () -> warmSafely(type))) this.warmStarted.get(type).set(false);
+    }
+
+    private void warm(ExternalIdType type) {
+        long start = System.nanoTime();
+        LongObjectIdMap dictionary = this.dictionaries.get(type);
+
+        long[] keys = new long[WARM_BATCH_SIZE];
+        ObjectId[] ids = new ObjectId[WARM_BATCH_SIZE];
+        int[] count = {0};
+
+        long read = this.externalIdRepository.scan(type, (externalId, id) -> {
+            long key = LongObjectIdMap.key(externalId);
+            if (key < 0) return;
+
+            keys[count[0]] = key;
+            ids[count[0]] = id;
+            if (++count[0] == WARM_BATCH_SIZE) {
+                dictionary.putAll(keys, ids, count[0]);
+                count[0] = 0;
+            }
+        });
+        dictionary.putAll(keys, ids, count[0]);
+
+        this.registry.timer("external.ids.warm", "type", type.getKey()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.info("[EXTERNAL ID] [WARM] {} read: {}, entries: {}, memory: {} bytes", type, read, dictionary.size(), dictionary.memoryBytes());
+    }
+
+    private void warmSafely(ExternalIdType type) {
+        try {
+            warm(type);
+        } catch (Exception e) {
+            // Lookups keep falling back to the database; the next resolve tries again
+            this.warmStarted.get(type).set(false);
+            logger.error("[EXTERNAL ID] [WARM] {} failed: {}", type, e.getMessage());
+        }
+    }
+
+}
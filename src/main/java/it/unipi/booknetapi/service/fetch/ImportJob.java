@@ -0,0 +1,153 @@
+package it.unipi.booknetapi.service.fetch;
+
+import it.unipi.booknetapi.dto.fetch.ParameterFetch;
+import it.unipi.booknetapi.model.fetch.EntityType;
+import org.bson.types.ObjectId;
+
+import java.util.*;
+
+/**
+ * Running totals of one import. The handlers report every batch here and the totals
+ * are written once to import_logs when the whole file has been read; the checkpoint
+ * (contiguous committed batches) is written after every batch.
+ */
+class ImportJob {
+
+    private final ParameterFetch<?> parameterFetch;
+    private final EntityType entityType;
+    private final int maxLoggedIds;
+    private final long startedAt = System.nanoTime();
+
+    private long recordsRead;
+    private long processed;
+    private long imported;
+    // Capped: a full dump would not fit in one import_logs document (16MB)
+    private final List<ObjectId> ids = new ArrayList<>();
+    private long heapHighWater;
+
+    private final Map<EntityType, ImportJob> children = new LinkedHashMap<>();
+
+    // Batches [0, committedBatches) are written; batches finished out of order wait here for the gap to close
+    private long committedBatches;
+    private long committedRecords;
+    private final Map<Long, Integer> writtenAhead = new HashMap<>();
+    private long resumedRecords;
+
+    ImportJob(ParameterFetch<?> parameterFetch, EntityType entityType, int maxLoggedIds) {
+        this.parameterFetch = parameterFetch;
+        this.entityType = entityType;
+        this.maxLoggedIds = maxLoggedIds;
+    }
+
+    /**
+     * Totals of a dependent step run on the same batches (e.g. BOOK_AUTHOR while importing BOOK), logged separately.
+     */
+    synchronized ImportJob child(EntityType entityType) {
+        return this.children.computeIfAbsent(entityType, type -> new ImportJob(this.parameterFetch, type, this.maxLoggedIds));
+    }
+
+    /**
+     * Continues the counters of an interrupted run, the skipped batches are already committed.
+     */
+    synchronized void resumeFrom(long committedBatches, long committedRecords) {
+        this.committedBatches = committedBatches;
+        this.committedRecords = committedRecords;
+        this.recordsRead = committedRecords;
+        this.resumedRecords = committedRecords;
+    }
+
+    /**
+     * @return true if the checkpoint moved (the batch closed the gap after the last committed one)
+     */
+    synchronized boolean commitBatch(long sequence, int size) {
+        this.writtenAhead.put(sequence, size);
+
+        boolean advanced = false;
+        Integer committedSize;
+        while ((committedSize = this.writtenAhead.remove(this.committedBatches)) != null) {
+            this.committedBatches++;
+            this.committedRecords += committedSize;
+            advanced = true;
+        }
+        return advanced;
+    }
+
+    synchronized void addRecordsRead(long count) {
+        this.recordsRead += count;
+    }
+
+    synchronized void addProcessed(long count) {
+        this.processed += count;
+    }
+
+    synchronized void addImported(long count) {
+        this.imported += count;
+    }
+
+    synchronized void addImported(Collection<ObjectId> importedIds) {
+        this.imported += importedIds.size();
+
+        int room = this.maxLoggedIds - this.ids.size();
+        if (room <= 0) return;
+
+        importedIds.stream().limit(room).forEach(this.ids::add);
+    }
+
+    synchronized void sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        this.heapHighWater = Math.max(this.heapHighWater, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    ParameterFetch<?> getParameterFetch() {
+        return this.parameterFetch;
+    }
+
+    EntityType getEntityType() {
+        return this.entityType;
+    }
+
+    synchronized long getRecordsRead() {
+        return this.recordsRead;
+    }
+
+    synchronized long getProcessed() {
+        return this.processed;
+    }
+
+    synchronized long getImported() {
+        return this.imported;
+    }
+
+    synchronized List<ObjectId> getIds() {
+        return new ArrayList<>(this.ids);
+    }
+
+    synchronized long getHeapHighWater() {
+        return this.heapHighWater;
+    }
+
+    synchronized long getCommittedBatches() {
+        return this.committedBatches;
+    }
+
+    synchronized long getCommittedRecords() {
+        return this.committedRecords;
+    }
+
+    synchronized List<ImportJob> getChildren() {
+        return new ArrayList<>(this.children.values());
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - this.startedAt;
+    }
+
+    /**
+     * Rate of this run only, records skipped on resume are not counted.
+     */
+    synchronized double recordsPerSecond() {
+        double seconds = elapsedNanos() / 1_000_000_000.0;
+        return seconds > 0 ? (this.recordsRead - this.resumedRecords) / seconds : 0;
+    }
+
+}
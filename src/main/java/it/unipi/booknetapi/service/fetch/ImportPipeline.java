@@ -0,0 +1,223 @@
+package it.unipi.booknetapi.service.fetch;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Runs the batches of one import through three stages connected by bounded queues:
+ * parse (the calling thread) → resolve (lookups, reference creation) → write (bulk writes).
+ * Each stage has its own workers, so the lookups of batch n+1 and the Mongo/Neo4j writes of batch n
+ * overlap instead of idling one database while the other works. A full queue blocks the stage
+ * before it, which bounds the heap to (queues + workers) batches.
+ * The workers run on the {@link Workload#IMPORT_STAGE} pool, sized so that every running import gets
+ * all of its workers (ImportService checks it at startup): a worker left in the queue would stall its stage.
+ */
+class ImportPipeline<T, R> {
+
+    Logger logger = LoggerFactory.getLogger(ImportPipeline.class);
+
+    private static final long POLL_MS = 100;
+
+    interface StagedHandler<T, R> {
+        R resolve(List<T> batch, ImportJob job);
+        void write(R resolved, ImportJob job);
+
+        static <T, R> StagedHandler<T, R> of(BiFunction<List<T>, ImportJob, R> resolve, BiConsumer<R, ImportJob> write) {
+            return new StagedHandler<>() {
+                @Override
+                public R resolve(List<T> batch, ImportJob job) {
+                    return resolve.apply(batch, job);
+                }
+
+                @Override
+                public void write(R resolved, ImportJob job) {
+                    write.accept(resolved, job);
+                }
+            };
+        }
+
+        /**
+         * For handlers whose writes depend on each other within the batch: everything runs in the write stage.
+         */
+        static <T> StagedHandler<T, List<T>> writeOnly(BiConsumer<List<T>, ImportJob> write) {
+            return of((batch, job) -> batch, write);
+        }
+    }
+
+    /**
+     * Called by the write workers once a batch is written, in completion order (not file order).
+     * size is the number of file records the batch consumed.
+     */
+    @FunctionalInterface
+    interface BatchListener {
+        void onBatchWritten(long sequence, int size);
+    }
+
+    /**
+     * @param consumed records read from the file for this batch, the checkpoint counts file records, not items
+     */
+    record ImportBatch<T>(List<T> items, int consumed) {}
+
+    private record Envelope<V>(long sequence, int size, V value, boolean end) {
+        static <V> Envelope<V> end() {
+            return new Envelope<>(-1, 0, null, true);
+        }
+    }
+
+    private final AsyncManager asyncManager;
+    private final String entity;
+    private final int resolveParallelism;
+    private final int writeParallelism;
+    private final int queueCapacity;
+
+    private final Timer resolveTimer;
+    private final Timer writeTimer;
+    private final Timer resolveWaitTimer;
+    private final Timer writeWaitTimer;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ImportPipeline(AsyncManager asyncManager, String entity, int resolveParallelism, int writeParallelism, int queueCapacity, MeterRegistry registry) {
+        this.asyncManager = asyncManager;
+        this.entity = entity;
+        this.resolveParallelism = Math.max(1, resolveParallelism);
+        this.writeParallelism = Math.max(1, writeParallelism);
+        this.queueCapacity = Math.max(1, queueCapacity);
+
+        this.resolveTimer = registry.timer("import.stage", "entity", entity, "stage", "resolve");
+        this.writeTimer = registry.timer("import.stage", "entity", entity, "stage", "write");
+        // Time a worker waits for input: a high value means the stage before it is the bottleneck
+        this.resolveWaitTimer = registry.timer("import.stage.wait", "entity", entity, "stage", "resolve");
+        this.writeWaitTimer = registry.timer("import.stage.wait", "entity", entity, "stage", "write");
+    }
+
+    /**
+     * @param batches parsed batches, pulled on the calling thread
+     * @param firstSequence sequence of the first batch (the batches skipped on resume keep their numbers)
+     * @throws Exception the first error raised by any stage; the other stages stop at their next batch
+     */
+    void run(Iterator<ImportBatch<T>> batches, StagedHandler<T, R> handler, ImportJob job, BatchListener listener, long firstSequence) throws Exception {
+        BlockingQueue<Envelope<List<T>>> parsed = new ArrayBlockingQueue<>(this.queueCapacity);
+        BlockingQueue<Envelope<R>> resolved = new ArrayBlockingQueue<>(this.queueCapacity);
+
+        CountDownLatch resolveDone = new CountDownLatch(this.resolveParallelism);
+        CountDownLatch writeDone = new CountDownLatch(this.writeParallelism);
+
+        boolean finished = false;
+        try {
+            for (int i = 0; i < this.resolveParallelism; i++) {
+                start(() -> {
+                    try {
+                        Envelope<List<T>> envelope;
+                        while ((envelope = take(parsed, this.resolveWaitTimer)) != null && !envelope.end()) {
+                            Envelope<List<T>> current = envelope;
+                            R value = this.resolveTimer.record(() -> handler.resolve(current.value(), job));
+                            put(resolved, new Envelope<>(current.sequence(), current.size(), value, false));
+                        }
+                    } catch (Throwable e) {
+                        fail(e);
+                    } finally {
+                        resolveDone.countDown();
+                    }
+                }, resolveDone);
+            }
+
+            for (int i = 0; i < this.writeParallelism; i++) {
+                start(() -> {
+                    try {
+                        Envelope<R> envelope;
+                        while ((envelope = take(resolved, this.writeWaitTimer)) != null && !envelope.end()) {
+                            Envelope<R> current = envelope;
+                            this.writeTimer.record(() -> handler.write(current.value(), job));
+                            listener.onBatchWritten(current.sequence(), current.size());
+                        }
+                    } catch (Throwable e) {
+                        fail(e);
+                    } finally {
+                        writeDone.countDown();
+                    }
+                }, writeDone);
+            }
+
+            long sequence = firstSequence;
+            try {
+                while (this.failure.get() == null && batches.hasNext()) {
+                    ImportBatch<T> batch = batches.next();
+                    if (!put(parsed, new Envelope<>(sequence++, batch.consumed(), batch.items(), false))) break;
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+
+            for (int i = 0; i < this.resolveParallelism; i++) put(parsed, Envelope.end());
+            resolveDone.await();
+
+            for (int i = 0; i < this.writeParallelism; i++) put(resolved, Envelope.end());
+            writeDone.await();
+            finished = true;
+        } finally {
+            // The pool is shared: stop the workers through the failure flag they poll
+            if (!finished) fail(new CancellationException("Import pipeline of " + this.entity + " interrupted"));
+        }
+
+        Throwable error = this.failure.get();
+        if (error instanceof Exception exception) throw exception;
+        if (error != null) throw new ExecutionException(error);
+    }
+
+    /**
+     * A rejected worker never runs its finally block: it is counted down here.
+     */
+    private void start(Runnable worker, CountDownLatch done) {
+        try {
+            this.asyncManager.execute(Workload.IMPORT_STAGE, worker);
+        } catch (RejectedExecutionException e) {
+            fail(e);
+            done.countDown();
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (this.failure.compareAndSet(null, e)) {
+            logger.error("[SERVICE] [IMPORT] [PIPELINE] {} stopped: {}", this.entity, e.getMessage());
+        }
+    }
+
+    /**
+     * @return null once another stage has failed
+     */
+    private <V> Envelope<V> take(BlockingQueue<Envelope<V>> queue, Timer waitTimer) throws InterruptedException {
+        long start = System.nanoTime();
+        try {
+            while (this.failure.get() == null) {
+                Envelope<V> envelope = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (envelope != null) return envelope;
+            }
+            return null;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return false once another stage has failed (nobody would consume the element)
+     */
+    private <V> boolean put(BlockingQueue<Envelope<V>> queue, Envelope<V> envelope) throws InterruptedException {
+        while (this.failure.get() == null) {
+            if (queue.offer(envelope, POLL_MS, TimeUnit.MILLISECONDS)) return true;
+        }
+        return false;
+    }
+
+}
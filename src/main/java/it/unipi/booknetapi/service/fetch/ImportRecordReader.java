@@ -0,0 +1,81 @@
+package it.unipi.booknetapi.service.fetch;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Pull-based reader over the records of an import file.
+ * Only the current record is materialized, the caller decides how many to keep (one batch).
+ */
+public interface ImportRecordReader<T> extends Iterator<T>, Closeable {
+
+    @FunctionalInterface
+    interface Opener<T> {
+        ImportRecordReader<T> open(Path path) throws IOException;
+    }
+
+    /**
+     * Number of records in a file, as the reader of its format would return them.
+     */
+    @FunctionalInterface
+    interface Counter {
+        long count(Path path) throws IOException;
+    }
+
+    /**
+     * One JSON object per line (GoodReads dumps). Blank lines are skipped by the Jackson root-value parser.
+     */
+    static <T> ImportRecordReader<T> ndjson(ObjectMapper objectMapper, Path path, Class<T> clazz) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        try {
+            MappingIterator<T> iterator = objectMapper.readerFor(clazz).readValues(reader);
+            return of(iterator, iterator::close);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    static <S, T> ImportRecordReader<T> of(Iterator<S> iterator, Function<S, T> mapper, Closeable closeable) {
+        return of(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return mapper.apply(iterator.next());
+            }
+        }, closeable);
+    }
+
+    static <T> ImportRecordReader<T> of(Iterator<T> iterator, Closeable closeable) {
+        return new ImportRecordReader<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() throws IOException {
+                closeable.close();
+            }
+        };
+    }
+
+}
@@ -1,32 +1,47 @@
 package it.unipi.booknetapi.service.fetch;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import it.unipi.booknetapi.command.fetch.ImportDataCommand;
+import it.unipi.booknetapi.command.fetch.ImportGetCommand;
+import it.unipi.booknetapi.command.fetch.ImportResumeCommand;
 import it.unipi.booknetapi.dto.author.AuthorGoodReads;
 import it.unipi.booknetapi.dto.book.*;
+import it.unipi.booknetapi.dto.fetch.ImportProgressResponse;
 import it.unipi.booknetapi.dto.fetch.ParameterFetch;
 import it.unipi.booknetapi.dto.review.InteractionGoodReads;
 import it.unipi.booknetapi.model.author.Author;
 import it.unipi.booknetapi.model.author.AuthorEmbed;
 import it.unipi.booknetapi.model.book.Book;
 import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.external.ExternalIdType;
 import it.unipi.booknetapi.model.fetch.EntityType;
+import it.unipi.booknetapi.model.fetch.ImportCheckpoint;
 import it.unipi.booknetapi.model.fetch.ImportLog;
+import it.unipi.booknetapi.model.fetch.ImportStatus;
 import it.unipi.booknetapi.model.genre.Genre;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.notification.Notification;
 import it.unipi.booknetapi.model.notification.NotificationEmbed;
 import it.unipi.booknetapi.model.review.Review;
 import it.unipi.booknetapi.model.user.*;
-import it.unipi.booknetapi.repository.author.AuthorRepository;
-import it.unipi.booknetapi.repository.book.BookRepository;
-import it.unipi.booknetapi.repository.genre.GenreRepository;
-import it.unipi.booknetapi.repository.notification.NotificationRepository;
-import it.unipi.booknetapi.repository.review.ReviewRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.author.AuthorRepositoryInterface;
+import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.repository.genre.GenreRepositoryInterface;
+import it.unipi.booknetapi.repository.notification.NotificationRepositoryInterface;
+import it.unipi.booknetapi.repository.review.ReviewRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
 import it.unipi.booknetapi.shared.model.ExternalId;
 import it.unipi.booknetapi.shared.model.Source;
-import it.unipi.booknetapi.repository.fetch.ImportLogRepository;
+import it.unipi.booknetapi.repository.fetch.ImportLogRepositoryInterface;
+import it.unipi.booknetapi.service.fetch.ImportPipeline.ImportBatch;
+import it.unipi.booknetapi.service.fetch.ImportPipeline.StagedHandler;
+import it.unipi.booknetapi.service.notification.NotificationPushService;
 import net.datafaker.Faker;
 import org.bson.types.ObjectId;
 import org.slf4j.Logger;
@@ -34,47 +49,97 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ImportService {
 
     Logger logger = LoggerFactory.getLogger(ImportService.class);
 
-    private final ImportLogRepository importLogRepository;
-    private final AuthorRepository authorRepository;
-    private final BookRepository bookRepository;
-    private final GenreRepository genreRepository;
-    private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
-    private final ReviewRepository reviewRepository;
+    private final AsyncManager asyncManager;
+    private final ImportLogRepositoryInterface importLogRepository;
+    private final AuthorRepositoryInterface authorRepository;
+    private final BookRepositoryInterface bookRepository;
+    private final GenreRepositoryInterface genreRepository;
+    private final NotificationRepositoryInterface notificationRepository;
+    private final NotificationPushService notificationPushService;
+    private final UserRepositoryInterface userRepository;
+    private final ReviewRepositoryInterface reviewRepository;
+    private final ExternalIdResolver externalIdResolver;
 
     private final ObjectMapper objectMapper;
+    private final MeterRegistry registry;
+
+    private final int importBatchSize;
+    private final int resolveParallelism;
+    private final int writeParallelism;
+    private final int pipelineQueueCapacity;
+    private final int maxLoggedIds;
+    private final Path workDir;
+
+    // Guards the find-or-create of referenced entities (reviewers, genres, authors) across pipeline workers
+    private final Object referenceCreationLock = new Object();
+
+    // Imports queued or running in this JVM; a RUNNING log not listed here was interrupted by a restart
+    private final Set<String> activeImports = ConcurrentHashMap.newKeySet();
 
     public ImportService(
-            ImportLogRepository importLogRepository,
-            AuthorRepository authorRepository,
-            BookRepository bookRepository,
-            GenreRepository genreRepository,
-            NotificationRepository notificationRepository,
-            UserRepository userRepository,
-            ReviewRepository reviewRepository
+            AppConfiguration config,
+            MeterRegistry registry,
+            AsyncManager asyncManager,
+            ImportLogRepositoryInterface importLogRepository,
+            AuthorRepositoryInterface authorRepository,
+            BookRepositoryInterface bookRepository,
+            GenreRepositoryInterface genreRepository,
+            NotificationRepositoryInterface notificationRepository,
+            NotificationPushService notificationPushService,
+            UserRepositoryInterface userRepository,
+            ReviewRepositoryInterface reviewRepository,
+            ExternalIdResolver externalIdResolver
     ) {
+        this.asyncManager = asyncManager;
         this.importLogRepository = importLogRepository;
         this.authorRepository = authorRepository;
         this.bookRepository = bookRepository;
         this.genreRepository = genreRepository;
         this.notificationRepository = notificationRepository;
+        this.notificationPushService = notificationPushService;
         this.userRepository = userRepository;
         this.reviewRepository = reviewRepository;
+        this.externalIdResolver = externalIdResolver;
 
         this.objectMapper = new ObjectMapper();
+        this.registry = registry;
+
+        this.importBatchSize = config.getInt("app.import.batch-size", 1000);
+        this.resolveParallelism = config.getInt("app.import.pipeline.resolve-parallelism", 2);
+        this.writeParallelism = config.getInt("app.import.pipeline.write-parallelism", 2);
+        this.pipelineQueueCapacity = config.getInt("app.import.pipeline.queue-capacity", 4);
+
+        // Two imports each waiting for a worker queued behind the other's would never finish
+        int stageWorkers = asyncManager.getPoolSize(Workload.IMPORT) * (Math.max(1, this.resolveParallelism) + Math.max(1, this.writeParallelism));
+        if(asyncManager.getPoolSize(Workload.IMPORT_STAGE) < stageWorkers) {
+            throw new IllegalStateException("app.async.import-stage.pool-size must be at least " + stageWorkers
+                    + " (app.async.import.pool-size * (resolve-parallelism + write-parallelism))");
+        }
+        this.maxLoggedIds = config.getInt("app.import.max-logged-ids", 10000);
+        this.workDir = Path.of(config.getString("app.import.work-dir", System.getProperty("java.io.tmpdir")));
+        try {
+            Files.createDirectories(this.workDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create import work dir " + this.workDir, e);
+        }
     }
 
 
@@ -83,266 +148,532 @@ public class ImportService {
 
         if(command.getFile().isEmpty()) return "File is empty";
 
-        String fileUrl;
-        try {
-            fileUrl = command.getFile().getResource().getURI().toString();
-        } catch (Exception e) {
-            fileUrl = command.getFile().getOriginalFilename();
+        ImportDefinition<?, ?> definition = definition(command.getSource(), command.getImportEntityType());
+        if(definition == null) return "Unknown source or entity type";
+
+        return submitImport(command, definition);
+    }
+
+    /**
+     * Resumes an interrupted import from its last checkpoint. The local copy of the upload is kept
+     * until the import completes, so the file does not need to be uploaded again.
+     */
+    public String resume(ImportResumeCommand command) {
+        if(command == null || !command.isValid()) return "Invalid command";
+
+        ImportLog importLog = this.importLogRepository.findById(command.getId()).orElse(null);
+        if(importLog == null) return "Import not found";
+        if(importLog.getStatus() == null || importLog.getCheckpoint() == null) return "Import has no checkpoint and cannot be resumed";
+        if(importLog.getStatus() == ImportStatus.COMPLETED) return "Import already completed";
+
+        ImportCheckpoint checkpoint = importLog.getCheckpoint();
+        if(checkpoint.getFilePath() == null || !Files.exists(Path.of(checkpoint.getFilePath()))) {
+            return "Import file is no longer available, upload it again";
         }
-        // String finalFileUrl = fileUrl;
-        String fileName = command.getFile().getOriginalFilename();
-        String fileContentType = command.getFile().getContentType();
 
-        switch (command.getSource()) {
+        ImportDefinition<?, ?> definition = definition(importLog.getSource(), importLog.getImportEntityType());
+        if(definition == null) return "Unknown source or entity type";
+
+        String idImport = importLog.getId().toHexString();
+        // Claimed here, not when the task starts: a second resume of a queued import is refused
+        if(!this.activeImports.add(idImport)) return "Import " + idImport + " is already running";
+
+        importLog.setStatus(ImportStatus.QUEUED);
+        importLog.setMessage(null);
+        this.importLogRepository.update(importLog);
+
+        logger.info("[SERVICE] [IMPORT] [RESUME] {} from batch {}", idImport, checkpoint.getCommittedBatches());
+
+        String rejection = enqueue(importLog, parameterFetch(importLog, command.getUserToken().getIdUser()), definition);
+        if(rejection != null) return rejection;
+
+        return "Import " + idImport + " resumed from record " + checkpoint.getCommittedRecords() + ".";
+    }
+
+    public ImportProgressResponse getProgress(ImportGetCommand command) {
+        if(command == null || !command.isValid()) return null;
+
+        ImportLog importLog = this.importLogRepository.findById(command.getId()).orElse(null);
+        if(importLog == null) return null;
+
+        String idImport = importLog.getId().toHexString();
+        boolean running = this.activeImports.contains(idImport);
+
+        // Logs written before checkpoints existed only have the final outcome
+        ImportStatus status = importLog.getStatus() != null
+                ? importLog.getStatus()
+                : (Boolean.TRUE.equals(importLog.getSuccess()) ? ImportStatus.COMPLETED : ImportStatus.FAILED);
+
+        ImportCheckpoint checkpoint = importLog.getCheckpoint();
+        if(checkpoint == null) checkpoint = new ImportCheckpoint();
+
+        long processed = checkpoint.getCommittedRecords() != null ? checkpoint.getCommittedRecords() : 0;
+        Long total = checkpoint.getTotalRecords();
+        Double rate = checkpoint.getRecordsPerSecond();
+
+        Double percent = null;
+        if(status == ImportStatus.COMPLETED) percent = 100.0;
+        else if(total != null && total > 0) percent = Math.min(100.0, processed * 100.0 / total);
+
+        Long eta = null;
+        if(running && total != null && rate != null && rate > 0) eta = (long) Math.ceil(Math.max(0, total - processed) / rate);
+
+        boolean resumable = !running
+                && status != ImportStatus.COMPLETED
+                && checkpoint.getFilePath() != null
+                && Files.exists(Path.of(checkpoint.getFilePath()));
+
+        return ImportProgressResponse.builder()
+                .id(idImport)
+                .source(importLog.getSource())
+                .entityType(importLog.getEntityType())
+                .importEntityType(importLog.getImportEntityType())
+                .fileName(importLog.getFileName())
+                .status(status)
+                .processedRecords(processed)
+                .totalRecords(total)
+                .percent(percent)
+                .recordsPerSecond(rate)
+                .etaSeconds(eta)
+                .committedBatches(checkpoint.getCommittedBatches())
+                .startedAt(importLog.getStartedAt())
+                .updatedAt(importLog.getUpdatedAt())
+                .message(importLog.getMessage())
+                .running(running)
+                .resumable(resumable)
+                .build();
+    }
+
+
+    /**
+     * A null counter means one record per line (NDJSON).
+     */
+    private record ImportDefinition<T, R>(
+            EntityType entityType,
+            ImportRecordReader.Opener<T> opener,
+            ImportRecordReader.Counter counter,
+            StagedHandler<T, R> handler,
+            String acceptedMessage
+    ) {}
+
+    /**
+     * @return how to read and write the given source/entity, null if it is not supported
+     */
+    private ImportDefinition<?, ?> definition(Source source, ImportEntityType importEntityType) {
+        if(source == null || importEntityType == null) return null;
+
+        switch (source) {
             case GOOD_READS -> {
-                switch (command.getImportEntityType()) {
+                switch (importEntityType) {
                     case BOOK -> {
-                        List<BookGoodReads> books = extractDataFromFile(command.getSource(), command.getFile(), BookGoodReads.class);
-
-                        ParameterFetch<BookGoodReads> parameterFetch = ParameterFetch.<BookGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.BOOK)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(books)
-                                .build();
-                        processSaveImport(parameterFetch, this::importGoodReadsBooks);
-
-                        // return importGoodReadsBooks(source, file);
-                        return "Successfully processed import books.";
+                        return new ImportDefinition<>(
+                                EntityType.BOOK,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, BookGoodReads.class),
+                                null,
+                                StagedHandler.writeOnly(this::importGoodReadsBooks),
+                                "Successfully processed import books."
+                        );
                     }
                     case AUTHOR -> {
-                        List<AuthorGoodReads> authors = extractDataFromFile(command.getSource(), command.getFile(), AuthorGoodReads.class);
-
-                        ParameterFetch<AuthorGoodReads> parameterFetch = ParameterFetch.<AuthorGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.AUTHOR)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(authors)
-                                .build();
-                        processSaveImport(parameterFetch, this::importGoodReadsAuthors);
-
-                        return "Successfully processed import authors.";
+                        return new ImportDefinition<>(
+                                EntityType.AUTHOR,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, AuthorGoodReads.class),
+                                null,
+                                StagedHandler.writeOnly(this::importGoodReadsAuthors),
+                                "Successfully processed import authors."
+                        );
                     }
                     case BOOK_GENRE -> {
-
-                        List<BookGenreGoodReads> bookGenres = extractDataFromFile(command.getSource(), command.getFile(), BookGenreGoodReads.class);
-                        if(bookGenres == null) return "Error during read file";
-
-                        ParameterFetch<BookGenreGoodReads> parameterFetch = ParameterFetch.<BookGenreGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.GENRE)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(bookGenres)
-                                .build();
-                        processSaveImport(parameterFetch, this::importGoodReadsGenre);
-
-                        return "Successfully processed import Genre";
+                        return new ImportDefinition<>(
+                                EntityType.GENRE,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, BookGenreGoodReads.class),
+                                null,
+                                StagedHandler.writeOnly(this::importGoodReadsGenre),
+                                "Successfully processed import Genre"
+                        );
                     }
 
                     case BOOK_SIMILARITY -> {
-                        List<BookGoodReads> bookSimilarity = extractDataFromFile(command.getSource(), command.getFile(), BookGoodReads.class);
-                        if(bookSimilarity == null) return "Error during read file";
-
-                        // 1. Create the parameter fetch with the correct type
-                        ParameterFetch<BookGoodReads> parameterFetch = ParameterFetch.<BookGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.BOOK)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(bookSimilarity)
-                                .build();
-
-                        // 2. Only call the similarity import method
-                        processSaveImport(parameterFetch, this::importGoodReadsSimilarBooks);
-
-                        return "Successfully processed import book similarity";
+                        return new ImportDefinition<>(
+                                EntityType.BOOK,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, BookGoodReads.class),
+                                null,
+                                StagedHandler.writeOnly(this::importGoodReadsSimilarBooks),
+                                "Successfully processed import book similarity"
+                        );
                     }
 
                     case REVIEW -> {
-                        List<InteractionGoodReads> interactionGoodReads =  extractDataFromFile(command.getSource(), command.getFile(), InteractionGoodReads.class);
-                        if(interactionGoodReads == null) return "Error during read file";
-
-                        ParameterFetch<InteractionGoodReads> parameterFetch = ParameterFetch.<InteractionGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.REVIEW)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(interactionGoodReads)
-                                .build();
-
-                        processSaveImport(parameterFetch, this::importGoodReadsReviews);
-
-                        return "Successfully processed import reviews";
+                        return new ImportDefinition<>(
+                                EntityType.REVIEW,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, InteractionGoodReads.class),
+                                null,
+                                StagedHandler.of(this::resolveGoodReadsReviews, this::writeGoodReadsReviews),
+                                "Successfully processed import reviews"
+                        );
                     }
 
                     case ADD_TO_SHELF -> {
-                        List<InteractionGoodReads> interactionGoodReads =  extractDataFromFile(command.getSource(), command.getFile(), InteractionGoodReads.class);
-                        if(interactionGoodReads == null) return "Error during read file";
-
-                        ParameterFetch<InteractionGoodReads> parameterFetch = ParameterFetch.<InteractionGoodReads>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.SHELF)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(interactionGoodReads)
-                                .build();
-
-                        processSaveImport(parameterFetch, this::importGoodReadsAddToShelf);
-
-                        return "Successfully processed import add to shelf";
+                        return new ImportDefinition<>(
+                                EntityType.SHELF,
+                                path -> ImportRecordReader.ndjson(this.objectMapper, path, InteractionGoodReads.class),
+                                null,
+                                StagedHandler.of(this::resolveGoodReadsAddToShelf, this::writeGoodReadsAddToShelf),
+                                "Successfully processed import add to shelf"
+                        );
                     }
 
                     default -> {
-                        return "Unknown entity type";
+                        return null;
                     }
                 }
             }
             case KAGGLE -> {
-                switch (command.getImportEntityType()) {
+                switch (importEntityType) {
                     case BOOK -> {
-                        List<BookCsvRecord> books;
-                        try {
-                            books = BookCsvReader.readBooks(command.getFile());
-                        } catch (Exception e) {
-                            return "Error during read file";
-                        }
-
-                        ParameterFetch<BookCsvRecord> parameterFetch = ParameterFetch.<BookCsvRecord>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.BOOK)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(books)
-                                .build();
-
-                        processSaveImport(parameterFetch, this::importKaggleCsvBooks);
-
-                        return "Successfully processed import books";
+                        return new ImportDefinition<>(
+                                EntityType.BOOK,
+                                BookCsvReader::openBooks,
+                                BookCsvReader::countBooks,
+                                StagedHandler.writeOnly(this::importKaggleCsvBooks),
+                                "Successfully processed import books"
+                        );
                     }
 
                     default -> {
-                        return "Unknown entity type";
+                        return null;
                     }
                 }
             }
 
             case GOOGLE_BOOKS -> {
-                switch (command.getImportEntityType()) {
+                switch (importEntityType) {
                     case BOOK -> {
-                        List<GoogleBookCsvRecord> books;
-                        try {
-                            books = BookCsvReader.readGoogleBooks(command.getFile());
-                        } catch (Exception e) {
-                            return "Error during read file";
-                        }
-
-                        ParameterFetch<GoogleBookCsvRecord> parameterFetch = ParameterFetch.<GoogleBookCsvRecord>builder()
-                                .idUser(command.getUserToken().getIdUser())
-                                .source(command.getSource())
-                                .entityType(EntityType.BOOK)
-                                .fileUrl(fileUrl)
-                                .fileName(fileName)
-                                .fileContentType(fileContentType)
-                                .data(books)
-                                .build();
-
-                        processSaveImport(parameterFetch, this::importGoogleCsvBooks);
-
-                        return "Successfully processed import books";
+                        return new ImportDefinition<>(
+                                EntityType.BOOK,
+                                BookCsvReader::openGoogleBooks,
+                                BookCsvReader::countGoogleBooks,
+                                StagedHandler.writeOnly(this::importGoogleCsvBooks),
+                                "Successfully processed import books"
+                        );
                     }
 
                     default -> {
-                        return "Unknown entity type";
+                        return null;
                     }
                 }
             }
 
             default -> {
-                return "Unknown source";
+                return null;
             }
         }
     }
 
-    private <T> void processSaveImport(ParameterFetch<T> parameterFetch, Consumer<ParameterFetch<T>> consumer) {
-        Thread thread = new Thread(() -> {consumer.accept(parameterFetch);});
-        thread.start();
-    }
+    /**
+     * Copies the upload to a local file (the multipart temp file does not outlive the request),
+     * records a QUEUED import log carrying the checkpoint and queues the import.
+     */
+    private String submitImport(ImportDataCommand command, ImportDefinition<?, ?> definition) {
+        MultipartFile file = command.getFile();
 
-    private <T> List<T> extractDataFromFile(Source source, MultipartFile file, Class<T> clazz) {
         String fileUrl;
         try {
             fileUrl = file.getResource().getURI().toString();
         } catch (Exception e) {
             fileUrl = file.getOriginalFilename();
         }
-        String fileName = file.getOriginalFilename();
-        String fileContentType = file.getContentType();
 
+        String idUser = command.getUserToken().getIdUser();
+        ImportLog importLog = ImportLog.builder()
+                .operationDate(new Date())
+                .source(command.getSource())
+                .entityType(definition.entityType())
+                .importEntityType(command.getImportEntityType())
+                .userId(idUser != null ? new ObjectId(idUser) : null)
+                .success(false)
+                .fileName(file.getOriginalFilename())
+                .fileType(file.getContentType())
+                .fileUrl(fileUrl)
+                .status(ImportStatus.QUEUED)
+                .checkpoint(ImportCheckpoint.builder()
+                        .batchSize(this.importBatchSize)
+                        .committedBatches(0L)
+                        .committedRecords(0L)
+                        .build())
+                .build();
+
+        try {
+            Path path = Files.createTempFile(this.workDir, "import-", ".data");
+            file.transferTo(path);
+            importLog.getCheckpoint().setFilePath(path.toString());
+        } catch (Exception e) {
+            String message = "[SERVICE] [IMPORT] [STORE FILE] Error processing file: " + e.getMessage();
+            logger.error(message);
+            logFetch(new ImportJob(parameterFetch(importLog, idUser), definition.entityType(), 0), false, message);
+            return "Error during read file";
+        }
+
+        importLog.setUpdatedAt(new Date());
+        if(this.importLogRepository.insert(importLog) == null) {
+            deleteFile(Path.of(importLog.getCheckpoint().getFilePath()));
+            return "Error during import registration";
+        }
+
+        String idImport = importLog.getId().toHexString();
+        this.activeImports.add(idImport);
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+        String rejection = enqueue(importLog, parameterFetch(importLog, idUser), definition);
+        if(rejection != null) return rejection;
 
-            List<T> result = new ArrayList<>();
+        return definition.acceptedMessage() + " Import id: " + idImport;
+    }
+
+    private ParameterFetch<?> parameterFetch(ImportLog importLog, String idUser) {
+        return ParameterFetch.builder()
+                .idUser(idUser)
+                .source(importLog.getSource())
+                .entityType(importLog.getEntityType())
+                .fileUrl(importLog.getFileUrl())
+                .fileName(importLog.getFileName())
+                .fileContentType(importLog.getFileType())
+                .filePath(importLog.getCheckpoint() != null && importLog.getCheckpoint().getFilePath() != null
+                        ? Path.of(importLog.getCheckpoint().getFilePath())
+                        : null)
+                .build();
+    }
+
+    /**
+     * Hands the import (already claimed in activeImports) to the import executor.
+     * @return null if accepted, otherwise the reason; a rejected import keeps its file and can be resumed
+     */
+    private String enqueue(ImportLog importLog, ParameterFetch<?> parameterFetch, ImportDefinition<?, ?> definition) {
+        String idImport = importLog.getId().toHexString();
+
+        boolean submitted = this.asyncManager.tryExecute(Workload.IMPORT, () -> runImport(importLog, parameterFetch, definition));
+        if(submitted) return null;
+
+        logger.warn("[SERVICE] [IMPORT] [PROCESS] Import queue is full, import {} of {} rejected", idImport, definition.entityType());
+        this.activeImports.remove(idImport);
+
+        String message = "Import rejected: too many imports in progress, resume import " + idImport + " later.";
+        importLog.setStatus(ImportStatus.FAILED);
+        importLog.setMessage(message);
+        this.importLogRepository.update(importLog);
+        return message;
+    }
+
+    /**
+     * Reads the file batch by batch and runs the batches through the import pipeline.
+     * Parsing is paced by the pipeline queues, so only a few batches are on the heap whatever the file size.
+     * The checkpoint is advanced after every committed batch; on resume the committed batches are skipped.
+     */
+    private <T, R> void runImport(ImportLog importLog, ParameterFetch<?> parameterFetch, ImportDefinition<T, R> definition) {
+        String idImport = importLog.getId().toHexString();
+        ImportCheckpoint checkpoint = importLog.getCheckpoint();
+        int batchSize = checkpoint.getBatchSize() != null ? checkpoint.getBatchSize() : this.importBatchSize;
+
+        ImportJob job = new ImportJob(parameterFetch, definition.entityType(), this.maxLoggedIds);
+        job.resumeFrom(
+                checkpoint.getCommittedBatches() != null ? checkpoint.getCommittedBatches() : 0,
+                checkpoint.getCommittedRecords() != null ? checkpoint.getCommittedRecords() : 0
+        );
+
+        String entity = definition.entityType().name();
+        Counter recordsCounter = this.registry.counter("import.records", "entity", entity);
+
+        ImportPipeline<T, R> pipeline = new ImportPipeline<>(
+                this.asyncManager,
+                entity,
+                this.resolveParallelism,
+                this.writeParallelism,
+                this.pipelineQueueCapacity,
+                this.registry
+        );
+
+        boolean success = false;
+        try {
+            if(importLog.getStartedAt() == null) importLog.setStartedAt(new Date());
+            importLog.setStatus(ImportStatus.SCANNING);
+            this.importLogRepository.update(importLog);
+            scanFile(checkpoint, parameterFetch.getFilePath(), definition.counter());
+
+            try (ImportRecordReader<T> reader = definition.opener().open(parameterFetch.getFilePath())) {
+                long skip = job.getCommittedBatches() * batchSize;
+                if(skip > 0) {
+                    importLog.setStatus(ImportStatus.SKIPPING);
+                    this.importLogRepository.update(importLog);
+                    for (long i = 0; i < skip && reader.hasNext(); i++) reader.next();
+                }
+
+                importLog.setStatus(ImportStatus.RUNNING);
+                this.importLogRepository.update(importLog);
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
+                pipeline.run(batches(reader, batchSize), definition.handler(), job, (sequence, size) -> {
+                    job.addRecordsRead(size);
+                    job.sampleHeap();
+                    recordsCounter.increment(size);
 
-                T item = objectMapper.readValue(line, clazz);
-                result.add(item);
+                    if(job.commitBatch(sequence, size)) saveCheckpoint(importLog.getId(), job);
+
+                    logger.debug("[SERVICE] [IMPORT] [BATCH] {} batch {} written, records: {}", entity, sequence, job.getRecordsRead());
+                }, job.getCommittedBatches());
             }
 
-            return result;
+            success = true;
+            finishImport(importLog, job, true, null);
         } catch (Exception e) {
-            // e.printStackTrace();
-            String message = "[SERVICE] [IMPORT] [EXTRACT DATA FROM FILE] Error processing file: " + e.getMessage();
+            String message = "[SERVICE] [IMPORT] [RUN] Error processing file after " + job.getRecordsRead() + " records: " + e.getMessage();
             logger.error(message);
-            ImportLog importLog = ImportLog.builder()
-                    .operationDate(new Date())
-                    .source(source)
-                    .success(false)
-                    .message(message)
-                    .fileName(file.getOriginalFilename())
-                    .fileType(file.getContentType())
-                    .fileUrl(fileUrl)
-                    .build();
-            importLogRepository.insert(importLog);
-            return null;
-        }
-    }
-
-    private <T> void logFetch(
-            ParameterFetch<T>  parameterFetch,
-            Long numberOfEntities,
-            Long numberOfImportedEntities,
-            List<ObjectId> ids,
-            Boolean success,
-            String message
-    ) {
+            finishImport(importLog, job, false, message + " (resume import " + idImport + " to continue from record " + job.getCommittedRecords() + ")");
+        } finally {
+            this.activeImports.remove(idImport);
+            // Kept on failure for the resume
+            if(success) deleteFile(parameterFetch.getFilePath());
+        }
+    }
+
+    private void saveCheckpoint(ObjectId idImportLog, ImportJob job) {
+        try {
+            this.importLogRepository.updateCheckpoint(idImportLog, job.getCommittedBatches(), job.getCommittedRecords(), job.recordsPerSecond());
+        } catch (Exception e) {
+            // A lagging checkpoint only means a longer replay on resume
+            logger.warn("[SERVICE] [IMPORT] [CHECKPOINT] Unable to save checkpoint of {}: {}", idImportLog, e.getMessage());
+        }
+    }
+
+    /**
+     * Digest and record count of the file. On resume the digest must match
+     * the one recorded on the first run, otherwise the committed offset would point into another file.
+     * Without a counter the file has one record per line and the non-blank lines are counted in the digest pass;
+     * otherwise (CSV: header, quoted fields over several lines) the counter parses the file a second time.
+     */
+    private void scanFile(ImportCheckpoint checkpoint, Path path, ImportRecordReader.Counter counter) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long size = 0;
+        long lines = 0;
+        boolean blank = true;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            int read;
+            while ((read = inputStream.read(buffer)) > 0) {
+                messageDigest.update(buffer, 0, read);
+                size += read;
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        if (!blank) lines++;
+                        blank = true;
+                    } else if (b != ' ' && b != '\t' && b != '\r') {
+                        blank = false;
+                    }
+                }
+            }
+        }
+        if (!blank) lines++;
+
+        String digest = HexFormat.of().formatHex(messageDigest.digest());
+        if (checkpoint.getFileDigest() != null && !checkpoint.getFileDigest().equals(digest)) {
+            throw new IllegalStateException("file changed since the checkpoint, resume refused");
+        }
+
+        checkpoint.setFileDigest(digest);
+        checkpoint.setFileSize(size);
+        checkpoint.setTotalRecords(counter != null ? counter.count(path) : lines);
+    }
+
+    /**
+     * Every batch consumes exactly batchSize file records (the last one excepted), even if some are dropped,
+     * so that committed batches map back to a file offset.
+     */
+    private <T> Iterator<ImportBatch<T>> batches(ImportRecordReader<T> reader, int batchSize) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return reader.hasNext();
+            }
+
+            @Override
+            public ImportBatch<T> next() {
+                List<T> items = new ArrayList<>(batchSize);
+                int consumed = 0;
+                while (consumed < batchSize && reader.hasNext()) {
+                    T item = reader.next();
+                    consumed++;
+                    if (item != null) items.add(item);
+                }
+                return new ImportBatch<>(items, consumed);
+            }
+        };
+    }
+
+    private void finishImport(ImportLog importLog, ImportJob job, boolean success, String errorMessage) {
+        String entity = job.getEntityType().name();
+
+        this.registry.timer("import.duration", "entity", entity, "success", String.valueOf(success))
+                .record(job.elapsedNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("import.throughput")
+                .baseUnit("records.per.second")
+                .tag("entity", entity)
+                .register(this.registry)
+                .record(job.recordsPerSecond());
+        DistributionSummary.builder("import.heap.high.water")
+                .baseUnit("bytes")
+                .tag("entity", entity)
+                .register(this.registry)
+                .record(job.getHeapHighWater());
+
+        String message = success ? "Successfully processed " + job.getProcessed() + " " + entity.toLowerCase() + " records." : errorMessage;
+
+        ImportCheckpoint checkpoint = importLog.getCheckpoint();
+        checkpoint.setCommittedBatches(job.getCommittedBatches());
+        checkpoint.setCommittedRecords(job.getCommittedRecords());
+        checkpoint.setRecordsPerSecond(job.recordsPerSecond());
+        checkpoint.setUpdatedAt(new Date());
+
+        importLog.setStatus(success ? ImportStatus.COMPLETED : ImportStatus.FAILED);
+        importLog.setSuccess(success);
+        importLog.setMessage(message);
+        importLog.setNumberOfEntities(job.getProcessed());
+        importLog.setNumberOfImportedEntities(job.getImported());
+        importLog.setIds(job.getIds());
+        try {
+            this.importLogRepository.update(importLog);
+        } catch (Exception e) {
+            logger.error("[SERVICE] [IMPORT] Unable to update import log {}: {}", importLog.getId(), e.getMessage());
+        }
+        notifyUser(job.getParameterFetch(), job.getEntityType(), importLog.getId(), message);
+
+        for (ImportJob child : job.getChildren()) {
+            logFetch(child, success, success ? "Successfully processed " + child.getProcessed() + " " + child.getEntityType().name().toLowerCase() + " records." : errorMessage);
+        }
+    }
+
+    private void deleteFile(Path path) {
+        if(path == null) return;
+        try {
+            Files.deleteIfExists(path);
+        } catch (Exception e) {
+            logger.warn("[SERVICE] [IMPORT] Unable to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void logFetch(ImportJob job, Boolean success, String message) {
+        ParameterFetch<?> parameterFetch = job.getParameterFetch();
+
         ImportLog importLog = ImportLog.builder()
                 .operationDate(new Date())
                 .source(parameterFetch.getSource())
-                .entityType(parameterFetch.getEntityType())
-                .numberOfEntities(numberOfEntities)
-                .numberOfImportedEntities(numberOfImportedEntities)
-                .ids(ids)
+                .entityType(job.getEntityType())
+                .numberOfEntities(job.getProcessed())
+                .numberOfImportedEntities(job.getImported())
+                .ids(job.getIds())
                 .success(success)
                 .message(message)
                 .fileName(parameterFetch.getFileName())
@@ -351,13 +682,17 @@ public class ImportService {
                 .build();
         importLogRepository.insert(importLog);
 
+        notifyUser(parameterFetch, job.getEntityType(), importLog.getId(), message);
+    }
+
+    private void notifyUser(ParameterFetch<?> parameterFetch, EntityType entityType, ObjectId idImportLog, String message) {
         try {
             if(parameterFetch.getIdUser() != null) {
                 Notification newNotification = Notification.builder()
-                        .title("Import " + parameterFetch.getEntityType() + " from " + parameterFetch.getSource())
+                        .title("Import " + entityType + " from " + parameterFetch.getSource())
                         .message(message)
                         .userId(new ObjectId(parameterFetch.getIdUser()))
-                        .entityId(importLog.getId())
+                        .entityId(idImportLog)
                         .entityType(EntityType.IMPORT_LOG)
                         .createdAt(new Date())
                         .read(false)
@@ -365,13 +700,14 @@ public class ImportService {
                 Notification notification = this.notificationRepository.insert(newNotification);
                 if(notification != null) {
                     this.userRepository.addNotification(parameterFetch.getIdUser(), new NotificationEmbed(notification));
+                    this.notificationPushService.publish(notification);
                 }
             }
         } catch (Exception ignored) {}
     }
 
-    private void importGoodReadsBooks(ParameterFetch<BookGoodReads> parameterFetch) {
-        List<BookGoodReads> goodBooks = parameterFetch.getData()
+    private void importGoodReadsBooks(List<BookGoodReads> batch, ImportJob job) {
+        List<BookGoodReads> goodBooks = batch
                 .stream()
                 .filter(
                         b ->
@@ -382,19 +718,14 @@ public class ImportService {
 
         List<Book> bookList = this.bookRepository.importBooksFromGoodReads(goodBooks);
 
-        logFetch(
-                parameterFetch,
-                (long) parameterFetch.getData().size(),
-                (long) bookList.size(),
-                bookList.stream().map(Book::getId).toList(),
-                true,
-                "Successfully processed " + parameterFetch.getData().size() + " books."
-        );
+        job.addProcessed(batch.size());
+        job.addImported(bookList.stream().map(Book::getId).toList());
 
         Map<String, ObjectId> bookIdMap = new HashMap<>(bookList.size());
         for(Book book : bookList) {
             bookIdMap.put(book.getExternalId().getGoodReads(), book.getId());
         }
+        this.externalIdResolver.registerAll(ExternalIdType.BOOK, bookIdMap);
 
         List<String> authorExternIds = new ArrayList<>();
         for(BookGoodReads goodBook : goodBooks) {
@@ -409,11 +740,7 @@ public class ImportService {
             }
         }
 
-        List<Author> authors = this.authorRepository.findByExternGoodReadIds(authorExternIds);
-        Map<String, AuthorEmbed> authorEmbedMap = new HashMap<>();
-        for(Author author : authors) {
-            authorEmbedMap.put(author.getExternalId().getGoodReads(), new AuthorEmbed(author));
-        }
+        Map<String, AuthorEmbed> authorEmbedMap = resolveEmbeds(ExternalIdType.AUTHOR, authorExternIds, this.authorRepository::findEmbeds, AuthorEmbed::getId);
 
         Map<ObjectId, List<AuthorEmbed>> bookAuthors = new HashMap<>();
         for(BookGoodReads goodBook : goodBooks) {
@@ -430,38 +757,35 @@ public class ImportService {
 
         this.bookRepository.importBooksAuthors(bookAuthors);
 
-        parameterFetch.setEntityType(EntityType.BOOK_AUTHOR);
-        logFetch(
-                parameterFetch,
-                (long) goodBooks.size(),
-                (long) bookAuthors.size(),
-                bookAuthors.keySet().stream().toList(),
-                true,
-                "Successfully processed " + bookAuthors.size() + " books authors."
-        );
+        ImportJob bookAuthorJob = job.child(EntityType.BOOK_AUTHOR);
+        bookAuthorJob.addProcessed(goodBooks.size());
+        bookAuthorJob.addImported(bookAuthors.keySet());
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK] Importing GoodReads books completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK] batch of {} books imported.", batch.size());
     }
 
-    private void importGoodReadsAuthors(ParameterFetch<AuthorGoodReads> parameterFetch) {
-        List<Author> authorList = this.authorRepository.importAuthors(parameterFetch.getData());
+    private void importGoodReadsAuthors(List<AuthorGoodReads> batch, ImportJob job) {
+        List<Author> authorList = this.authorRepository.importAuthors(batch);
+        for(Author author : authorList) {
+            if(author.getExternalId() != null) {
+                this.externalIdResolver.register(ExternalIdType.AUTHOR, author.getExternalId().getGoodReads(), author.getId());
+            }
+        }
 
-        logFetch(
-                parameterFetch,
-                (long) parameterFetch.getData().size(),
-                (long) authorList.size(),
-                authorList.stream().map(Author::getId).toList(),
-                true,
-                "Successfully processed " + parameterFetch.getData().size() + " authors."
-        );
+        job.addProcessed(batch.size());
+        job.addImported(authorList.stream().map(Author::getId).toList());
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [AUTHORS] Importing GoodReads authors completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [AUTHORS] batch of {} authors imported.", batch.size());
     }
 
-    private void importGoodReadsGenre(ParameterFetch<BookGenreGoodReads> parameterFetch) {
-        List<String> genreStrings = new ArrayList<>(parameterFetch.getData().size());
-        for(BookGenreGoodReads genre : parameterFetch.getData()){
-            genreStrings.addAll(genre.getGenres().keySet());
+    /**
+     * GenreRepository.insert skips the names that already exist, so the genres of each batch can be
+     * inserted before its book genres are linked, in a single pass over the file.
+     */
+    private void importGoodReadsGenre(List<BookGenreGoodReads> batch, ImportJob job) {
+        List<String> genreStrings = new ArrayList<>(batch.size());
+        for(BookGenreGoodReads genre : batch){
+            if(genre.getGenres() != null) genreStrings.addAll(genre.getGenres().keySet());
         }
 
         List<Genre> genres = genreStrings.stream()
@@ -469,48 +793,39 @@ public class ImportService {
                 .map(genreString -> Genre.builder().name(genreString).build())
                 .toList();
 
-        List<Genre> genreList = this.genreRepository.insert(genres);
+        // Serialized: concurrent batches would both insert a genre that is new to each of them
+        List<Genre> genreList;
+        synchronized (this.referenceCreationLock) {
+            genreList = this.genreRepository.insert(genres);
+        }
 
-        logFetch(
-                parameterFetch,
-                (long) genres.size(),
-                (long) genreList.size(),
-                genreList.stream().map(Genre::getId).toList(),
-                true,
-                "Successfully processed " + genres.size() + " genres."
-        );
+        // Records read from the file, as the other imports count them: a batch names fewer genres than records
+        job.addProcessed(batch.size());
+        job.addImported(genreList.stream().map(Genre::getId).toList());
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [GENRE] Importing GoodReads genres completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [GENRE] batch of {} records, {} genres imported.", batch.size(), genres.size());
 
-        parameterFetch.setEntityType(EntityType.BOOK_GENRE);
-        processSaveImport(parameterFetch, this::importGoodReadsBookGenre);
+        importGoodReadsBookGenre(batch, job.child(EntityType.BOOK_GENRE));
     }
 
-    private void importGoodReadsBookGenre(ParameterFetch<BookGenreGoodReads> parameterFetch) {
-        List<String> externBookIds = parameterFetch.getData().stream().map(BookGenreGoodReads::getBookId).toList();
-        List<Book> books = this.bookRepository.findByGoodReadsExternIds(externBookIds);
-
-        Map<String, Book> mapExternIdBook = books.stream()
-                .filter(b -> b.getExternalId() != null && b.getExternalId().getGoodReads() != null)
-                .collect(Collectors.toMap(
-                        b -> b.getExternalId().getGoodReads(),
-                        b -> b
-                ));
+    private void importGoodReadsBookGenre(List<BookGenreGoodReads> batch, ImportJob job) {
+        List<String> externBookIds = batch.stream().map(BookGenreGoodReads::getBookId).toList();
+        Map<String, ObjectId> mapExternIdBook = this.externalIdResolver.resolve(ExternalIdType.BOOK, externBookIds);
 
 
-        List<String> allGenreNames = parameterFetch.getData().stream()
+        List<String> allGenreNames = batch.stream()
                 .filter(item -> item.getGenres() != null)
                 .flatMap(item -> item.getGenres().keySet().stream())
                 .distinct()
                 .toList();
         Map<String, Genre> mapNameGenre = resolveGenres(allGenreNames);
 
-        Long updated = 0L;
-        for(BookGenreGoodReads item : parameterFetch.getData()){
+        long updated = 0L;
+        for(BookGenreGoodReads item : batch){
             if(item.getBookId() == null || item.getGenres() == null || item.getGenres().isEmpty()) continue;
 
-            Book book = mapExternIdBook.get(item.getBookId());
-            if(book == null) continue;
+            ObjectId idBook = mapExternIdBook.get(item.getBookId());
+            if(idBook == null) continue;
 
             List<GenreEmbed> genreEmbeds = item.getGenres()
                     .keySet()
@@ -522,50 +837,45 @@ public class ImportService {
 
             if(genreEmbeds.isEmpty()) continue;
 
-            if(this.bookRepository.updateGenres(book.getId().toHexString(), genreEmbeds)) updated++;
+            if(this.bookRepository.updateGenres(idBook.toHexString(), genreEmbeds)) updated++;
         }
 
-        logFetch(
-                parameterFetch,
-                (long) externBookIds.size(),
-                updated,
-                new ArrayList<>(),
-                true,
-                "Successfully processed " + externBookIds.size() + " book genres."
-        );
+        job.addProcessed(externBookIds.size());
+        job.addImported(updated);
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK GENRE] Importing GoodReads book genres completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK GENRE] batch of {} book genres imported.", externBookIds.size());
     }
 
-    private void importGoodReadsSimilarBooks(ParameterFetch<BookGoodReads> parameterFetch) {
+    private void importGoodReadsSimilarBooks(List<BookGoodReads> batch, ImportJob job) {
 
-        // 1. Collect all Goodreads IDs
-        List<String> allBookIds = parameterFetch.getData()
+        // 1. Collect the Goodreads IDs of the batch
+        List<String> allBookIds = batch
                 .stream()
                 .map(BookGoodReads::getBookId)
                 .toList();
 
-        // 2. Load all books from DB
-        List<Book> books = bookRepository.findByGoodReadsExternIds(allBookIds);
-
+        // 2. Load the books and their similar books from DB (similar books are rarely in the same batch)
+        List<String> lookupIds = batch.stream()
+                .flatMap(item -> Stream.concat(
+                        Stream.of(item.getBookId()),
+                        item.getSimilarBooks() != null ? item.getSimilarBooks().stream() : Stream.empty()
+                ))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
         // 3. Map Goodreads ID → Book
-        Map<String, Book> mapExternIdBook = books.stream()
-                .filter(b -> b.getExternalId() != null && b.getExternalId().getGoodReads() != null)
-                .collect(Collectors.toMap(
-                        b -> b.getExternalId().getGoodReads(),
-                        b -> b
-                ));
+        Map<String, BookEmbed> mapExternIdBook = resolveEmbeds(ExternalIdType.BOOK, lookupIds, this.bookRepository::findEmbeds, BookEmbed::getId);
 
         long updated = 0L;
 
         Map<String, List<BookEmbed>> mapBooks = new HashMap<>();
-        for (BookGoodReads item : parameterFetch.getData()) {
+        for (BookGoodReads item : batch) {
 
             if (item.getBookId() == null || item.getSimilarBooks() == null || item.getSimilarBooks().isEmpty())
                 continue;
 
             // 4. Find main book
-            Book mainBook = mapExternIdBook.get(item.getBookId());
+            BookEmbed mainBook = mapExternIdBook.get(item.getBookId());
             if (mainBook == null) continue;
 
             // 5. Map similar books
@@ -590,18 +900,12 @@ public class ImportService {
             updated++;
         }
 
-        boolean success = this.bookRepository.updateSimilarBooks(mapBooks);
+        boolean success = !mapBooks.isEmpty() && this.bookRepository.updateSimilarBooks(mapBooks);
 
-        logFetch(
-                parameterFetch,
-                (long) allBookIds.size(),
-                success ? updated : 0,
-                new ArrayList<>(),
-                true,
-                "Successfully processed similar books."
-        );
+        job.addProcessed(allBookIds.size());
+        job.addImported(success ? updated : 0);
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK SIMILARITY] Importing GoodReads similar books completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [BOOK SIMILARITY] batch of {} similar books imported.", allBookIds.size());
     }
 
 
@@ -644,66 +948,88 @@ public class ImportService {
         return reader;
     }
 
-    private Map<String, Reviewer> findOrGenerateReviewers(List<String> externUserIds) {
+    /**
+     * Serialized: two resolve workers seeing the same unknown user would both create it.
+     */
+    private Map<String, UserEmbed> findOrGenerateReviewers(List<String> externUserIds) {
         if(externUserIds.isEmpty()) return new HashMap<>();
 
-        List<Reviewer> users = this.userRepository.findByGoodReadsExternIds(externUserIds);
-
-        List<String> existingUsersExternIds = users.stream()
-                .filter(u -> u.getExternalId() != null)
-                .map(u -> u.getExternalId().getGoodReads())
-                .toList();
+        synchronized (this.referenceCreationLock) {
+            return findOrGenerateReviewersLocked(externUserIds);
+        }
+    }
 
-        List<String> usersToCreate = new ArrayList<>(externUserIds);
-        usersToCreate.removeAll(existingUsersExternIds);
+    private Map<String, UserEmbed> findOrGenerateReviewersLocked(List<String> externUserIds) {
+        Map<String, UserEmbed> mapExternIdUser = resolveEmbeds(ExternalIdType.REVIEWER, externUserIds, this.userRepository::findEmbeds, UserEmbed::getId);
 
-        List<Reviewer> newUsers = usersToCreate.stream()
+        List<Reviewer> newUsers = externUserIds.stream()
+                .distinct()
+                .filter(externUserId -> !mapExternIdUser.containsKey(externUserId))
                 .map(this::generateUserReviewerFromGoodReads)
                 .toList();
 
         List<Reviewer> insertedUsers = this.userRepository.insert(newUsers).reversed();
 
-        Map<String, Reviewer> mapExternIdUser = users.stream()
-                .filter(u -> u.getExternalId() != null && u.getExternalId().getGoodReads() != null)
-                .collect(Collectors.toMap(
-                        u -> u.getExternalId().getGoodReads(),
-                        u -> u,
-                        (existing, replacement) -> existing
-                ));
-        mapExternIdUser.putAll(
-                insertedUsers.stream()
-                        .filter(u -> u.getExternalId() != null && u.getExternalId().getGoodReads() != null)
-                        .collect(Collectors.toMap(
-                                u -> u.getExternalId().getGoodReads(),
-                                u -> u,
-                                (existing, replacement) -> existing
-                        ))
-        );
+        for(Reviewer user : insertedUsers) {
+            if(user.getId() == null || user.getExternalId() == null || user.getExternalId().getGoodReads() == null) continue;
+
+            this.externalIdResolver.register(ExternalIdType.REVIEWER, user.getExternalId().getGoodReads(), user.getId());
+            mapExternIdUser.putIfAbsent(user.getExternalId().getGoodReads(), user.toEmbed());
+        }
 
         return mapExternIdUser;
     }
 
-    private void importGoodReadsReviews(ParameterFetch<InteractionGoodReads> parameterFetch) {
-        // List<String> externReviewIds = parameterFetch.getData().stream().map(InteractionGoodReads::getReviewId).toList();
-        List<String> externBookIds = parameterFetch.getData().stream().map(InteractionGoodReads::getBookId).toList();
-        List<String> externUserIds = parameterFetch.getData().stream().map(InteractionGoodReads::getUserId).toList();
+    /**
+     * GoodReads ids to the embedded form of their documents: the ids come from the ExternalIdResolver,
+     * the embeds from the embed near-caches of the repositories, so a batch of books and users already
+     * seen reads nothing from the database. An id whose document is gone is evicted and resolved once
+     * more against the database, in case it was imported again under a new _id.
+     */
+    private <T> Map<String, T> resolveEmbeds(
+            ExternalIdType type,
+            Collection<String> externalIds,
+            Function<Collection<ObjectId>, List<T>> loader,
+            Function<T, ObjectId> idGetter
+    ) {
+        Map<String, T> resolved = new HashMap<>();
 
-        List<Book> books = this.bookRepository.findByGoodReadsExternIds(externBookIds);
+        Collection<String> pending = externalIds;
+        for(int pass = 0; pass < 2 && !pending.isEmpty(); pass++) {
+            Map<String, ObjectId> ids = this.externalIdResolver.resolve(type, pending);
 
-        Map<String, Book> mapExternIdBook = books.stream()
-                .filter(b -> b.getExternalId() != null && b.getExternalId().getGoodReads() != null)
-                .collect(Collectors.toMap(
-                        b -> b.getExternalId().getGoodReads(),
-                        b -> b,
-                        (existing, replacement) -> existing
-                ));
+            Map<ObjectId, T> embeds = new HashMap<>(ids.size());
+            for(T embed : loader.apply(new HashSet<>(ids.values()))) {
+                embeds.put(idGetter.apply(embed), embed);
+            }
 
-        Map<String, Reviewer> mapExternIdUser = findOrGenerateReviewers(externUserIds);
+            List<String> stale = new ArrayList<>();
+            ids.forEach((externalId, id) -> {
+                T embed = embeds.get(id);
+                if(embed != null) resolved.put(externalId, embed);
+                else stale.add(externalId);
+            });
 
-        List<Review> reviews = new ArrayList<>(parameterFetch.getData().size());
-        Map<String, List<Review>> mapBookIdReview = new HashMap<>();
-        List<ReviewerRead> reviewersRead = new ArrayList<>(parameterFetch.getData().size());
-        for(InteractionGoodReads interactionGoodReads : parameterFetch.getData()) {
+            if(!stale.isEmpty()) this.externalIdResolver.evict(type, stale);
+            pending = stale;
+        }
+
+        return resolved;
+    }
+
+    private record ResolvedReviews(List<Review> reviews, List<ReviewerRead> reads) {}
+
+    private ResolvedReviews resolveGoodReadsReviews(List<InteractionGoodReads> batch, ImportJob job) {
+        List<String> externBookIds = batch.stream().map(InteractionGoodReads::getBookId).toList();
+        List<String> externUserIds = batch.stream().map(InteractionGoodReads::getUserId).distinct().toList();
+
+        Map<String, BookEmbed> mapExternIdBook = resolveEmbeds(ExternalIdType.BOOK, externBookIds, this.bookRepository::findEmbeds, BookEmbed::getId);
+
+        Map<String, UserEmbed> mapExternIdUser = findOrGenerateReviewers(externUserIds);
+
+        List<Review> reviews = new ArrayList<>(batch.size());
+        List<ReviewerRead> reviewersRead = new ArrayList<>(batch.size());
+        for(InteractionGoodReads interactionGoodReads : batch) {
             if(mapExternIdBook.containsKey(interactionGoodReads.getBookId()) && mapExternIdUser.containsKey(interactionGoodReads.getUserId())) {
                 ExternalId externalId = ExternalId.builder()
                         .goodReads(interactionGoodReads.getReviewId())
@@ -711,7 +1037,7 @@ public class ImportService {
 
                 Review review = Review.builder()
                         .bookId(mapExternIdBook.get(interactionGoodReads.getBookId()).getId())
-                        .user(mapExternIdUser.get(interactionGoodReads.getUserId()).toEmbed())
+                        .user(mapExternIdUser.get(interactionGoodReads.getUserId()))
                         .rating(interactionGoodReads.getRating())
                         .comment(interactionGoodReads.getReviewTextIncomplete())
                         .dateAdded(interactionGoodReads.getDateAdded())
@@ -722,12 +1048,9 @@ public class ImportService {
 
                 reviews.add(review);
 
-                if(!mapBookIdReview.containsKey(review.getBookId().toHexString())) mapBookIdReview.put(review.getBookId().toHexString(), new ArrayList<>());
-                mapBookIdReview.get(review.getBookId().toHexString()).add(review);
-
                 ReviewerRead read = ReviewerRead.builder()
                         .userId(mapExternIdUser.get(interactionGoodReads.getUserId()).getId())
-                        .book(new BookEmbed(mapExternIdBook.get(interactionGoodReads.getBookId())))
+                        .book(mapExternIdBook.get(interactionGoodReads.getBookId()))
                         .isRead(interactionGoodReads.getIsRead())
                         .readAt(interactionGoodReads.getReadAt())
                         .startedAt(interactionGoodReads.getStartedAt())
@@ -737,54 +1060,44 @@ public class ImportService {
             }
         }
 
-        List<Review> reviewsSaved = this.reviewRepository.insertFromGoodReads(reviews);
+        return new ResolvedReviews(reviews, reviewersRead);
+    }
 
-        // this.bookRepository.addReviews(reviewsSaved);
-        mapBookIdReview.forEach(this.bookRepository::addReviews);
+    private void writeGoodReadsReviews(ResolvedReviews resolved, ImportJob job) {
+        List<Review> reviewsSaved = this.reviewRepository.insertFromGoodReads(resolved.reviews());
 
-        this.userRepository.importGoodReadsReviewsRead(reviewersRead);
+        // Only the newly inserted reviews: they carry their _id, and re-imported ones are not counted twice
+        this.bookRepository.addReviews(reviewsSaved);
 
-        logFetch(
-                parameterFetch,
-                (long) reviews.size(),
-                (long) reviewsSaved.size(),
-                reviewsSaved.stream().map(Review::getId).toList(),
-                true,
-                "Successfully processed " + reviews.size() + " reviews."
-        );
+        this.userRepository.importGoodReadsReviewsRead(resolved.reads());
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [REVIEWS] Importing GoodReads reviews completed.");
+        job.addProcessed(resolved.reviews().size());
+        job.addImported(reviewsSaved.stream().map(Review::getId).toList());
+
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [REVIEWS] batch of {} reviews imported.", resolved.reviews().size());
     }
 
 
-    private void importGoodReadsAddToShelf(ParameterFetch<InteractionGoodReads> parameterFetch){
+    private List<ReviewerRead> resolveGoodReadsAddToShelf(List<InteractionGoodReads> batch, ImportJob job){
 
-        List<InteractionGoodReads> goodReadsInteractions = parameterFetch.getData()
+        List<InteractionGoodReads> goodReadsInteractions = batch
                 .stream()
                 .filter(i -> i.getIsRead() != null && i.getIsRead())
                 .toList();
 
         List<String> externBookIds = goodReadsInteractions.stream().map(InteractionGoodReads::getBookId).toList();
-        List<String> externUserIds = goodReadsInteractions.stream().map(InteractionGoodReads::getUserId).toList();
+        List<String> externUserIds = goodReadsInteractions.stream().map(InteractionGoodReads::getUserId).distinct().toList();
 
-        List<Book> books = this.bookRepository.findByGoodReadsExternIds(externBookIds);
+        Map<String, BookEmbed> mapExternIdBook = resolveEmbeds(ExternalIdType.BOOK, externBookIds, this.bookRepository::findEmbeds, BookEmbed::getId);
 
-        Map<String, Book> mapExternIdBook = books.stream()
-                .filter(b -> b.getExternalId() != null && b.getExternalId().getGoodReads() != null)
-                .collect(Collectors.toMap(
-                        b -> b.getExternalId().getGoodReads(),
-                        b -> b,
-                        (existing, replacement) -> existing
-                ));
-
-        Map<String, Reviewer> mapExternIdUser = findOrGenerateReviewers(externUserIds);
+        Map<String, UserEmbed> mapExternIdUser = findOrGenerateReviewers(externUserIds);
 
         List<ReviewerRead> reviewersRead = new ArrayList<>(goodReadsInteractions.size());
         for(InteractionGoodReads interactionGoodReads : goodReadsInteractions) {
             if(mapExternIdBook.containsKey(interactionGoodReads.getBookId()) && mapExternIdUser.containsKey(interactionGoodReads.getUserId())) {
                 ReviewerRead read = ReviewerRead.builder()
                         .userId(mapExternIdUser.get(interactionGoodReads.getUserId()).getId())
-                        .book(new BookEmbed(mapExternIdBook.get(interactionGoodReads.getBookId())))
+                        .book(mapExternIdBook.get(interactionGoodReads.getBookId()))
                         .isRead(interactionGoodReads.getIsRead())
                         .readAt(interactionGoodReads.getReadAt())
                         .startedAt(interactionGoodReads.getStartedAt())
@@ -794,25 +1107,23 @@ public class ImportService {
             }
         }
 
+        return reviewersRead;
+    }
+
+    private void writeGoodReadsAddToShelf(List<ReviewerRead> reviewersRead, ImportJob job) {
         int userUpdated = this.userRepository.importGoodReadsReviewsRead(reviewersRead);
 
-        logFetch(
-                parameterFetch,
-                (long) reviewersRead.size(),
-                (long) userUpdated,
-                new ArrayList<>(),
-                true,
-                "Successfully processed " + userUpdated + " reads."
-        );
+        job.addProcessed(reviewersRead.size());
+        job.addImported(userUpdated);
 
-        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [REVIEWS] Importing GoodReads reviews completed.");
+        logger.debug("[SERVICE] [IMPORT] [GOOD READS] [SHELF] batch of {} reads imported.", reviewersRead.size());
     }
 
 
 
-    private void importKaggleCsvBooks(ParameterFetch<BookCsvRecord> parameterFetch) {
+    private void importKaggleCsvBooks(List<BookCsvRecord> batch, ImportJob job) {
 
-        List<BookCsvRecord> goodBooks = parameterFetch.getData()
+        List<BookCsvRecord> goodBooks = batch
                 .stream()
                 .filter(
                         b -> b.getTitle() != null && !b.getTitle().isBlank()
@@ -830,13 +1141,19 @@ public class ImportService {
                 .distinct()
                 .toList();
 
-        List<Author> existingAuthors = this.authorRepository.findAuthorsByNames(authorNames);
+        List<Author> authors;
+        // Serialized: concurrent batches would both insert an author that is new to each of them
+        synchronized (this.referenceCreationLock) {
+            List<Author> existingAuthors = this.authorRepository.findAuthorsByNames(authorNames);
 
-        List<String> newAuthorNames = authorNames.stream()
-                .filter(name -> existingAuthors.stream().noneMatch(author -> author.getName().equals(name)))
-                .toList();
+            List<String> newAuthorNames = authorNames.stream()
+                    .filter(name -> existingAuthors.stream().noneMatch(author -> author.getName().equals(name)))
+                    .toList();
 
-        List<Author> authors = this.authorRepository.insertUsingName(newAuthorNames);
+            authors = new ArrayList<>(existingAuthors);
+            authors.addAll(this.authorRepository.insertUsingName(newAuthorNames));
+        }
+        // Existing authors are mapped too: an author created by a previous batch is "existing" in the next ones
         Map<String, Author> mapNameAuthor = authors.stream()
                 .collect(Collectors.toMap(
                         Author::getName,
@@ -877,22 +1194,17 @@ public class ImportService {
             this.authorRepository.updateBooks(entry.getKey(), entry.getValue());
         }
 
-        logFetch(
-                parameterFetch,
-                (long) parameterFetch.getData().size(),
-                (long) bookList.size(),
-                bookList.stream().map(Book::getId).toList(),
-                true,
-                "Successfully processed " + parameterFetch.getData().size() + " books."
-        );
+        job.addProcessed(batch.size());
+        job.addImported(bookList.stream().map(Book::getId).toList());
     }
 
 
-    private void importGoogleCsvBooks(ParameterFetch<GoogleBookCsvRecord> parameterFetch) {
+    private void importGoogleCsvBooks(List<GoogleBookCsvRecord> batch, ImportJob job) {
 
         // Don't have isbn, isbn13 so impossible to process the import
+        job.addProcessed(batch.size());
 
-        /*List<GoogleBookCsvRecord> goodBooks = parameterFetch.getData()
+        /*List<GoogleBookCsvRecord> goodBooks = batch
                 .stream()
                 .filter(
                         b -> b.getTitle() != null && !b.getTitle().isBlank()
@@ -3,14 +3,19 @@ package it.unipi.booknetapi.service.genre;
 import it.unipi.booknetapi.command.genre.*;
 import it.unipi.booknetapi.command.stat.AnalyticsGetListCommand;
 import it.unipi.booknetapi.dto.genre.GenreResponse;
+import it.unipi.booknetapi.dto.search.SearchSuggestionResponse;
 import it.unipi.booknetapi.dto.stat.ChartDataPointResponse;
 import it.unipi.booknetapi.model.genre.Genre;
 import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.stat.ActivityType;
 import it.unipi.booknetapi.model.stat.ChartDataPoint;
 import it.unipi.booknetapi.model.stat.ChartHelper;
-import it.unipi.booknetapi.repository.genre.GenreRepository;
-import it.unipi.booknetapi.repository.stat.AnalyticsRepository;
+import it.unipi.booknetapi.repository.genre.GenreRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.AnalyticsRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.search.SearchIndex;
+import it.unipi.booknetapi.shared.lib.search.SearchIndexManager;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
@@ -20,20 +25,25 @@ import java.util.List;
 @Service
 public class GenreService {
 
-    private final AnalyticsRepository analyticsRepository;
-    private final GenreRepository genreRepository;
+    private final AnalyticsRepositoryInterface analyticsRepository;
+    private final AsyncManager asyncManager;
+    private final GenreRepositoryInterface genreRepository;
+    private final SearchIndexManager searchIndexManager;
 
     public GenreService(
-            AnalyticsRepository analyticsRepository,
-            GenreRepository genreRepository
+            AnalyticsRepositoryInterface analyticsRepository,
+            AsyncManager asyncManager,
+            GenreRepositoryInterface genreRepository,
+            SearchIndexManager searchIndexManager
     ) {
         this.analyticsRepository = analyticsRepository;
+        this.asyncManager = asyncManager;
         this.genreRepository = genreRepository;
+        this.searchIndexManager = searchIndexManager;
     }
 
     public void migrate() {
-        Thread thread = new Thread(this.genreRepository::migrate);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.genreRepository::migrate);
     }
 
 
@@ -57,11 +67,6 @@ public class GenreService {
         );
     }
 
-    private void logGenreActivityInThread(Genre genre, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logGenreActivity(genre, type, ratingValue));
-        thread.start();
-    }
-
     private void logGenreActivity(GenreEmbed genre, ActivityType type, int ratingValue) {
         this.analyticsRepository.recordActivity(
                 null, null,
@@ -72,11 +77,6 @@ public class GenreService {
         );
     }
 
-    private void logGenreActivityInThread(GenreEmbed genre, ActivityType type, int ratingValue) {
-        Thread thread = new Thread(() -> logGenreActivity(genre, type, ratingValue));
-        thread.start();
-    }
-
 
     public GenreResponse getGenreById(GenreGetCommand command) {
         if(command.getId() == null) return null;
@@ -84,7 +84,7 @@ public class GenreService {
         Genre genre = this.genreRepository.findById(command.getId()).orElse(null);
         if(genre == null) return null;
 
-        logGenreActivityInThread(genre, ActivityType.READ, 0);
+        logGenreActivity(genre, ActivityType.READ, 0);
 
         return new GenreResponse(genre);
     }
@@ -145,6 +145,20 @@ public class GenreService {
     }
 
 
+    /**
+     * @return genre names starting with what has been typed, best first
+     */
+    public List<SearchSuggestionResponse> suggestGenres(GenreSearchCommand command) {
+        if(command.getName() == null || command.getName().isBlank()) return List.of();
+
+        int limit = command.getPagination() == null ? 10 : command.getPagination().getSize();
+
+        List<SearchIndex.Hit> hits = this.searchIndexManager.genres().suggest(command.getName(), limit);
+        if(hits == null) return List.of();
+
+        return hits.stream().map(SearchSuggestionResponse::new).toList();
+    }
+
 
     public List<ChartDataPointResponse> getAnalytics(AnalyticsGetListCommand command) {
         if (command.getId() == null) return null;
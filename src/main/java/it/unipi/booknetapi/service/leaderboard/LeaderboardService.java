@@ -0,0 +1,316 @@
+package it.unipi.booknetapi.service.leaderboard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.author.AuthorStats;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.book.BookRecommendation;
+import it.unipi.booknetapi.model.leaderboard.LeaderboardType;
+import it.unipi.booknetapi.repository.author.AuthorRepositoryInterface;
+import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Materialized top-K lists for the popularity endpoints (/book/popular/*, /author/most/*).
+ * Every board is recomputed from Neo4j on a schedule and kept in memory, so reads are a subList of
+ * an immutable snapshot. Shelf additions and removals bump the shelf boards in place; ratings and preference
+ * changes mark their board dirty so it is recomputed early. Bumps made while a board is recomputed are
+ * replayed on the new snapshot. Requests above the capacity (or for a rating window
+ * that is not precomputed) fall back to the repository query.
+ */
+@Service
+public class LeaderboardService {
+
+    Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private static final String ALL_TIME = "all";
+
+    private final BookRepositoryInterface bookRepository;
+    private final AuthorRepositoryInterface authorRepository;
+    private final MeterRegistry registry;
+
+    private final int capacity;
+    private final long minDirtyRefreshMs;
+
+    private final Board<BookRecommendation> booksByRating;
+    private final Board<BookRecommendation> booksByShelf;
+    private final Board<AuthorStats> authorsMostWritten;
+    private final Board<AuthorStats> authorsMostFollowed;
+    private final Board<AuthorStats> authorsMostRead;
+    private final Map<Long, Board<BookRecommendation>> booksByRatingWindow = new HashMap<>();
+
+    private final List<Board<?>> boards = new ArrayList<>();
+
+    public LeaderboardService(
+            AppConfiguration config,
+            AsyncManager asyncManager,
+            BookRepositoryInterface bookRepository,
+            AuthorRepositoryInterface authorRepository,
+            MeterRegistry registry
+    ) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.registry = registry;
+
+        this.capacity = config.getInt("app.leaderboard.capacity", 100);
+        this.minDirtyRefreshMs = TimeUnit.SECONDS.toMillis(config.getLong("app.leaderboard.dirty-min-age-seconds", 30L));
+        long refreshIntervalSeconds = config.getLong("app.leaderboard.refresh-interval-seconds", 300L);
+
+        this.booksByRating = register(new Board<>(LeaderboardType.BOOKS_BY_RATING, ALL_TIME, this.bookRepository::findPopularBooksByRating));
+        this.booksByShelf = register(new Board<>(LeaderboardType.BOOKS_BY_SHELF, ALL_TIME, this.bookRepository::findPopularBooksByShelf));
+        this.authorsMostWritten = register(new Board<>(LeaderboardType.AUTHORS_MOST_WRITTEN, ALL_TIME, this.authorRepository::findMostWrittenBooksAuthors));
+        this.authorsMostFollowed = register(new Board<>(LeaderboardType.AUTHORS_MOST_FOLLOWED, ALL_TIME, this.authorRepository::findMostFollowedAuthors));
+        this.authorsMostRead = register(new Board<>(LeaderboardType.AUTHORS_MOST_READ, ALL_TIME, this.authorRepository::findMostReadAuthors));
+
+        for (String window : config.getString("app.leaderboard.rating-windows-days", "7,30").split(",")) {
+            if (window.isBlank()) continue;
+            long dayAgo = Long.parseLong(window.trim());
+            this.booksByRatingWindow.put(dayAgo, register(new Board<>(
+                    LeaderboardType.BOOKS_BY_RATING,
+                    dayAgo + "d",
+                    limit -> this.bookRepository.findPopularBooksByRating(dayAgo, limit)
+            )));
+        }
+
+        if (config.getBoolean("app.leaderboard.enabled", true)) {
+            // The two jobs may meet on a board: its second refresh is skipped while the first one runs
+            asyncManager.schedule(Workload.BACKGROUND, "leaderboard-refresh", this::refreshAll, 0, refreshIntervalSeconds, TimeUnit.SECONDS);
+            asyncManager.schedule(Workload.BACKGROUND, "leaderboard-dirty", this::refreshDirty, this.minDirtyRefreshMs, this.minDirtyRefreshMs, TimeUnit.MILLISECONDS);
+        } else {
+            logger.info("[LEADERBOARD] disabled, popularity queries go to Neo4j");
+        }
+    }
+
+    private <T> Board<T> register(Board<T> board) {
+        Gauge.builder("leaderboard.staleness.seconds", board, Board::stalenessSeconds)
+                .tag("board", board.type.getType())
+                .tag("window", board.window)
+                .register(this.registry);
+        this.boards.add(board);
+        return board;
+    }
+
+
+    public List<BookRecommendation> getPopularBooksByRating(int limit) {
+        return this.booksByRating.read(limit);
+    }
+
+    public List<BookRecommendation> getPopularBooksByRating(Long dayAgo, int limit) {
+        Board<BookRecommendation> board = this.booksByRatingWindow.get(dayAgo);
+        if (board == null) return this.bookRepository.findPopularBooksByRating(dayAgo, limit);
+
+        return board.read(limit);
+    }
+
+    public List<BookRecommendation> getPopularBooksByShelf(int limit) {
+        return this.booksByShelf.read(limit);
+    }
+
+    public List<AuthorStats> getMostWrittenBooksAuthors(int limit) {
+        return this.authorsMostWritten.read(limit);
+    }
+
+    public List<AuthorStats> getMostFollowedAuthors(int limit) {
+        return this.authorsMostFollowed.read(limit);
+    }
+
+    public List<AuthorStats> getMostReadAuthors(int limit) {
+        return this.authorsMostRead.read(limit);
+    }
+
+
+    /**
+     * A reader added a book to the shelf: +1 for the book and for each of its authors.
+     * Entries outside the top-K are not tracked, so in that case the board is marked dirty
+     * to let a climbing book enter on the next early refresh.
+     */
+    public void onShelfAdd(BookEmbed book) {
+        onShelfChange(book, 1);
+    }
+
+    /**
+     * A reader removed a book from the shelf: -1 for the book and for each of its authors.
+     * The board is always marked dirty, an untracked entry may now rank above the decremented one.
+     */
+    public void onShelfRemove(BookEmbed book) {
+        onShelfChange(book, -1);
+    }
+
+    private void onShelfChange(BookEmbed book, int delta) {
+        if (book == null || book.getId() == null) return;
+
+        String idBook = book.getId().toHexString();
+        boolean bookInBoard = this.booksByShelf.update(entries -> bump(
+                entries,
+                e -> e.getId() != null && e.getId().toHexString().equals(idBook),
+                e -> new BookRecommendation(e, (e.getScore() != null ? e.getScore() : 0) + delta),
+                Comparator.comparing(BookRecommendation::getScore, Comparator.nullsLast(Comparator.reverseOrder()))
+        ));
+        if (!bookInBoard || delta < 0) this.booksByShelf.dirty.set(true);
+
+        if (book.getAuthors() == null || book.getAuthors().isEmpty()) return;
+
+        Set<String> idAuthors = new HashSet<>();
+        for (AuthorEmbed author : book.getAuthors()) {
+            if (author.getId() != null) idAuthors.add(author.getId().toHexString());
+        }
+        boolean authorsInBoard = this.authorsMostRead.update(entries -> bump(
+                entries,
+                e -> idAuthors.contains(e.getId()),
+                e -> AuthorStats.builder().id(e.getId()).name(e.getName()).count((e.getCount() != null ? e.getCount() : 0) + delta).build(),
+                Comparator.comparing(AuthorStats::getCount, Comparator.nullsLast(Comparator.reverseOrder()))
+        ));
+        if (!authorsInBoard || delta < 0) this.authorsMostRead.dirty.set(true);
+    }
+
+    public void onRating() {
+        this.booksByRating.dirty.set(true);
+        this.booksByRatingWindow.values().forEach(board -> board.dirty.set(true));
+    }
+
+    public void onPreferenceUpdate() {
+        this.authorsMostFollowed.dirty.set(true);
+    }
+
+    private static <T> List<T> bump(List<T> entries, Predicate<T> match, UnaryOperator<T> increment, Comparator<T> order) {
+        boolean found = false;
+        List<T> updated = new ArrayList<>(entries.size());
+        for (T entry : entries) {
+            if (match.test(entry)) {
+                updated.add(increment.apply(entry));
+                found = true;
+            } else {
+                updated.add(entry);
+            }
+        }
+        if (!found) return entries;
+
+        // Stable sort: ties keep the order computed by Neo4j
+        updated.sort(order);
+        return List.copyOf(updated);
+    }
+
+
+    public void refreshAll() {
+        this.boards.forEach(this::refreshSafely);
+    }
+
+    private void refreshDirty() {
+        long now = System.currentTimeMillis();
+        for (Board<?> board : this.boards) {
+            // The Neo4j side is written by the outbox relay, give it time before recomputing
+            if (board.dirty.get() && now - board.refreshedAt >= this.minDirtyRefreshMs) {
+                refreshSafely(board);
+            }
+        }
+    }
+
+    private void refreshSafely(Board<?> board) {
+        try {
+            board.refresh();
+        } catch (Exception e) {
+            this.registry.counter("leaderboard.refresh.failed", "board", board.type.getType()).increment();
+            logger.error("[LEADERBOARD] [REFRESH] {} {} failed: {}", board.type, board.window, e.getMessage());
+        }
+    }
+
+
+    private final class Board<T> {
+
+        private final LeaderboardType type;
+        private final String window;
+        private final IntFunction<List<T>> loader;
+        private final Timer refreshTimer;
+        private final Counter fallbackCounter;
+
+        private final AtomicBoolean dirty = new AtomicBoolean(false);
+        private volatile List<T> entries = List.of();
+        private volatile long refreshedAt = 0;
+        // Bumps made while a refresh is querying, replayed on the loaded entries; null when no refresh runs
+        private List<UnaryOperator<List<T>>> journal;
+
+        Board(LeaderboardType type, String window, IntFunction<List<T>> loader) {
+            this.type = type;
+            this.window = window;
+            this.loader = loader;
+            this.refreshTimer = registry.timer("leaderboard.refresh", "board", type.getType(), "window", window);
+            this.fallbackCounter = registry.counter("leaderboard.fallback", "board", type.getType(), "window", window);
+        }
+
+        List<T> read(int limit) {
+            if (limit < 1) limit = 20;
+
+            // Not materialized yet, or asking for more than is kept
+            if (this.refreshedAt == 0 || limit > capacity) {
+                this.fallbackCounter.increment();
+                return this.loader.apply(limit);
+            }
+
+            List<T> snapshot = this.entries;
+            return snapshot.subList(0, Math.min(limit, snapshot.size()));
+        }
+
+        void refresh() {
+            synchronized (this) {
+                if (this.journal != null) return;
+                this.journal = new ArrayList<>();
+            }
+            // Cleared before the query: an event arriving meanwhile marks it again
+            this.dirty.set(false);
+
+            List<T> loaded;
+            try {
+                loaded = this.refreshTimer.record(() -> this.loader.apply(capacity));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    this.journal = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                List<T> rebuilt = loaded != null ? List.copyOf(loaded) : List.of();
+                for (UnaryOperator<List<T>> operator : this.journal) rebuilt = operator.apply(rebuilt);
+                this.journal = null;
+
+                this.entries = rebuilt;
+                this.refreshedAt = System.currentTimeMillis();
+            }
+
+            logger.debug("[LEADERBOARD] [REFRESH] {} {} entries: {}", this.type, this.window, this.entries.size());
+        }
+
+        /**
+         * @return false if the operator left the snapshot unchanged (or nothing is materialized yet)
+         */
+        synchronized boolean update(UnaryOperator<List<T>> operator) {
+            if (this.journal != null) this.journal.add(operator);
+            if (this.refreshedAt == 0) return false;
+
+            List<T> before = this.entries;
+            this.entries = operator.apply(before);
+            return this.entries != before;
+        }
+
+        double stalenessSeconds() {
+            long refreshed = this.refreshedAt;
+            return refreshed == 0 ? -1 : (System.currentTimeMillis() - refreshed) / 1000.0;
+        }
+    }
+
+}
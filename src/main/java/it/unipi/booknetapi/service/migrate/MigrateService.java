@@ -1,76 +1,404 @@
 package it.unipi.booknetapi.service.migrate;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.command.migrate.MigrationGetCommand;
+import it.unipi.booknetapi.command.migrate.MigrationResumeCommand;
+import it.unipi.booknetapi.command.migrate.MigrationStartCommand;
+import it.unipi.booknetapi.dto.migrate.MigrationEntityReport;
+import it.unipi.booknetapi.dto.migrate.MigrationReportResponse;
+import it.unipi.booknetapi.model.migrate.MigrationEntity;
+import it.unipi.booknetapi.model.migrate.MigrationLog;
+import it.unipi.booknetapi.model.migrate.MigrationRange;
+import it.unipi.booknetapi.model.migrate.MigrationStatus;
 import it.unipi.booknetapi.repository.author.AuthorRepository;
 import it.unipi.booknetapi.repository.book.BookRepository;
 import it.unipi.booknetapi.repository.genre.GenreRepository;
+import it.unipi.booknetapi.repository.migrate.MigrationLogRepository;
 import it.unipi.booknetapi.repository.review.ReviewRepository;
 import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * MongoDB to Neo4j migration. Every collection is split in _id ranges that are copied in parallel
+ * on the {@link Workload#MIGRATION_RANGE} pool, so at most app.async.migration-range.pool-size Neo4j
+ * writes run at the same time.
+ * Collections are migrated stage by stage ({@link MigrationEntity#getStage()}) and the resume point of
+ * every range is checkpointed in migration_logs: a failed or interrupted migration is resumed from
+ * the last written batch of its unfinished ranges. A batch written but not yet checkpointed is
+ * written again on resume, the Cypher of the repositories only MERGEs.
+ */
 @Service
+@Profile("!local")
 public class MigrateService {
 
+    Logger logger = LoggerFactory.getLogger(MigrateService.class);
+
+    private final AsyncManager asyncManager;
+    private final MigrationLogRepository migrationLogRepository;
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
     private final GenreRepository genreRepository;
     private final UserRepository userRepository;
     private final ReviewRepository reviewRepository;
+    private final MeterRegistry registry;
+
+    private final int rangesPerCollection;
+    // Ranges in flight, recorded in the migration log: submissions wait for a free slot
+    private final int concurrency;
+
+    // One migration at a time; a RUNNING log with another id was interrupted by a restart
+    private final AtomicReference<String> activeMigration = new AtomicReference<>();
 
     public MigrateService(
+            AppConfiguration config,
+            MeterRegistry registry,
+            AsyncManager asyncManager,
+            MigrationLogRepository migrationLogRepository,
             AuthorRepository authorRepository,
             BookRepository bookRepository,
             GenreRepository genreRepository,
             UserRepository userRepository,
             ReviewRepository reviewRepository
     ) {
+        this.asyncManager = asyncManager;
+        this.migrationLogRepository = migrationLogRepository;
         this.authorRepository = authorRepository;
         this.bookRepository = bookRepository;
         this.genreRepository = genreRepository;
         this.userRepository = userRepository;
         this.reviewRepository = reviewRepository;
+        this.registry = registry;
+
+        this.rangesPerCollection = Math.max(1, config.getInt("app.migration.ranges-per-collection", 8));
+        this.concurrency = asyncManager.getPoolSize(Workload.MIGRATION_RANGE);
     }
 
-    public void migrateData() {
 
-        migrateGenres();
+    public String start(MigrationStartCommand command) {
+        if(command == null || !command.isValid()) return "Invalid command";
+
+        int ranges = command.getRangesPerCollection() != null ? command.getRangesPerCollection() : this.rangesPerCollection;
+
+        Date now = new Date();
+        MigrationLog migrationLog = MigrationLog.builder()
+                .id(new ObjectId())
+                .userId(command.getUserToken().getIdUser() != null && ObjectId.isValid(command.getUserToken().getIdUser())
+                        ? new ObjectId(command.getUserToken().getIdUser())
+                        : null)
+                .status(MigrationStatus.QUEUED)
+                .rangesPerCollection(ranges)
+                .concurrency(this.concurrency)
+                .ranges(new ArrayList<>())
+                .startedAt(now)
+                .updatedAt(now)
+                .build();
+
+        String idMigration = migrationLog.getId().toHexString();
+        if(!this.activeMigration.compareAndSet(null, idMigration)) {
+            return "Migration " + this.activeMigration.get() + " is already running";
+        }
 
-        migrateAuthors();
+        if(this.migrationLogRepository.insert(migrationLog) == null) {
+            this.activeMigration.set(null);
+            return "Unable to create the migration log";
+        }
 
-        migrateBooks();
+        if(!submit(migrationLog)) return "Migration rejected: the migration queue is full, resume migration " + idMigration + " later.";
 
-        migrateReaders();
+        logger.info("[SERVICE] [MIGRATE] [START] {} ranges per collection: {}, concurrency: {}", idMigration, ranges, this.concurrency);
 
-        migrateReviewers();
+        return "Migration " + idMigration + " started.";
     }
 
-    private void migrateGenres() {
-        try {
-            this.genreRepository.migrate();
-        } catch (Exception ignored) {}
+    /**
+     * Runs the unfinished ranges of a failed or interrupted migration again, from their checkpoint.
+     */
+    public String resume(MigrationResumeCommand command) {
+        if(command == null || !command.isValid()) return "Invalid command";
+
+        MigrationLog migrationLog = this.migrationLogRepository.findById(command.getId()).orElse(null);
+        if(migrationLog == null) return "Migration not found";
+        if(migrationLog.getStatus() == MigrationStatus.COMPLETED) return "Migration already completed";
+
+        String idMigration = migrationLog.getId().toHexString();
+        if(!this.activeMigration.compareAndSet(null, idMigration)) {
+            return "Migration " + this.activeMigration.get() + " is already running";
+        }
+
+        this.migrationLogRepository.updateStatus(migrationLog.getId(), MigrationStatus.QUEUED, null);
+
+        if(!submit(migrationLog)) return "Migration rejected: the migration queue is full, resume migration " + idMigration + " later.";
+
+        long pending = migrationLog.getRanges() == null ? 0 : migrationLog.getRanges().stream()
+                .filter(range -> range.getStatus() != MigrationStatus.COMPLETED)
+                .count();
+
+        logger.info("[SERVICE] [MIGRATE] [RESUME] {} pending ranges: {}", idMigration, pending);
+
+        return "Migration " + idMigration + " resumed.";
     }
 
-    private void migrateAuthors() {
-        try {
-            this.authorRepository.migrate();
-        } catch (Exception ignored) {}
+    public MigrationReportResponse getReport(MigrationGetCommand command) {
+        if(command == null || !command.isValid()) return null;
+
+        MigrationLog migrationLog = this.migrationLogRepository.findById(command.getId()).orElse(null);
+        if(migrationLog == null) return null;
+
+        String idMigration = migrationLog.getId().toHexString();
+        boolean running = idMigration.equals(this.activeMigration.get());
+
+        List<MigrationRange> ranges = migrationLog.getRanges() != null ? migrationLog.getRanges() : List.of();
+
+        List<MigrationEntityReport> entities = new ArrayList<>();
+        for(MigrationEntity entity : MigrationEntity.values()) {
+            List<MigrationRange> entityRanges = ranges.stream().filter(range -> range.getEntity() == entity).toList();
+            if(entityRanges.isEmpty()) continue;
+
+            entities.add(entityReport(entity, entityRanges));
+        }
+
+        return MigrationReportResponse.builder()
+                .id(idMigration)
+                .status(migrationLog.getStatus())
+                .message(migrationLog.getMessage())
+                .rangesPerCollection(migrationLog.getRangesPerCollection())
+                .concurrency(migrationLog.getConcurrency())
+                .entities(entities)
+                .startedAt(migrationLog.getStartedAt())
+                .updatedAt(migrationLog.getUpdatedAt())
+                .finishedAt(migrationLog.getFinishedAt())
+                .running(running)
+                .resumable(!running && migrationLog.getStatus() != MigrationStatus.COMPLETED)
+                .build();
     }
 
-    private void migrateBooks() {
-        try {
-            this.bookRepository.migrate();
-        } catch (Exception ignored) {}
+    private MigrationEntityReport entityReport(MigrationEntity entity, List<MigrationRange> ranges) {
+        int completed = 0;
+        int failed = 0;
+        boolean started = false;
+        long migrated = 0;
+        Date firstStart = null;
+        Date lastUpdate = null;
+        List<String> errors = new ArrayList<>();
+
+        for(MigrationRange range : ranges) {
+            if(range.getStatus() == MigrationStatus.COMPLETED) completed++;
+            if(range.getStatus() == MigrationStatus.FAILED) {
+                failed++;
+                if(range.getError() != null) errors.add("range " + range.getIndex() + ": " + range.getError());
+            }
+            if(range.getStatus() == MigrationStatus.RUNNING) started = true;
+            if(range.getMigrated() != null) migrated += range.getMigrated();
+            if(range.getStartedAt() != null && (firstStart == null || range.getStartedAt().before(firstStart))) firstStart = range.getStartedAt();
+            if(range.getUpdatedAt() != null && (lastUpdate == null || range.getUpdatedAt().after(lastUpdate))) lastUpdate = range.getUpdatedAt();
+        }
+
+        MigrationStatus status;
+        if(completed == ranges.size()) status = MigrationStatus.COMPLETED;
+        else if(started) status = MigrationStatus.RUNNING;
+        else if(failed > 0) status = MigrationStatus.FAILED;
+        else status = MigrationStatus.QUEUED;
+
+        Double rate = null;
+        if(firstStart != null && lastUpdate != null && lastUpdate.after(firstStart)) {
+            rate = migrated * 1000.0 / (lastUpdate.getTime() - firstStart.getTime());
+        }
+
+        return MigrationEntityReport.builder()
+                .entity(entity)
+                .status(status)
+                .ranges(ranges.size())
+                .completedRanges(completed)
+                .failedRanges(failed)
+                .migrated(migrated)
+                .documentsPerSecond(rate)
+                .errors(errors)
+                .build();
+    }
+
+
+    private boolean submit(MigrationLog migrationLog) {
+        boolean accepted = this.asyncManager.tryExecute(Workload.MIGRATION, () -> {
+            try {
+                run(migrationLog);
+            } catch (Exception e) {
+                logger.error("[SERVICE] [MIGRATE] [RUN] {} failed: {}", migrationLog.getId(), e.getMessage());
+                this.migrationLogRepository.updateStatus(migrationLog.getId(), MigrationStatus.FAILED, e.getMessage());
+            } finally {
+                this.activeMigration.set(null);
+            }
+        });
+
+        if(!accepted) {
+            this.activeMigration.set(null);
+            this.migrationLogRepository.updateStatus(migrationLog.getId(), MigrationStatus.FAILED, "Rejected: the migration queue is full");
+        }
+        return accepted;
+    }
+
+    private void run(MigrationLog migrationLog) {
+        ObjectId idMigration = migrationLog.getId();
+
+        if(migrationLog.getRanges() == null || migrationLog.getRanges().isEmpty()) {
+            this.migrationLogRepository.updateStatus(idMigration, MigrationStatus.PLANNING, null);
+            migrationLog.setRanges(plan(migrationLog.getRangesPerCollection() != null ? migrationLog.getRangesPerCollection() : this.rangesPerCollection));
+            migrationLog.setStatus(MigrationStatus.PLANNING);
+            this.migrationLogRepository.update(migrationLog);
+        }
+
+        this.migrationLogRepository.updateStatus(idMigration, MigrationStatus.RUNNING, null);
+
+        SortedMap<Integer, List<MigrationRange>> stages = new TreeMap<>();
+        for(MigrationRange range : migrationLog.getRanges()) {
+            if(range.getStatus() == MigrationStatus.COMPLETED) continue;
+            stages.computeIfAbsent(range.getEntity().getStage(), stage -> new ArrayList<>()).add(range);
+        }
+
+        for(Map.Entry<Integer, List<MigrationRange>> stage : stages.entrySet()) {
+            logger.info("[SERVICE] [MIGRATE] [STAGE] {} stage: {}, ranges: {}", idMigration, stage.getKey(), stage.getValue().size());
+
+            int failed = 0;
+            Semaphore slots = new Semaphore(this.concurrency);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for(MigrationRange range : stage.getValue()) {
+                try {
+                    slots.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed += stage.getValue().size() - futures.size();
+                    break;
+                }
+
+                CompletableFuture<Boolean> future;
+                try {
+                    future = this.asyncManager.submit(Workload.MIGRATION_RANGE, () -> migrateRange(idMigration, range));
+                } catch (RejectedExecutionException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((migrated, e) -> slots.release());
+                futures.add(future);
+            }
+
+            for(Future<Boolean> future : futures) {
+                if(!await(future)) failed++;
+            }
+
+            // The next stages depend on this one (reviews MATCH their book): stop, a resume retries the failed ranges
+            if(failed > 0) {
+                String message = failed + " ranges of stage " + stage.getKey() + " failed, resume migration " + idMigration.toHexString() + " to retry them";
+                logger.warn("[SERVICE] [MIGRATE] [STAGE] {}", message);
+                this.migrationLogRepository.updateStatus(idMigration, MigrationStatus.FAILED, message);
+                return;
+            }
+        }
+
+        this.migrationLogRepository.updateStatus(idMigration, MigrationStatus.COMPLETED, null);
+
+        logger.info("[SERVICE] [MIGRATE] [END] {}", idMigration);
     }
 
-    private void migrateReaders() {
+    private boolean await(Future<Boolean> future) {
         try {
-            this.userRepository.migrateReaders();
-        } catch (Exception ignored) {}
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
     }
 
-    private void migrateReviewers() {
+    /**
+     * Splits every collection in about rangesPerCollection ranges.
+     */
+    private List<MigrationRange> plan(int rangesPerCollection) {
+        List<MigrationRange> ranges = new ArrayList<>();
+
+        for(MigrationEntity entity : MigrationEntity.values()) {
+            List<ObjectId> boundaries = split(entity, rangesPerCollection);
+
+            ObjectId afterId = null;
+            for(int index = 0; index <= boundaries.size(); index++) {
+                ObjectId upToId = index < boundaries.size() ? boundaries.get(index) : null;
+                ranges.add(MigrationRange.builder()
+                        .entity(entity)
+                        .index(index)
+                        .afterId(afterId)
+                        .upToId(upToId)
+                        .migrated(0L)
+                        .status(MigrationStatus.QUEUED)
+                        .build());
+                afterId = upToId;
+            }
+
+            logger.debug("[SERVICE] [MIGRATE] [PLAN] {} ranges: {}", entity.getKey(), boundaries.size() + 1);
+        }
+
+        return ranges;
+    }
+
+    private boolean migrateRange(ObjectId idMigration, MigrationRange range) {
+        MigrationEntity entity = range.getEntity();
+        int index = range.getIndex();
+        ObjectId afterId = range.getLastId() != null ? range.getLastId() : range.getAfterId();
+        long[] migrated = { range.getMigrated() != null ? range.getMigrated() : 0L };
+
+        this.migrationLogRepository.updateRangeStatus(idMigration, entity, index, MigrationStatus.RUNNING, null);
+
+        Timer.Sample sample = Timer.start(this.registry);
         try {
-            this.reviewRepository.migrate();
-        } catch (Exception ignored) {}
+            migrate(entity, afterId, range.getUpToId(), (lastId, size) -> {
+                migrated[0] += size;
+                this.registry.counter("migration.documents", "entity", entity.getKey()).increment(size);
+                this.migrationLogRepository.updateRangeCheckpoint(idMigration, entity, index, lastId, migrated[0]);
+            });
+
+            this.migrationLogRepository.updateRangeStatus(idMigration, entity, index, MigrationStatus.COMPLETED, null);
+            sample.stop(this.registry.timer("migration.range", "entity", entity.getKey(), "outcome", "completed"));
+            return true;
+        } catch (Exception e) {
+            logger.error("[SERVICE] [MIGRATE] [RANGE] {} {} #{} failed after {} documents: {}", idMigration, entity.getKey(), index, migrated[0], e.getMessage());
+            this.registry.counter("migration.errors", "entity", entity.getKey()).increment();
+            sample.stop(this.registry.timer("migration.range", "entity", entity.getKey(), "outcome", "failed"));
+
+            this.migrationLogRepository.updateRangeStatus(idMigration, entity, index, MigrationStatus.FAILED, e.getMessage());
+            return false;
+        }
+    }
+
+    private List<ObjectId> split(MigrationEntity entity, int ranges) {
+        return switch(entity) {
+            case GENRES -> this.genreRepository.splitForMigration(ranges);
+            case AUTHORS -> this.authorRepository.splitForMigration(ranges);
+            case BOOKS -> this.bookRepository.splitForMigration(ranges);
+            case READERS -> this.userRepository.splitReadersForMigration(ranges);
+            case REVIEWERS -> this.userRepository.splitReviewersForMigration(ranges);
+            case REVIEWS -> this.reviewRepository.splitForMigration(ranges);
+        };
+    }
+
+    private long migrate(MigrationEntity entity, ObjectId afterId, ObjectId upToId, BiConsumer<ObjectId, Integer> onBatch) {
+        return switch(entity) {
+            case GENRES -> this.genreRepository.migrate(afterId, upToId, onBatch);
+            case AUTHORS -> this.authorRepository.migrate(afterId, upToId, onBatch);
+            case BOOKS -> this.bookRepository.migrate(afterId, upToId, onBatch);
+            case READERS -> this.userRepository.migrateReaders(afterId, upToId, onBatch);
+            case REVIEWERS -> this.userRepository.migrateReviewers(afterId, upToId, onBatch);
+            case REVIEWS -> this.reviewRepository.migrate(afterId, upToId, onBatch);
+        };
     }
 
 }
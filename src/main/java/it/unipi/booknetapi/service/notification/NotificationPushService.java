@@ -0,0 +1,109 @@
+package it.unipi.booknetapi.service.notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.command.notification.NotificationStreamCommand;
+import it.unipi.booknetapi.dto.notification.NotificationResponse;
+import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.push.PushBroker;
+import it.unipi.booknetapi.shared.lib.push.SseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes new notifications to the connected clients over SSE, one channel per user.
+ */
+@Service
+public class NotificationPushService {
+
+    Logger logger = LoggerFactory.getLogger(NotificationPushService.class);
+
+    private static final String EVENT_NAME = "notification";
+
+    private final PushBroker broker;
+
+    private final boolean enabled;
+    private final int maxConnections;
+    private final int queueSize;
+    private final long timeoutMillis;
+    private final Duration heartbeat;
+    private final Duration retry;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Timer fanoutTimer;
+    private final Counter droppedCounter;
+
+    public NotificationPushService(AppConfiguration config, PushBroker broker, MeterRegistry registry) {
+        this.broker = broker;
+
+        this.enabled = config.getBoolean("app.push.enabled", true);
+        this.maxConnections = config.getInt("app.push.max-connections", 10000);
+        this.queueSize = config.getInt("app.push.queue-size", 256);
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(config.getLong("app.push.timeout-minutes", 30L));
+        this.heartbeat = Duration.ofSeconds(config.getLong("app.push.heartbeat-seconds", 20L));
+        this.retry = Duration.ofMillis(config.getLong("app.push.retry-millis", 3000L));
+
+        this.fanoutTimer = registry.timer("push.fanout.latency");
+        this.droppedCounter = registry.counter("push.events.dropped", "reason", "slow_consumer");
+        Gauge.builder("push.connections", this.connections, AtomicInteger::get)
+                .register(registry);
+    }
+
+    private static String channel(String idUser) {
+        return "notification:" + idUser;
+    }
+
+
+    /**
+     * Best effort: the notification is already stored, clients that miss it find it with GET /notification.
+     */
+    public void publish(Notification notification) {
+        if(!this.enabled || notification == null || notification.getUserId() == null) return;
+
+        try {
+            this.broker.publish(channel(notification.getUserId().toHexString()), EVENT_NAME, new NotificationResponse(notification));
+        } catch (Exception e) {
+            logger.warn("[PUSH] [NOTIFICATION] [PUBLISH] failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return the event stream, or null if push is disabled or the connection limit is reached
+     */
+    public SseEmitter connect(NotificationStreamCommand command) {
+        if(!this.enabled || command.getIdUser() == null) return null;
+
+        if(this.connections.incrementAndGet() > this.maxConnections) {
+            this.connections.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(this.timeoutMillis);
+        SseConnection connection = new SseConnection(
+                channel(command.getIdUser()),
+                emitter,
+                this.broker,
+                this.queueSize,
+                this.heartbeat,
+                this.retry,
+                this.fanoutTimer,
+                this.droppedCounter,
+                this.connections::decrementAndGet
+        );
+        connection.open(command.getLastEventId());
+
+        logger.debug("[PUSH] [NOTIFICATION] [CONNECT] user: {}, last event: {}", command.getIdUser(), command.getLastEventId());
+
+        return emitter;
+    }
+
+}
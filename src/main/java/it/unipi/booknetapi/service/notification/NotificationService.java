@@ -7,24 +7,34 @@ import it.unipi.booknetapi.model.notification.Notification;
 import it.unipi.booknetapi.model.notification.NotificationEmbed;
 import it.unipi.booknetapi.model.user.Admin;
 import it.unipi.booknetapi.model.user.User;
-import it.unipi.booknetapi.repository.notification.NotificationRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.notification.NotificationRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
 import it.unipi.booknetapi.shared.model.PageResult;
+import jakarta.annotation.PostConstruct;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
-    private final UserRepository userRepository;
+    Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository) {
+    private final NotificationRepositoryInterface notificationRepository;
+    private final UserRepositoryInterface userRepository;
+    private final NotificationPushService notificationPushService;
+
+    public NotificationService(
+            NotificationRepositoryInterface notificationRepository,
+            UserRepositoryInterface userRepository,
+            NotificationPushService notificationPushService
+    ) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
+        this.notificationPushService = notificationPushService;
     }
 
 
@@ -40,40 +50,24 @@ public class NotificationService {
     public PageResult<NotificationResponse> get(NotificationGetByUserCommand command) {
         if(command.getIdUser() == null) return null;
 
-        List<ObjectId> idNotifications = this.userRepository.getNotificationsIds(command.getIdUser());
-
-        if(idNotifications.isEmpty()) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int totalElements = idNotifications.size();
-        int skip = command.getPagination().getPage() * command.getPagination().getSize();
-        if(skip >= totalElements) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int limit = Math.min(command.getPagination().getSize(), totalElements - skip);
-        List<ObjectId> idNotificationsPage = idNotifications.subList(skip, skip + limit);
-
-        List<Notification> notifcations = this.notificationRepository.findByOIds(idNotificationsPage);
+        PageResult<Notification> result = this.notificationRepository.findAll(command.getIdUser(), command.getRead(), command.getPagination());
 
         return new PageResult<>(
-                notifcations.stream().map(NotificationResponse::new).toList(),
-                totalElements,
-                command.getPagination().getPage(),
-                command.getPagination().getSize()
+                result.getContent().stream().map(NotificationResponse::new).toList(),
+                result.getTotalElements(),
+                result.getCurrentPage(),
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
     public List<NotificationEmbedResponse> get(NotificationLastestCommand command) {
         if(command.getIdUser() == null) return null;
 
-        User user = this.userRepository.findById(command.getIdUser()).orElse(null);
-        if(user == null) return null;
-
-        if(user instanceof Admin admin) {
-            if(admin.getLastNotifications() == null || admin.getLastNotifications().isEmpty()) return new ArrayList<>();
-
-            return admin.getLastNotifications().stream().map(NotificationEmbedResponse::new).toList();
-        }
+        List<NotificationEmbed> notifications = this.userRepository.findLastNotifications(command.getIdUser());
+        if(notifications == null) return null;
 
-        return null;
+        return notifications.stream().map(NotificationEmbedResponse::new).toList();
     }
 
     public NotificationResponse add(NotificationCreateCommand command) {
@@ -84,6 +78,7 @@ public class NotificationService {
             Notification notification = this.notificationRepository.insert(new Notification(command));
             if(notification != null) {
                 this.userRepository.addNotification(command.getIdUser(), new NotificationEmbed(notification));
+                this.notificationPushService.publish(notification);
 
                 return new NotificationResponse(notification);
             }
@@ -93,28 +88,92 @@ public class NotificationService {
     }
 
     public boolean read(NotificationReadCommand command) {
-        if(command.getId() == null) return false;
+        if(command.getId() == null || command.getIdUser() == null) return false;
+
+        boolean read = command.getRead() == null || command.getRead();
+
+        return markRead(command.getIdUser(), List.of(command.getId()), read) > 0;
+    }
 
-        return this.notificationRepository.read(command.getId(), command.getRead());
+    /**
+     * @return notifications whose state changed
+     */
+    public long read(NotificationIdsReadCommand command) {
+        if(command.getIdUser() == null || command.getIds() == null || command.getIds().isEmpty()) return 0;
+
+        boolean read = command.getRead() == null || command.getRead();
+
+        return markRead(command.getIdUser(), command.getIds(), read);
+    }
+
+    /**
+     * @return notifications marked as read
+     */
+    public long read(NotificationReadAllCommand command) {
+        if(command.getIdUser() == null) return 0;
+
+        long modified = this.notificationRepository.readAll(command.getIdUser());
+        this.userRepository.incrementUnreadNotifications(command.getIdUser(), -modified);
+
+        return modified;
+    }
+
+    // The update only matches the notifications in the other state, so the counter moves by what really changed
+    private long markRead(String idUser, List<String> ids, boolean read) {
+        long modified = this.notificationRepository.read(idUser, ids, read);
+        this.userRepository.incrementUnreadNotifications(idUser, read ? -modified : modified);
+
+        return modified;
+    }
+
+    /**
+     * Sets the unread counter of the admins created before it, before this instance serves requests.
+     * The repository counts and writes in one operation and only where the counter is still absent,
+     * so instances starting together do not overwrite a counter already moved by the increments.
+     */
+    @PostConstruct
+    public void initUnreadCounters() {
+        long admins = this.userRepository.initUnreadNotifications();
+
+        if (admins > 0) logger.info("[SERVICE] [NOTIFICATION] [INIT UNREAD COUNTERS] admins: {}", admins);
+    }
+
+    /**
+     * Unread notifications of the user, from the counter of the user document (only the counter is read).
+     * An admin whose counter is not set yet is counted on the (userId, read) index without writing it.
+     * @return null if the user is not an admin
+     */
+    public Long getUnreadCount(NotificationUnreadCommand command) {
+        if(command.getIdUser() == null) return null;
+
+        Admin admin = this.userRepository.findUnreadNotifications(command.getIdUser());
+        if(admin == null) return null;
+
+        if(admin.getUnreadNotifications() != null) return (long) Math.max(0, admin.getUnreadNotifications());
+
+        return this.notificationRepository.countUnread(command.getIdUser());
     }
 
     public boolean delete(NotificationDeleteCommand command) {
         if(command.getId() == null || command.getIdUser() == null) return false;
 
-        boolean deleted = this.notificationRepository.delete(command.getId());
-        if(deleted) {
-            this.userRepository.deleteNotification(command.getIdUser(), command.getId());
-        }
-
-        return deleted;
+        return delete(command.getIdUser(), List.of(command.getId())) > 0;
     }
 
     public boolean delete(NotificationIdsDeleteCommand command) {
-        if(command.getIds() == null || command.getIds().isEmpty()) return false;
+        if(command.getIdUser() == null || command.getIds() == null || command.getIds().isEmpty()) return false;
+
+        return delete(command.getIdUser(), command.getIds()) > 0;
+    }
+
+    private long delete(String idUser, List<String> ids) {
+        // Unread ones first, to know how much to take off the counter
+        long unread = this.notificationRepository.delete(idUser, ids, false);
+        long deleted = unread + this.notificationRepository.delete(idUser, ids, null);
 
-        boolean deleted = this.notificationRepository.delete(command.getIds());
-        if(deleted) {
-            this.userRepository.deleteNotification(command.getIdUser(), command.getIds());
+        if(deleted > 0) {
+            this.userRepository.deleteNotification(idUser, ids);
+            this.userRepository.incrementUnreadNotifications(idUser, -unread);
         }
 
         return deleted;
@@ -0,0 +1,286 @@
+package it.unipi.booknetapi.service.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.outbox.OutboxEvent;
+import it.unipi.booknetapi.model.outbox.OutboxEventType;
+import it.unipi.booknetapi.model.outbox.OutboxStatus;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import jakarta.annotation.PreDestroy;
+import org.bson.types.ObjectId;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Values;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox collection into Neo4j.
+ * Consecutive events of the same type are applied as one UNWIND statement in a single
+ * write transaction; every statement MERGEs on mid, so applying an event twice is harmless.
+ * With several instances only the holder of the relay lease drains; the lease is renewed before every batch.
+ */
+@Component
+@Profile("!local")
+public class OutboxRelay {
+
+    Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final Map<OutboxEventType, String> CYPHER = new EnumMap<>(OutboxEventType.class);
+
+    static {
+        CYPHER.put(OutboxEventType.BOOK_UPSERT, """
+                UNWIND $batch AS row
+                MERGE (b:Book {mid: row.id})
+                SET b.title = row.title,
+                    b.ratingAvg = row.ratingAvg
+                """);
+        CYPHER.put(OutboxEventType.GENRE_UPSERT, """
+                UNWIND $batch AS row
+                MERGE (g:Genre {mid: row.id})
+                SET g.name = row.name
+                """);
+        CYPHER.put(OutboxEventType.SHELF_UPSERT, """
+                UNWIND $batch AS row
+                // The Reader node may not be written yet (it is created asynchronously with the user)
+                MERGE (r:Reader {mid: row.userId})
+                MERGE (b:Book {mid: row.bookId})
+                ON CREATE SET b.title = row.bookTitle
+                MERGE (r)-[rel:ADDED_TO_SHELF]->(b)
+                // A null status keeps the current one (adding a book already on the shelf)
+                SET rel.ts = row.ts,
+                    rel.status = COALESCE(row.status, rel.status, 'ADDED')
+                """);
+        CYPHER.put(OutboxEventType.REVIEW_UPSERT, """
+                UNWIND $batch AS row
+                MERGE (r:Reader {mid: row.userId})
+                MATCH (b:Book {mid: row.bookId})
+                MERGE (r)-[rel:RATED]->(b)
+                SET rel.rating = row.rating,
+                    rel.ts = row.ts
+                """);
+        CYPHER.put(OutboxEventType.SHELF_DELETE, """
+                UNWIND $batch AS row
+                MATCH (:Reader {mid: row.userId})-[rel:ADDED_TO_SHELF]->(:Book {mid: row.bookId})
+                DELETE rel
+                """);
+        CYPHER.put(OutboxEventType.REVIEW_DELETE, """
+                UNWIND $batch AS row
+                MATCH (:Reader {mid: row.userId})-[rel:RATED]->(:Book {mid: row.bookId})
+                DELETE rel
+                """);
+    }
+
+    private final OutboxRepositoryInterface outboxRepository;
+    private final Neo4jManager neo4jManager;
+    private final MeterRegistry registry;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retentionMs;
+    private final long leaseMs;
+    private final String owner = UUID.randomUUID().toString();
+    private volatile boolean stopped;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final Counter failedCounter;
+
+    public OutboxRelay(
+            AppConfiguration config,
+            AsyncManager asyncManager,
+            OutboxRepositoryInterface outboxRepository,
+            Neo4jManager neo4jManager,
+            MeterRegistry registry
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.neo4jManager = neo4jManager;
+        this.registry = registry;
+
+        this.batchSize = config.getInt("app.outbox.batch-size", 500);
+        this.maxAttempts = config.getInt("app.outbox.max-attempts", 10);
+        this.retentionMs = TimeUnit.HOURS.toMillis(config.getLong("app.outbox.retention-hours", 72L));
+        this.leaseMs = config.getLong("app.outbox.lease-ms", 30000L);
+        long pollIntervalMs = config.getLong("app.outbox.poll-interval-ms", 500L);
+
+        registry.gauge("outbox.pending", this.pending);
+        registry.gauge("outbox.lag.seconds", this.lagSeconds);
+        this.failedCounter = registry.counter("outbox.relay.failed");
+
+        if (config.getBoolean("app.outbox.relay-enabled", true)) {
+            asyncManager.schedule(Workload.BACKGROUND, "outbox-drain", this::drainSafely, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+            asyncManager.schedule(Workload.BACKGROUND, "outbox-purge", this::purgeSafely, 1, 1, TimeUnit.HOURS);
+        } else {
+            logger.info("[OUTBOX] [RELAY] disabled on this instance");
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            logger.error("[OUTBOX] [RELAY] Error during drain: {}", e.getMessage());
+        } finally {
+            updateGauges();
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            long deleted = this.outboxRepository.deleteProcessedBefore(new Date(System.currentTimeMillis() - this.retentionMs));
+            logger.debug("[OUTBOX] [PURGE] deleted: {}", deleted);
+        } catch (Exception e) {
+            logger.error("[OUTBOX] [PURGE] Error during purge: {}", e.getMessage());
+        }
+    }
+
+    private void updateGauges() {
+        try {
+            this.pending.set(this.outboxRepository.count(OutboxStatus.PENDING));
+            Date oldest = this.outboxRepository.findOldestPendingDate();
+            this.lagSeconds.set(oldest != null ? (System.currentTimeMillis() - oldest.getTime()) / 1000 : 0);
+        } catch (Exception e) {
+            logger.error("[OUTBOX] [RELAY] Error during gauges update: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Applies pending events until the outbox is empty or a batch fails.
+     * On failure the loop stops, so the failed events are retried on the next tick instead of spinning.
+     * Every batch is claimed by taking or renewing the relay lease first; without it the drain stops.
+     */
+    public synchronized void drain() {
+        // Keys with a failed event: their later events stay pending until it goes through
+        Set<String> blocked = new HashSet<>();
+
+        while (true) {
+            if (this.stopped || !this.outboxRepository.acquireLease(this.owner, this.leaseMs)) return;
+
+            List<OutboxEvent> events = this.outboxRepository.findPending(this.batchSize);
+            if (events.isEmpty()) return;
+
+            boolean clean = true;
+            for (List<OutboxEvent> run : splitByType(events)) {
+                clean &= apply(run, blocked);
+            }
+
+            if (!clean || events.size() < this.batchSize) return;
+        }
+    }
+
+    /**
+     * Events are fetched in insertion order; splitting into contiguous runs (not a group-by)
+     * keeps a shelf write from being applied before the book it points to.
+     */
+    private List<List<OutboxEvent>> splitByType(List<OutboxEvent> events) {
+        List<List<OutboxEvent>> runs = new ArrayList<>();
+        List<OutboxEvent> current = new ArrayList<>();
+
+        for (OutboxEvent event : events) {
+            if (!current.isEmpty() && current.getFirst().getType() != event.getType()) {
+                runs.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(event);
+        }
+        if (!current.isEmpty()) runs.add(current);
+
+        return runs;
+    }
+
+    /**
+     * The node or relationship an event writes: the events of one key must be applied in order.
+     * Shelf and review events, upserts and deletes, share the reader+book key.
+     */
+    private static String aggregateKey(OutboxEvent event) {
+        Map<String, Object> payload = event.getPayload();
+        return switch (event.getType()) {
+            case SHELF_UPSERT, REVIEW_UPSERT, SHELF_DELETE, REVIEW_DELETE -> "reader-book:" + payload.get("userId") + ":" + payload.get("bookId");
+            default -> event.getType().getType() + ":" + payload.get("id");
+        };
+    }
+
+    /**
+     * Applies a run of events of the same type. Only an in-order prefix of each key is marked done:
+     * once an event fails, the later events of its key are left pending (not counted as attempts),
+     * so an older write is never replayed over a newer one.
+     * @param blocked keys with a failed event in this drain, updated with the new failures
+     * @return true if every event of the run was applied
+     */
+    private boolean apply(List<OutboxEvent> run, Set<String> blocked) {
+        OutboxEventType type = run.getFirst().getType();
+
+        List<OutboxEvent> ready = run.stream()
+                .filter(event -> !blocked.contains(aggregateKey(event)))
+                .toList();
+        if (ready.isEmpty()) return false;
+
+        try {
+            write(type, ready);
+            this.outboxRepository.markDone(ready.stream().map(OutboxEvent::getId).toList());
+            this.registry.counter("outbox.relay.events", "type", type.getType()).increment(ready.size());
+            return ready.size() == run.size();
+        } catch (Exception e) {
+            logger.warn("[OUTBOX] [RELAY] batch of {} {} events failed, retrying one by one: {}", ready.size(), type, e.getMessage());
+        }
+
+        // Isolate the poison event(s), the other keys of the run still go through
+        List<ObjectId> done = new ArrayList<>();
+        for (OutboxEvent event : ready) {
+            String key = aggregateKey(event);
+            if (blocked.contains(key)) continue;
+
+            try {
+                write(type, List.of(event));
+                done.add(event.getId());
+            } catch (Exception e) {
+                blocked.add(key);
+                this.failedCounter.increment();
+                this.outboxRepository.markAttemptFailed(event.getId(), e.getMessage(), this.maxAttempts);
+            }
+        }
+        this.outboxRepository.markDone(done);
+        this.registry.counter("outbox.relay.events", "type", type.getType()).increment(done.size());
+
+        return done.size() == run.size();
+    }
+
+    private void write(OutboxEventType type, List<OutboxEvent> events) {
+        List<Map<String, Object>> batch = events.stream()
+                .<Map<String, Object>>map(event -> new HashMap<>(event.getPayload()))
+                .toList();
+
+        this.registry.timer("outbox.relay.batch", "type", type.getType()).record(() -> {
+            try (Session session = this.neo4jManager.getDriver().session()) {
+                session.executeWrite(tx -> {
+                    tx.run(CYPHER.get(type), Values.parameters("batch", batch));
+                    return null;
+                });
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.stopped = true;
+
+        // After the running batch, so the next holder does not apply events this one is still writing
+        synchronized (this) {
+            try {
+                this.outboxRepository.releaseLease(this.owner);
+            } catch (Exception e) {
+                logger.warn("[OUTBOX] [RELAY] Unable to release the lease: {}", e.getMessage());
+            }
+        }
+    }
+
+}
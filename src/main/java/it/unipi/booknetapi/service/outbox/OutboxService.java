@@ -0,0 +1,37 @@
+package it.unipi.booknetapi.service.outbox;
+
+import it.unipi.booknetapi.command.outbox.OutboxReplayCommand;
+import it.unipi.booknetapi.dto.outbox.OutboxStatusResponse;
+import it.unipi.booknetapi.model.outbox.OutboxStatus;
+import it.unipi.booknetapi.repository.outbox.OutboxRepositoryInterface;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+
+@Service
+@Profile("!local")
+public class OutboxService {
+
+    private final OutboxRepositoryInterface outboxRepository;
+
+    public OutboxService(OutboxRepositoryInterface outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    public OutboxStatusResponse getStatus() {
+        Date oldestPending = this.outboxRepository.findOldestPendingDate();
+
+        return OutboxStatusResponse.builder()
+                .pending(this.outboxRepository.count(OutboxStatus.PENDING))
+                .failed(this.outboxRepository.count(OutboxStatus.FAILED))
+                .oldestPending(oldestPending)
+                .lagSeconds(oldestPending != null ? (System.currentTimeMillis() - oldestPending.getTime()) / 1000 : 0L)
+                .build();
+    }
+
+    public long replay(OutboxReplayCommand command) {
+        return this.outboxRepository.replay(command.getSince(), Boolean.TRUE.equals(command.getFailedOnly()));
+    }
+
+}
@@ -0,0 +1,222 @@
+package it.unipi.booknetapi.service.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.model.book.BookRecommendation;
+import it.unipi.booknetapi.model.book.BookStats;
+import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.cache.CacheInvalidationBroadcaster;
+import it.unipi.booknetapi.shared.lib.cache.NearCache;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reader collaborative recommendations (/book/recommendation) served from a near-cache.
+ * The candidate list of a reader is computed once at the capacity size and requests take a prefix of it.
+ * The "popular" strategy of the query does not depend on the reader, so it is computed on a schedule and
+ * passed to every per-reader query instead of scanning the interaction graph each time.
+ * Shelf, rating and preference changes evict the reader's entry and schedule a recompute once the outbox
+ * relay had time to write them to Neo4j; entries of the readers seen recently are refreshed before they expire.
+ */
+@Service
+public class RecommendationService {
+
+    Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    private record Candidates(List<BookRecommendation> books, long computedAt) {}
+
+    private final BookRepositoryInterface bookRepository;
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int popularSize;
+    private final long ttlMs;
+    private final long refreshAheadMs;
+    private final long recomputeDelayMs;
+    private final long activeWindowMs;
+    private final int maxRecomputesPerRun;
+
+    private final NearCache<Candidates> cache;
+    // idUser -> last request; only these readers are precomputed
+    private final Map<String, Long> activeReaders = new ConcurrentHashMap<>();
+    // idUser -> time of the change that invalidated the entry
+    private final Map<String, Long> changed = new ConcurrentHashMap<>();
+    private volatile List<BookStats> popular;
+
+    private final Timer computeTimer;
+    private final Counter fallbackCounter;
+    private final Counter recomputeChangedCounter;
+    private final Counter recomputeExpiringCounter;
+
+    public RecommendationService(
+            AppConfiguration config,
+            AsyncManager asyncManager,
+            BookRepositoryInterface bookRepository,
+            MeterRegistry registry,
+            CacheInvalidationBroadcaster broadcaster
+    ) {
+        this.bookRepository = bookRepository;
+
+        this.enabled = config.getBoolean("app.recommendation.enabled", true);
+        this.capacity = config.getInt("app.recommendation.capacity", 100);
+        this.popularSize = config.getInt("app.recommendation.popular-size", 50);
+        this.ttlMs = TimeUnit.MINUTES.toMillis(config.getLong("app.recommendation.ttl-minutes", 30L));
+        this.refreshAheadMs = TimeUnit.MINUTES.toMillis(config.getLong("app.recommendation.refresh-ahead-minutes", 5L));
+        this.recomputeDelayMs = TimeUnit.SECONDS.toMillis(config.getLong("app.recommendation.recompute-delay-seconds", 10L));
+        this.activeWindowMs = TimeUnit.MINUTES.toMillis(config.getLong("app.recommendation.active-window-minutes", 60L));
+        this.maxRecomputesPerRun = config.getInt("app.recommendation.max-recomputes-per-run", 200);
+        long popularRefreshMinutes = config.getLong("app.recommendation.popular-refresh-minutes", 10L);
+
+        this.cache = new NearCache<>(
+                "recommendations",
+                config.getLong("app.recommendation.max-size", 100000L),
+                (id, candidates) -> 1,
+                Duration.ofMillis(this.ttlMs),
+                registry,
+                broadcaster
+        );
+
+        this.computeTimer = registry.timer("recommendation.compute");
+        this.fallbackCounter = registry.counter("recommendation.fallback");
+        this.recomputeChangedCounter = registry.counter("recommendation.precompute", "reason", "changed");
+        this.recomputeExpiringCounter = registry.counter("recommendation.precompute", "reason", "expiring");
+        registry.gauge("recommendation.active.readers", this.activeReaders, Map::size);
+
+        if (this.enabled) {
+            asyncManager.schedule(Workload.BACKGROUND, "recommendation-popular", this::refreshPopularSafely, 0, popularRefreshMinutes, TimeUnit.MINUTES);
+            asyncManager.schedule(Workload.BACKGROUND, "recommendation-precompute", this::precompute, this.recomputeDelayMs, this.recomputeDelayMs, TimeUnit.MILLISECONDS);
+        } else {
+            logger.info("[RECOMMENDATION] disabled, recommendations are computed on every request");
+        }
+    }
+
+
+    public List<BookRecommendation> getCollaborativeBooks(String idUser, int limit) {
+        if (idUser == null || idUser.isBlank()) return List.of();
+        if (limit < 1) limit = 20;
+
+        if (!this.enabled || limit > this.capacity) {
+            this.fallbackCounter.increment();
+            return this.bookRepository.findCollaborativeRecommendationsBooks(idUser, limit, popular());
+        }
+
+        this.activeReaders.put(idUser, System.currentTimeMillis());
+
+        List<BookRecommendation> books = this.cache.get(idUser, this::compute)
+                .map(Candidates::books)
+                .orElse(List.of());
+        return books.subList(0, Math.min(limit, books.size()));
+    }
+
+
+    public void onShelfChange(String idUser) {
+        invalidate(idUser);
+    }
+
+    public void onRating(String idUser) {
+        invalidate(idUser);
+    }
+
+    public void onPreferenceUpdate(String idUser) {
+        invalidate(idUser);
+    }
+
+    /**
+     * Evicted right away (also on the other nodes) so the reader does not keep the old list for the whole TTL.
+     * A request arriving before the relay has synced Neo4j can still cache the old list, so the entry is
+     * recomputed once more after the delay.
+     */
+    private void invalidate(String idUser) {
+        if (idUser == null || !this.enabled) return;
+
+        this.cache.invalidate(idUser);
+        this.changed.put(idUser, System.currentTimeMillis());
+    }
+
+
+    private Candidates compute(String idUser) {
+        List<BookRecommendation> books = this.computeTimer.record(
+                () -> this.bookRepository.findCollaborativeRecommendationsBooks(idUser, this.capacity, popular())
+        );
+        return new Candidates(books != null ? List.copyOf(books) : List.of(), System.currentTimeMillis());
+    }
+
+    private List<BookStats> popular() {
+        List<BookStats> current = this.popular;
+        return current != null ? current : refreshPopular();
+    }
+
+    private List<BookStats> refreshPopular() {
+        List<BookStats> loaded = this.bookRepository.findRecommendationPopularBooks(this.popularSize);
+        this.popular = loaded != null ? List.copyOf(loaded) : List.of();
+        return this.popular;
+    }
+
+    private void refreshPopularSafely() {
+        try {
+            refreshPopular();
+        } catch (Exception e) {
+            logger.error("[RECOMMENDATION] [POPULAR] refresh failed: {}", e.getMessage());
+        }
+    }
+
+
+    private void precompute() {
+        long now = System.currentTimeMillis();
+        int budget = this.maxRecomputesPerRun;
+
+        this.activeReaders.values().removeIf(lastSeen -> now - lastSeen > this.activeWindowMs);
+
+        // Changed readers first: their entry is missing or was computed from a stale graph
+        Iterator<Map.Entry<String, Long>> iterator = this.changed.entrySet().iterator();
+        while (iterator.hasNext() && budget > 0) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (now - entry.getValue() < this.recomputeDelayMs) continue;
+
+            String idUser = entry.getKey();
+            // Removed only if no newer change arrived meanwhile
+            this.changed.remove(idUser, entry.getValue());
+            if (!this.activeReaders.containsKey(idUser)) continue;
+
+            if (recompute(idUser)) this.recomputeChangedCounter.increment();
+            budget--;
+        }
+
+        for (String idUser : this.activeReaders.keySet()) {
+            if (budget <= 0) break;
+            // Still waiting for the relay, handled by the loop above on a later run
+            if (this.changed.containsKey(idUser)) continue;
+
+            Candidates candidates = this.cache.getIfPresent(idUser).orElse(null);
+            if (candidates != null && now - candidates.computedAt() < this.ttlMs - this.refreshAheadMs) continue;
+
+            if (recompute(idUser)) this.recomputeExpiringCounter.increment();
+            budget--;
+        }
+
+        if (budget <= 0) {
+            logger.debug("[RECOMMENDATION] [PRECOMPUTE] budget of {} recomputes reached", this.maxRecomputesPerRun);
+        }
+    }
+
+    private boolean recompute(String idUser) {
+        try {
+            this.cache.put(idUser, compute(idUser));
+            return true;
+        } catch (Exception e) {
+            logger.error("[RECOMMENDATION] [PRECOMPUTE] user {} failed: {}", idUser, e.getMessage());
+            return false;
+        }
+    }
+
+}
@@ -8,10 +8,14 @@ import it.unipi.booknetapi.model.stat.ActivityType;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.model.user.User;
 import it.unipi.booknetapi.model.user.UserEmbed;
-import it.unipi.booknetapi.repository.book.BookRepository;
-import it.unipi.booknetapi.repository.review.ReviewRepository;
-import it.unipi.booknetapi.repository.stat.AnalyticsRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.repository.review.ReviewRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.AnalyticsRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
+import it.unipi.booknetapi.service.leaderboard.LeaderboardService;
+import it.unipi.booknetapi.service.recommendation.RecommendationService;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
@@ -23,28 +27,36 @@ import java.util.Objects;
 @Service
 public class ReviewService {
 
-    private final AnalyticsRepository analyticsRepository;
-    private final ReviewRepository reviewRepository;
-    private final UserRepository userRepository;
-    private final BookRepository bookRepository;
+    private final AnalyticsRepositoryInterface analyticsRepository;
+    private final AsyncManager asyncManager;
+    private final ReviewRepositoryInterface reviewRepository;
+    private final UserRepositoryInterface userRepository;
+    private final BookRepositoryInterface bookRepository;
+    private final LeaderboardService leaderboardService;
+    private final RecommendationService recommendationService;
 
 
     public ReviewService(
-            AnalyticsRepository analyticsRepository,
-            ReviewRepository reviewRepository,
-            UserRepository userRepository,
-            BookRepository bookRepository
+            AnalyticsRepositoryInterface analyticsRepository,
+            AsyncManager asyncManager,
+            ReviewRepositoryInterface reviewRepository,
+            UserRepositoryInterface userRepository,
+            BookRepositoryInterface bookRepository,
+            LeaderboardService leaderboardService,
+            RecommendationService recommendationService
     ) {
         this.analyticsRepository = analyticsRepository;
+        this.asyncManager = asyncManager;
         this.reviewRepository = reviewRepository;
         this.userRepository = userRepository;
         this.bookRepository = bookRepository;
+        this.leaderboardService = leaderboardService;
+        this.recommendationService = recommendationService;
     }
 
 
     public void migrate() {
-        Thread thread = new Thread(this.reviewRepository::migrate);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.reviewRepository::migrate);
     }
 
 
@@ -84,16 +96,16 @@ public class ReviewService {
         Review reviewSaved = this.reviewRepository.insert(review);
         if(reviewSaved == null) return null;
 
+        this.leaderboardService.onRating();
+        this.recommendationService.onRating(command.getUserToken().getIdUser());
+
         Runnable task = () -> {
-            try {
-                this.userRepository.addReview(reviewSaved);
-                this.bookRepository.addReview(reviewSaved);
-                logBookActivity(book, ActivityType.RATING, command.getRating());
-                if(command.getComment() != null) logBookActivity(book, ActivityType.REVIEW, 0);
-            } catch (Exception ignored) {}
+            this.userRepository.addReview(reviewSaved);
+            this.bookRepository.addReview(reviewSaved);
+            logBookActivity(book, ActivityType.RATING, command.getRating());
+            if(command.getComment() != null) logBookActivity(book, ActivityType.REVIEW, 0);
         };
-        Thread thread = new Thread(task);
-        thread.start();
+        this.asyncManager.execute(Workload.NEO4J_SYNC, task);
 
         return new ReviewResponse(reviewSaved);
     }
@@ -105,6 +117,9 @@ public class ReviewService {
         boolean updated = this.reviewRepository.updateReview(command.getId(), command.getRating(), command.getComment());
         if(!updated) return null;
 
+        this.leaderboardService.onRating();
+        this.recommendationService.onRating(command.getUserToken().getIdUser());
+
         Review review = this.reviewRepository.findById(command.getId()).orElse(null);
         if(review == null) return null;
 
@@ -131,7 +146,13 @@ public class ReviewService {
 
         if(!Objects.equals(command.getUserToken().getIdUser(), review.getUser().getId().toHexString())) return false;
 
-        return this.reviewRepository.delete(command.getId());
+        boolean deleted = this.reviewRepository.delete(command.getId());
+        if(deleted) {
+            this.leaderboardService.onRating();
+            this.recommendationService.onRating(command.getUserToken().getIdUser());
+        }
+
+        return deleted;
     }
 
     public boolean deleteReview(ReviewIdsDeleteCommand command) {
@@ -140,7 +161,10 @@ public class ReviewService {
 
         if(command.getUserToken().getRole() != Role.Admin) return false;
 
-        return this.reviewRepository.delete(command.getIds());
+        boolean deleted = this.reviewRepository.delete(command.getIds());
+        if(deleted) this.leaderboardService.onRating();
+
+        return deleted;
     }
 
     public List<ReviewResponse> getReviews(ReviewIdsListCommand command) {
@@ -154,62 +178,43 @@ public class ReviewService {
     }
 
     public PageResult<ReviewResponse> getReviews(ReviewListCommand command) {
-        PageResult<Review> result = this.reviewRepository.findAll(command.getPagination().getPage(), command.getPagination().getSize());
+        PageResult<Review> result = this.reviewRepository.findAll(command.getPagination());
 
         return new PageResult<>(
                 result.getContent().stream().map(ReviewResponse::new).toList(),
                 result.getTotalElements(),
                 result.getCurrentPage(),
-                result.getPageSize()
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
     public PageResult<ReviewResponse> getReviews(ReviewByBookListCommand command) {
         if(command.getBookId() == null || !ObjectId.isValid(command.getBookId())) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
 
-        List<ObjectId> idReviews = this.bookRepository.getReviewsIds(command.getBookId());
-
-        if(idReviews.isEmpty()) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int totalElements = idReviews.size();
-        int skip = command.getPagination().getPage() * command.getPagination().getSize();
-        if(skip >= totalElements) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int limit = Math.min(command.getPagination().getSize(), totalElements - skip);
-        List<ObjectId> idReviewsPage = idReviews.subList(skip, skip + limit);
-
-        List<Review> reviews = this.reviewRepository.findAllByOI(idReviewsPage);
+        // Indexed (bookId, _id) query: a deep page costs the same as the first one
+        PageResult<Review> result = this.reviewRepository.findByBook(command.getBookId(), command.getPagination());
 
         return new PageResult<>(
-                reviews.stream().map(ReviewResponse::new).toList(),
-                totalElements,
-                command.getPagination().getPage(),
-                command.getPagination().getSize()
+                result.getContent().stream().map(ReviewResponse::new).toList(),
+                result.getTotalElements(),
+                result.getCurrentPage(),
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
     public PageResult<ReviewResponse> getReviews(ReviewByReaderListCommand command) {
         if(command.getReaderId() == null || !ObjectId.isValid(command.getReaderId())) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
 
-        List<ObjectId> idReviews = this.userRepository.getReviewsIds(command.getReaderId());
-
-        if(idReviews.isEmpty()) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int totalElements = idReviews.size();
-
-        int skip = command.getPagination().getPage() * command.getPagination().getSize();
-        if(skip >= totalElements) return new PageResult<>(List.of(), 0, command.getPagination().getPage(), command.getPagination().getSize());
-
-        int limit = Math.min(command.getPagination().getSize(), totalElements - skip);
-        List<ObjectId> idReviewsPage = idReviews.subList(skip, skip + limit);
-
-        List<Review> reviews = this.reviewRepository.findAllByOI(idReviewsPage);
+        PageResult<Review> result = this.reviewRepository.findByReader(command.getReaderId(), command.getPagination());
 
         return new PageResult<>(
-                reviews.stream().map(ReviewResponse::new).toList(),
-                totalElements,
-                command.getPagination().getPage(),
-                command.getPagination().getSize()
+                result.getContent().stream().map(ReviewResponse::new).toList(),
+                result.getTotalElements(),
+                result.getCurrentPage(),
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
@@ -14,11 +14,15 @@ import it.unipi.booknetapi.model.genre.GenreEmbed;
 import it.unipi.booknetapi.model.stat.UserMonthlyStat;
 import it.unipi.booknetapi.model.stat.UserYearlyStat;
 import it.unipi.booknetapi.model.user.*;
-import it.unipi.booknetapi.repository.author.AuthorRepository;
-// import it.unipi.booknetapi.repository.book.BookRepository;
-import it.unipi.booknetapi.repository.genre.GenreRepository;
-import it.unipi.booknetapi.repository.stat.UserMonthlyStatRepository;
-import it.unipi.booknetapi.repository.user.UserRepository;
+import it.unipi.booknetapi.repository.author.AuthorRepositoryInterface;
+// import it.unipi.booknetapi.repository.book.BookRepositoryInterface;
+import it.unipi.booknetapi.repository.genre.GenreRepositoryInterface;
+import it.unipi.booknetapi.repository.stat.UserMonthlyStatRepositoryInterface;
+import it.unipi.booknetapi.repository.user.UserRepositoryInterface;
+import it.unipi.booknetapi.service.leaderboard.LeaderboardService;
+import it.unipi.booknetapi.service.recommendation.RecommendationService;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
 import it.unipi.booknetapi.shared.model.PageResult;
 import org.springframework.stereotype.Service;
 
@@ -28,23 +32,32 @@ import java.util.List;
 @Service
 public class UserService {
 
-    private final AuthorRepository authorRepository;
-    // private final BookRepository bookRepository;
-    private final GenreRepository genreRepository;
-    private final UserMonthlyStatRepository userMonthlyStatRepository;
-    private final UserRepository userRepository;
+    private final AsyncManager asyncManager;
+    private final AuthorRepositoryInterface authorRepository;
+    // private final BookRepositoryInterface bookRepository;
+    private final GenreRepositoryInterface genreRepository;
+    private final LeaderboardService leaderboardService;
+    private final RecommendationService recommendationService;
+    private final UserMonthlyStatRepositoryInterface userMonthlyStatRepository;
+    private final UserRepositoryInterface userRepository;
 
 
     public UserService(
-            AuthorRepository authorRepository,
+            AsyncManager asyncManager,
+            AuthorRepositoryInterface authorRepository,
             // BookRepository bookRepository,
-            GenreRepository genreRepository,
-            UserMonthlyStatRepository userMonthlyStatRepository,
-            UserRepository userRepository
+            GenreRepositoryInterface genreRepository,
+            LeaderboardService leaderboardService,
+            RecommendationService recommendationService,
+            UserMonthlyStatRepositoryInterface userMonthlyStatRepository,
+            UserRepositoryInterface userRepository
     ) {
+        this.asyncManager = asyncManager;
         this.authorRepository = authorRepository;
         // this.bookRepository = bookRepository;
         this.genreRepository = genreRepository;
+        this.leaderboardService = leaderboardService;
+        this.recommendationService = recommendationService;
         this.userMonthlyStatRepository = userMonthlyStatRepository;
         this.userRepository = userRepository;
     }
@@ -56,13 +69,11 @@ public class UserService {
     }
 
     public void migrateReaders() {
-        Thread thread = new Thread(this.userRepository::migrateReaders);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.userRepository::migrateReaders);
     }
 
     public void migrateReviewers() {
-        Thread thread = new Thread(this.userRepository::migrateReviewers);
-        thread.start();
+        this.asyncManager.execute(Workload.MIGRATION, this.userRepository::migrateReviewers);
     }
 
 
@@ -118,6 +129,9 @@ public class UserService {
         boolean updated = this.userRepository.updatePreference(command.getUserToken().getIdUser(), readerPreference);
         if(!updated) return null;
 
+        this.leaderboardService.onPreferenceUpdate();
+        this.recommendationService.onPreferenceUpdate(command.getUserToken().getIdUser());
+
         Reader user =  this.userRepository.findReaderById(command.getUserToken().getIdUser())
                 .orElse(null);
 
@@ -128,35 +142,38 @@ public class UserService {
 
 
     public PageResult<AdminResponse> list(AdminListCommand command) {
-        PageResult<Admin> result = this.userRepository.findAllAdmin(command.getPagination().getPage(), command.getPagination().getSize());
+        PageResult<Admin> result = this.userRepository.findAllAdmin(command.getPagination());
 
         return new PageResult<>(
                 result.getContent().stream().map(AdminResponse::new).toList(),
                 result.getTotalElements(),
                 result.getCurrentPage(),
-                result.getPageSize()
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
     public PageResult<ReaderResponse> list(ReaderListCommand command) {
-        PageResult<Reader> result = this.userRepository.findAllReader(command.getPagination().getPage(), command.getPagination().getSize());
+        PageResult<Reader> result = this.userRepository.findAllReader(command.getPagination());
 
         return new PageResult<>(
                 result.getContent().stream().map(ReaderResponse::new).toList(),
                 result.getTotalElements(),
                 result.getCurrentPage(),
-                result.getPageSize()
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
     public PageResult<ReviewerResponse> list(ReviewerListCommand command) {
-        PageResult<Reviewer> result = this.userRepository.findAllReviewer(command.getPagination().getPage(), command.getPagination().getSize());
+        PageResult<Reviewer> result = this.userRepository.findAllReviewer(command.getPagination());
 
         return new PageResult<>(
                 result.getContent().stream().map(ReviewerResponse::new).toList(),
                 result.getTotalElements(),
                 result.getCurrentPage(),
-                result.getPageSize()
+                result.getPageSize(),
+                result.getNextCursor()
         );
     }
 
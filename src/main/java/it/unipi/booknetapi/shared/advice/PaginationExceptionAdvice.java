@@ -0,0 +1,18 @@
+package it.unipi.booknetapi.shared.advice;
+
+import it.unipi.booknetapi.shared.model.InvalidPaginationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class PaginationExceptionAdvice {
+
+    @ExceptionHandler(InvalidPaginationException.class)
+    public ResponseEntity<String> handleInvalidPagination(InvalidPaginationException exc) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(exc.getMessage());
+    }
+}
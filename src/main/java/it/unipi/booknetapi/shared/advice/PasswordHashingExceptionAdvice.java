@@ -0,0 +1,20 @@
+package it.unipi.booknetapi.shared.advice;
+
+import it.unipi.booknetapi.shared.lib.encryption.PasswordHashingUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class PasswordHashingExceptionAdvice {
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public ResponseEntity<String> handlePasswordHashingUnavailable(PasswordHashingUnavailableException exc) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many login requests, please retry shortly.");
+    }
+}
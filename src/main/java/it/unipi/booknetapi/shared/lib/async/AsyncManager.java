@@ -0,0 +1,280 @@
+package it.unipi.booknetapi.shared.lib.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executors, one per {@link Workload}, shared by services and repositories
+ * instead of starting a new thread for every background task. Periodic jobs are
+ * {@link #schedule scheduled} here too: a single timer thread hands their runs to a workload.
+ */
+@Component
+public class AsyncManager implements SmartLifecycle {
+
+    Logger logger = LoggerFactory.getLogger(AsyncManager.class);
+
+    private final Map<Workload, ThreadPoolExecutor> executors = new EnumMap<>(Workload.class);
+    private final Map<Workload, Timer> latencyTimers = new EnumMap<>(Workload.class);
+    private final Map<Workload, Timer> waitTimers = new EnumMap<>(Workload.class);
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final MeterRegistry registry;
+    private final long shutdownTimeoutMs;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+
+    public AsyncManager(AppConfiguration config, MeterRegistry registry) {
+        this.registry = registry;
+        this.shutdownTimeoutMs = config.getLong("app.async.shutdown-timeout-ms", 30000L);
+
+        for (Workload workload : Workload.values()) {
+            String prefix = "app.async." + workload.getKey();
+            int poolSize = config.getInt(prefix + ".pool-size", workload.getDefaultPoolSize());
+            int queueCapacity = config.getInt(prefix + ".queue-capacity", workload.getDefaultQueueCapacity());
+
+            Counter rejected = registry.counter("async.tasks.rejected", "workload", workload.getKey());
+
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    poolSize, poolSize,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    threadFactory(workload),
+                    rejectionHandler(workload, rejected)
+            );
+            executor.allowCoreThreadTimeOut(true);
+
+            // executor.queued, executor.active, executor.pool.size, executor.completed...
+            new ExecutorServiceMetrics(executor, "async-" + workload.getKey(), Tags.of("workload", workload.getKey()))
+                    .bindTo(registry);
+
+            this.executors.put(workload, executor);
+            this.latencyTimers.put(workload, registry.timer("async.tasks.latency", "workload", workload.getKey()));
+            this.waitTimers.put(workload, registry.timer("async.tasks.wait", "workload", workload.getKey()));
+
+            logger.debug("[ASYNC] [INIT] workload: {}, pool size: {}, queue capacity: {}", workload.getKey(), poolSize, queueCapacity);
+        }
+
+        // Only waits for the delays, the jobs run in their workload
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "async-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ThreadFactory threadFactory(Workload workload) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "async-" + workload.getKey() + "-" + counter.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        };
+    }
+
+    private RejectedExecutionHandler rejectionHandler(Workload workload, Counter rejected) {
+        return (runnable, executor) -> {
+            rejected.increment();
+            switch (workload.getRejectionPolicy()) {
+                case CALLER_RUNS -> {
+                    logger.warn("[ASYNC] [REJECTED] workload: {}, running on caller thread", workload.getKey());
+                    runnable.run();
+                }
+                case DISCARD -> logger.warn("[ASYNC] [REJECTED] workload: {}, task discarded", workload.getKey());
+                case ABORT -> throw new RejectedExecutionException("Queue is full for workload " + workload.getKey());
+            }
+        };
+    }
+
+
+    /**
+     * Runs the task in the pool of the given workload.
+     * Exceptions thrown by the task are logged and never reach the caller.
+     *
+     * @throws RejectedExecutionException if the queue is full and the workload aborts on rejection
+     */
+    public void execute(Workload workload, Runnable task) {
+        Timer latencyTimer = this.latencyTimers.get(workload);
+        Timer waitTimer = this.waitTimers.get(workload);
+        long submittedAt = System.nanoTime();
+
+        this.executors.get(workload).execute(() -> {
+            waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            latencyTimer.record(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.error("[ASYNC] [TASK] workload: {}, error: {}", workload.getKey(), e.getMessage());
+                }
+            });
+        });
+    }
+
+    /**
+     * Runs the task in the pool of the given workload; its result or exception completes the returned future.
+     * Not for discarding workloads: the future of a discarded task would never complete.
+     *
+     * @throws RejectedExecutionException if the queue is full and the workload aborts on rejection
+     */
+    public <T> CompletableFuture<T> submit(Workload workload, Callable<T> task) {
+        if (workload.getRejectionPolicy() == Workload.RejectionPolicy.DISCARD) {
+            throw new IllegalArgumentException("Workload " + workload.getKey() + " discards tasks, use execute");
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(workload, () -> {
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs the task in the pool of the workload initialDelay from now, then delay after the end of each run,
+     * like ScheduledExecutorService.scheduleWithFixedDelay: the runs of a job never overlap, and a run that
+     * throws is logged without ending the job. A run rejected by a full queue is skipped until the next delay.
+     * The job ends when the manager shuts down.
+     *
+     * @param name tag of the async.jobs.* meters, e.g. "outbox-drain"
+     */
+    public void schedule(Workload workload, String name, Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        if (workload.getRejectionPolicy() == Workload.RejectionPolicy.DISCARD) {
+            throw new IllegalArgumentException("Workload " + workload.getKey() + " discards tasks, a discarded run would end the job");
+        }
+
+        new Job(workload, name, task, unit.toNanos(delay)).next(unit.toNanos(initialDelay));
+    }
+
+    private final class Job implements Runnable {
+
+        private final Workload workload;
+        private final String name;
+        private final Runnable task;
+        private final long delayNanos;
+        private final Timer latencyTimer;
+        private final Counter skippedCounter;
+
+        Job(Workload workload, String name, Runnable task, long delayNanos) {
+            this.workload = workload;
+            this.name = name;
+            this.task = task;
+            this.delayNanos = delayNanos;
+            this.latencyTimer = registry.timer("async.jobs.latency", "job", name);
+            this.skippedCounter = registry.counter("async.jobs.skipped", "job", name);
+        }
+
+        // On the scheduler thread, when the delay is over
+        @Override
+        public void run() {
+            try {
+                execute(this.workload, () -> {
+                    try {
+                        this.latencyTimer.record(this.task);
+                    } finally {
+                        next(this.delayNanos);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.skippedCounter.increment();
+                logger.warn("[ASYNC] [JOB] {} skipped, workload {} is full", this.name, this.workload.getKey());
+                next(this.delayNanos);
+            }
+        }
+
+        void next(long delayNanos) {
+            if (!running.get()) return;
+
+            try {
+                scheduler.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * @return the number of threads of the workload
+     */
+    public int getPoolSize(Workload workload) {
+        return this.executors.get(workload).getMaximumPoolSize();
+    }
+
+    /**
+     * Like {@link #execute(Workload, Runnable)} but returns false instead of throwing when the task is rejected.
+     */
+    public boolean tryExecute(Workload workload, Runnable task) {
+        try {
+            execute(workload, task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /*
+     * Stopped as a lifecycle bean, after the web server and before any singleton is destroyed:
+     * queued Neo4j/MongoDB writes drain while the database clients are still open, whichever
+     * clients the active profile defines.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void start() {
+        // Executors are ready from the constructor
+    }
+
+    @Override
+    public void stop() {
+        shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running.get();
+    }
+
+    // Also on destroy, for a context closed without stopping its lifecycle beans (failed startup)
+    @PreDestroy
+    public void shutdown() {
+        if (!this.running.compareAndSet(true, false)) return;
+
+        // No new run of the jobs, the ones already handed to a workload drain with it
+        this.scheduler.shutdownNow();
+        this.executors.values().forEach(ThreadPoolExecutor::shutdown);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.shutdownTimeoutMs);
+        for (Map.Entry<Workload, ThreadPoolExecutor> entry : this.executors.entrySet()) {
+            try {
+                long remaining = deadline - System.nanoTime();
+                if (!entry.getValue().awaitTermination(Math.max(remaining, 0L), TimeUnit.NANOSECONDS)) {
+                    int dropped = entry.getValue().shutdownNow().size();
+                    logger.warn("[ASYNC] [SHUTDOWN] workload: {} did not drain in time, {} queued tasks dropped", entry.getKey().getKey(), dropped);
+                }
+            } catch (InterruptedException e) {
+                entry.getValue().shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        logger.info("[ASYNC] [SHUTDOWN] executors stopped");
+    }
+
+}
@@ -0,0 +1,41 @@
+package it.unipi.booknetapi.shared.lib.async;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum Workload {
+
+    ANALYTICS("analytics", 2, 1000, RejectionPolicy.DISCARD)
+    , NEO4J_SYNC("neo4j-sync", 4, 10000, RejectionPolicy.CALLER_RUNS)
+    // Per-user counters the user reads back (monthly reading stats): never dropped
+    , USER_STATS("user-stats", 2, 10000, RejectionPolicy.CALLER_RUNS)
+    , IMPORT("import", 2, 16, RejectionPolicy.ABORT)
+    // Resolve and write workers of the running imports: at least import pool size * (resolve + write parallelism)
+    , IMPORT_STAGE("import-stage", 8, 16, RejectionPolicy.ABORT)
+    , MIGRATION("migration", 1, 8, RejectionPolicy.ABORT)
+    // _id ranges of the running migration: the pool size is the number of concurrent Neo4j write transactions.
+    // MigrateService never has more ranges in flight than threads, a rejection is a failed range, not a caller-run one
+    , MIGRATION_RANGE("migration-range", 4, 64, RejectionPolicy.ABORT)
+    // Periodic jobs (AsyncManager.schedule) and warm-ups: index and snapshot reloads, relays, flushes.
+    // A job never overlaps itself, the pool only bounds how many different jobs run at once
+    , BACKGROUND("background", 8, 64, RejectionPolicy.ABORT)
+    // BCrypt hashes and checks of the logins and sign-ups: CPU bound, a full queue answers 503
+    , PASSWORD_HASH("password-hash", Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64, RejectionPolicy.ABORT)
+
+    ;
+
+    private final String key;
+    private final int defaultPoolSize;
+    private final int defaultQueueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+
+
+    public enum RejectionPolicy {
+        CALLER_RUNS,    // Never lose the task: run it on the submitting thread
+        DISCARD,        // Best effort: drop the task
+        ABORT           // Let the caller know the queue is full
+    }
+
+}
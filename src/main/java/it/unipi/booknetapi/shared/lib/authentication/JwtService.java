@@ -2,13 +2,27 @@ package it.unipi.booknetapi.shared.lib.authentication;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import it.unipi.booknetapi.model.user.Role;
 import it.unipi.booknetapi.model.user.User;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
@@ -16,10 +30,43 @@ public class JwtService {
     private static final Long EXPIRATION_TIME = (long) 1000 * 60 * 60 * 24; // in milliseconds
 
     private final Algorithm algorithm;
+    // Immutable and thread safe, built once
+    private final JWTVerifier verifier;
 
-    public JwtService(KeyUtils keyUtils) {
+    /**
+     * Tokens whose signature was already checked, keyed by the SHA-256 of the token.
+     * An entry expires with its token (or after app.jwt.cache-max-seconds), so a cached token
+     * is never accepted after the verifier would have rejected it.
+     */
+    private record VerifiedToken(UserToken userToken, long expiresAtNanos) {}
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    private final Timer verifyValidTimer;
+    private final Timer verifyInvalidTimer;
+
+    public JwtService(KeyUtils keyUtils, AppConfiguration config, MeterRegistry registry) {
         // RSA256: Sign with Private, Verify with Public
         this.algorithm = Algorithm.RSA256(keyUtils.getPublicKey(), keyUtils.getPrivateKey());
+        this.verifier = JWT.require(this.algorithm).build();
+
+        if (config.getBoolean("app.jwt.cache-enabled", true)) {
+            long maxTtlNanos = TimeUnit.SECONDS.toNanos(config.getLong("app.jwt.cache-max-seconds", 600L));
+
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(config.getLong("app.jwt.cache-size", 10000L))
+                    .expireAfter(Expiry.creating((String key, VerifiedToken token) ->
+                            Duration.ofNanos(Math.min(maxTtlNanos, token.expiresAtNanos() - System.nanoTime()))))
+                    .recordStats()
+                    .build();
+            // cache.gets{cache="jwt.tokens", result=hit|miss}
+            CaffeineCacheMetrics.monitor(registry, this.verifiedTokens, "jwt.tokens");
+        } else {
+            this.verifiedTokens = null;
+        }
+
+        this.verifyValidTimer = registry.timer("jwt.verify", "outcome", "valid");
+        this.verifyInvalidTimer = registry.timer("jwt.verify", "outcome", "invalid");
     }
 
     public String createToken(User user) {
@@ -50,11 +97,43 @@ public class JwtService {
         return extractExpiration(token).before(new Date());
     }
 
+    /**
+     * @return the user of the token
+     * @throws JWTVerificationException if the token is malformed, badly signed or expired
+     */
     public UserToken validateToken(String token) {
-        JWTVerifier verifier = JWT.require(algorithm).build();
+        if (this.verifiedTokens == null) return toUserToken(verify(token));
+
+        String key = hash(token);
+
+        VerifiedToken cached = this.verifiedTokens.getIfPresent(key);
+        if (cached != null) return copy(cached.userToken());
+
+        DecodedJWT decoded = verify(token);
+        UserToken userToken = toUserToken(decoded);
 
-        DecodedJWT decoded = verifier.verify(token);
+        Date expiresAt = decoded.getExpiresAt();
+        if (expiresAt != null) {
+            long expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(expiresAt.getTime() - System.currentTimeMillis());
+            this.verifiedTokens.put(key, new VerifiedToken(copy(userToken), expiresAtNanos));
+        }
 
+        return userToken;
+    }
+
+    private DecodedJWT verify(String token) {
+        long start = System.nanoTime();
+        try {
+            DecodedJWT decoded = this.verifier.verify(token);
+            this.verifyValidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return decoded;
+        } catch (JWTVerificationException e) {
+            this.verifyInvalidTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private static UserToken toUserToken(DecodedJWT decoded) {
         return new UserToken(
                 decoded.getSubject(), // idUser
                 decoded.getClaim("name").asString(),
@@ -63,4 +142,18 @@ public class JwtService {
         );
     }
 
-}
\ No newline at end of file
+    // UserToken is mutable, callers never get the cached instance
+    private static UserToken copy(UserToken userToken) {
+        return new UserToken(userToken.getIdUser(), userToken.getName(), userToken.getUsername(), userToken.getRole());
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+}
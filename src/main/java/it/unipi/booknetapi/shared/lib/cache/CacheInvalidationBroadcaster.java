@@ -0,0 +1,27 @@
+package it.unipi.booknetapi.shared.lib.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Propagates near-cache invalidations.
+ * The default implementation only reaches the caches of this node; with several API replicas,
+ * provide a bean that also publishes on a shared channel (Redis pub/sub, a MongoDB change stream...)
+ * and calls {@link #deliver} when a message from another node is received.
+ */
+public interface CacheInvalidationBroadcaster {
+
+    /**
+     * @param cacheName the cache to invalidate
+     * @param keys the keys to evict, empty to clear the whole cache
+     */
+    void publish(String cacheName, Collection<String> keys);
+
+    void subscribe(String cacheName, Consumer<Collection<String>> listener);
+
+    /**
+     * Invalidates the local caches, for messages coming from other nodes.
+     */
+    void deliver(String cacheName, Collection<String> keys);
+
+}
@@ -0,0 +1,39 @@
+package it.unipi.booknetapi.shared.lib.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single node broadcaster: the writer already evicted its own entry, so there is no one else to notify.
+ */
+@Component
+public class LocalCacheInvalidationBroadcaster implements CacheInvalidationBroadcaster {
+
+    Logger logger = LoggerFactory.getLogger(LocalCacheInvalidationBroadcaster.class);
+
+    private final Map<String, List<Consumer<Collection<String>>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String cacheName, Collection<String> keys) {
+        logger.trace("[CACHE] [INVALIDATE] cache: {}, keys: {}", cacheName, keys.size());
+    }
+
+    @Override
+    public void subscribe(String cacheName, Consumer<Collection<String>> listener) {
+        this.listeners.computeIfAbsent(cacheName, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void deliver(String cacheName, Collection<String> keys) {
+        this.listeners.getOrDefault(cacheName, List.of()).forEach(listener -> listener.accept(keys));
+    }
+
+}
@@ -0,0 +1,100 @@
+package it.unipi.booknetapi.shared.lib.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * In-process cache in front of MongoDB lookups.
+ * Caffeine bounds it by weight with W-TinyLFU eviction, so a scan of cold documents does not
+ * flush the hot ones. Writers must call invalidate, which also notifies the other nodes.
+ */
+public class NearCache<V> {
+
+    private final String name;
+    private final Cache<String, V> cache;
+    private final CacheInvalidationBroadcaster broadcaster;
+
+    public NearCache(
+            String name,
+            long maxWeight,
+            Weigher<String, V> weigher,
+            Duration expireAfterWrite,
+            MeterRegistry registry,
+            CacheInvalidationBroadcaster broadcaster
+    ) {
+        this.name = name;
+        this.broadcaster = broadcaster;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(weigher)
+                // Safety net for writes that bypass the repository (imports, other services, manual fixes)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size, cache.eviction.weight...
+        CaffeineCacheMetrics.monitor(registry, this.cache, name);
+
+        broadcaster.subscribe(name, this::evictLocally);
+    }
+
+    /**
+     * @param loader called on a miss; a null result is not cached
+     */
+    public Optional<V> get(String key, Function<String, V> loader) {
+        return Optional.ofNullable(this.cache.get(key, loader));
+    }
+
+    /**
+     * @param loader called once with all the missing keys; keys it leaves out are not cached
+     * @return the values found, keys without a value are absent
+     */
+    public Map<String, V> getAll(Collection<String> keys, Function<Set<? extends String>, Map<String, V>> loader) {
+        return this.cache.getAll(keys, loader);
+    }
+
+    public Optional<V> getIfPresent(String key) {
+        return Optional.ofNullable(this.cache.getIfPresent(key));
+    }
+
+    /**
+     * Replaces the local entry without notifying the other nodes: for values recomputed in the background
+     * after the writer has already invalidated the key everywhere.
+     */
+    public void put(String key, V value) {
+        this.cache.put(key, value);
+    }
+
+    public void invalidate(String key) {
+        invalidateAll(List.of(key));
+    }
+
+    public void invalidateAll(Collection<String> keys) {
+        if (keys.isEmpty()) return;
+
+        this.cache.invalidateAll(keys);
+        this.broadcaster.publish(this.name, keys);
+    }
+
+    public void clear() {
+        this.cache.invalidateAll();
+        this.broadcaster.publish(this.name, List.of());
+    }
+
+    private void evictLocally(Collection<String> keys) {
+        if (keys.isEmpty()) this.cache.invalidateAll();
+        else this.cache.invalidateAll(keys);
+    }
+
+}
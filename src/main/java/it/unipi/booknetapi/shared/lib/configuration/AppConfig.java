@@ -42,4 +42,8 @@ public class AppConfig {
 
     private Integer batchSize;
 
+    private Long analyticsFlushIntervalMs;
+    private Integer analyticsMaxBufferSize;
+    private String analyticsOverflowPolicy;
+
 }
\ No newline at end of file
@@ -0,0 +1,363 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.types.ObjectId;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Collection of the local profile. Documents are kept as BSON bytes written by the codecs of the
+ * MongoDB client: every read decodes a private copy, as the driver does, and the encoding cost
+ * stays in the profiles. A write of one document is atomic (it runs in the map's compute), so an
+ * update is a read-modify-write of the whole document, like an update operator.
+ * Secondary indexes map the value of a key extractor (every element when it is a collection) to
+ * the _ids; they are written in the same compute as the document.
+ */
+public class InMemoryCollection<T> {
+
+    private final String name;
+    private final Class<T> type;
+    private final InMemoryStore store;
+    private final Function<T, ObjectId> idGetter;
+    private final BiConsumer<T, ObjectId> idSetter;
+
+    private final ConcurrentMap<ObjectId, byte[]> documents = new ConcurrentHashMap<>();
+    // _id order, for scans and pagination
+    private final NavigableSet<ObjectId> ids = new ConcurrentSkipListSet<>();
+    private final Map<String, Index<T>> indexes = new ConcurrentHashMap<>();
+
+    private record Index<T>(Function<T, ?> key, ConcurrentMap<Object, Set<ObjectId>> entries) {
+
+        Set<Object> keys(T document) {
+            if (document == null) return Set.of();
+
+            Object value = this.key.apply(document);
+            if (value == null) return Set.of();
+            if (value instanceof Collection<?> values) {
+                Set<Object> keys = new HashSet<>();
+                for (Object element : values) if (element != null) keys.add(element);
+                return keys;
+            }
+            return Set.of(value);
+        }
+
+        void update(ObjectId id, T before, T after) {
+            Set<Object> oldKeys = keys(before);
+            Set<Object> newKeys = keys(after);
+
+            for (Object key : newKeys) {
+                if (!oldKeys.contains(key)) this.entries.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            for (Object key : oldKeys) {
+                if (newKeys.contains(key)) continue;
+                this.entries.computeIfPresent(key, (k, set) -> {
+                    set.remove(id);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+    }
+
+    InMemoryCollection(String name, Class<T> type, InMemoryStore store, Function<T, ObjectId> idGetter, BiConsumer<T, ObjectId> idSetter) {
+        this.name = name;
+        this.type = type;
+        this.store = store;
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @param key value indexed for each document, a collection for a multikey index; null values are not indexed
+     */
+    public void createIndex(String indexName, Function<T, ?> key) {
+        Index<T> index = new Index<>(key, new ConcurrentHashMap<>());
+        if (this.indexes.putIfAbsent(indexName, index) != null) return;
+
+        this.ids.forEach(id -> this.documents.computeIfPresent(id, (k, bytes) -> {
+            index.update(id, null, decode(bytes));
+            return bytes;
+        }));
+    }
+
+    private T decode(byte[] bytes) {
+        return bytes != null ? this.store.decode(bytes, this.type) : null;
+    }
+
+    private void updateIndexes(ObjectId id, T before, T after) {
+        for (Index<T> index : this.indexes.values()) index.update(id, before, after);
+    }
+
+
+    /**
+     * Assigns a new _id when the document has none.
+     * @throws IllegalStateException if a document with the same _id exists
+     */
+    public T insert(T document) {
+        Objects.requireNonNull(document);
+
+        if (this.idGetter.apply(document) == null) this.idSetter.accept(document, new ObjectId());
+        ObjectId id = this.idGetter.apply(document);
+        byte[] bytes = this.store.encode(document);
+
+        this.documents.compute(id, (k, current) -> {
+            if (current != null) throw new IllegalStateException("Duplicate _id " + id + " in " + this.name);
+            updateIndexes(id, null, document);
+            return bytes;
+        });
+        this.ids.add(id);
+
+        return document;
+    }
+
+    /**
+     * @return true if a document with the same _id was replaced
+     */
+    public boolean replace(T document) {
+        Objects.requireNonNull(document);
+
+        ObjectId id = this.idGetter.apply(document);
+        if (id == null) return false;
+
+        byte[] bytes = this.store.encode(document);
+        return this.documents.computeIfPresent(id, (k, current) -> {
+            updateIndexes(id, decode(current), document);
+            return bytes;
+        }) != null;
+    }
+
+    /**
+     * Applies the mutation to the document if it exists and matches the filter.
+     * @param filter null to match any document
+     * @return true if the document changed
+     */
+    public boolean update(ObjectId id, Predicate<T> filter, Consumer<T> mutation) {
+        if (id == null) return false;
+
+        boolean[] modified = {false};
+        this.documents.computeIfPresent(id, (k, current) -> {
+            T before = decode(current);
+            if (filter != null && !filter.test(before)) return current;
+
+            T after = decode(current);
+            mutation.accept(after);
+
+            byte[] bytes = this.store.encode(after);
+            if (Arrays.equals(current, bytes)) return current;
+
+            updateIndexes(id, before, after);
+            modified[0] = true;
+            return bytes;
+        });
+        return modified[0];
+    }
+
+    public boolean update(ObjectId id, Consumer<T> mutation) {
+        return update(id, null, mutation);
+    }
+
+    /**
+     * @return number of documents changed
+     */
+    public long update(Collection<ObjectId> ids, Consumer<T> mutation) {
+        long modified = 0;
+        for (ObjectId id : ids) {
+            if (update(id, null, mutation)) modified++;
+        }
+        return modified;
+    }
+
+    public boolean delete(ObjectId id) {
+        if (id == null) return false;
+
+        boolean[] deleted = {false};
+        this.documents.computeIfPresent(id, (k, current) -> {
+            updateIndexes(id, decode(current), null);
+            deleted[0] = true;
+            return null;
+        });
+        this.ids.remove(id);
+        return deleted[0];
+    }
+
+    /**
+     * @return number of documents deleted
+     */
+    public long delete(Collection<ObjectId> ids) {
+        long deleted = 0;
+        for (ObjectId id : ids) {
+            if (delete(id)) deleted++;
+        }
+        return deleted;
+    }
+
+    public void clear() {
+        delete(new ArrayList<>(this.ids));
+    }
+
+
+    public Optional<T> findById(ObjectId id) {
+        if (id == null) return Optional.empty();
+        return Optional.ofNullable(decode(this.documents.get(id)));
+    }
+
+    public boolean exists(ObjectId id) {
+        return id != null && this.documents.containsKey(id);
+    }
+
+    /**
+     * @return the documents found, in the order of the ids
+     */
+    public List<T> find(Collection<ObjectId> ids) {
+        List<T> result = new ArrayList<>();
+        for (ObjectId id : ids) {
+            if (id == null) continue;
+            T document = decode(this.documents.get(id));
+            if (document != null) result.add(document);
+        }
+        return result;
+    }
+
+    /**
+     * @return the _ids indexed under the key, in _id order
+     */
+    public NavigableSet<ObjectId> findIds(String indexName, Object key) {
+        Index<T> index = this.indexes.get(indexName);
+        if (index == null) throw new IllegalArgumentException("No index " + indexName + " on " + this.name);
+
+        Set<ObjectId> found = index.entries().get(key);
+        return found != null ? new TreeSet<>(found) : new TreeSet<>();
+    }
+
+    /**
+     * @return the documents indexed under the key, in _id order
+     */
+    public List<T> findBy(String indexName, Object key) {
+        return find(findIds(indexName, key));
+    }
+
+    /**
+     * Reads the index only, like a covered query: every key with each of its _ids.
+     * @return entries read
+     */
+    public long scanIndex(String indexName, BiConsumer<Object, ObjectId> consumer) {
+        Index<T> index = this.indexes.get(indexName);
+        if (index == null) throw new IllegalArgumentException("No index " + indexName + " on " + this.name);
+
+        long read = 0;
+        for (Map.Entry<Object, Set<ObjectId>> entry : index.entries().entrySet()) {
+            for (ObjectId id : entry.getValue()) {
+                consumer.accept(entry.getKey(), id);
+                read++;
+            }
+        }
+        return read;
+    }
+
+    public Optional<T> findFirstBy(String indexName, Object key) {
+        for (ObjectId id : findIds(indexName, key)) {
+            T document = decode(this.documents.get(id));
+            if (document != null) return Optional.of(document);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Full scan in _id order, decoded lazily.
+     */
+    public Stream<T> stream() {
+        return stream(this.ids);
+    }
+
+    private Stream<T> stream(Collection<ObjectId> source) {
+        return source.stream()
+                .map(id -> decode(this.documents.get(id)))
+                .filter(Objects::nonNull);
+    }
+
+    public List<ObjectId> ids() {
+        return new ArrayList<>(this.ids);
+    }
+
+    public long count() {
+        return this.documents.size();
+    }
+
+    public long count(Predicate<T> filter) {
+        return filter == null ? count() : stream().filter(filter).count();
+    }
+
+
+    /**
+     * Same contract as {@link MongoPagination#find}: keyset pagination on _id with a cursor,
+     * skip/limit otherwise, the total only when requested.
+     * @param candidates the _ids to page (an index lookup), null for the whole collection
+     * @param filter null to match every candidate
+     */
+    public PageResult<T> find(NavigableSet<ObjectId> candidates, Predicate<T> filter, PaginationRequest pagination, boolean descending) {
+        int size = MongoPagination.pageSize(pagination);
+        NavigableSet<ObjectId> source = candidates != null ? candidates : this.ids;
+
+        long skip = 0;
+        if (pagination.hasCursor()) {
+            ObjectId lastId = MongoPagination.requireCursor(pagination.getCursor());
+
+            source = descending ? source.headSet(lastId, false) : source.tailSet(lastId, false);
+        } else {
+            skip = (long) pagination.getPage() * size;
+        }
+        if (descending) source = source.descendingSet();
+
+        List<T> content = new ArrayList<>(stream(source)
+                .filter(filter != null ? filter : document -> true)
+                .skip(skip)
+                .limit(size + 1L)
+                .toList());
+
+        String nextCursor = null;
+        if (content.size() > size) {
+            content = new ArrayList<>(content.subList(0, size));
+            nextCursor = MongoPagination.encodeCursor(this.idGetter.apply(content.getLast()));
+        }
+
+        long total = PageResult.UNKNOWN_TOTAL;
+        if (pagination.isTotalRequested()) {
+            total = candidates == null && filter == null
+                    ? count()
+                    : stream(candidates != null ? candidates : this.ids).filter(filter != null ? filter : document -> true).count();
+        }
+
+        return new PageResult<>(content, total, pagination.getPage(), size, nextCursor);
+    }
+
+    /**
+     * Skip/limit page in a custom order (the queries sorted on another field than _id).
+     * @param filter null to match every document
+     */
+    public PageResult<T> find(Predicate<T> filter, Comparator<T> sort, int page, int size) {
+        List<T> matching = stream()
+                .filter(filter != null ? filter : document -> true)
+                .sorted(sort)
+                .toList();
+
+        List<T> content = matching.stream()
+                .skip((long) page * size)
+                .limit(size)
+                .toList();
+
+        return new PageResult<>(new ArrayList<>(content), matching.size(), page, size);
+    }
+
+}
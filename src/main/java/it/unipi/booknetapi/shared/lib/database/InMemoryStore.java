@@ -0,0 +1,137 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import it.unipi.booknetapi.model.author.Author;
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.fetch.ImportLog;
+import it.unipi.booknetapi.model.genre.Genre;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.model.user.Reviewer;
+import it.unipi.booknetapi.model.user.User;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Data of the "local" profile, which runs the API without MongoDB and Neo4j: the collections the
+ * in-memory repositories share, in place of the MongoDB database. The graph is not stored, the
+ * in-memory repositories derive the relationships from the documents (shelves, reviews, preferences).
+ * Documents go through the same codec registry as the MongoDB client, so they have the same shape
+ * and cost the same to read and write, minus the network and the database.
+ * Nothing is persisted: the data is lost when the application stops.
+ */
+@Component
+@Profile("local")
+public class InMemoryStore {
+
+    Logger logger = LoggerFactory.getLogger(InMemoryStore.class);
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final CodecRegistry codecRegistry;
+
+    private final InMemoryCollection<Book> books;
+    private final InMemoryCollection<User> users;
+    private final InMemoryCollection<Review> reviews;
+    private final InMemoryCollection<Author> authors;
+    private final InMemoryCollection<Genre> genres;
+    private final InMemoryCollection<Notification> notifications;
+    private final InMemoryCollection<ImportLog> importLogs;
+
+    public InMemoryStore(AppConfiguration config) {
+        this.codecRegistry = MongoManager.codecRegistry(config.getBoolean("app.mongo.model-codecs-enabled", true));
+
+        this.books = new InMemoryCollection<>("books", Book.class, this, Book::getId, Book::setId);
+        this.users = new InMemoryCollection<>("users", User.class, this, User::getId, User::setId);
+        this.reviews = new InMemoryCollection<>("reviews", Review.class, this, Review::getId, Review::setId);
+        this.authors = new InMemoryCollection<>("authors", Author.class, this, Author::getId, Author::setId);
+        this.genres = new InMemoryCollection<>("genres", Genre.class, this, Genre::getId, Genre::setId);
+        this.notifications = new InMemoryCollection<>("notifications", Notification.class, this, Notification::getId, Notification::setId);
+        this.importLogs = new InMemoryCollection<>("import_logs", ImportLog.class, this, ImportLog::getId, ImportLog::setId);
+
+        // The indexes of the queries the repositories run, named after the indexed field
+        this.books.createIndex("isbn", Book::getIsbn);
+        this.books.createIndex("externalId.goodReads", book -> book.getExternalId() != null ? book.getExternalId().getGoodReads() : null);
+        this.books.createIndex("genres._id", book -> book.getGenres() != null ? book.getGenres().stream().filter(Objects::nonNull).map(GenreEmbed::getId).toList() : null);
+        this.books.createIndex("authors._id", book -> book.getAuthors() != null ? book.getAuthors().stream().filter(Objects::nonNull).map(AuthorEmbed::getId).toList() : null);
+        this.users.createIndex("username", User::getUsername);
+        this.users.createIndex("externalId.goodReads", user -> user instanceof Reviewer reviewer && reviewer.getExternalId() != null ? reviewer.getExternalId().getGoodReads() : null);
+        this.reviews.createIndex("bookId", Review::getBookId);
+        this.reviews.createIndex("user._id", review -> review.getUser() != null ? review.getUser().getId() : null);
+        this.reviews.createIndex("externalId.goodReads", review -> review.getExternalId() != null ? review.getExternalId().getGoodReads() : null);
+        this.authors.createIndex("name", Author::getName);
+        this.authors.createIndex("externalId.goodReads", author -> author.getExternalId() != null ? author.getExternalId().getGoodReads() : null);
+        this.genres.createIndex("name", Genre::getName);
+        this.notifications.createIndex("userId", Notification::getUserId);
+
+        logger.warn("[IN MEMORY] local profile: data is kept in memory and lost on shutdown");
+    }
+
+    public InMemoryCollection<Book> books() {
+        return this.books;
+    }
+
+    public InMemoryCollection<User> users() {
+        return this.users;
+    }
+
+    public InMemoryCollection<Review> reviews() {
+        return this.reviews;
+    }
+
+    public InMemoryCollection<Author> authors() {
+        return this.authors;
+    }
+
+    public InMemoryCollection<Genre> genres() {
+        return this.genres;
+    }
+
+    public InMemoryCollection<Notification> notifications() {
+        return this.notifications;
+    }
+
+    public InMemoryCollection<ImportLog> importLogs() {
+        return this.importLogs;
+    }
+
+
+    /**
+     * Encodes with the codec of the runtime class, as the driver does for a subclass (Reader in users).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> byte[] encode(T document) {
+        Codec<T> codec = (Codec<T>) this.codecRegistry.get(document.getClass());
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, document, ENCODER_CONTEXT);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @param type the class of the collection; the discriminator picks the subclass, if any
+     */
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bytes))) {
+            return this.codecRegistry.get(type).decode(reader, DECODER_CONTEXT);
+        }
+    }
+
+}
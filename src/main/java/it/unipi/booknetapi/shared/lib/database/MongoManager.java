@@ -12,13 +12,17 @@ import org.bson.codecs.pojo.Conventions;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import com.mongodb.MongoClientSettings;
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.codec.ModelCodecProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
 import java.util.List;
 
 
 @Configuration
+@Profile("!local")
 public class MongoManager {
 
     private final AppConfig appConfig;
@@ -28,8 +32,10 @@ public class MongoManager {
         this.appConfig = appConfig;
     }
 
-    @Bean
-    public MongoClient getMongoClient(MeterRegistry meterRegistry) {
+    /**
+     * @param modelCodecs serve the hot models with the hand-written codecs, the PojoCodec otherwise
+     */
+    public static CodecRegistry codecRegistry(boolean modelCodecs) {
         CodecRegistry pojoCodecRegistry = CodecRegistries.fromProviders(
                 PojoCodecProvider.builder()
                         .automatic(true)
@@ -43,6 +49,7 @@ public class MongoManager {
                                 "it.unipi.booknetapi.model.fetch",
                                 "it.unipi.booknetapi.model.genre",
                                 "it.unipi.booknetapi.model.notification",
+                                "it.unipi.booknetapi.model.outbox",
                                 "it.unipi.booknetapi.model.review",
                                 "it.unipi.booknetapi.model.stat",
                                 "it.unipi.booknetapi.model.user"
@@ -50,15 +57,29 @@ public class MongoManager {
                         .build()
         );
 
-        CodecRegistry codecRegistry = CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), pojoCodecRegistry);
+        if (!modelCodecs) return CodecRegistries.fromRegistries(MongoClientSettings.getDefaultCodecRegistry(), pojoCodecRegistry);
+
+        return CodecRegistries.fromRegistries(
+                MongoClientSettings.getDefaultCodecRegistry(),
+                CodecRegistries.fromProviders(new ModelCodecProvider()),
+                pojoCodecRegistry
+        );
+    }
 
-        MongoClientSettings settings = MongoClientSettings.builder()
+    @Bean
+    public MongoClient getMongoClient(MeterRegistry meterRegistry, AppConfiguration config) {
+        CodecRegistry codecRegistry = codecRegistry(config.getBoolean("app.mongo.model-codecs-enabled", true));
+
+        MongoClientSettings.Builder settings = MongoClientSettings.builder()
                 .applyConnectionString(new ConnectionString(appConfig.getMongoUri()))
                 .codecRegistry(codecRegistry)
-                .addCommandListener(new MongoMetricsCommandListener(meterRegistry))
-                .build();
+                .addCommandListener(new MongoMetricsCommandListener(meterRegistry));
+
+        if (config.getBoolean("app.mongo.read-bytes-enabled", false)) {
+            settings.addCommandListener(new MongoReadBytesListener(meterRegistry));
+        }
 
-        return MongoClients.create(settings);
+        return MongoClients.create(settings.build());
     }
 
     @Bean
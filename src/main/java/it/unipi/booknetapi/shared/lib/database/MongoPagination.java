@@ -0,0 +1,141 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import it.unipi.booknetapi.shared.model.InvalidPaginationException;
+import it.unipi.booknetapi.shared.model.PageResult;
+import it.unipi.booknetapi.shared.model.PaginationRequest;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination on _id.
+ * With a cursor the query seeks on the _id index ({@code _id > last}), so every page costs the
+ * same as the first one; without it the classic skip/limit is used, ordered by _id as well so
+ * that the returned nextCursor can be used to continue from any page.
+ * A size below 1 or a cursor the API did not return is rejected with {@link InvalidPaginationException} (400).
+ */
+public final class MongoPagination {
+
+    public static final int MAX_SIZE = 500;
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private MongoPagination() {}
+
+    public static String encodeCursor(ObjectId lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId.toHexString()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the _id the cursor points to, null if the token is not valid
+     */
+    public static ObjectId decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) return null;
+
+            String hex = decoded.substring(CURSOR_PREFIX.length());
+            return ObjectId.isValid(hex) ? new ObjectId(hex) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the page size, at most {@link #MAX_SIZE}
+     * @throws InvalidPaginationException if the size is below 1
+     */
+    public static int pageSize(PaginationRequest pagination) {
+        if (pagination.getSize() < 1) throw new InvalidPaginationException("Page size must be at least 1");
+
+        return Math.min(pagination.getSize(), MAX_SIZE);
+    }
+
+    /**
+     * @return the _id the cursor points to
+     * @throws InvalidPaginationException if the token is not valid
+     */
+    public static ObjectId requireCursor(String cursor) {
+        ObjectId lastId = decodeCursor(cursor);
+        if (lastId == null) throw new InvalidPaginationException("Invalid pagination cursor");
+
+        return lastId;
+    }
+
+    /**
+     * @param collection the collection to page
+     * @param filter the query filter, null for the whole collection
+     * @param pagination page/size or cursor/size
+     * @param idGetter extracts the _id from a document
+     * @param descending newest first
+     */
+    public static <T> PageResult<T> find(
+            MongoCollection<T> collection,
+            Bson filter,
+            PaginationRequest pagination,
+            Function<T, ObjectId> idGetter,
+            boolean descending
+    ) {
+        return find(collection, filter, null, pagination, idGetter, descending);
+    }
+
+    /**
+     * @param projection the fields to read, null for the whole document; _id is always returned
+     */
+    public static <T> PageResult<T> find(
+            MongoCollection<T> collection,
+            Bson filter,
+            Bson projection,
+            PaginationRequest pagination,
+            Function<T, ObjectId> idGetter,
+            boolean descending
+    ) {
+        int size = pageSize(pagination);
+        Bson baseFilter = filter != null ? filter : new BsonDocument();
+
+        FindIterable<T> iterable;
+        if (pagination.hasCursor()) {
+            ObjectId lastId = requireCursor(pagination.getCursor());
+
+            Bson seek = descending ? Filters.lt("_id", lastId) : Filters.gt("_id", lastId);
+            iterable = collection.find(Filters.and(baseFilter, seek));
+        } else {
+            iterable = collection.find(baseFilter).skip(pagination.getPage() * size);
+        }
+
+        // One extra document tells whether there is a next page without counting
+        if (projection != null) iterable = iterable.projection(projection);
+
+        List<T> content = iterable
+                .sort(descending ? Sorts.descending("_id") : Sorts.ascending("_id"))
+                .limit(size + 1)
+                .into(new ArrayList<>());
+
+        String nextCursor = null;
+        if (content.size() > size) {
+            content = new ArrayList<>(content.subList(0, size));
+            nextCursor = encodeCursor(idGetter.apply(content.getLast()));
+        }
+
+        long total = PageResult.UNKNOWN_TOTAL;
+        if (pagination.isTotalRequested()) {
+            total = filter == null
+                    ? collection.estimatedDocumentCount()
+                    : collection.countDocuments(filter);
+        }
+
+        return new PageResult<>(content, total, pagination.getPage(), size, nextCursor);
+    }
+
+}
@@ -0,0 +1,115 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Range partitioning on _id, used to copy a collection in parallel: the collection is split in
+ * (afterId, upToId] ranges that are walked independently with keyset batches on the _id index.
+ */
+public final class MongoRanges {
+
+    public static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+
+    // Sampled ids per range, more samples give ranges of closer sizes
+    private static final int SAMPLES_PER_RANGE = 20;
+    private static final int MAX_SAMPLES = 10000;
+
+    private MongoRanges() {}
+
+    /**
+     * Boundaries of about equal ranges, estimated from a $sample of the _ids (like splitVector,
+     * which is not available to a regular user).
+     * @param filter the documents to split, null for the whole collection
+     * @param ranges wanted number of ranges
+     * @return the sorted upper bounds of the first ranges; the last range is unbounded,
+     * so n boundaries give n + 1 ranges (fewer than asked for small or skewed collections)
+     */
+    public static <T> List<ObjectId> split(MongoCollection<T> collection, Bson filter, int ranges) {
+        if (ranges <= 1) return List.of();
+
+        int samples = Math.min(MAX_SAMPLES, ranges * SAMPLES_PER_RANGE);
+
+        List<Bson> pipeline = new ArrayList<>();
+        if (filter != null) pipeline.add(Aggregates.match(filter));
+        pipeline.add(Aggregates.sample(samples));
+        pipeline.add(Aggregates.project(Projections.include("_id")));
+
+        List<ObjectId> sampled = new ArrayList<>();
+        for (Document document : collection.aggregate(pipeline, Document.class)) {
+            Object id = document.get("_id");
+            if (id instanceof ObjectId objectId) sampled.add(objectId);
+        }
+        if (sampled.size() < ranges) return List.of();
+
+        sampled.sort(null);
+
+        List<ObjectId> boundaries = new ArrayList<>(ranges - 1);
+        for (int range = 1; range < ranges; range++) {
+            ObjectId boundary = sampled.get(range * sampled.size() / ranges);
+            // $sample may return a document twice
+            if (boundaries.isEmpty() || boundaries.getLast().compareTo(boundary) < 0) boundaries.add(boundary);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Walks the documents with afterId < _id <= upToId in _id order, one batch at a time.
+     * @param filter extra filter, null for none
+     * @param upToId inclusive upper bound, null for the end of the collection
+     * @param writer writes a batch to the target store
+     * @param onBatch called after every written batch with its last _id and size, the resume point of the range
+     * @return documents written
+     */
+    public static <T> long walk(
+            MongoCollection<T> collection,
+            Bson filter,
+            ObjectId afterId,
+            ObjectId upToId,
+            int batchSize,
+            Function<T, ObjectId> idGetter,
+            Consumer<List<T>> writer,
+            BiConsumer<ObjectId, Integer> onBatch
+    ) {
+        ObjectId lastId = afterId != null ? afterId : MIN_ID;
+        long written = 0;
+
+        while (true) {
+            List<Bson> filters = new ArrayList<>();
+            filters.add(Filters.gt("_id", lastId));
+            if (upToId != null) filters.add(Filters.lte("_id", upToId));
+            if (filter != null) filters.add(filter);
+
+            List<T> batch = collection
+                    .find(Filters.and(filters))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(batchSize)
+                    .into(new ArrayList<>());
+
+            if (batch.isEmpty()) break;
+
+            writer.accept(batch);
+
+            lastId = idGetter.apply(batch.getLast());
+            written += batch.size();
+            if (onBatch != null) onBatch.accept(lastId, batch.size());
+
+            if (batch.size() < batchSize) break;
+        }
+
+        return written;
+    }
+
+}
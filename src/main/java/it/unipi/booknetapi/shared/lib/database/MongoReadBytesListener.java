@@ -0,0 +1,80 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Set;
+
+/**
+ * Size of the replies to the read commands, tagged with the endpoint that issued them (the same
+ * method and uri labels as http.server.requests, so the two can be divided).
+ * The sync driver fires the events on the calling thread: the request is the one bound to it,
+ * reads of the background jobs are tagged "none".
+ * Diagnostic only (app.mongo.read-bytes-enabled, off by default): the event carries no reply size,
+ * so each reply is encoded again on the request thread, which costs about as much as decoding it.
+ */
+public class MongoReadBytesListener implements CommandListener {
+
+    private static final Set<String> READ_COMMANDS = Set.of("find", "getMore", "aggregate", "count", "distinct");
+    private static final String NONE = "none";
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private final MeterRegistry registry;
+
+    public MongoReadBytesListener(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (!READ_COMMANDS.contains(event.getCommandName())) return;
+
+        BsonDocument response = event.getResponse();
+        if (response == null) return;
+
+        String method = NONE;
+        String uri = NONE;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+            method = request.getMethod();
+            // Before the handler is resolved (filters) there is no pattern, the raw path would explode the tags
+            uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        }
+
+        DistributionSummary.builder("mongo.read.bytes")
+                .baseUnit("bytes")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("command", event.getCommandName())
+                .register(this.registry)
+                .record(size(response));
+    }
+
+    private static int size(BsonDocument document) {
+        if (document instanceof RawBsonDocument raw) return raw.getByteBuffer().remaining();
+
+        // The driver hands a lazy view over the reply buffer: writing it back gives the wire size
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(writer, document, EncoderContext.builder().build());
+        }
+        return buffer.getSize();
+    }
+
+}
@@ -0,0 +1,45 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class AuthorEmbedCodec implements Codec<AuthorEmbed> {
+
+    @Override
+    public void encode(BsonWriter writer, AuthorEmbed value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "name", value.getName());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public AuthorEmbed decode(BsonReader reader, DecoderContext context) {
+        AuthorEmbed author = new AuthorEmbed();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> author.setId(readObjectId(reader));
+                case "name" -> author.setName(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return author;
+    }
+
+    @Override
+    public Class<AuthorEmbed> getEncoderClass() {
+        return AuthorEmbed.class;
+    }
+
+}
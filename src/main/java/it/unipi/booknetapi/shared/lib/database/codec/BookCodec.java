@@ -0,0 +1,131 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.FormatTypeEnum;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+/**
+ * Fields are written in declaration order, as the PojoCodec did, so embedded documents compared
+ * as a whole keep matching. Collectible: an insert without id gets one, set on the instance.
+ */
+public class BookCodec implements CollectibleCodec<Book> {
+
+    private final AuthorEmbedCodec authorCodec;
+    private final GenreEmbedCodec genreCodec;
+    private final BookEmbedCodec bookEmbedCodec;
+    private final ReviewSummaryCodec summaryCodec;
+    private final ExternalIdCodec externalIdCodec;
+
+    public BookCodec(
+            AuthorEmbedCodec authorCodec,
+            GenreEmbedCodec genreCodec,
+            BookEmbedCodec bookEmbedCodec,
+            ReviewSummaryCodec summaryCodec,
+            ExternalIdCodec externalIdCodec
+    ) {
+        this.authorCodec = authorCodec;
+        this.genreCodec = genreCodec;
+        this.bookEmbedCodec = bookEmbedCodec;
+        this.summaryCodec = summaryCodec;
+        this.externalIdCodec = externalIdCodec;
+    }
+
+
+    @Override
+    public void encode(BsonWriter writer, Book value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "isbn", value.getIsbn());
+        writeString(writer, "isbn13", value.getIsbn13());
+        writeString(writer, "title", value.getTitle());
+        writeString(writer, "subtitle", value.getSubtitle());
+        writeString(writer, "description", value.getDescription());
+        writeInt(writer, "numPage", value.getNumPage());
+        writeDate(writer, "publicationDate", value.getPublicationDate());
+        writeInt(writer, "publicationYear", value.getPublicationYear());
+        writeInt(writer, "publicationMonth", value.getPublicationMonth());
+        writeInt(writer, "publicationDay", value.getPublicationDay());
+        writeStrings(writer, "languages", value.getLanguages());
+        writeStrings(writer, "images", value.getImages());
+        writeStrings(writer, "previews", value.getPreviews());
+        writeStrings(writer, "publishers", value.getPublishers());
+        writeObjectIds(writer, "reviews", value.getReviews());
+        writeList(writer, "authors", value.getAuthors(), this.authorCodec, context);
+        writeList(writer, "genres", value.getGenres(), this.genreCodec, context);
+        writeList(writer, "similarBooks", value.getSimilarBooks(), this.bookEmbedCodec, context);
+        writeDocument(writer, "ratingReview", value.getRatingReview(), this.summaryCodec, context);
+        writeEnum(writer, "format", value.getFormat());
+        writeDocument(writer, "externalId", value.getExternalId(), this.externalIdCodec, context);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Book decode(BsonReader reader, DecoderContext context) {
+        Book book = new Book();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> book.setId(readObjectId(reader));
+                case "isbn" -> book.setIsbn(readString(reader));
+                case "isbn13" -> book.setIsbn13(readString(reader));
+                case "title" -> book.setTitle(readString(reader));
+                case "subtitle" -> book.setSubtitle(readString(reader));
+                case "description" -> book.setDescription(readString(reader));
+                case "numPage" -> book.setNumPage(readInt(reader));
+                case "publicationDate" -> book.setPublicationDate(readDate(reader));
+                case "publicationYear" -> book.setPublicationYear(readInt(reader));
+                case "publicationMonth" -> book.setPublicationMonth(readInt(reader));
+                case "publicationDay" -> book.setPublicationDay(readInt(reader));
+                case "languages" -> book.setLanguages(readStrings(reader));
+                case "images" -> book.setImages(readStrings(reader));
+                case "previews" -> book.setPreviews(readStrings(reader));
+                case "publishers" -> book.setPublishers(readStrings(reader));
+                case "reviews" -> book.setReviews(readObjectIds(reader));
+                case "authors" -> book.setAuthors(readList(reader, this.authorCodec, context));
+                case "genres" -> book.setGenres(readList(reader, this.genreCodec, context));
+                case "similarBooks" -> book.setSimilarBooks(readList(reader, this.bookEmbedCodec, context));
+                case "ratingReview" -> book.setRatingReview(readDocument(reader, this.summaryCodec, context));
+                case "format" -> book.setFormat(readEnum(reader, FormatTypeEnum.class));
+                case "externalId" -> book.setExternalId(readDocument(reader, this.externalIdCodec, context));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return book;
+    }
+
+    @Override
+    public Class<Book> getEncoderClass() {
+        return Book.class;
+    }
+
+    @Override
+    public Book generateIdIfAbsentFromDocument(Book book) {
+        if (!documentHasId(book)) book.setId(new ObjectId());
+        return book;
+    }
+
+    @Override
+    public boolean documentHasId(Book book) {
+        return book.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Book book) {
+        if (!documentHasId(book)) throw new IllegalStateException("The book does not contain an _id");
+        return new BsonObjectId(book.getId());
+    }
+
+}
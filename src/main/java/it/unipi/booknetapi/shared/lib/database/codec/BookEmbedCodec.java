@@ -0,0 +1,70 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.book.FormatTypeEnum;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+/**
+ * Embedded in books (similarBooks), authors (books) and reader shelves, the most decoded shape.
+ */
+public class BookEmbedCodec implements Codec<BookEmbed> {
+
+    private final AuthorEmbedCodec authorCodec;
+    private final GenreEmbedCodec genreCodec;
+
+    public BookEmbedCodec(AuthorEmbedCodec authorCodec, GenreEmbedCodec genreCodec) {
+        this.authorCodec = authorCodec;
+        this.genreCodec = genreCodec;
+    }
+
+
+    @Override
+    public void encode(BsonWriter writer, BookEmbed value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "title", value.getTitle());
+        writeString(writer, "description", value.getDescription());
+        writeInt(writer, "numPage", value.getNumPage());
+        writeEnum(writer, "format", value.getFormat());
+        writeStrings(writer, "images", value.getImages());
+        writeList(writer, "authors", value.getAuthors(), this.authorCodec, context);
+        writeList(writer, "genres", value.getGenres(), this.genreCodec, context);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public BookEmbed decode(BsonReader reader, DecoderContext context) {
+        BookEmbed book = new BookEmbed();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> book.setId(readObjectId(reader));
+                case "title" -> book.setTitle(readString(reader));
+                case "description" -> book.setDescription(readString(reader));
+                case "numPage" -> book.setNumPage(readInt(reader));
+                case "format" -> book.setFormat(readEnum(reader, FormatTypeEnum.class));
+                case "images" -> book.setImages(readStrings(reader));
+                case "authors" -> book.setAuthors(readList(reader, this.authorCodec, context));
+                case "genres" -> book.setGenres(readList(reader, this.genreCodec, context));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return book;
+    }
+
+    @Override
+    public Class<BookEmbed> getEncoderClass() {
+        return BookEmbed.class;
+    }
+
+}
@@ -0,0 +1,205 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read and write helpers shared by the model codecs. They follow what the PojoCodec does, so the
+ * documents stay the same whichever path wrote them: null properties are not written, a BSON null
+ * is read back as null, numbers are accepted in any numeric type.
+ */
+final class BsonCodecs {
+
+    private BsonCodecs() {}
+
+    /**
+     * @return true if the current value is null, which is consumed
+     */
+    static boolean readNull(BsonReader reader) {
+        if (reader.getCurrentBsonType() != BsonType.NULL) return false;
+        reader.readNull();
+        return true;
+    }
+
+    static String readString(BsonReader reader) {
+        if (readNull(reader)) return null;
+        return reader.getCurrentBsonType() == BsonType.SYMBOL ? reader.readSymbol() : reader.readString();
+    }
+
+    static ObjectId readObjectId(BsonReader reader) {
+        if (readNull(reader)) return null;
+        return reader.readObjectId();
+    }
+
+    static Date readDate(BsonReader reader) {
+        if (readNull(reader)) return null;
+        return new Date(reader.readDateTime());
+    }
+
+    static Boolean readBoolean(BsonReader reader) {
+        if (readNull(reader)) return null;
+        return reader.readBoolean();
+    }
+
+    static Integer readInt(BsonReader reader) {
+        if (readNull(reader)) return null;
+
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> Math.toIntExact(reader.readInt64());
+            case DOUBLE -> {
+                double value = reader.readDouble();
+                if (value != (int) value) throw new BsonInvalidOperationException("Could not convert " + value + " to an Integer without losing precision");
+                yield (int) value;
+            }
+            case DECIMAL128 -> reader.readDecimal128().bigDecimalValue().intValueExact();
+            default -> throw new BsonInvalidOperationException("Invalid numeric type, found: " + reader.getCurrentBsonType());
+        };
+    }
+
+    static Double readDouble(BsonReader reader) {
+        if (readNull(reader)) return null;
+
+        return switch (reader.getCurrentBsonType()) {
+            case DOUBLE -> reader.readDouble();
+            case INT32 -> (double) reader.readInt32();
+            case INT64 -> (double) reader.readInt64();
+            case DECIMAL128 -> reader.readDecimal128().bigDecimalValue().doubleValue();
+            default -> throw new BsonInvalidOperationException("Invalid numeric type, found: " + reader.getCurrentBsonType());
+        };
+    }
+
+    static Float readFloat(BsonReader reader) {
+        Double value = readDouble(reader);
+        return value != null ? value.floatValue() : null;
+    }
+
+    static <E extends Enum<E>> E readEnum(BsonReader reader, Class<E> type) {
+        String name = readString(reader);
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+
+    static <T> T readDocument(BsonReader reader, Codec<T> codec, DecoderContext context) {
+        if (readNull(reader)) return null;
+        return codec.decode(reader, context);
+    }
+
+    static List<String> readStrings(BsonReader reader) {
+        if (readNull(reader)) return null;
+
+        List<String> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            values.add(readString(reader));
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    static List<ObjectId> readObjectIds(BsonReader reader) {
+        if (readNull(reader)) return null;
+
+        List<ObjectId> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            values.add(readObjectId(reader));
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+    static <T> List<T> readList(BsonReader reader, Codec<T> codec, DecoderContext context) {
+        if (readNull(reader)) return null;
+
+        List<T> values = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            values.add(readDocument(reader, codec, context));
+        }
+        reader.readEndArray();
+        return values;
+    }
+
+
+    static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) writer.writeString(name, value);
+    }
+
+    static void writeObjectId(BsonWriter writer, String name, ObjectId value) {
+        if (value != null) writer.writeObjectId(name, value);
+    }
+
+    static void writeDate(BsonWriter writer, String name, Date value) {
+        if (value != null) writer.writeDateTime(name, value.getTime());
+    }
+
+    static void writeBoolean(BsonWriter writer, String name, Boolean value) {
+        if (value != null) writer.writeBoolean(name, value);
+    }
+
+    static void writeInt(BsonWriter writer, String name, Integer value) {
+        if (value != null) writer.writeInt32(name, value);
+    }
+
+    static void writeDouble(BsonWriter writer, String name, Double value) {
+        if (value != null) writer.writeDouble(name, value);
+    }
+
+    static void writeFloat(BsonWriter writer, String name, Float value) {
+        if (value != null) writer.writeDouble(name, value);
+    }
+
+    static void writeEnum(BsonWriter writer, String name, Enum<?> value) {
+        if (value != null) writer.writeString(name, value.name());
+    }
+
+    static <T> void writeDocument(BsonWriter writer, String name, T value, Codec<T> codec, EncoderContext context) {
+        if (value == null) return;
+        writer.writeName(name);
+        codec.encode(writer, value, context.getChildContext());
+    }
+
+    static void writeStrings(BsonWriter writer, String name, List<String> values) {
+        if (values == null) return;
+
+        writer.writeStartArray(name);
+        for (String value : values) {
+            if (value == null) writer.writeNull();
+            else writer.writeString(value);
+        }
+        writer.writeEndArray();
+    }
+
+    static void writeObjectIds(BsonWriter writer, String name, List<ObjectId> values) {
+        if (values == null) return;
+
+        writer.writeStartArray(name);
+        for (ObjectId value : values) {
+            if (value == null) writer.writeNull();
+            else writer.writeObjectId(value);
+        }
+        writer.writeEndArray();
+    }
+
+    static <T> void writeList(BsonWriter writer, String name, List<T> values, Codec<T> codec, EncoderContext context) {
+        if (values == null) return;
+
+        writer.writeStartArray(name);
+        for (T value : values) {
+            if (value == null) writer.writeNull();
+            else codec.encode(writer, value, context.getChildContext());
+        }
+        writer.writeEndArray();
+    }
+
+}
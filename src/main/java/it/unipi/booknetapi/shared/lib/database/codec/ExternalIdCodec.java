@@ -0,0 +1,49 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.shared.model.ExternalId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class ExternalIdCodec implements Codec<ExternalId> {
+
+    @Override
+    public void encode(BsonWriter writer, ExternalId value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeString(writer, "goodReads", value.getGoodReads());
+        writeString(writer, "amazon", value.getAmazon());
+        writeString(writer, "googleBooks", value.getGoogleBooks());
+        writeString(writer, "kaggle", value.getKaggle());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public ExternalId decode(BsonReader reader, DecoderContext context) {
+        ExternalId externalId = new ExternalId();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "goodReads" -> externalId.setGoodReads(readString(reader));
+                case "amazon" -> externalId.setAmazon(readString(reader));
+                case "googleBooks" -> externalId.setGoogleBooks(readString(reader));
+                case "kaggle" -> externalId.setKaggle(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return externalId;
+    }
+
+    @Override
+    public Class<ExternalId> getEncoderClass() {
+        return ExternalId.class;
+    }
+
+}
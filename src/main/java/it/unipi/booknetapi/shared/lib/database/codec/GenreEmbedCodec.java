@@ -0,0 +1,45 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class GenreEmbedCodec implements Codec<GenreEmbed> {
+
+    @Override
+    public void encode(BsonWriter writer, GenreEmbed value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "name", value.getName());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public GenreEmbed decode(BsonReader reader, DecoderContext context) {
+        GenreEmbed genre = new GenreEmbed();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> genre.setId(readObjectId(reader));
+                case "name" -> genre.setName(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return genre;
+    }
+
+    @Override
+    public Class<GenreEmbed> getEncoderClass() {
+        return GenreEmbed.class;
+    }
+
+}
@@ -0,0 +1,50 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hand-written codecs of the most read models, registered ahead of the PojoCodecProvider.
+ * They read and write the same documents without the reflective property access of the PojoCodec.
+ * A model that changes must change its codec too: a field missing there is silently dropped.
+ * Only exact classes are served, subclasses fall back to the PojoCodec.
+ */
+public class ModelCodecProvider implements CodecProvider {
+
+    private final Map<Class<?>, Codec<?>> codecs = new HashMap<>();
+
+    public ModelCodecProvider() {
+        AuthorEmbedCodec authorCodec = new AuthorEmbedCodec();
+        GenreEmbedCodec genreCodec = new GenreEmbedCodec();
+        BookEmbedCodec bookEmbedCodec = new BookEmbedCodec(authorCodec, genreCodec);
+        ReviewSummaryCodec summaryCodec = new ReviewSummaryCodec();
+        ExternalIdCodec externalIdCodec = new ExternalIdCodec();
+        UserEmbedCodec userCodec = new UserEmbedCodec();
+
+        register(authorCodec);
+        register(genreCodec);
+        register(bookEmbedCodec);
+        register(summaryCodec);
+        register(externalIdCodec);
+        register(userCodec);
+        register(new NotificationEmbedCodec());
+        register(new BookCodec(authorCodec, genreCodec, bookEmbedCodec, summaryCodec, externalIdCodec));
+        register(new ReviewCodec(userCodec, externalIdCodec));
+        register(new NotificationCodec());
+    }
+
+    private void register(Codec<?> codec) {
+        this.codecs.put(codec.getEncoderClass(), codec);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        return (Codec<T>) this.codecs.get(clazz);
+    }
+
+}
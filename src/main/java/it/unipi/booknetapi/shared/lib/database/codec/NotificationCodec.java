@@ -0,0 +1,78 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.fetch.EntityType;
+import it.unipi.booknetapi.model.notification.Notification;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class NotificationCodec implements CollectibleCodec<Notification> {
+
+    @Override
+    public void encode(BsonWriter writer, Notification value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "title", value.getTitle());
+        writeString(writer, "message", value.getMessage());
+        writeObjectId(writer, "userId", value.getUserId());
+        writeObjectId(writer, "entityId", value.getEntityId());
+        writeEnum(writer, "entityType", value.getEntityType());
+        writeDate(writer, "createdAt", value.getCreatedAt());
+        writeBoolean(writer, "read", value.getRead());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Notification decode(BsonReader reader, DecoderContext context) {
+        Notification notification = new Notification();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> notification.setId(readObjectId(reader));
+                case "title" -> notification.setTitle(readString(reader));
+                case "message" -> notification.setMessage(readString(reader));
+                case "userId" -> notification.setUserId(readObjectId(reader));
+                case "entityId" -> notification.setEntityId(readObjectId(reader));
+                case "entityType" -> notification.setEntityType(readEnum(reader, EntityType.class));
+                case "createdAt" -> notification.setCreatedAt(readDate(reader));
+                case "read" -> notification.setRead(readBoolean(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return notification;
+    }
+
+    @Override
+    public Class<Notification> getEncoderClass() {
+        return Notification.class;
+    }
+
+    @Override
+    public Notification generateIdIfAbsentFromDocument(Notification notification) {
+        if (!documentHasId(notification)) notification.setId(new ObjectId());
+        return notification;
+    }
+
+    @Override
+    public boolean documentHasId(Notification notification) {
+        return notification.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Notification notification) {
+        if (!documentHasId(notification)) throw new IllegalStateException("The notification does not contain an _id");
+        return new BsonObjectId(notification.getId());
+    }
+
+}
@@ -0,0 +1,49 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.notification.NotificationEmbed;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class NotificationEmbedCodec implements Codec<NotificationEmbed> {
+
+    @Override
+    public void encode(BsonWriter writer, NotificationEmbed value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "title", value.getTitle());
+        writeString(writer, "message", value.getMessage());
+        writeDate(writer, "createdAt", value.getCreatedAt());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public NotificationEmbed decode(BsonReader reader, DecoderContext context) {
+        NotificationEmbed notification = new NotificationEmbed();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> notification.setId(readObjectId(reader));
+                case "title" -> notification.setTitle(readString(reader));
+                case "message" -> notification.setMessage(readString(reader));
+                case "createdAt" -> notification.setCreatedAt(readDate(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return notification;
+    }
+
+    @Override
+    public Class<NotificationEmbed> getEncoderClass() {
+        return NotificationEmbed.class;
+    }
+
+}
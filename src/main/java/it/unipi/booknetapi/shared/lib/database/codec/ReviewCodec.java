@@ -0,0 +1,89 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.shared.model.Source;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class ReviewCodec implements CollectibleCodec<Review> {
+
+    private final UserEmbedCodec userCodec;
+    private final ExternalIdCodec externalIdCodec;
+
+    public ReviewCodec(UserEmbedCodec userCodec, ExternalIdCodec externalIdCodec) {
+        this.userCodec = userCodec;
+        this.externalIdCodec = externalIdCodec;
+    }
+
+
+    @Override
+    public void encode(BsonWriter writer, Review value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeObjectId(writer, "bookId", value.getBookId());
+        writeDocument(writer, "user", value.getUser(), this.userCodec, context);
+        writeInt(writer, "rating", value.getRating());
+        writeString(writer, "comment", value.getComment());
+        writeDate(writer, "dateAdded", value.getDateAdded());
+        writeDate(writer, "dateUpdated", value.getDateUpdated());
+        writeEnum(writer, "source", value.getSource());
+        writeDocument(writer, "externalId", value.getExternalId(), this.externalIdCodec, context);
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Review decode(BsonReader reader, DecoderContext context) {
+        Review review = new Review();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> review.setId(readObjectId(reader));
+                case "bookId" -> review.setBookId(readObjectId(reader));
+                case "user" -> review.setUser(readDocument(reader, this.userCodec, context));
+                case "rating" -> review.setRating(readInt(reader));
+                case "comment" -> review.setComment(readString(reader));
+                case "dateAdded" -> review.setDateAdded(readDate(reader));
+                case "dateUpdated" -> review.setDateUpdated(readDate(reader));
+                case "source" -> review.setSource(readEnum(reader, Source.class));
+                case "externalId" -> review.setExternalId(readDocument(reader, this.externalIdCodec, context));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return review;
+    }
+
+    @Override
+    public Class<Review> getEncoderClass() {
+        return Review.class;
+    }
+
+    @Override
+    public Review generateIdIfAbsentFromDocument(Review review) {
+        if (!documentHasId(review)) review.setId(new ObjectId());
+        return review;
+    }
+
+    @Override
+    public boolean documentHasId(Review review) {
+        return review.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Review review) {
+        if (!documentHasId(review)) throw new IllegalStateException("The review does not contain an _id");
+        return new BsonObjectId(review.getId());
+    }
+
+}
@@ -0,0 +1,47 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.review.ReviewSummary;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class ReviewSummaryCodec implements Codec<ReviewSummary> {
+
+    @Override
+    public void encode(BsonWriter writer, ReviewSummary value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeFloat(writer, "rating", value.getRating());
+        writeInt(writer, "count", value.getCount());
+        writeDouble(writer, "sum", value.getSum());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public ReviewSummary decode(BsonReader reader, DecoderContext context) {
+        ReviewSummary summary = new ReviewSummary();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "rating" -> summary.setRating(readFloat(reader));
+                case "count" -> summary.setCount(readInt(reader));
+                case "sum" -> summary.setSum(readDouble(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return summary;
+    }
+
+    @Override
+    public Class<ReviewSummary> getEncoderClass() {
+        return ReviewSummary.class;
+    }
+
+}
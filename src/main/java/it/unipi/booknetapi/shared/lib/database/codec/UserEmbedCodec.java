@@ -0,0 +1,47 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.user.UserEmbed;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import static it.unipi.booknetapi.shared.lib.database.codec.BsonCodecs.*;
+
+public class UserEmbedCodec implements Codec<UserEmbed> {
+
+    @Override
+    public void encode(BsonWriter writer, UserEmbed value, EncoderContext context) {
+        writer.writeStartDocument();
+        writeObjectId(writer, "_id", value.getId());
+        writeString(writer, "name", value.getName());
+        writeString(writer, "imageUrl", value.getImageUrl());
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public UserEmbed decode(BsonReader reader, DecoderContext context) {
+        UserEmbed user = new UserEmbed();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            switch (reader.readName()) {
+                case "_id" -> user.setId(readObjectId(reader));
+                case "name" -> user.setName(readString(reader));
+                case "imageUrl" -> user.setImageUrl(readString(reader));
+                default -> reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return user;
+    }
+
+    @Override
+    public Class<UserEmbed> getEncoderClass() {
+        return UserEmbed.class;
+    }
+
+}
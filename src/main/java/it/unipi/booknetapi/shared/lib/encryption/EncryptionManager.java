@@ -1,8 +1,6 @@
 package it.unipi.booknetapi.shared.lib.encryption;
 
 import it.unipi.booknetapi.shared.lib.configuration.AppConfig;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
@@ -12,11 +10,12 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 public class EncryptionManager {
 
-    private final PasswordEncoder passwordEncoder; // BCrypt
+    private final PasswordHasher passwordHasher; // BCrypt, on its own pool
     private final SecretKey aesKey; // AES Key
 
     // Constants for AES-GCM
@@ -24,9 +23,9 @@ public class EncryptionManager {
     private static final int GCM_IV_LENGTH = 12; // 12 bytes IV
     private static final int GCM_TAG_LENGTH = 128; // 128 bit auth tag
 
-    public EncryptionManager(AppConfig appConfig) {
-        // 1. Initialize BCrypt for passwords
-        this.passwordEncoder = new BCryptPasswordEncoder();
+    public EncryptionManager(AppConfig appConfig, PasswordHasher passwordHasher) {
+        // 1. BCrypt for passwords
+        this.passwordHasher = passwordHasher;
 
         // 2. Initialize AES Key from Config
         // We ensure the key is valid bytes
@@ -42,17 +41,33 @@ public class EncryptionManager {
     /**
      * Hashes a raw password using BCrypt.
      * Use this when creating a new user.
+     * @throws PasswordHashingUnavailableException if the hashing pool is saturated
      */
     public String hashPassword(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+        return passwordHasher.hash(rawPassword);
+    }
+
+    /**
+     * Same as {@link #hashPassword} without waiting for the result.
+     */
+    public CompletableFuture<String> hashPasswordAsync(String rawPassword) {
+        return passwordHasher.hashAsync(rawPassword);
     }
 
     /**
      * Checks if a raw password matches the hashed storage.
      * Use this during Login.
+     * @throws PasswordHashingUnavailableException if the hashing pool is saturated
      */
     public boolean checkPassword(String rawPassword, String hashedPassword) {
-        return passwordEncoder.matches(rawPassword, hashedPassword);
+        return passwordHasher.matches(rawPassword, hashedPassword);
+    }
+
+    /**
+     * True if the stored hash was made with another cost than the configured one.
+     */
+    public boolean passwordNeedsRehash(String hashedPassword) {
+        return passwordHasher.needsRehash(hashedPassword);
     }
 
 
@@ -0,0 +1,152 @@
+package it.unipi.booknetapi.shared.lib.encryption;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt on the {@link Workload#PASSWORD_HASH} pool, so a burst of logins uses at most
+ * app.async.password-hash.pool-size cores instead of every request thread. A call that cannot start within app.password.queue-timeout-ms
+ * fails with {@link PasswordHashingUnavailableException} (503) rather than queueing behind the burst.
+ */
+@Component
+public class PasswordHasher {
+
+    Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    // $2a$10$... , the cost is the second field
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final BCryptPasswordEncoder encoder;
+    private final int strength;
+    private final long queueTimeoutNanos;
+
+    private final AsyncManager asyncManager;
+
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Timer waitTimer;
+    private final Counter queueFullCounter;
+    private final Counter timeoutCounter;
+
+    public PasswordHasher(AppConfiguration config, AsyncManager asyncManager, MeterRegistry registry) {
+        this.strength = config.getInt("app.password.bcrypt-strength", 10);
+        this.encoder = new BCryptPasswordEncoder(this.strength);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("app.password.queue-timeout-ms", 2000L));
+
+        this.asyncManager = asyncManager;
+
+        this.hashTimer = Timer.builder("password.hash.latency")
+                .tag("op", "hash")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.verifyTimer = Timer.builder("password.hash.latency")
+                .tag("op", "verify")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.waitTimer = Timer.builder("password.hash.wait")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.queueFullCounter = registry.counter("password.hash.rejected", "reason", "queue_full");
+        this.timeoutCounter = registry.counter("password.hash.rejected", "reason", "timeout");
+
+        logger.debug("[PASSWORD] [INIT] strength: {}, concurrency: {}", this.strength, asyncManager.getPoolSize(Workload.PASSWORD_HASH));
+    }
+
+
+    /**
+     * @throws PasswordHashingUnavailableException if the pool is saturated
+     */
+    public String hash(String rawPassword) {
+        return await(submit(() -> this.hashTimer.record(() -> this.encoder.encode(rawPassword))));
+    }
+
+    /**
+     * Hashes in the background, e.g. to upgrade a stored hash after a login.
+     * The future fails with {@link PasswordHashingUnavailableException} if the pool is saturated.
+     */
+    public CompletableFuture<String> hashAsync(String rawPassword) {
+        return submit(() -> this.hashTimer.record(() -> this.encoder.encode(rawPassword))).future;
+    }
+
+    /**
+     * @throws PasswordHashingUnavailableException if the pool is saturated
+     */
+    public boolean matches(String rawPassword, String hashedPassword) {
+        Boolean matches = await(submit(() -> this.verifyTimer.record(() -> this.encoder.matches(rawPassword, hashedPassword))));
+        return Boolean.TRUE.equals(matches);
+    }
+
+    /**
+     * @return true if the hash was made with a cost other than app.password.bcrypt-strength
+     * (both raised and lowered costs are rewritten)
+     */
+    public boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null) return false;
+
+        Matcher matcher = BCRYPT_COST.matcher(hashedPassword);
+        return !matcher.find() || Integer.parseInt(matcher.group(1)) != this.strength;
+    }
+
+
+    private record Task<T>(CompletableFuture<T> future, AtomicBoolean started) {}
+
+    private <T> Task<T> submit(Supplier<T> work) {
+        Task<T> task = new Task<>(new CompletableFuture<>(), new AtomicBoolean());
+        long submittedAt = System.nanoTime();
+
+        try {
+            this.asyncManager.execute(Workload.PASSWORD_HASH, () -> {
+                // The caller gave up while the task was queued
+                if (!task.started().compareAndSet(false, true)) return;
+
+                this.waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.future().complete(work.get());
+                } catch (Exception e) {
+                    task.future().completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.queueFullCounter.increment();
+            task.future().completeExceptionally(new PasswordHashingUnavailableException("Password hashing queue is full"));
+        }
+
+        return task;
+    }
+
+    private <T> T await(Task<T> task) {
+        try {
+            try {
+                return task.future().get(this.queueTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Still queued: withdraw it. Already running: it ends within one hash, wait for it
+                if (task.started().compareAndSet(false, true)) {
+                    this.timeoutCounter.increment();
+                    throw new PasswordHashingUnavailableException("Password hashing timed out in queue");
+                }
+                return task.future().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for password hashing");
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package it.unipi.booknetapi.shared.lib.encryption;
+
+/**
+ * The password hashing pool is saturated: the request waited longer than app.password.queue-timeout-ms,
+ * or the queue was full.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,211 @@
+package it.unipi.booknetapi.shared.lib.external;
+
+import org.bson.types.ObjectId;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Non-negative long to ObjectId, open addressing with linear probing over parallel arrays:
+ * a key and its 12 id bytes cost about 20 bytes per slot, with no boxing and no map nodes.
+ * Thread safe, readers share a read lock. Bounded by maxSize: puts beyond it are refused.
+ */
+public final class LongObjectIdMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final long EMPTY = -1L;
+
+    private final int maxSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] keys;
+    private long[] highs;
+    private int[] lows;
+    private int mask;
+    private int size;
+
+    public LongObjectIdMap(int expectedSize, int maxSize) {
+        this.maxSize = maxSize;
+        allocate(tableSize(Math.max(16, expectedSize)));
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, entries / LOAD_FACTOR) - 1)) << 1;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.highs = new long[capacity];
+        this.lows = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+
+    /**
+     * @return the id of key, null if unknown
+     */
+    public ObjectId get(long key) {
+        if (key < 0) return null;
+
+        this.lock.readLock().lock();
+        try {
+            int slot = find(key);
+            if (slot < 0) return null;
+            return new ObjectId(ByteBuffer.allocate(12).putLong(this.highs[slot]).putInt(this.lows[slot]).flip());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if key is negative or the map is full
+     */
+    public boolean put(long key, ObjectId id) {
+        if (key < 0 || id == null) return false;
+
+        this.lock.writeLock().lock();
+        try {
+            return putLocked(key, id);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #put} for a batch, under one lock acquisition.
+     * @return entries stored
+     */
+    public int putAll(long[] keys, ObjectId[] ids, int count) {
+        int stored = 0;
+
+        this.lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (keys[i] >= 0 && ids[i] != null && putLocked(keys[i], ids[i])) stored++;
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        return stored;
+    }
+
+    private boolean putLocked(long key, ObjectId id) {
+        ByteBuffer buffer = ByteBuffer.wrap(id.toByteArray());
+        long high = buffer.getLong();
+        int low = buffer.getInt();
+
+        int slot = find(key);
+        if (slot < 0) {
+            if (this.size >= this.maxSize) return false;
+            if (this.size + 1 > this.keys.length * LOAD_FACTOR) rehash();
+
+            slot = slot(key);
+            while (this.keys[slot] != EMPTY) slot = (slot + 1) & this.mask;
+            this.keys[slot] = key;
+            this.size++;
+        }
+
+        this.highs[slot] = high;
+        this.lows[slot] = low;
+        return true;
+    }
+
+    public void remove(long key) {
+        if (key < 0) return;
+
+        this.lock.writeLock().lock();
+        try {
+            int slot = find(key);
+            if (slot < 0) return;
+
+            // Backward shift: move up the entries of the probe chain, so lookups never stop on a hole
+            int hole = slot;
+            int next = (hole + 1) & this.mask;
+            while (this.keys[next] != EMPTY) {
+                int home = slot(this.keys[next]);
+                if (((next - home) & this.mask) >= ((next - hole) & this.mask)) {
+                    this.keys[hole] = this.keys[next];
+                    this.highs[hole] = this.highs[next];
+                    this.lows[hole] = this.lows[next];
+                    hole = next;
+                }
+                next = (next + 1) & this.mask;
+            }
+            this.keys[hole] = EMPTY;
+            this.size--;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public long memoryBytes() {
+        this.lock.readLock().lock();
+        try {
+            return 20L * this.keys.length;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private int find(long key) {
+        int slot = slot(key);
+        while (this.keys[slot] != EMPTY) {
+            if (this.keys[slot] == key) return slot;
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        long[] oldKeys = this.keys;
+        long[] oldHighs = this.highs;
+        int[] oldLows = this.lows;
+
+        allocate(oldKeys.length * 2);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+
+            int slot = slot(oldKeys[i]);
+            while (this.keys[slot] != EMPTY) slot = (slot + 1) & this.mask;
+            this.keys[slot] = oldKeys[i];
+            this.highs[slot] = oldHighs[i];
+            this.lows[slot] = oldLows[i];
+        }
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & this.mask;
+    }
+
+    /**
+     * @return the key of a numeric external id (e.g. a GoodReads id), -1 if it is not a canonical
+     * non-negative number ("007" is not, so "7" and "007" cannot collide)
+     */
+    public static long key(String externalId) {
+        if (externalId == null || externalId.isEmpty() || externalId.length() > 18) return -1;
+        if (externalId.length() > 1 && externalId.charAt(0) == '0') return -1;
+
+        long value = 0;
+        for (int i = 0; i < externalId.length(); i++) {
+            char c = externalId.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,183 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import java.util.Arrays;
+
+/**
+ * Adjacency lists in compressed sparse row form: the targets of row r are
+ * targets[offsets[r] .. offsets[r + 1]), sorted ascending and without duplicates,
+ * with an optional byte of flags per edge.
+ */
+final class Csr {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final byte[] flags;
+
+    private Csr(int[] offsets, int[] targets, byte[] flags) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.flags = flags;
+    }
+
+    int rows() {
+        return this.offsets.length - 1;
+    }
+
+    int edges() {
+        return this.targets.length;
+    }
+
+    int start(int row) {
+        return this.offsets[row];
+    }
+
+    int end(int row) {
+        return this.offsets[row + 1];
+    }
+
+    int degree(int row) {
+        return this.offsets[row + 1] - this.offsets[row];
+    }
+
+    int target(int edge) {
+        return this.targets[edge];
+    }
+
+    byte flags(int edge) {
+        return this.flags != null ? this.flags[edge] : 0;
+    }
+
+    /**
+     * @return the edge index of row -> target, -1 if absent
+     */
+    int find(int row, int target) {
+        int index = Arrays.binarySearch(this.targets, this.offsets[row], this.offsets[row + 1], target);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Targets of the row, copied.
+     */
+    int[] row(int row) {
+        return Arrays.copyOfRange(this.targets, this.offsets[row], this.offsets[row + 1]);
+    }
+
+    /**
+     * Reverse adjacency (target -> sources). Rows are filled in source order,
+     * so every reversed row is already sorted.
+     */
+    Csr transpose(int targetRows) {
+        int[] counts = new int[targetRows + 1];
+        for (int target : this.targets) counts[target + 1]++;
+        for (int i = 0; i < targetRows; i++) counts[i + 1] += counts[i];
+
+        int[] reversedTargets = new int[this.targets.length];
+        byte[] reversedFlags = this.flags != null ? new byte[this.flags.length] : null;
+        int[] cursor = Arrays.copyOf(counts, targetRows);
+
+        for (int row = 0; row < rows(); row++) {
+            for (int edge = this.offsets[row]; edge < this.offsets[row + 1]; edge++) {
+                int position = cursor[this.targets[edge]]++;
+                reversedTargets[position] = row;
+                if (reversedFlags != null) reversedFlags[position] = this.flags[edge];
+            }
+        }
+
+        return new Csr(counts, reversedTargets, reversedFlags);
+    }
+
+    long memoryBytes() {
+        return 4L * this.offsets.length + 4L * this.targets.length + (this.flags != null ? this.flags.length : 0);
+    }
+
+
+    /**
+     * Collects edges in any order; {@link #build()} sorts them per row and merges
+     * duplicates by OR-ing their flags (a reader who rated a book and has it on the shelf).
+     */
+    static final class Builder {
+
+        private final int rows;
+        private final boolean withFlags;
+
+        private int[] sources = new int[1024];
+        private int[] targets = new int[1024];
+        private byte[] flags;
+        private int size;
+
+        Builder(int rows, boolean withFlags) {
+            this.rows = rows;
+            this.withFlags = withFlags;
+            if (withFlags) this.flags = new byte[1024];
+        }
+
+        void add(int source, int target) {
+            add(source, target, (byte) 0);
+        }
+
+        void add(int source, int target, byte edgeFlags) {
+            if (source < 0 || target < 0) return;
+
+            if (this.size == this.sources.length) {
+                int capacity = this.size * 2;
+                this.sources = Arrays.copyOf(this.sources, capacity);
+                this.targets = Arrays.copyOf(this.targets, capacity);
+                if (this.withFlags) this.flags = Arrays.copyOf(this.flags, capacity);
+            }
+            this.sources[this.size] = source;
+            this.targets[this.size] = target;
+            if (this.withFlags) this.flags[this.size] = edgeFlags;
+            this.size++;
+        }
+
+        Csr build() {
+            int[] offsets = new int[this.rows + 1];
+            for (int i = 0; i < this.size; i++) offsets[this.sources[i] + 1]++;
+            for (int i = 0; i < this.rows; i++) offsets[i + 1] += offsets[i];
+
+            // Counting sort by source; the target (and flags) of each edge packed in a long to sort rows in place
+            long[] packed = new long[this.size];
+            int[] cursor = Arrays.copyOf(offsets, this.rows);
+            for (int i = 0; i < this.size; i++) {
+                long edgeFlags = this.withFlags ? this.flags[i] & 0xFF : 0;
+                packed[cursor[this.sources[i]]++] = ((long) this.targets[i] << 8) | edgeFlags;
+            }
+            this.sources = null;
+            this.targets = null;
+            this.flags = null;
+
+            int[] compactOffsets = new int[this.rows + 1];
+            int[] compactTargets = new int[packed.length];
+            byte[] compactFlags = this.withFlags ? new byte[packed.length] : null;
+            int written = 0;
+
+            for (int row = 0; row < this.rows; row++) {
+                int start = offsets[row];
+                int end = offsets[row + 1];
+                Arrays.sort(packed, start, end);
+
+                int previous = -1;
+                for (int i = start; i < end; i++) {
+                    int target = (int) (packed[i] >>> 8);
+                    byte edgeFlags = (byte) packed[i];
+                    if (target == previous) {
+                        if (compactFlags != null) compactFlags[written - 1] |= edgeFlags;
+                        continue;
+                    }
+                    compactTargets[written] = target;
+                    if (compactFlags != null) compactFlags[written] = edgeFlags;
+                    written++;
+                    previous = target;
+                }
+                compactOffsets[row + 1] = written;
+            }
+
+            return new Csr(
+                    compactOffsets,
+                    Arrays.copyOf(compactTargets, written),
+                    compactFlags != null ? Arrays.copyOf(compactFlags, written) : null
+            );
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import java.util.Arrays;
+
+/**
+ * ObjectId (hex) to dense int id, 0..size-1 in insertion order.
+ * The 12 id bytes are kept as a long and an int next to an open-addressing table, so a lookup
+ * allocates nothing and an id costs about 20 bytes instead of a String key, a boxed Integer and a map node.
+ * Filled by one thread while a snapshot is built, read-only afterwards.
+ */
+final class DenseIdMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Dense id -> ObjectId bytes
+    private long[] highs;
+    private int[] lows;
+    private int size;
+
+    // Hash slot -> dense id + 1, 0 = empty
+    private int[] slots;
+    private int mask;
+
+    DenseIdMap(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        this.highs = new long[capacity];
+        this.lows = new int[capacity];
+        this.slots = new int[tableSize(capacity)];
+        this.mask = this.slots.length - 1;
+    }
+
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit((int) Math.max(16, entries / LOAD_FACTOR) - 1) << 1;
+    }
+
+    /**
+     * @return the dense id of hex, added if missing; -1 if hex is not an ObjectId
+     */
+    int add(String hex) {
+        if (!isValid(hex)) return -1;
+
+        long high = high(hex);
+        int low = low(hex);
+
+        int slot = slot(high, low);
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.highs[id] == high && this.lows[id] == low) return id;
+            slot = (slot + 1) & this.mask;
+        }
+
+        if (this.size == this.highs.length) {
+            this.highs = Arrays.copyOf(this.highs, this.size * 2);
+            this.lows = Arrays.copyOf(this.lows, this.size * 2);
+        }
+        int id = this.size++;
+        this.highs[id] = high;
+        this.lows[id] = low;
+        this.slots[slot] = id + 1;
+
+        if (this.size > this.slots.length * LOAD_FACTOR) rehash();
+        return id;
+    }
+
+    /**
+     * @return the dense id of hex, -1 if unknown
+     */
+    int get(String hex) {
+        if (!isValid(hex)) return -1;
+
+        long high = high(hex);
+        int low = low(hex);
+
+        int slot = slot(high, low);
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.highs[id] == high && this.lows[id] == low) return id;
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    String hex(int id) {
+        char[] chars = new char[24];
+        toHex(this.highs[id], 16, chars, 0);
+        toHex(this.lows[id] & 0xFFFFFFFFL, 8, chars, 16);
+        return new String(chars);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    long memoryBytes() {
+        return 12L * this.highs.length + 4L * this.slots.length;
+    }
+
+    private void rehash() {
+        this.slots = new int[this.slots.length * 2];
+        this.mask = this.slots.length - 1;
+
+        for (int id = 0; id < this.size; id++) {
+            int slot = slot(this.highs[id], this.lows[id]);
+            while (this.slots[slot] != 0) slot = (slot + 1) & this.mask;
+            this.slots[slot] = id + 1;
+        }
+    }
+
+    private int slot(long high, int low) {
+        long hash = (high ^ (high >>> 29) ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & this.mask;
+    }
+
+    private static boolean isValid(String hex) {
+        if (hex == null || hex.length() != 24) return false;
+        for (int i = 0; i < 24; i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static long high(String hex) {
+        long value = 0;
+        for (int i = 0; i < 16; i++) value = (value << 4) | Character.digit(hex.charAt(i), 16);
+        return value;
+    }
+
+    private static int low(String hex) {
+        int value = 0;
+        for (int i = 16; i < 24; i++) value = (value << 4) | Character.digit(hex.charAt(i), 16);
+        return value;
+    }
+
+    private static void toHex(long value, int digits, char[] chars, int offset) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+    }
+
+}
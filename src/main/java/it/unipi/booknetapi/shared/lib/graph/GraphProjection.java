@@ -0,0 +1,569 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.unipi.booknetapi.model.book.BookStats;
+import it.unipi.booknetapi.model.user.BookShelfStatus;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Optional in-memory copy of the Neo4j relationships read by the recommendation and books-by-genre
+ * queries (see {@link GraphSnapshot}), rebuilt from Neo4j on a schedule.
+ * <p>
+ * Reader-level writes (shelf, ratings, preferences) are applied by the repositories as per-reader
+ * changes on top of the snapshot, keyed by ObjectId hex so they survive the new dense ids of a rebuild.
+ * Changes older than the start of a rebuild (minus a grace period for the outbox relay) are in the new
+ * snapshot and are dropped when it is swapped in. Book and genre writes (titles, the genres of a book,
+ * deletions) are kept the same way and merged into the books-by-genre pages; authors and similar books
+ * of new books wait for the next rebuild. Past overlay-max-books changed books (a bulk import) the genre
+ * pages go back to Neo4j until a rebuild has loaded them. Every query returns null while no snapshot is
+ * loaded or when it cannot answer (unknown genre), and the caller runs its Cypher query.
+ */
+@Component
+@Profile("!local")
+public class GraphProjection {
+
+    Logger logger = LoggerFactory.getLogger(GraphProjection.class);
+
+    public record GenrePage(List<String> ids, long total) {}
+
+    /**
+     * Writes of one reader since the snapshot was loaded, by book hex id; 0 means the relationship was removed.
+     */
+    private static final class ReaderChanges {
+        private final Map<String, Byte> shelf = new HashMap<>();
+        private final Map<String, Byte> ratings = new HashMap<>();
+        private List<String> authors;
+        private List<String> genres;
+        private long updatedAt;
+    }
+
+    /**
+     * Writes of one book since the snapshot was loaded, as they reach Neo4j; unset fields keep the snapshot.
+     */
+    private static final class BookChanges {
+        private boolean titled;
+        private String title;
+        private Set<String> genres;
+        private boolean deleted;
+        private long updatedAt;
+    }
+
+    /**
+     * A genre created or deleted since the snapshot was loaded. A deleted genre lost its relationships,
+     * so its snapshot row stays hidden even if it is created again.
+     */
+    private record GenreChange(boolean deleted, boolean dropRow, long updatedAt) {}
+
+    // A book of a genre page: the title decides its position
+    private record GenreBook(String id, String title) {}
+
+    private static final Comparator<GenreBook> GENRE_ORDER = Comparator
+            .comparing(GenreBook::title, GraphSnapshot::compareTitles)
+            .thenComparing(GenreBook::id);
+
+    private final Neo4jManager neo4jManager;
+    private final MeterRegistry registry;
+
+    private final boolean enabled;
+    private final int popularSize;
+    private final long overlayGraceMs;
+    private final int overlayMaxBooks;
+
+    private volatile GraphSnapshot snapshot;
+    private final Map<String, ReaderChanges> changes = new ConcurrentHashMap<>();
+    private final Map<String, BookChanges> changedBooks = new ConcurrentHashMap<>();
+    private final Map<String, GenreChange> changedGenres = new ConcurrentHashMap<>();
+    // Time of the last book write not kept because the overlay was full, -1 if none since the last rebuild
+    private volatile long bookOverflowAt = -1;
+
+    private final Timer rebuildTimer;
+    private final Timer recommendTimer;
+    private final Timer genreTimer;
+
+    public GraphProjection(AppConfiguration config, AsyncManager asyncManager, Neo4jManager neo4jManager, MeterRegistry registry) {
+        this.neo4jManager = neo4jManager;
+        this.registry = registry;
+
+        this.enabled = config.getBoolean("app.graph.enabled", false);
+        this.popularSize = config.getInt("app.graph.popular-size", 50);
+        this.overlayGraceMs = TimeUnit.SECONDS.toMillis(config.getLong("app.graph.overlay-grace-seconds", 120L));
+        this.overlayMaxBooks = config.getInt("app.graph.overlay-max-books", 10000);
+        long rebuildIntervalMinutes = config.getLong("app.graph.rebuild-interval-minutes", 30L);
+
+        this.rebuildTimer = registry.timer("graph.projection.rebuild");
+        this.recommendTimer = registry.timer("graph.projection.query", "query", "recommendation");
+        this.genreTimer = registry.timer("graph.projection.query", "query", "books_by_genre");
+        Gauge.builder("graph.projection.memory.bytes", this, projection -> projection.snapshot != null ? projection.snapshot.memoryBytes() : 0)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("graph.projection.edges", this, projection -> projection.snapshot != null ? projection.snapshot.edges() : 0)
+                .register(registry);
+        Gauge.builder("graph.projection.overlay.readers", this.changes, Map::size)
+                .register(registry);
+        Gauge.builder("graph.projection.overlay.books", this.changedBooks, Map::size)
+                .register(registry);
+
+        if (this.enabled) {
+            asyncManager.schedule(Workload.BACKGROUND, "graph-rebuild", this::rebuildSafely, 0, rebuildIntervalMinutes, TimeUnit.MINUTES);
+        } else {
+            logger.info("[GRAPH] projection disabled, graph queries go to Neo4j");
+        }
+    }
+
+
+    /**
+     * @return book ids with their score, best first; null if no snapshot is loaded
+     */
+    public List<BookStats> recommend(String idUser, int limit) {
+        GraphSnapshot current = this.snapshot;
+        if (current == null || idUser == null) return null;
+
+        return this.recommendTimer.record(() -> current.recommend(view(current, idUser), limit).stream()
+                .map(scored -> BookStats.builder()
+                        .id(current.books.hex(scored.id()))
+                        .totalScore(scored.score())
+                        .build())
+                .toList());
+    }
+
+    /**
+     * @return the page of book ids in title order; null if no snapshot is loaded, the genre is unknown to it
+     * or too many books changed since it was loaded
+     */
+    public GenrePage booksByGenre(String idGenre, int skip, int limit) {
+        GraphSnapshot current = this.snapshot;
+        if (current == null || idGenre == null || this.bookOverflowAt >= 0) return null;
+
+        GenreChange genreChange = this.changedGenres.get(idGenre);
+        if (genreChange != null && genreChange.deleted()) return new GenrePage(List.of(), 0);
+
+        int snapshotGenre = current.genres.get(idGenre);
+        if (snapshotGenre < 0 && genreChange == null) return null;
+        // A genre deleted and created again lost the relationships of the snapshot
+        int genre = genreChange != null && genreChange.dropRow() ? -1 : snapshotGenre;
+
+        int offset = Math.max(0, skip);
+        return this.genreTimer.record(() -> this.changedBooks.isEmpty()
+                ? snapshotGenrePage(current, genre, offset, limit)
+                : overlayGenrePage(current, idGenre, genre, offset, limit));
+    }
+
+    private static GenrePage snapshotGenrePage(GraphSnapshot current, int genre, int skip, int limit) {
+        if (genre < 0) return new GenrePage(List.of(), 0);
+
+        return new GenrePage(
+                Arrays.stream(current.booksByGenre(genre, skip, limit)).mapToObj(current.books::hex).toList(),
+                current.countBooksByGenre(genre)
+        );
+    }
+
+    /**
+     * The snapshot row of the genre without the changed books, merged with the changed books that are in
+     * the genre now. Both are in title order, so the page is found by a binary search on the row and
+     * only the books of the page are walked.
+     * @param genre dense id of the genre, -1 if the snapshot has no row for it
+     */
+    private GenrePage overlayGenrePage(GraphSnapshot current, String idGenre, int genre, int skip, int limit) {
+        int start = genre >= 0 ? current.genreBooks.start(genre) : 0;
+        int end = genre >= 0 ? current.genreBooks.end(genre) : 0;
+
+        List<GenreBook> added = new ArrayList<>();
+        List<Integer> hiddenEdges = new ArrayList<>();
+        for (Map.Entry<String, BookChanges> entry : this.changedBooks.entrySet()) {
+            String idBook = entry.getKey();
+            BookChanges bookChanges = entry.getValue();
+
+            int book = current.books.get(idBook);
+            int edge = genre >= 0 && book >= 0 ? current.genreBooks.find(genre, book) : -1;
+            // The changed book leaves its snapshot position, and is added back where its current title puts it
+            if (edge >= 0) hiddenEdges.add(edge);
+
+            synchronized (bookChanges) {
+                boolean member;
+                if (bookChanges.deleted) member = false;
+                else if (bookChanges.genres != null) member = bookChanges.genres.contains(idGenre);
+                else member = edge >= 0;
+
+                if (member) added.add(new GenreBook(idBook, bookChanges.titled ? bookChanges.title : book >= 0 ? current.title(book) : null));
+            }
+        }
+
+        if (hiddenEdges.isEmpty() && added.isEmpty()) return snapshotGenrePage(current, genre, skip, limit);
+
+        added.sort(GENRE_ORDER);
+        int[] hidden = hiddenEdges.stream().mapToInt(Integer::intValue).sorted().toArray();
+        // Edge of the row each added book goes before (end: after the whole row), non-decreasing like the books
+        int[] positions = new int[added.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = genre >= 0 ? current.genreLowerBound(genre, added.get(i).title(), added.get(i).id()) : end;
+        }
+
+        long total = (long) (end - start) - hidden.length + added.size();
+        if (limit < 1 || skip >= total) return new GenrePage(List.of(), total);
+
+        // Last edge e whose merged position (books listed before e and the books added at e) is <= skip
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mergedBefore(mid, start, hidden, positions) <= skip) low = mid;
+            else high = mid - 1;
+        }
+
+        int edge = low;
+        int toSkip = (int) (skip - mergedBefore(edge, start, hidden, positions));
+        int nextAdded = lowerBound(positions, edge);
+        int nextHidden = lowerBound(hidden, edge);
+
+        List<String> page = new ArrayList<>(Math.min(limit, (int) total));
+        while (page.size() < limit) {
+            String id;
+            if (nextAdded < positions.length && positions[nextAdded] <= edge) {
+                id = added.get(nextAdded++).id();
+            } else if (edge < end) {
+                boolean hiddenEdge = nextHidden < hidden.length && hidden[nextHidden] == edge;
+                int book = current.genreBooks.target(edge++);
+                if (hiddenEdge) {
+                    nextHidden++;
+                    continue;
+                }
+                id = current.books.hex(book);
+            } else {
+                break;
+            }
+
+            if (toSkip > 0) toSkip--;
+            else page.add(id);
+        }
+
+        return new GenrePage(page, total);
+    }
+
+    /**
+     * @return books of the merged page listed before the books added at edge
+     */
+    private static long mergedBefore(int edge, int start, int[] hidden, int[] positions) {
+        return (long) (edge - start) - lowerBound(hidden, edge) + lowerBound(positions, edge);
+    }
+
+    // Number of values < key in a sorted array
+    private static int lowerBound(int[] sorted, int key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+
+    /**
+     * @param status null keeps the status the book already has (adding a book already on the shelf)
+     */
+    public void onShelf(String idUser, String idBook, BookShelfStatus status) {
+        change(idUser, readerChanges -> {
+            byte flags = switch (status) {
+                case null -> {
+                    Byte previous = readerChanges.shelf.get(idBook);
+                    if (previous != null && previous != 0) yield previous;
+                    yield (byte) Math.max(snapshotFlags(idUser, idBook) & GraphSnapshot.SHELF_FLAGS, GraphSnapshot.SHELF);
+                }
+                case READING, FINISHED -> (byte) (GraphSnapshot.SHELF | GraphSnapshot.SHELF_READ);
+                default -> GraphSnapshot.SHELF;
+            };
+            readerChanges.shelf.put(idBook, flags);
+        });
+    }
+
+    public void onShelfRemoved(String idUser, String idBook) {
+        change(idUser, readerChanges -> readerChanges.shelf.put(idBook, (byte) 0));
+    }
+
+    public void onRating(String idUser, String idBook, Integer rating) {
+        byte flags = rating != null && rating >= 4 ? (byte) (GraphSnapshot.RATED | GraphSnapshot.RATED_HIGH) : GraphSnapshot.RATED;
+        change(idUser, readerChanges -> readerChanges.ratings.put(idBook, flags));
+    }
+
+    public void onRatingRemoved(String idUser, String idBook) {
+        change(idUser, readerChanges -> readerChanges.ratings.put(idBook, (byte) 0));
+    }
+
+    public void onPreference(String idUser, List<String> idAuthors, List<String> idGenres) {
+        change(idUser, readerChanges -> {
+            readerChanges.authors = List.copyOf(idAuthors);
+            readerChanges.genres = List.copyOf(idGenres);
+        });
+    }
+
+    /**
+     * A book node written with its title (created, replaced or imported).
+     */
+    public void onBook(String idBook, String title) {
+        changeBook(idBook, bookChanges -> {
+            // A deleted book created again comes back without relationships
+            if (bookChanges.deleted) bookChanges.genres = Set.of();
+            bookChanges.deleted = false;
+            bookChanges.titled = true;
+            bookChanges.title = title;
+        });
+    }
+
+    /**
+     * The IN_GENRE relationships of a book replaced by idGenres (the genres are merged if missing).
+     */
+    public void onBookGenres(String idBook, List<String> idGenres) {
+        if (!this.enabled || idBook == null) return;
+
+        Set<String> genres = idGenres.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+        genres.forEach(this::onGenre);
+        changeBook(idBook, bookChanges -> {
+            if (!bookChanges.deleted) bookChanges.genres = genres;
+        });
+    }
+
+    public void onBookDeleted(String idBook) {
+        changeBook(idBook, bookChanges -> {
+            bookChanges.deleted = true;
+            bookChanges.genres = null;
+        });
+    }
+
+    public void onGenre(String idGenre) {
+        if (!this.enabled || idGenre == null) return;
+
+        long now = System.currentTimeMillis();
+        this.changedGenres.compute(idGenre, (id, previous) -> new GenreChange(false, previous != null && previous.dropRow(), now));
+    }
+
+    public void onGenreDeleted(String idGenre) {
+        if (!this.enabled || idGenre == null) return;
+
+        this.changedGenres.put(idGenre, new GenreChange(true, true, System.currentTimeMillis()));
+    }
+
+    private void changeBook(String idBook, Consumer<BookChanges> update) {
+        if (!this.enabled || idBook == null) return;
+
+        BookChanges bookChanges = this.changedBooks.get(idBook);
+        if (bookChanges == null) {
+            // Past the limit the genre pages go to Neo4j until a rebuild starts after this write
+            if (this.changedBooks.size() >= this.overlayMaxBooks) {
+                this.bookOverflowAt = System.currentTimeMillis();
+                return;
+            }
+            bookChanges = this.changedBooks.computeIfAbsent(idBook, id -> new BookChanges());
+        }
+
+        synchronized (bookChanges) {
+            update.accept(bookChanges);
+            bookChanges.updatedAt = System.currentTimeMillis();
+        }
+    }
+
+    private void change(String idUser, Consumer<ReaderChanges> update) {
+        if (!this.enabled || idUser == null) return;
+
+        ReaderChanges readerChanges = this.changes.computeIfAbsent(idUser, id -> new ReaderChanges());
+        synchronized (readerChanges) {
+            update.accept(readerChanges);
+            readerChanges.updatedAt = System.currentTimeMillis();
+        }
+    }
+
+    private byte snapshotFlags(String idUser, String idBook) {
+        GraphSnapshot current = this.snapshot;
+        if (current == null) return 0;
+
+        int reader = current.readers.get(idUser);
+        int book = current.books.get(idBook);
+        if (reader < 0 || book < 0) return 0;
+
+        int edge = current.readerBooks.find(reader, book);
+        return edge >= 0 ? current.readerBooks.flags(edge) : 0;
+    }
+
+    /**
+     * The reader's snapshot rows with their changes applied. Books missing from the snapshot are
+     * skipped: they cannot be recommended anyway, so they do not need to be excluded.
+     */
+    private GraphSnapshot.ReaderView view(GraphSnapshot current, String idUser) {
+        GraphSnapshot.ReaderView base = current.reader(current.readers.get(idUser));
+
+        ReaderChanges readerChanges = this.changes.get(idUser);
+        if (readerChanges == null) return base;
+
+        synchronized (readerChanges) {
+            TreeMap<Integer, Byte> books = new TreeMap<>();
+            for (int i = 0; i < base.books().length; i++) books.put(base.books()[i], base.flags()[i]);
+
+            apply(current, books, readerChanges.shelf, GraphSnapshot.SHELF_FLAGS);
+            apply(current, books, readerChanges.ratings, GraphSnapshot.RATED_FLAGS);
+
+            int[] ids = new int[books.size()];
+            byte[] flags = new byte[books.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Byte> entry : books.entrySet()) {
+                ids[i] = entry.getKey();
+                flags[i++] = entry.getValue();
+            }
+
+            return new GraphSnapshot.ReaderView(
+                    ids,
+                    flags,
+                    readerChanges.authors != null ? denseIds(current.authors, readerChanges.authors) : base.authors(),
+                    readerChanges.genres != null ? denseIds(current.genres, readerChanges.genres) : base.genres()
+            );
+        }
+    }
+
+    private static void apply(GraphSnapshot current, TreeMap<Integer, Byte> books, Map<String, Byte> changed, byte mask) {
+        for (Map.Entry<String, Byte> entry : changed.entrySet()) {
+            int book = current.books.get(entry.getKey());
+            if (book < 0) continue;
+
+            byte flags = (byte) ((books.getOrDefault(book, (byte) 0) & ~mask) | entry.getValue());
+            if (flags == 0) books.remove(book);
+            else books.put(book, flags);
+        }
+    }
+
+    private static int[] denseIds(DenseIdMap map, List<String> ids) {
+        return ids.stream().mapToInt(map::get).filter(id -> id >= 0).sorted().distinct().toArray();
+    }
+
+
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+
+        GraphSnapshot loaded = this.rebuildTimer.record(this::load);
+        this.snapshot = loaded;
+
+        // What the relay may not have written to Neo4j yet when the load started stays in the overlay
+        long cutoff = startedAt - this.overlayGraceMs;
+        this.changes.values().removeIf(readerChanges -> {
+            synchronized (readerChanges) {
+                return readerChanges.updatedAt < cutoff;
+            }
+        });
+        this.changedBooks.values().removeIf(bookChanges -> {
+            synchronized (bookChanges) {
+                return bookChanges.updatedAt < cutoff;
+            }
+        });
+        this.changedGenres.values().removeIf(genreChange -> genreChange.updatedAt() < cutoff);
+        if (this.bookOverflowAt >= 0 && this.bookOverflowAt < cutoff) this.bookOverflowAt = -1;
+
+        logger.info("[GRAPH] [REBUILD] readers: {}, books: {}, edges: {}, memory: {} bytes, in {} ms",
+                loaded.readers.size(), loaded.books.size(), loaded.edges(), loaded.memoryBytes(), System.currentTimeMillis() - startedAt);
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            this.registry.counter("graph.projection.rebuild.failed").increment();
+            logger.error("[GRAPH] [REBUILD] failed: {}", e.getMessage());
+        }
+    }
+
+    private GraphSnapshot load() {
+        // Title order, so the genre rows come out sorted like ORDER BY b.title (nulls last)
+        List<String[]> bookRows = read("MATCH (b:Book) RETURN b.mid AS id, b.title AS title", ArrayList::new, (rows, record) ->
+                rows.add(new String[]{ string(record.get("id")), string(record.get("title")) }));
+        bookRows.sort(Comparator.comparing((String[] row) -> row[1], Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(row -> row[0], Comparator.nullsLast(Comparator.naturalOrder())));
+
+        DenseIdMap books = new DenseIdMap(bookRows.size());
+        String[] titles = new String[bookRows.size()];
+        for (String[] row : bookRows) {
+            int book = books.add(row[0]);
+            if (book >= 0 && titles[book] == null) titles[book] = row[1];
+        }
+        bookRows.clear();
+
+        DenseIdMap authors = read("MATCH (a:Author) RETURN a.mid AS id", () -> new DenseIdMap(1024), (map, record) -> map.add(string(record.get("id"))));
+        DenseIdMap genres = read("MATCH (g:Genre) RETURN g.mid AS id", () -> new DenseIdMap(256), (map, record) -> map.add(string(record.get("id"))));
+        DenseIdMap readers = read("MATCH (r:Reader) RETURN r.mid AS id", () -> new DenseIdMap(1024), (map, record) -> map.add(string(record.get("id"))));
+
+        Csr.Builder readerBooks = read("""
+                MATCH (r:Reader)-[rel:RATED|ADDED_TO_SHELF]->(b:Book)
+                RETURN r.mid AS source, b.mid AS target, type(rel) AS type, rel.rating AS rating, rel.status AS status
+                """, () -> new Csr.Builder(readers.size(), true), (builder, record) -> builder.add(
+                        readers.get(string(record.get("source"))),
+                        books.get(string(record.get("target"))),
+                        interactionFlags(record)
+                ));
+
+        return new GraphSnapshot(
+                readers,
+                books,
+                authors,
+                genres,
+                Arrays.copyOf(titles, books.size()),
+                readerBooks.build(),
+                edges("MATCH (s:Reader)-[:FOLLOWS]->(t:Author) RETURN s.mid AS source, t.mid AS target", readers, authors),
+                edges("MATCH (s:Reader)-[:INTERESTED_IN]->(t:Genre) RETURN s.mid AS source, t.mid AS target", readers, genres),
+                edges("MATCH (s:Book)-[:WRITTEN_BY]->(t:Author) RETURN s.mid AS source, t.mid AS target", books, authors),
+                edges("MATCH (s:Book)-[:IN_GENRE]->(t:Genre) RETURN s.mid AS source, t.mid AS target", books, genres),
+                edges("MATCH (s:Book)-[:SIMILAR_TO]->(t:Book) RETURN s.mid AS source, t.mid AS target", books, books),
+                this.popularSize
+        );
+    }
+
+    private static byte interactionFlags(Record record) {
+        if ("RATED".equals(string(record.get("type")))) {
+            Value rating = record.get("rating");
+            return !rating.isNull() && rating.asNumber().doubleValue() >= 4 ? (byte) (GraphSnapshot.RATED | GraphSnapshot.RATED_HIGH) : GraphSnapshot.RATED;
+        }
+
+        String status = string(record.get("status"));
+        return "READING".equals(status) || "FINISHED".equals(status) ? (byte) (GraphSnapshot.SHELF | GraphSnapshot.SHELF_READ) : GraphSnapshot.SHELF;
+    }
+
+    private Csr edges(String query, DenseIdMap sources, DenseIdMap targets) {
+        return read(query, () -> new Csr.Builder(sources.size(), false), (builder, record) ->
+                builder.add(sources.get(string(record.get("source"))), targets.get(string(record.get("target"))))).build();
+    }
+
+    /**
+     * Reads the records of the query into a container created by the transaction function, and returns it:
+     * the driver may run the function again on a transient error, and each attempt starts from an empty container.
+     */
+    private <C> C read(String query, Supplier<C> container, BiConsumer<C, Record> accumulator) {
+        try (Session session = this.neo4jManager.getDriver().session()) {
+            return session.executeRead(tx -> {
+                C rows = container.get();
+                var result = tx.run(query);
+                while (result.hasNext()) accumulator.accept(rows, result.next());
+                return rows;
+            });
+        }
+    }
+
+    private static String string(Value value) {
+        return value == null || value.isNull() ? null : value.asString();
+    }
+
+}
@@ -0,0 +1,228 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * One immutable load of the graph: dense ids for every node type and CSR adjacency for the
+ * relationships the read queries traverse. Books get their dense ids in title order, so
+ * the books of a genre (a reversed, hence sorted, row) are already in the order of /book/genre;
+ * their titles are kept to place the books written since the load in that order.
+ * Book → Author and Book → Genre are only kept reversed, nothing reads them forward.
+ */
+final class GraphSnapshot {
+
+    // Reader -> Book edge flags
+    static final byte SHELF = 1;
+    static final byte SHELF_READ = 2;
+    static final byte RATED = 4;
+    static final byte RATED_HIGH = 8;
+    static final byte SHELF_FLAGS = SHELF | SHELF_READ;
+    static final byte RATED_FLAGS = RATED | RATED_HIGH;
+    // Counted by the "popular" strategy: rated 4+ or being read / finished
+    static final byte POSITIVE = SHELF_READ | RATED_HIGH;
+
+    static final double AUTHOR_PRIORITY = 5.0;
+    static final double GENRE_PRIORITY = 4.0;
+    static final double SIMILAR_PRIORITY = 3.0;
+    static final double POPULAR_WEIGHT = 0.1;
+
+    /**
+     * The interactions and preferences of one reader, snapshot rows with the reader's later writes applied.
+     * @param books sorted dense book ids
+     */
+    record ReaderView(int[] books, byte[] flags, int[] authors, int[] genres) {
+        static final ReaderView EMPTY = new ReaderView(new int[0], new byte[0], new int[0], new int[0]);
+    }
+
+    record Scored(int id, double score) {}
+
+    final DenseIdMap readers;
+    final DenseIdMap books;
+    final DenseIdMap authors;
+    final DenseIdMap genres;
+
+    // Title of every book by dense id, null if the node has none
+    private final String[] titles;
+    private final long titlesBytes;
+
+    final Csr readerBooks;
+    final Csr readerAuthors;
+    final Csr readerGenres;
+    final Csr authorBooks;
+    final Csr genreBooks;
+    final Csr bookSimilar;
+
+    // Top books by number of readers with a positive interaction
+    private final int[] popularBooks;
+    private final int[] popularCounts;
+
+    GraphSnapshot(
+            DenseIdMap readers,
+            DenseIdMap books,
+            DenseIdMap authors,
+            DenseIdMap genres,
+            String[] titles,
+            Csr readerBooks,
+            Csr readerAuthors,
+            Csr readerGenres,
+            Csr bookAuthors,
+            Csr bookGenres,
+            Csr bookSimilar,
+            int popularSize
+    ) {
+        this.readers = readers;
+        this.books = books;
+        this.authors = authors;
+        this.genres = genres;
+        this.titles = titles;
+        this.readerBooks = readerBooks;
+        this.readerAuthors = readerAuthors;
+        this.readerGenres = readerGenres;
+        this.authorBooks = bookAuthors.transpose(authors.size());
+        this.genreBooks = bookGenres.transpose(genres.size());
+        this.bookSimilar = bookSimilar;
+
+        // Rows are deduplicated, so this counts distinct readers like the Cypher count(DISTINCT r)
+        int[] positiveReaders = new int[books.size()];
+        for (int edge = 0; edge < readerBooks.edges(); edge++) {
+            if ((readerBooks.flags(edge) & POSITIVE) != 0) positiveReaders[readerBooks.target(edge)]++;
+        }
+
+        this.popularBooks = IntStream.range(0, books.size())
+                .filter(book -> positiveReaders[book] > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer book) -> positiveReaders[book]).reversed().thenComparingInt(book -> book))
+                .limit(popularSize)
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.popularCounts = Arrays.stream(this.popularBooks).map(book -> positiveReaders[book]).toArray();
+
+        // Reference, object header and one byte per (Latin-1) char
+        long bytes = 4L * titles.length;
+        for (String title : titles) {
+            if (title != null) bytes += 40 + title.length();
+        }
+        this.titlesBytes = bytes;
+    }
+
+    ReaderView reader(int reader) {
+        if (reader < 0) return ReaderView.EMPTY;
+
+        int start = this.readerBooks.start(reader);
+        int end = this.readerBooks.end(reader);
+        byte[] flags = new byte[end - start];
+        for (int edge = start; edge < end; edge++) flags[edge - start] = this.readerBooks.flags(edge);
+
+        return new ReaderView(
+                this.readerBooks.row(reader),
+                flags,
+                this.readerAuthors.row(reader),
+                this.readerGenres.row(reader)
+        );
+    }
+
+    /**
+     * Same strategies and weights as the Cypher query of BookRepository: books of followed authors (5),
+     * of preferred genres (4), similar to the reader's books (3) and globally popular (readers × 0.1),
+     * excluding the books the reader already has. A book reached by several strategies keeps its best score.
+     * A strategy stops as soon as the higher ones already filled the limit: what it would add can only tie.
+     */
+    List<Scored> recommend(ReaderView reader, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+
+        for (int author : reader.authors()) {
+            if (scores.size() >= limit) break;
+            collect(this.authorBooks, author, AUTHOR_PRIORITY, reader, scores, limit);
+        }
+        for (int genre : reader.genres()) {
+            if (scores.size() >= limit) break;
+            collect(this.genreBooks, genre, GENRE_PRIORITY, reader, scores, limit);
+        }
+        for (int book : reader.books()) {
+            if (scores.size() >= limit) break;
+            collect(this.bookSimilar, book, SIMILAR_PRIORITY, reader, scores, limit);
+        }
+        for (int i = 0; i < this.popularBooks.length; i++) {
+            int book = this.popularBooks[i];
+            if (Arrays.binarySearch(reader.books(), book) >= 0) continue;
+            scores.merge(book, this.popularCounts[i] * POPULAR_WEIGHT, Math::max);
+        }
+
+        return scores.entrySet().stream()
+                .map(entry -> new Scored(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(Scored::score).reversed().thenComparingInt(Scored::id))
+                .limit(limit)
+                .toList();
+    }
+
+    private static void collect(Csr csr, int row, double priority, ReaderView reader, Map<Integer, Double> scores, int limit) {
+        if (row < 0 || row >= csr.rows()) return;
+
+        for (int edge = csr.start(row); edge < csr.end(row) && scores.size() < limit; edge++) {
+            int book = csr.target(edge);
+            if (Arrays.binarySearch(reader.books(), book) >= 0) continue;
+            scores.merge(book, priority, Math::max);
+        }
+    }
+
+    /**
+     * @return dense book ids of the page, in title order
+     */
+    int[] booksByGenre(int genre, int skip, int limit) {
+        int start = Math.min(this.genreBooks.start(genre) + skip, this.genreBooks.end(genre));
+        int end = (int) Math.min((long) start + limit, this.genreBooks.end(genre));
+
+        int[] page = new int[end - start];
+        for (int edge = start; edge < end; edge++) page[edge - start] = this.genreBooks.target(edge);
+        return page;
+    }
+
+    int countBooksByGenre(int genre) {
+        return this.genreBooks.degree(genre);
+    }
+
+    String title(int book) {
+        return this.titles[book];
+    }
+
+    /**
+     * @return the first edge of the genre row whose book is not ordered before (title, id)
+     */
+    int genreLowerBound(int genre, String title, String id) {
+        int low = this.genreBooks.start(genre);
+        int high = this.genreBooks.end(genre);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int book = this.genreBooks.target(mid);
+            int compared = compareTitles(this.titles[book], title);
+            if (compared == 0) compared = this.books.hex(book).compareTo(id);
+
+            if (compared < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Order of the dense book ids: by title, nulls last, like ORDER BY b.title.
+     */
+    static int compareTitles(String title, String other) {
+        if (title == null) return other == null ? 0 : 1;
+        if (other == null) return -1;
+        return title.compareTo(other);
+    }
+
+    long edges() {
+        return (long) this.readerBooks.edges() + this.readerAuthors.edges() + this.readerGenres.edges()
+                + this.authorBooks.edges() + this.genreBooks.edges() + this.bookSimilar.edges();
+    }
+
+    long memoryBytes() {
+        return this.readers.memoryBytes() + this.books.memoryBytes() + this.authors.memoryBytes() + this.genres.memoryBytes() + this.titlesBytes
+                + this.readerBooks.memoryBytes() + this.readerAuthors.memoryBytes() + this.readerGenres.memoryBytes()
+                + this.authorBooks.memoryBytes() + this.genreBooks.memoryBytes() + this.bookSimilar.memoryBytes()
+                + 8L * this.popularBooks.length;
+    }
+
+}
@@ -0,0 +1,174 @@
+package it.unipi.booknetapi.shared.lib.push;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single node broker: a ring buffer of the last app.push.buffer-size events per channel.
+ * Event ids are "generation-seq" with one sequence for all the channels, so an id from before a restart,
+ * or from a channel dropped while idle, is recognized and answered with a reset instead of a silent gap.
+ */
+@Component
+public class LocalPushBroker implements PushBroker {
+
+    Logger logger = LoggerFactory.getLogger(LocalPushBroker.class);
+
+    private static final class Channel {
+        private final ArrayDeque<PushEvent> buffer = new ArrayDeque<>();
+        private final List<PushListener> listeners = new ArrayList<>(1);
+        // Events up to these seqs may be missing from the buffer
+        private final long createdAfter;
+        private long evictedUpTo;
+        private long lastActivity = System.currentTimeMillis();
+
+        private Channel(long createdAfter) {
+            this.createdAfter = createdAfter;
+        }
+    }
+
+    private final String generation = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong sequence = new AtomicLong();
+    // All the changes of a channel go through compute(), which locks its entry
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private final int bufferSize;
+    private final long idleMillis;
+
+    private final Counter publishedCounter;
+    private final Counter resetCounter;
+
+    public LocalPushBroker(AppConfiguration config, AsyncManager asyncManager, MeterRegistry registry) {
+        this.bufferSize = Math.max(1, config.getInt("app.push.buffer-size", 50));
+        this.idleMillis = TimeUnit.MINUTES.toMillis(config.getLong("app.push.buffer-idle-minutes", 60L));
+
+        this.publishedCounter = registry.counter("push.events.published");
+        this.resetCounter = registry.counter("push.events.dropped", "reason", "buffer");
+        Gauge.builder("push.channels", this.channels, Map::size)
+                .register(registry);
+
+        asyncManager.schedule(Workload.BACKGROUND, "push-evict", this::evictIdleSafely, 1, 1, TimeUnit.MINUTES);
+    }
+
+
+    @Override
+    public PushEvent publish(String channel, String name, Object data) {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(name);
+
+        PushEvent[] published = new PushEvent[1];
+
+        this.channels.compute(channel, (key, state) -> {
+            if (state == null) state = new Channel(this.sequence.get());
+
+            long seq = this.sequence.incrementAndGet();
+            PushEvent event = PushEvent.builder()
+                    .id(this.generation + "-" + seq)
+                    .seq(seq)
+                    .name(name)
+                    .data(data)
+                    .publishedAt(System.nanoTime())
+                    .build();
+
+            state.buffer.addLast(event);
+            if (state.buffer.size() > this.bufferSize) {
+                state.evictedUpTo = state.buffer.removeFirst().getSeq();
+            }
+            state.lastActivity = System.currentTimeMillis();
+
+            for (PushListener listener : state.listeners) listener.onEvent(event);
+
+            published[0] = event;
+            return state;
+        });
+
+        this.publishedCounter.increment();
+        return published[0];
+    }
+
+    @Override
+    public void subscribe(String channel, String lastEventId, PushListener listener) {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(listener);
+
+        this.channels.compute(channel, (key, state) -> {
+            if (state == null) state = new Channel(this.sequence.get());
+
+            if (lastEventId != null && !lastEventId.isBlank()) replay(state, lastEventId, listener);
+
+            state.listeners.add(listener);
+            state.lastActivity = System.currentTimeMillis();
+            return state;
+        });
+    }
+
+    private void replay(Channel state, String lastEventId, PushListener listener) {
+        long lastSeq = parseSeq(lastEventId);
+
+        if (lastSeq < 0 || lastSeq < state.createdAfter || lastSeq < state.evictedUpTo) {
+            this.resetCounter.increment();
+            listener.onReset();
+            return;
+        }
+
+        for (PushEvent event : state.buffer) {
+            if (event.getSeq() > lastSeq) listener.onEvent(event);
+        }
+    }
+
+    /**
+     * @return the seq of an event id of this generation, -1 otherwise
+     */
+    private long parseSeq(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator <= 0 || !this.generation.equals(eventId.substring(0, separator))) return -1;
+
+        try {
+            long seq = Long.parseLong(eventId.substring(separator + 1));
+            return seq <= this.sequence.get() ? seq : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void unsubscribe(String channel, PushListener listener) {
+        Objects.requireNonNull(channel);
+
+        this.channels.computeIfPresent(channel, (key, state) -> {
+            state.listeners.remove(listener);
+            state.lastActivity = System.currentTimeMillis();
+            return state;
+        });
+    }
+
+    private void evictIdle() {
+        long threshold = System.currentTimeMillis() - this.idleMillis;
+
+        for (String channel : this.channels.keySet()) {
+            this.channels.computeIfPresent(channel, (key, state) ->
+                    state.listeners.isEmpty() && state.lastActivity < threshold ? null : state
+            );
+        }
+    }
+
+    private void evictIdleSafely() {
+        try {
+            evictIdle();
+        } catch (Exception e) {
+            logger.error("[PUSH] [EVICT] failed: {}", e.getMessage());
+        }
+    }
+
+}
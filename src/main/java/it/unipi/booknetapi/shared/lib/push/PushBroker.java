@@ -0,0 +1,28 @@
+package it.unipi.booknetapi.shared.lib.push;
+
+/**
+ * Publish/subscribe of events to the connections of a channel (e.g. the notifications of a user),
+ * with a short buffer of the latest events so a reconnecting client resumes from its Last-Event-ID.
+ * The default implementation keeps everything in this process; with several API replicas, provide a bean
+ * backed by a shared log (Redis Streams, a capped MongoDB collection...) whose entry ids are the event ids,
+ * so a client can resume on any node.
+ */
+public interface PushBroker {
+
+    /**
+     * @param name SSE event name
+     * @param data payload, serialized by the connection
+     * @return the buffered event, with its id
+     */
+    PushEvent publish(String channel, String name, Object data);
+
+    /**
+     * Registers the listener. The buffered events after lastEventId are delivered to it first,
+     * in order and without gaps with the live ones.
+     * @param lastEventId last event received by the client, null for live events only
+     */
+    void subscribe(String channel, String lastEventId, PushListener listener);
+
+    void unsubscribe(String channel, PushListener listener);
+
+}
@@ -0,0 +1,21 @@
+package it.unipi.booknetapi.shared.lib.push;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PushEvent {
+
+    // Opaque for the clients, sent back as Last-Event-ID to resume
+    private String id;
+    private long seq;
+
+    private String name;
+    private Object data;
+
+    // System.nanoTime() on the node that delivers it, for the fan-out latency
+    private long publishedAt;
+
+}
@@ -0,0 +1,17 @@
+package it.unipi.booknetapi.shared.lib.push;
+
+/**
+ * Receiver of the events of a channel, one per open connection.
+ * Both methods are called while the broker holds the channel, so they must hand the event over
+ * (e.g. to a queue) and return without blocking or calling back into the broker.
+ */
+public interface PushListener {
+
+    void onEvent(PushEvent event);
+
+    /**
+     * Some events after the Last-Event-ID are no longer buffered: the client must reload its state.
+     */
+    void onReset();
+
+}
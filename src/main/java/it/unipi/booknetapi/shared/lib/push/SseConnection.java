@@ -0,0 +1,134 @@
+package it.unipi.booknetapi.shared.lib.push;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One SSE client. The broker only enqueues; a virtual thread per connection writes the events and,
+ * when nothing was sent for a heartbeat interval, a comment that keeps proxies from closing the stream
+ * and finds dead clients. A client too slow to keep up is disconnected once its queue is drained:
+ * it reconnects with its Last-Event-ID and gets the rest from the broker buffer.
+ */
+public class SseConnection implements PushListener {
+
+    Logger logger = LoggerFactory.getLogger(SseConnection.class);
+
+    private static final PushEvent RESET = PushEvent.builder().name("reset").data("").build();
+
+    private final String channel;
+    private final SseEmitter emitter;
+    private final PushBroker broker;
+    private final BlockingQueue<PushEvent> queue;
+    private final long heartbeatMillis;
+    private final long retryMillis;
+
+    private final Timer fanoutTimer;
+    private final Counter droppedCounter;
+    private final Runnable onClose;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean overflowed;
+    private volatile Thread writer;
+
+    public SseConnection(
+            String channel,
+            SseEmitter emitter,
+            PushBroker broker,
+            int queueSize,
+            Duration heartbeat,
+            Duration retry,
+            Timer fanoutTimer,
+            Counter droppedCounter,
+            Runnable onClose
+    ) {
+        this.channel = channel;
+        this.emitter = emitter;
+        this.broker = broker;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.heartbeatMillis = heartbeat.toMillis();
+        this.retryMillis = retry.toMillis();
+        this.fanoutTimer = fanoutTimer;
+        this.droppedCounter = droppedCounter;
+        this.onClose = onClose;
+
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> close());
+    }
+
+    /**
+     * Subscribes to the channel (replaying the events after lastEventId) and starts writing.
+     */
+    public void open(String lastEventId) {
+        this.broker.subscribe(this.channel, lastEventId, this);
+        this.writer = Thread.ofVirtual().name("sse-" + this.channel).start(this::write);
+    }
+
+    @Override
+    public void onEvent(PushEvent event) {
+        if (this.closed.get()) return;
+
+        if (!this.queue.offer(event)) {
+            this.overflowed = true;
+            this.droppedCounter.increment();
+        }
+    }
+
+    @Override
+    public void onReset() {
+        this.queue.clear();
+        this.queue.offer(RESET);
+    }
+
+    private void write() {
+        try {
+            this.emitter.send(SseEmitter.event().reconnectTime(this.retryMillis).comment("connected"));
+
+            while (!this.closed.get()) {
+                if (this.overflowed && this.queue.isEmpty()) break;
+
+                PushEvent event = this.queue.poll(this.heartbeatMillis, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    this.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (event == RESET) {
+                    this.emitter.send(SseEmitter.event().name(RESET.getName()).data(RESET.getData()));
+                } else {
+                    this.emitter.send(SseEmitter.event().id(event.getId()).name(event.getName()).data(event.getData()));
+                    this.fanoutTimer.record(System.nanoTime() - event.getPublishedAt(), TimeUnit.NANOSECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // Client gone, or the emitter already completed
+            logger.trace("[PUSH] [SSE] channel {} closed: {}", this.channel, e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    public void close() {
+        if (!this.closed.compareAndSet(false, true)) return;
+
+        this.broker.unsubscribe(this.channel, this);
+        this.onClose.run();
+
+        try {
+            this.emitter.complete();
+        } catch (Exception ignored) {}
+
+        Thread thread = this.writer;
+        if (thread != null && thread != Thread.currentThread()) thread.interrupt();
+    }
+
+}
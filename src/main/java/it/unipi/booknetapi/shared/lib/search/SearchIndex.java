@@ -0,0 +1,454 @@
+package it.unipi.booknetapi.shared.lib.search;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory word-prefix index over one text field (book title, author name, genre name).
+ * <p>
+ * Texts are normalized (lower case, accents and punctuation stripped) and split into words.
+ * The bulk of the documents lives in an immutable segment: a sorted word dictionary with
+ * an int posting list per word, so a prefix is a binary search plus a range scan. Writes
+ * go to a small delta (upserts and removals) that shadows the segment and is merged into a
+ * new segment by {@link #compactIfNeeded()}. A query matches a document when every query
+ * word is a prefix of one of its words, so "harry pot" finds "Harry Potter and the ...".
+ * Texts are normalized once, when they are written: a query only normalizes itself.
+ */
+public class SearchIndex {
+
+    Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Streams every (id, text) of the source collection into the sink.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        void load(BiConsumer<ObjectId, String> sink);
+    }
+
+    public record Hit(ObjectId id, String text) {}
+
+    /**
+     * @param total matching documents, at most max-candidates (the deepest hit a page can reach)
+     */
+    public record Hits(List<Hit> hits, long total) {}
+
+    /**
+     * A document as written: the text returned in the hits, its normalized form and words.
+     */
+    private record Entry(String text, String normalized, String[] words) {
+
+        static Entry of(String text) {
+            String normalized = normalize(text);
+            return new Entry(text, normalized, words(normalized));
+        }
+    }
+
+    private record Segment(ObjectId[] ids, Entry[] entries, String[] words, int[][] postings) {
+        static final Segment EMPTY = new Segment(new ObjectId[0], new Entry[0], new String[0], new int[0][]);
+    }
+
+    private record Candidate(ObjectId id, Entry entry, int score) {}
+
+    private final String name;
+    private final Loader loader;
+    private final int maxCandidates;
+    private final int maxDelta;
+
+    // null until the first load completes: callers fall back to their database query
+    private volatile Segment segment;
+    private final Map<ObjectId, Entry> upserts = new ConcurrentHashMap<>();
+    private final Set<ObjectId> removed = ConcurrentHashMap.newKeySet();
+    // Writes received while a reload streams the collection, replayed on the loaded segment
+    private List<Hit> journal;
+
+    private final Timer searchTimer;
+    private final Timer suggestTimer;
+    private final Timer buildTimer;
+    private final Counter fallbackCounter;
+
+    public SearchIndex(String name, Loader loader, int maxCandidates, int maxDelta, MeterRegistry registry) {
+        this.name = name;
+        this.loader = loader;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.maxDelta = Math.max(1, maxDelta);
+
+        this.searchTimer = registry.timer("search.query", "index", name, "type", "search");
+        this.suggestTimer = registry.timer("search.query", "index", name, "type", "suggest");
+        this.buildTimer = registry.timer("search.index.build", "index", name);
+        this.fallbackCounter = registry.counter("search.fallback", "index", name);
+
+        Gauge.builder("search.index.size", this, SearchIndex::size)
+                .tag("index", name)
+                .register(registry);
+        Gauge.builder("search.index.words", this, index -> index.segment != null ? index.segment.words().length : 0)
+                .tag("index", name)
+                .register(registry);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean isReady() {
+        return this.segment != null;
+    }
+
+    public int size() {
+        Segment current = this.segment;
+        return (current != null ? current.ids().length : 0) + this.upserts.size();
+    }
+
+
+    public synchronized void put(ObjectId id, String text) {
+        if (id == null) return;
+        if (text == null) {
+            remove(id);
+            return;
+        }
+
+        this.upserts.put(id, Entry.of(text));
+        this.removed.remove(id);
+        if (this.journal != null) this.journal.add(new Hit(id, text));
+    }
+
+    public synchronized void remove(ObjectId id) {
+        if (id == null) return;
+
+        this.removed.add(id);
+        this.upserts.remove(id);
+        if (this.journal != null) this.journal.add(new Hit(id, null));
+    }
+
+    public synchronized void removeAll(Collection<ObjectId> ids) {
+        ids.forEach(this::remove);
+    }
+
+
+    /**
+     * @return the page of ranked hits, or null if the index is not loaded yet
+     */
+    public Hits search(String query, int offset, int limit) {
+        return query(query, offset, limit, this.searchTimer);
+    }
+
+    /**
+     * Typeahead: the best hits for what has been typed so far, or null if the index is not loaded yet.
+     */
+    public List<Hit> suggest(String prefix, int limit) {
+        Hits hits = query(prefix, 0, limit, this.suggestTimer);
+        return hits != null ? hits.hits() : null;
+    }
+
+    private Hits query(String query, int offset, int limit, Timer timer) {
+        Segment current = this.segment;
+        if (current == null) {
+            this.fallbackCounter.increment();
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            String normalized = normalize(query);
+            String[] queryWords = words(normalized);
+            if (queryWords.length == 0 || limit < 1) return new Hits(List.of(), 0);
+
+            // Only the best offset + limit are kept, max-candidates bounds the deepest page
+            int wanted = (int) Math.min((long) Math.max(0, offset) + limit, this.maxCandidates);
+            TopK top = new TopK(wanted, RANKING);
+            long total = collect(current, normalized, queryWords, top);
+
+            List<Candidate> ranked = top.sorted();
+            int from = Math.min(Math.max(0, offset), ranked.size());
+            int to = Math.min(from + limit, ranked.size());
+
+            List<Hit> page = new ArrayList<>(to - from);
+            for (Candidate candidate : ranked.subList(from, to)) {
+                page.add(new Hit(candidate.id(), candidate.entry().text()));
+            }
+            // The pages stop at max-candidates, the total does too
+            return new Hits(page, Math.min(total, this.maxCandidates));
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Every matching document is scored and offered to the heap. Documents of the segment are taken
+     * from the postings of the most selective query word (the longest one) and checked against the
+     * other words; the delta is scanned linearly.
+     * @return number of matching documents
+     */
+    private long collect(Segment current, String normalized, String[] queryWords, TopK top) {
+        String pivot = queryWords[0];
+        for (String word : queryWords) {
+            if (word.length() > pivot.length()) pivot = word;
+        }
+
+        long total = 0;
+        for (Map.Entry<ObjectId, Entry> upsert : this.upserts.entrySet()) {
+            Entry entry = upsert.getValue();
+            if (!matches(entry.words(), queryWords)) continue;
+
+            total++;
+            top.offer(new Candidate(upsert.getKey(), entry, score(entry, normalized, queryWords)));
+        }
+
+        BitSet seen = new BitSet(current.ids().length);
+        int first = lowerBound(current.words(), pivot);
+        for (int w = first; w < current.words().length && current.words()[w].startsWith(pivot); w++) {
+            for (int doc : current.postings()[w]) {
+                if (seen.get(doc)) continue;
+                seen.set(doc);
+
+                ObjectId id = current.ids()[doc];
+                if (this.upserts.containsKey(id) || this.removed.contains(id)) continue;
+
+                Entry entry = current.entries()[doc];
+                if (!matches(entry.words(), queryWords)) continue;
+
+                total++;
+                top.offer(new Candidate(id, entry, score(entry, normalized, queryWords)));
+            }
+        }
+
+        return total;
+    }
+
+    private static boolean matches(String[] words, String[] queryWords) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Exact text, then texts starting with the query, then whole-word matches, then shorter texts.
+     */
+    private static final Comparator<Candidate> RANKING = Comparator.<Candidate>comparingInt(candidate -> -candidate.score())
+            .thenComparingInt(candidate -> candidate.entry().normalized().length())
+            .thenComparing(candidate -> candidate.entry().normalized())
+            .thenComparing(Candidate::id);
+
+    private static int score(Entry entry, String normalized, String[] queryWords) {
+        int score = 0;
+        if (entry.normalized().equals(normalized)) score += 1000;
+        else if (entry.normalized().startsWith(normalized)) score += 500;
+
+        for (String queryWord : queryWords) {
+            for (String word : entry.words()) {
+                if (word.equals(queryWord)) {
+                    score += 10;
+                    break;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * The k best candidates of a ranking: a heap with the worst kept candidate on top,
+     * so a query costs O(n log k) whatever the number of matches.
+     */
+    private static final class TopK {
+        private final int k;
+        private final Comparator<Candidate> ranking;
+        private final PriorityQueue<Candidate> heap;
+
+        TopK(int k, Comparator<Candidate> ranking) {
+            this.k = k;
+            this.ranking = ranking;
+            this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)) + 1, ranking.reversed());
+        }
+
+        void offer(Candidate candidate) {
+            if (this.k < 1) return;
+            if (this.heap.size() < this.k) {
+                this.heap.add(candidate);
+            } else if (this.ranking.compare(candidate, this.heap.peek()) < 0) {
+                this.heap.poll();
+                this.heap.add(candidate);
+            }
+        }
+
+        List<Candidate> sorted() {
+            List<Candidate> sorted = new ArrayList<>(this.heap);
+            sorted.sort(this.ranking);
+            return sorted;
+        }
+    }
+
+
+    /**
+     * Streams the whole collection into a new segment. Writes received meanwhile stay visible
+     * through the delta and are replayed on the new segment before it replaces the old one.
+     */
+    public void reload() {
+        synchronized (this) {
+            this.journal = new ArrayList<>();
+        }
+
+        try {
+            long start = System.nanoTime();
+
+            Map<ObjectId, Entry> documents = new LinkedHashMap<>();
+            this.loader.load((id, text) -> {
+                if (id != null && text != null) documents.put(id, Entry.of(text));
+            });
+
+            synchronized (this) {
+                for (Hit write : this.journal) {
+                    if (write.text() != null) documents.put(write.id(), Entry.of(write.text()));
+                    else documents.remove(write.id());
+                }
+                install(build(documents));
+            }
+
+            this.buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.info("[SEARCH] [{}] loaded {} documents, {} words", this.name, this.segment.ids().length, this.segment.words().length);
+        } finally {
+            synchronized (this) {
+                this.journal = null;
+            }
+        }
+    }
+
+    /**
+     * Merges the delta into a new segment once it is large enough to slow down the linear scan.
+     */
+    public void compactIfNeeded() {
+        if (this.segment == null || this.upserts.size() + this.removed.size() < this.maxDelta) return;
+
+        synchronized (this) {
+            Segment current = this.segment;
+            if (current == null || this.journal != null) return;
+
+            long start = System.nanoTime();
+            Map<ObjectId, Entry> documents = new LinkedHashMap<>(current.ids().length + this.upserts.size());
+            for (int doc = 0; doc < current.ids().length; doc++) {
+                ObjectId id = current.ids()[doc];
+                if (!this.removed.contains(id)) documents.put(id, current.entries()[doc]);
+            }
+            documents.putAll(this.upserts);
+
+            install(build(documents));
+            this.buildTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void install(Segment built) {
+        // Segment first: until the delta is cleared its entries shadow their own copy in the segment, same result
+        this.segment = built;
+        this.upserts.clear();
+        this.removed.clear();
+    }
+
+    private static Segment build(Map<ObjectId, Entry> documents) {
+        if (documents.isEmpty()) return Segment.EMPTY;
+
+        ObjectId[] ids = new ObjectId[documents.size()];
+        Entry[] entries = new Entry[documents.size()];
+        Map<String, IntList> postings = new HashMap<>();
+
+        int doc = 0;
+        for (Map.Entry<ObjectId, Entry> entry : documents.entrySet()) {
+            ids[doc] = entry.getKey();
+            entries[doc] = entry.getValue();
+            for (String word : new LinkedHashSet<>(Arrays.asList(entry.getValue().words()))) {
+                postings.computeIfAbsent(word, w -> new IntList()).add(doc);
+            }
+            doc++;
+        }
+
+        String[] words = postings.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[][] lists = new int[words.length][];
+        for (int w = 0; w < words.length; w++) {
+            lists[w] = postings.get(words[w]).toArray();
+        }
+
+        return new Segment(ids, entries, words, lists);
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+
+    public static String normalize(String text) {
+        if (text == null) return "";
+
+        String decomposed = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String[] words(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    /**
+     * The match of the index, for the scans of the local profile while it is not loaded.
+     */
+    public static boolean matchesWordPrefixes(String text, String query) {
+        String[] queryWords = words(normalize(query));
+        return queryWords.length > 0 && text != null && matches(words(normalize(text)), queryWords);
+    }
+
+    /**
+     * The match of the index as a case-insensitive MongoDB regex, for the queries made while it is not
+     * loaded: every query word must start a word of the text (accents are not folded).
+     * @return null if the query has no word
+     */
+    public static String wordPrefixRegex(String query) {
+        StringBuilder regex = new StringBuilder();
+        for (String word : SEPARATORS.split(query.trim())) {
+            // \b of the server is ASCII only: a word starts the text or follows a character that is not a letter or digit
+            if (!word.isEmpty()) regex.append("(?=.*(?:^|[^\\p{L}\\p{N}])").append(Pattern.quote(word)).append(')');
+        }
+        return regex.isEmpty() ? null : regex.toString();
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (this.size == this.values.length) this.values = Arrays.copyOf(this.values, this.size * 2);
+            this.values[this.size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+}
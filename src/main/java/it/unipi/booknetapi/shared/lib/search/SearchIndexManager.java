@@ -0,0 +1,118 @@
+package it.unipi.booknetapi.shared.lib.search;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.unipi.booknetapi.model.author.Author;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.genre.Genre;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.async.Workload;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.InMemoryCollection;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Search indexes of book titles, author names and genre names.
+ * They are loaded from MongoDB in the background at startup and kept current by the repository
+ * mutators; bulk upserts that do not return the ids of the documents they update (imports) are
+ * picked up by the periodic reload. Until an index is loaded, the repositories use their regex query.
+ * In the local profile there is no MongoDB database, the indexes are loaded from the {@link InMemoryStore}.
+ */
+@Component
+public class SearchIndexManager {
+
+    Logger logger = LoggerFactory.getLogger(SearchIndexManager.class);
+
+    private final SearchIndex books;
+    private final SearchIndex authors;
+    private final SearchIndex genres;
+
+    public SearchIndexManager(
+            AppConfiguration config,
+            AsyncManager asyncManager,
+            ObjectProvider<MongoDatabase> mongoDatabase,
+            ObjectProvider<InMemoryStore> inMemoryStore,
+            MeterRegistry registry
+    ) {
+        int maxCandidates = config.getInt("app.search.max-candidates", 5000);
+        int maxDelta = config.getInt("app.search.max-delta", 10000);
+        long reloadIntervalMinutes = config.getLong("app.search.reload-interval-minutes", 360L);
+        long compactIntervalSeconds = config.getLong("app.search.compact-interval-seconds", 10L);
+
+        InMemoryStore store = inMemoryStore.getIfAvailable();
+        if (store != null) {
+            this.books = new SearchIndex("books", loader(store.books(), Book::getId, Book::getTitle), maxCandidates, maxDelta, registry);
+            this.authors = new SearchIndex("authors", loader(store.authors(), Author::getId, Author::getName), maxCandidates, maxDelta, registry);
+            this.genres = new SearchIndex("genres", loader(store.genres(), Genre::getId, Genre::getName), maxCandidates, maxDelta, registry);
+        } else {
+            MongoDatabase database = mongoDatabase.getObject();
+            this.books = new SearchIndex("books", loader(database.getCollection("books"), "title"), maxCandidates, maxDelta, registry);
+            this.authors = new SearchIndex("authors", loader(database.getCollection("authors"), "name"), maxCandidates, maxDelta, registry);
+            this.genres = new SearchIndex("genres", loader(database.getCollection("genres"), "name"), maxCandidates, maxDelta, registry);
+        }
+
+        if (config.getBoolean("app.search.enabled", true)) {
+            // The two jobs may overlap: a compaction skips an index while it reloads
+            asyncManager.schedule(Workload.BACKGROUND, "search-reload", this::reloadAll, 0, reloadIntervalMinutes, TimeUnit.MINUTES);
+            asyncManager.schedule(Workload.BACKGROUND, "search-compact", this::compactAll, compactIntervalSeconds, compactIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            logger.info("[SEARCH] disabled, searches go to MongoDB");
+        }
+    }
+
+    private static SearchIndex.Loader loader(MongoCollection<Document> collection, String field) {
+        return sink -> collection.find()
+                .projection(Projections.include(field))
+                .batchSize(10000)
+                .forEach(document -> sink.accept(document.getObjectId("_id"), document.getString(field)));
+    }
+
+    private static <T> SearchIndex.Loader loader(InMemoryCollection<T> collection, Function<T, ObjectId> id, Function<T, String> field) {
+        return sink -> collection.stream().forEach(document -> sink.accept(id.apply(document), field.apply(document)));
+    }
+
+    public SearchIndex books() {
+        return this.books;
+    }
+
+    public SearchIndex authors() {
+        return this.authors;
+    }
+
+    public SearchIndex genres() {
+        return this.genres;
+    }
+
+    private void reloadAll() {
+        for (SearchIndex index : List.of(this.books, this.authors, this.genres)) {
+            try {
+                index.reload();
+            } catch (Exception e) {
+                logger.error("[SEARCH] [RELOAD] {} failed: {}", index.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private void compactAll() {
+        for (SearchIndex index : List.of(this.books, this.authors, this.genres)) {
+            try {
+                index.compactIfNeeded();
+            } catch (Exception e) {
+                logger.error("[SEARCH] [COMPACT] {} failed: {}", index.getName(), e.getMessage());
+            }
+        }
+    }
+
+}
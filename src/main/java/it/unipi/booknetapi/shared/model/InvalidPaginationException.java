@@ -0,0 +1,12 @@
+package it.unipi.booknetapi.shared.model;
+
+/**
+ * The page size is below 1, or the cursor was not returned by the API (malformed or tampered with).
+ */
+public class InvalidPaginationException extends IllegalArgumentException {
+
+    public InvalidPaginationException(String message) {
+        super(message);
+    }
+
+}
@@ -7,11 +7,16 @@ import java.util.List;
 @Data
 public class PageResult<T> {
 
+    // Returned when the total was not requested
+    public static final long UNKNOWN_TOTAL = -1;
+
     private List<T> content;
     private long totalElements;
     private int totalPages;
     private int currentPage;
     private int pageSize;
+    // Continuation token for the next page, null on the last page
+    private String nextCursor;
 
     public PageResult(List<T> content, long totalElements, int currentPage, int pageSize) {
         this.content = content;
@@ -19,7 +24,13 @@ public class PageResult<T> {
         this.currentPage = currentPage;
         this.pageSize = pageSize;
         // Calculate total pages safely
-        this.totalPages = (pageSize == 0) ? 1 : (int) Math.ceil((double) totalElements / pageSize);
+        if (totalElements == UNKNOWN_TOTAL) this.totalPages = -1;
+        else this.totalPages = (pageSize == 0) ? 1 : (int) Math.ceil((double) totalElements / pageSize);
+    }
+
+    public PageResult(List<T> content, long totalElements, int currentPage, int pageSize, String nextCursor) {
+        this(content, totalElements, currentPage, pageSize);
+        this.nextCursor = nextCursor;
     }
 
 }
@@ -12,4 +12,17 @@ public class PaginationRequest {
     private String sort;
     private String search;
 
+    // Keyset mode: continuation token returned as PageResult.nextCursor, page is ignored when set
+    private String cursor;
+    // Count the matching documents; defaults to true for page mode and false for cursor mode
+    private Boolean withTotal;
+
+    public boolean hasCursor() {
+        return cursor != null && !cursor.isBlank();
+    }
+
+    public boolean isTotalRequested() {
+        return withTotal != null ? withTotal : !hasCursor();
+    }
+
 }
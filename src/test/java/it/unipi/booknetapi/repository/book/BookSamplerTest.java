@@ -0,0 +1,134 @@
+package it.unipi.booknetapi.repository.book;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.InMemoryStore;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+class BookSamplerTest {
+
+    private InMemoryStore store;
+    private BookSampler sampler;
+
+    @BeforeEach
+    void setUp() {
+        // No scheduled reload, the tests call reload() themselves
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("app.book-sampler.enabled", "false");
+        AppConfiguration config = new AppConfiguration();
+        ReflectionTestUtils.setField(config, "env", environment);
+
+        this.store = new InMemoryStore(config);
+
+        ObjectProvider<InMemoryStore> stores = mock(ObjectProvider.class);
+        when(stores.getIfAvailable()).thenReturn(this.store);
+
+        this.sampler = new BookSampler(config, mock(AsyncManager.class), mock(ObjectProvider.class), stores, new SimpleMeterRegistry());
+    }
+
+    private List<ObjectId> insertBooks(int count) {
+        for (int i = 0; i < count; i++) {
+            Book book = new Book();
+            book.setId(new ObjectId());
+            book.setTitle("Book " + i);
+            this.store.books().insert(book);
+        }
+        return this.store.books().ids();
+    }
+
+    private static void assertDistinct(List<ObjectId> ids) {
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+    }
+
+
+    @Test
+    void sample_nullUntilLoaded() {
+        insertBooks(10);
+
+        assertNull(this.sampler.sample(5, Set.of()));
+
+        this.sampler.reload();
+        assertEquals(5, this.sampler.sample(5, Set.of()).size());
+    }
+
+    @Test
+    void sample_smallCatalogue() {
+        List<ObjectId> ids = insertBooks(10);
+        this.sampler.reload();
+
+        List<ObjectId> sample = this.sampler.sample(20, Set.of(ids.getFirst()));
+
+        assertEquals(9, sample.size());
+        assertDistinct(sample);
+        assertFalse(sample.contains(ids.getFirst()));
+        assertTrue(ids.containsAll(sample));
+    }
+
+    @Test
+    void sample_largeCatalogue() {
+        List<ObjectId> ids = insertBooks(2000);
+        this.sampler.reload();
+        Set<ObjectId> excluded = new HashSet<>(ids.subList(0, 100));
+
+        for (int run = 0; run < 20; run++) {
+            List<ObjectId> sample = this.sampler.sample(50, excluded);
+
+            assertEquals(50, sample.size());
+            assertDistinct(sample);
+            assertTrue(sample.stream().noneMatch(excluded::contains));
+        }
+    }
+
+    @Test
+    void sample_emptyOrNothingAsked() {
+        this.sampler.reload();
+
+        assertEquals(List.of(), this.sampler.sample(5, Set.of()));
+
+        insertBooks(3);
+        this.sampler.reload();
+        assertEquals(List.of(), this.sampler.sample(0, Set.of()));
+    }
+
+    @Test
+    void addAndRemove() {
+        List<ObjectId> ids = insertBooks(3);
+        this.sampler.reload();
+
+        ObjectId added = new ObjectId();
+        this.sampler.add(added);
+        this.sampler.add(added);
+        this.sampler.remove(ids.get(1));
+        this.sampler.removeAll(List.of(ids.get(0), new ObjectId()));
+
+        assertEquals(Set.of(ids.get(2), added), new HashSet<>(this.sampler.sample(10, Set.of())));
+    }
+
+    @Test
+    void reload_picksUpBulkInserts() {
+        insertBooks(3);
+        this.sampler.reload();
+
+        List<ObjectId> ids = insertBooks(2);
+        this.sampler.reload();
+
+        assertEquals(new HashSet<>(ids), new HashSet<>(this.sampler.sample(10, Set.of())));
+    }
+
+}
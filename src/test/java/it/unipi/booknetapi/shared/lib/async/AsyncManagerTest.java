@@ -0,0 +1,93 @@
+package it.unipi.booknetapi.shared.lib.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncManagerTest {
+
+    private SimpleMeterRegistry registry;
+    private AsyncManager asyncManager;
+
+    @BeforeEach
+    void setUp() {
+        AppConfiguration config = new AppConfiguration();
+        ReflectionTestUtils.setField(config, "env", new MockEnvironment());
+
+        this.registry = new SimpleMeterRegistry();
+        this.asyncManager = new AsyncManager(config, this.registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.asyncManager.shutdown();
+    }
+
+    @Test
+    void schedule_runsAgainAfterAFailedRun() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(3);
+
+        this.asyncManager.schedule(Workload.BACKGROUND, "test", () -> {
+            runs.incrementAndGet();
+            done.countDown();
+            throw new IllegalStateException("failed run");
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(runs.get() >= 3);
+        // The third run may still be timing itself
+        assertTrue(this.registry.timer("async.jobs.latency", "job", "test").count() >= 2);
+    }
+
+    @Test
+    void schedule_neverOverlapsItsRuns() throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5);
+
+        this.asyncManager.schedule(Workload.BACKGROUND, "test", () -> {
+            if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            done.countDown();
+        }, 0, 1, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+    }
+
+    @Test
+    void schedule_refusesDiscardingWorkloads() {
+        assertThrows(IllegalArgumentException.class, () ->
+                this.asyncManager.schedule(Workload.ANALYTICS, "test", () -> {}, 0, 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shutdown_endsTheJobs() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        this.asyncManager.schedule(Workload.BACKGROUND, "test", runs::incrementAndGet, 0, 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(20);
+
+        this.asyncManager.shutdown();
+        int afterShutdown = runs.get();
+        Thread.sleep(20);
+
+        assertEquals(afterShutdown, runs.get());
+    }
+
+}
@@ -0,0 +1,173 @@
+package it.unipi.booknetapi.shared.lib.database;
+
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class MongoRangesTest {
+
+    private static List<ObjectId> ids(int count) {
+        List<ObjectId> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) ids.add(new ObjectId(new Date(1_700_000_000_000L + i * 1000L), i));
+        return ids;
+    }
+
+    /**
+     * A collection whose $sample returns the given ids, in the given order.
+     */
+    private static MongoCollection<Document> sampling(List<ObjectId> sampled) {
+        Iterator<Document> documents = sampled.stream().map(id -> new Document("_id", id)).iterator();
+        MongoCursor<Document> cursor = mock(MongoCursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> documents.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> documents.next());
+
+        AggregateIterable<Document> aggregate = mock(AggregateIterable.class);
+        when(aggregate.iterator()).thenReturn(cursor);
+
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        when(collection.aggregate(anyList(), eq(Document.class))).thenReturn(aggregate);
+        return collection;
+    }
+
+    /**
+     * A collection whose successive finds return the given batches.
+     */
+    private static MongoCollection<Document> batches(List<List<Document>> batches) {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+        List<FindIterable<Document>> finds = new ArrayList<>();
+        for (List<Document> batch : batches) {
+            FindIterable<Document> find = mock(FindIterable.class);
+            when(find.sort(any())).thenReturn(find);
+            when(find.limit(anyInt())).thenReturn(find);
+            when(find.into(any())).thenAnswer(invocation -> {
+                Collection<Document> target = invocation.getArgument(0);
+                target.addAll(batch);
+                return target;
+            });
+            finds.add(find);
+        }
+        when(collection.find(any(Bson.class))).thenReturn(finds.getFirst(), finds.subList(1, finds.size()).toArray(new FindIterable[0]));
+        return collection;
+    }
+
+    private static List<Document> documents(List<ObjectId> ids) {
+        return ids.stream().map(id -> new Document("_id", id)).toList();
+    }
+
+
+    @Test
+    void split_singleRange() {
+        MongoCollection<Document> collection = mock(MongoCollection.class);
+
+        assertEquals(List.of(), MongoRanges.split(collection, null, 1));
+        verifyNoInteractions(collection);
+    }
+
+    @Test
+    void split_evenBoundaries() {
+        List<ObjectId> ids = ids(100);
+        List<ObjectId> shuffled = new ArrayList<>(ids);
+        Collections.shuffle(shuffled, new Random(42));
+
+        List<ObjectId> boundaries = MongoRanges.split(sampling(shuffled), null, 4);
+
+        assertEquals(List.of(ids.get(25), ids.get(50), ids.get(75)), boundaries);
+    }
+
+    @Test
+    void split_filterIsTheFirstStage() {
+        MongoCollection<Document> collection = sampling(ids(100));
+        Bson filter = Filters.eq("source", "GOOD_READS");
+
+        MongoRanges.split(collection, filter, 2);
+
+        ArgumentCaptor<List<Bson>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(collection).aggregate(pipeline.capture(), eq(Document.class));
+        assertEquals(3, pipeline.getValue().size());
+        assertEquals(new BsonDocument("$match", filter.toBsonDocument()), pipeline.getValue().getFirst().toBsonDocument());
+    }
+
+    @Test
+    void split_tooFewSamples() {
+        assertEquals(List.of(), MongoRanges.split(sampling(ids(3)), null, 4));
+    }
+
+    @Test
+    void split_duplicateSamplesGiveFewerRanges() {
+        ObjectId id = new ObjectId();
+
+        assertEquals(List.of(id), MongoRanges.split(sampling(Collections.nCopies(10, id)), null, 4));
+    }
+
+    @Test
+    void walk_stopsOnAShortBatch() {
+        List<ObjectId> ids = ids(5);
+        MongoCollection<Document> collection = batches(List.of(
+                documents(ids.subList(0, 2)),
+                documents(ids.subList(2, 4)),
+                documents(ids.subList(4, 5))
+        ));
+        List<List<Document>> written = new ArrayList<>();
+        List<Map.Entry<ObjectId, Integer>> resumePoints = new ArrayList<>();
+
+        long count = MongoRanges.walk(collection, null, null, null, 2,
+                document -> document.getObjectId("_id"),
+                written::add,
+                (lastId, size) -> resumePoints.add(Map.entry(lastId, size)));
+
+        assertEquals(5, count);
+        assertEquals(3, written.size());
+        assertEquals(List.of(Map.entry(ids.get(1), 2), Map.entry(ids.get(3), 2), Map.entry(ids.get(4), 1)), resumePoints);
+
+        ArgumentCaptor<Bson> filters = ArgumentCaptor.forClass(Bson.class);
+        verify(collection, times(3)).find(filters.capture());
+        assertEquals(
+                Filters.and(Filters.gt("_id", MongoRanges.MIN_ID)).toBsonDocument(),
+                filters.getAllValues().get(0).toBsonDocument()
+        );
+        assertEquals(
+                Filters.and(Filters.gt("_id", ids.get(1))).toBsonDocument(),
+                filters.getAllValues().get(1).toBsonDocument()
+        );
+    }
+
+    @Test
+    void walk_boundedRangeEndsOnAnEmptyBatch() {
+        List<ObjectId> ids = ids(4);
+        MongoCollection<Document> collection = batches(List.of(
+                documents(ids.subList(0, 2)),
+                documents(ids.subList(2, 4)),
+                List.of()
+        ));
+
+        long count = MongoRanges.walk(collection, null, ids.get(0), ids.get(3), 2,
+                document -> document.getObjectId("_id"),
+                batch -> {},
+                null);
+
+        assertEquals(4, count);
+
+        ArgumentCaptor<Bson> filters = ArgumentCaptor.forClass(Bson.class);
+        verify(collection, times(3)).find(filters.capture());
+        assertEquals(
+                Filters.and(Filters.gt("_id", ids.get(0)), Filters.lte("_id", ids.get(3))).toBsonDocument(),
+                filters.getAllValues().get(0).toBsonDocument()
+        );
+    }
+
+}
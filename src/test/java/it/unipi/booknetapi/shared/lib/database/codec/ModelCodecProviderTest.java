@@ -0,0 +1,276 @@
+package it.unipi.booknetapi.shared.lib.database.codec;
+
+import it.unipi.booknetapi.model.author.AuthorEmbed;
+import it.unipi.booknetapi.model.book.Book;
+import it.unipi.booknetapi.model.book.BookEmbed;
+import it.unipi.booknetapi.model.book.FormatTypeEnum;
+import it.unipi.booknetapi.model.fetch.EntityType;
+import it.unipi.booknetapi.model.genre.GenreEmbed;
+import it.unipi.booknetapi.model.notification.Notification;
+import it.unipi.booknetapi.model.notification.NotificationEmbed;
+import it.unipi.booknetapi.model.review.Review;
+import it.unipi.booknetapi.model.review.ReviewSummary;
+import it.unipi.booknetapi.model.user.UserEmbed;
+import it.unipi.booknetapi.shared.lib.database.MongoManager;
+import it.unipi.booknetapi.shared.model.ExternalId;
+import it.unipi.booknetapi.shared.model.Source;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every hand-written codec must write the document the PojoCodec writes and read it back to the
+ * same model, or switching app.mongo.model-codecs-enabled would change the stored data.
+ */
+class ModelCodecProviderTest {
+
+    private static final CodecRegistry POJO = MongoManager.codecRegistry(false);
+    private static final CodecRegistry MODEL = MongoManager.codecRegistry(true);
+
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().isEncodingCollectibleDocument(true).build();
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private static final Date DATE = new Date(1_700_000_000_123L);
+
+    private static <T> BsonDocument encode(Codec<T> codec, T value) {
+        BsonDocument document = new BsonDocument();
+        codec.encode(new BsonDocumentWriter(document), value, ENCODER_CONTEXT);
+        return document;
+    }
+
+    private static <T> T decode(Codec<T> codec, BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DECODER_CONTEXT);
+    }
+
+    /**
+     * Encodes value with both codecs, compares the documents and decodes them back with both.
+     * @return the value decoded by the hand-written codec
+     */
+    private static <T> T assertParity(Class<T> type, T value) {
+        Codec<T> modelCodec = MODEL.get(type);
+        Codec<T> pojoCodec = POJO.get(type);
+        assertSame(new ModelCodecProvider().get(type, MODEL).getClass(), modelCodec.getClass(), "hand-written codec not served for " + type.getSimpleName());
+
+        BsonDocument pojoDocument = encode(pojoCodec, value);
+        BsonDocument modelDocument = encode(modelCodec, value);
+        assertEquals(pojoDocument, modelDocument);
+
+        T decoded = decode(modelCodec, pojoDocument);
+        assertEquals(decode(pojoCodec, pojoDocument), decoded);
+        assertEquals(decode(pojoCodec, modelDocument), decode(modelCodec, modelDocument));
+        return decoded;
+    }
+
+    private static List<AuthorEmbed> authors() {
+        return new ArrayList<>(List.of(
+                new AuthorEmbed(new ObjectId(), "Frank Herbert"),
+                new AuthorEmbed(new ObjectId(), "Brian Herbert")
+        ));
+    }
+
+    private static List<GenreEmbed> genres() {
+        return new ArrayList<>(List.of(
+                new GenreEmbed(new ObjectId(), "science fiction"),
+                new GenreEmbed(new ObjectId(), "classics")
+        ));
+    }
+
+    private static BookEmbed bookEmbed() {
+        return new BookEmbed(
+                new ObjectId(),
+                "Dune",
+                "A desert planet",
+                412,
+                FormatTypeEnum.PAPERBACK,
+                new ArrayList<>(List.of("https://images.example.org/dune.jpg")),
+                authors(),
+                genres()
+        );
+    }
+
+    private static ExternalId externalId() {
+        return ExternalId.builder()
+                .goodReads("234225")
+                .amazon("0441013597")
+                .googleBooks("B00B7NPRY8")
+                .kaggle("42")
+                .build();
+    }
+
+
+    @Test
+    void authorEmbed() {
+        AuthorEmbed author = new AuthorEmbed(new ObjectId(), "Ursula K. Le Guin");
+        assertEquals(author, assertParity(AuthorEmbed.class, author));
+        assertParity(AuthorEmbed.class, new AuthorEmbed(new ObjectId(), null));
+    }
+
+    @Test
+    void genreEmbed() {
+        GenreEmbed genre = new GenreEmbed(new ObjectId(), "fantasy");
+        assertEquals(genre, assertParity(GenreEmbed.class, genre));
+        assertParity(GenreEmbed.class, new GenreEmbed(new ObjectId(), null));
+    }
+
+    @Test
+    void bookEmbed_full() {
+        BookEmbed book = bookEmbed();
+        assertEquals(book, assertParity(BookEmbed.class, book));
+    }
+
+    @Test
+    void bookEmbed_minimal() {
+        BookEmbed book = new BookEmbed();
+        book.setId(new ObjectId());
+        assertParity(BookEmbed.class, book);
+
+        book.setImages(null);
+        book.setAuthors(null);
+        book.setGenres(null);
+        assertParity(BookEmbed.class, book);
+    }
+
+    @Test
+    void reviewSummary() {
+        ReviewSummary summary = new ReviewSummary(4.25f, 12, 51.0);
+        assertEquals(summary, assertParity(ReviewSummary.class, summary));
+        assertParity(ReviewSummary.class, new ReviewSummary(null, null, null));
+    }
+
+    @Test
+    void externalId() {
+        ExternalId externalId = externalId();
+        assertEquals(externalId, assertParity(ExternalId.class, externalId));
+        assertParity(ExternalId.class, ExternalId.builder().goodReads("1").build());
+        assertParity(ExternalId.class, new ExternalId());
+    }
+
+    @Test
+    void userEmbed() {
+        UserEmbed user = UserEmbed.builder()
+                .id(new ObjectId())
+                .name("Alice")
+                .imageUrl("https://images.example.org/users/alice.jpg")
+                .build();
+        assertEquals(user, assertParity(UserEmbed.class, user));
+        assertParity(UserEmbed.class, UserEmbed.builder().id(new ObjectId()).build());
+    }
+
+    @Test
+    void notificationEmbed() {
+        NotificationEmbed notification = NotificationEmbed.builder()
+                .id(new ObjectId())
+                .title("New book")
+                .message("A new book of an author you follow")
+                .createdAt(DATE)
+                .build();
+        assertEquals(notification, assertParity(NotificationEmbed.class, notification));
+        assertParity(NotificationEmbed.class, NotificationEmbed.builder().id(new ObjectId()).build());
+    }
+
+    @Test
+    void book_full() {
+        Book book = new Book();
+        book.setId(new ObjectId());
+        book.setIsbn("0441013597");
+        book.setIsbn13("9780441013593");
+        book.setTitle("Dune");
+        book.setSubtitle("Deluxe Edition");
+        book.setDescription("Set on the desert planet Arrakis");
+        book.setNumPage(412);
+        book.setPublicationDate(DATE);
+        book.setPublicationYear(1965);
+        book.setPublicationMonth(8);
+        book.setPublicationDay(1);
+        book.setLanguages(new ArrayList<>(List.of("eng", "ita")));
+        book.setImages(new ArrayList<>(List.of("https://images.example.org/dune.jpg")));
+        book.setPreviews(new ArrayList<>(List.of("https://books.example.org/preview/dune")));
+        book.setPublishers(new ArrayList<>(List.of("Ace")));
+        book.setReviews(new ArrayList<>(List.of(new ObjectId(), new ObjectId())));
+        book.setAuthors(authors());
+        book.setGenres(genres());
+        book.setSimilarBooks(new ArrayList<>(List.of(bookEmbed(), bookEmbed())));
+        book.setRatingReview(new ReviewSummary(4.25f, 12, 51.0));
+        book.setFormat(FormatTypeEnum.HARDCOVER);
+        book.setExternalId(externalId());
+
+        assertEquals(book, assertParity(Book.class, book));
+    }
+
+    @Test
+    void book_minimal() {
+        Book book = new Book();
+        book.setId(new ObjectId());
+        book.setTitle("Untitled");
+        assertParity(Book.class, book);
+
+        book.setLanguages(null);
+        book.setReviews(null);
+        book.setSimilarBooks(null);
+        assertParity(Book.class, book);
+    }
+
+    @Test
+    void review_full() {
+        Review review = Review.builder()
+                .id(new ObjectId())
+                .bookId(new ObjectId())
+                .user(UserEmbed.builder().id(new ObjectId()).name("Alice").imageUrl("https://images.example.org/users/alice.jpg").build())
+                .rating(4)
+                .comment("Spice must flow")
+                .dateAdded(DATE)
+                .dateUpdated(new Date(DATE.getTime() + 60_000))
+                .source(Source.GOOD_READS)
+                .externalId(ExternalId.builder().goodReads("7").build())
+                .build();
+
+        assertEquals(review, assertParity(Review.class, review));
+    }
+
+    @Test
+    void review_minimal() {
+        assertParity(Review.class, Review.builder().id(new ObjectId()).bookId(new ObjectId()).build());
+    }
+
+    @Test
+    void notification_full() {
+        Notification notification = Notification.builder()
+                .id(new ObjectId())
+                .title("New review")
+                .message("Someone reviewed a book on your shelf")
+                .userId(new ObjectId())
+                .entityId(new ObjectId())
+                .entityType(EntityType.BOOK)
+                .createdAt(DATE)
+                .read(true)
+                .build();
+
+        assertEquals(notification, assertParity(Notification.class, notification));
+    }
+
+    @Test
+    void notification_minimal() {
+        assertParity(Notification.class, Notification.builder().id(new ObjectId()).userId(new ObjectId()).read(false).build());
+    }
+
+    static class SeriesBook extends Book {}
+
+    @Test
+    void subclass_fallsBackToPojoCodec() {
+        assertNull(new ModelCodecProvider().get(SeriesBook.class, MODEL));
+        assertNotNull(new ModelCodecProvider().get(Book.class, MODEL));
+    }
+
+}
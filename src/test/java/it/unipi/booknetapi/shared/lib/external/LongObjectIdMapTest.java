@@ -0,0 +1,104 @@
+package it.unipi.booknetapi.shared.lib.external;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectIdMapTest {
+
+    @Test
+    void putAndGet() {
+        LongObjectIdMap map = new LongObjectIdMap(16, 100);
+        ObjectId first = new ObjectId();
+        ObjectId second = new ObjectId();
+
+        assertTrue(map.put(7, first));
+        assertTrue(map.put(0, second));
+
+        assertEquals(first, map.get(7));
+        assertEquals(second, map.get(0));
+        assertNull(map.get(8));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void put_replacesTheId() {
+        LongObjectIdMap map = new LongObjectIdMap(16, 1);
+        ObjectId replacement = new ObjectId();
+
+        assertTrue(map.put(7, new ObjectId()));
+        assertTrue(map.put(7, replacement));
+
+        assertEquals(replacement, map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void put_refusesNegativeKeysAndFullMap() {
+        LongObjectIdMap map = new LongObjectIdMap(16, 2);
+
+        assertFalse(map.put(-1, new ObjectId()));
+        assertFalse(map.put(1, null));
+        assertNull(map.get(-1));
+
+        assertTrue(map.put(1, new ObjectId()));
+        assertTrue(map.put(2, new ObjectId()));
+        assertFalse(map.put(3, new ObjectId()));
+        assertNull(map.get(3));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void putAll_countsStoredEntries() {
+        LongObjectIdMap map = new LongObjectIdMap(16, 100);
+        long[] keys = {1, -5, 2, 3};
+        ObjectId[] ids = {new ObjectId(), new ObjectId(), null, new ObjectId()};
+
+        assertEquals(2, map.putAll(keys, ids, keys.length));
+        assertEquals(ids[0], map.get(1));
+        assertNull(map.get(2));
+        assertEquals(ids[3], map.get(3));
+    }
+
+    @Test
+    void growAndRemove_keepProbeChains() {
+        LongObjectIdMap map = new LongObjectIdMap(16, 1_000_000);
+        Map<Long, ObjectId> expected = new HashMap<>();
+        for (long key = 0; key < 50_000; key++) {
+            ObjectId id = new ObjectId();
+            expected.put(key * 31, id);
+            assertTrue(map.put(key * 31, id));
+        }
+
+        for (long key = 0; key < 50_000; key += 2) {
+            map.remove(key * 31);
+            expected.remove(key * 31);
+        }
+        map.remove(1);
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 50_000; key++) {
+            assertEquals(expected.get(key * 31), map.get(key * 31));
+        }
+    }
+
+    @Test
+    void key_acceptsCanonicalNumbersOnly() {
+        assertEquals(0, LongObjectIdMap.key("0"));
+        assertEquals(7, LongObjectIdMap.key("7"));
+        assertEquals(234225, LongObjectIdMap.key("234225"));
+        assertEquals(999_999_999_999_999_999L, LongObjectIdMap.key("999999999999999999"));
+
+        assertEquals(-1, LongObjectIdMap.key(null));
+        assertEquals(-1, LongObjectIdMap.key(""));
+        assertEquals(-1, LongObjectIdMap.key("007"));
+        assertEquals(-1, LongObjectIdMap.key("-7"));
+        assertEquals(-1, LongObjectIdMap.key("12a"));
+        assertEquals(-1, LongObjectIdMap.key("1234567890123456789"));
+    }
+
+}
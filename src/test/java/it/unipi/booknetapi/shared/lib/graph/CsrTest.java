@@ -0,0 +1,96 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsrTest {
+
+    @Test
+    void build_sortsRowsAndMergesDuplicates() {
+        Csr.Builder builder = new Csr.Builder(3, true);
+        builder.add(0, 5, (byte) 1);
+        builder.add(0, 2, (byte) 0);
+        builder.add(2, 1, (byte) 0);
+        builder.add(0, 5, (byte) 2);
+        builder.add(0, 4, (byte) 0);
+
+        Csr csr = builder.build();
+
+        assertEquals(3, csr.rows());
+        assertEquals(4, csr.edges());
+        assertArrayEquals(new int[]{2, 4, 5}, csr.row(0));
+        assertArrayEquals(new int[0], csr.row(1));
+        assertArrayEquals(new int[]{1}, csr.row(2));
+        assertEquals(3, csr.degree(0));
+        assertEquals(0, csr.degree(1));
+        assertEquals(csr.end(0), csr.start(1));
+
+        int edge = csr.find(0, 5);
+        assertEquals(5, csr.target(edge));
+        assertEquals(3, csr.flags(edge));
+        assertEquals(0, csr.flags(csr.find(0, 2)));
+    }
+
+    @Test
+    void find_unknownTarget() {
+        Csr.Builder builder = new Csr.Builder(2, false);
+        builder.add(0, 1);
+        builder.add(1, 0);
+        Csr csr = builder.build();
+
+        assertEquals(-1, csr.find(0, 0));
+        assertEquals(-1, csr.find(1, 1));
+        assertNotEquals(-1, csr.find(0, 1));
+    }
+
+    @Test
+    void add_ignoresNegativeIds() {
+        Csr.Builder builder = new Csr.Builder(2, false);
+        builder.add(-1, 0);
+        builder.add(0, -1);
+        builder.add(0, 1);
+
+        assertEquals(1, builder.build().edges());
+    }
+
+    @Test
+    void build_growsPastInitialCapacity() {
+        int rows = 50;
+        int targets = 100;
+        Csr.Builder builder = new Csr.Builder(rows, true);
+        for (int target = targets - 1; target >= 0; target--) {
+            for (int row = 0; row < rows; row++) builder.add(row, target, (byte) (target % 2));
+        }
+
+        Csr csr = builder.build();
+
+        assertEquals(rows * targets, csr.edges());
+        for (int row = 0; row < rows; row++) {
+            int[] expected = new int[targets];
+            for (int target = 0; target < targets; target++) expected[target] = target;
+            assertArrayEquals(expected, csr.row(row));
+            assertEquals(1, csr.flags(csr.find(row, 7)));
+        }
+    }
+
+    @Test
+    void transpose_reversesEdgesWithFlags() {
+        Csr.Builder builder = new Csr.Builder(3, true);
+        builder.add(0, 1, (byte) 1);
+        builder.add(2, 1, (byte) 2);
+        builder.add(1, 0, (byte) 4);
+        Csr csr = builder.build();
+
+        Csr reversed = csr.transpose(2);
+
+        assertEquals(2, reversed.rows());
+        assertEquals(csr.edges(), reversed.edges());
+        assertArrayEquals(new int[]{1}, reversed.row(0));
+        assertArrayEquals(new int[]{0, 2}, reversed.row(1));
+        assertEquals(1, reversed.flags(reversed.find(1, 0)));
+        assertEquals(2, reversed.flags(reversed.find(1, 2)));
+        assertEquals(4, reversed.flags(reversed.find(0, 1)));
+    }
+
+}
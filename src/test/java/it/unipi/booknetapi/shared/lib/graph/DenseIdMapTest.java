@@ -0,0 +1,69 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseIdMapTest {
+
+    @Test
+    void add_assignsIdsInInsertionOrder() {
+        DenseIdMap map = new DenseIdMap(4);
+        String first = new ObjectId().toHexString();
+        String second = new ObjectId().toHexString();
+
+        assertEquals(0, map.add(first));
+        assertEquals(1, map.add(second));
+        assertEquals(0, map.add(first));
+        assertEquals(2, map.size());
+
+        assertEquals(1, map.get(second));
+        assertEquals(first, map.hex(0));
+        assertEquals(second, map.hex(1));
+    }
+
+    @Test
+    void invalidAndUnknownIds() {
+        DenseIdMap map = new DenseIdMap(4);
+
+        assertEquals(-1, map.add(null));
+        assertEquals(-1, map.add("not an id"));
+        assertEquals(-1, map.add("zzzzzzzzzzzzzzzzzzzzzzzz"));
+        assertEquals(-1, map.get(new ObjectId().toHexString()));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void upperCaseHex_isTheSameId() {
+        DenseIdMap map = new DenseIdMap(4);
+        String hex = new ObjectId().toHexString();
+
+        int id = map.add(hex.toUpperCase(Locale.ROOT));
+
+        assertEquals(id, map.get(hex));
+        assertEquals(hex, map.hex(id));
+    }
+
+    @Test
+    void rehash_keepsEveryId() {
+        DenseIdMap map = new DenseIdMap(16);
+        List<String> hexes = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            String hex = new ObjectId().toHexString();
+            hexes.add(hex);
+            assertEquals(i, map.add(hex));
+        }
+
+        assertEquals(hexes.size(), map.size());
+        for (int i = 0; i < hexes.size(); i++) {
+            assertEquals(i, map.get(hexes.get(i)));
+            assertEquals(hexes.get(i), map.hex(i));
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package it.unipi.booknetapi.shared.lib.graph;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.unipi.booknetapi.shared.lib.async.AsyncManager;
+import it.unipi.booknetapi.shared.lib.configuration.AppConfiguration;
+import it.unipi.booknetapi.shared.lib.database.Neo4jManager;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Books-by-genre pages of a snapshot with book and genre writes on top of it.
+ */
+class GraphProjectionTest {
+
+    private final String genre = new ObjectId().toHexString();
+    private final String alpha = new ObjectId().toHexString();
+    private final String charlie = new ObjectId().toHexString();
+    private final String echo = new ObjectId().toHexString();
+
+    /**
+     * Alpha, Charlie and Echo in the genre; the snapshot is set directly, the rebuild is never scheduled on the mocked manager.
+     */
+    private GraphProjection projection(int overlayMaxBooks) {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("app.graph.enabled", "true");
+        environment.setProperty("app.graph.rebuild-interval-minutes", "100000");
+        environment.setProperty("app.graph.overlay-max-books", String.valueOf(overlayMaxBooks));
+        AppConfiguration config = new AppConfiguration();
+        ReflectionTestUtils.setField(config, "env", environment);
+
+        DenseIdMap books = new DenseIdMap(4);
+        books.add(this.alpha);
+        books.add(this.charlie);
+        books.add(this.echo);
+        DenseIdMap genres = new DenseIdMap(4);
+        genres.add(this.genre);
+
+        Csr.Builder bookGenres = new Csr.Builder(books.size(), false);
+        for (int book = 0; book < books.size(); book++) bookGenres.add(book, 0);
+
+        GraphSnapshot snapshot = new GraphSnapshot(
+                new DenseIdMap(4),
+                books,
+                new DenseIdMap(4),
+                genres,
+                new String[]{"Alpha", "Charlie", "Echo"},
+                new Csr.Builder(0, true).build(),
+                new Csr.Builder(0, false).build(),
+                new Csr.Builder(0, false).build(),
+                new Csr.Builder(books.size(), false).build(),
+                bookGenres.build(),
+                new Csr.Builder(books.size(), false).build(),
+                10
+        );
+
+        GraphProjection projection = new GraphProjection(config, mock(AsyncManager.class), mock(Neo4jManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(projection, "snapshot", snapshot);
+        return projection;
+    }
+
+    private static List<String> walk(GraphProjection projection, String idGenre, int pageSize) {
+        List<String> ids = new ArrayList<>();
+        for (int skip = 0; ; skip += pageSize) {
+            GraphProjection.GenrePage page = projection.booksByGenre(idGenre, skip, pageSize);
+            ids.addAll(page.ids());
+            if (page.ids().size() < pageSize) return ids;
+        }
+    }
+
+
+    @Test
+    void snapshotOnly() {
+        GraphProjection projection = projection(100);
+
+        GraphProjection.GenrePage page = projection.booksByGenre(this.genre, 1, 10);
+
+        assertEquals(List.of(this.charlie, this.echo), page.ids());
+        assertEquals(3, page.total());
+        assertNull(projection.booksByGenre(new ObjectId().toHexString(), 0, 10));
+    }
+
+    @Test
+    void newRenamedAndDeletedBooks() {
+        GraphProjection projection = projection(100);
+        String bravo = new ObjectId().toHexString();
+        String delta = new ObjectId().toHexString();
+
+        projection.onBook(bravo, "Bravo");
+        projection.onBookGenres(bravo, List.of(this.genre));
+        projection.onBook(delta, "Delta");
+        projection.onBookGenres(delta, List.of(this.genre));
+        projection.onBook(this.charlie, "Zulu");
+        projection.onBookDeleted(this.echo);
+
+        List<String> expected = List.of(this.alpha, bravo, delta, this.charlie);
+        assertEquals(4, projection.booksByGenre(this.genre, 0, 10).total());
+        assertEquals(expected, projection.booksByGenre(this.genre, 0, 10).ids());
+        for (int pageSize = 1; pageSize <= 4; pageSize++) {
+            assertEquals(expected, walk(projection, this.genre, pageSize), "page size " + pageSize);
+        }
+        assertEquals(List.of(), projection.booksByGenre(this.genre, 4, 10).ids());
+    }
+
+    @Test
+    void bookLeavesTheGenre() {
+        GraphProjection projection = projection(100);
+
+        projection.onBookGenres(this.alpha, List.of(new ObjectId().toHexString()));
+
+        GraphProjection.GenrePage page = projection.booksByGenre(this.genre, 0, 10);
+        assertEquals(List.of(this.charlie, this.echo), page.ids());
+        assertEquals(2, page.total());
+    }
+
+    @Test
+    void newAndDeletedGenres() {
+        GraphProjection projection = projection(100);
+        String created = new ObjectId().toHexString();
+
+        projection.onGenre(created);
+        assertEquals(0, projection.booksByGenre(created, 0, 10).total());
+
+        projection.onBookGenres(this.echo, List.of(this.genre, created));
+        assertEquals(List.of(this.echo), projection.booksByGenre(created, 0, 10).ids());
+
+        projection.onGenreDeleted(this.genre);
+        assertEquals(0, projection.booksByGenre(this.genre, 0, 10).total());
+
+        // Created again, without the relationships of the snapshot
+        projection.onGenre(this.genre);
+        assertEquals(List.of(this.echo), projection.booksByGenre(this.genre, 0, 10).ids());
+    }
+
+    @Test
+    void overlayFull_fallsBackToNeo4j() {
+        GraphProjection projection = projection(1);
+
+        projection.onBook(new ObjectId().toHexString(), "Bravo");
+        assertNotNull(projection.booksByGenre(this.genre, 0, 10));
+
+        projection.onBook(new ObjectId().toHexString(), "Delta");
+        assertNull(projection.booksByGenre(this.genre, 0, 10));
+    }
+
+}
@@ -0,0 +1,155 @@
+package it.unipi.booknetapi.shared.lib.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private static SearchIndex index(Map<ObjectId, String> documents, int maxCandidates, int maxDelta) {
+        SearchIndex index = new SearchIndex("books", sink -> documents.forEach(sink), maxCandidates, maxDelta, new SimpleMeterRegistry());
+        index.reload();
+        return index;
+    }
+
+    private static List<String> texts(SearchIndex.Hits hits) {
+        return hits.hits().stream().map(SearchIndex.Hit::text).toList();
+    }
+
+    private static Map<ObjectId, String> titles(String... titles) {
+        Map<ObjectId, String> documents = new LinkedHashMap<>();
+        for (String title : titles) documents.put(new ObjectId(), title);
+        return documents;
+    }
+
+
+    @Test
+    void normalize_stripsCaseAccentsAndPunctuation() {
+        assertEquals("les miserables vol 1", SearchIndex.normalize("  Les Misérables, VOL.1 "));
+        assertEquals("harry potter", SearchIndex.normalize("Harry-Potter"));
+        assertEquals("", SearchIndex.normalize(null));
+    }
+
+    @Test
+    void notLoaded_fallsBack() {
+        SearchIndex index = new SearchIndex("books", sink -> {}, 100, 100, new SimpleMeterRegistry());
+
+        assertFalse(index.isReady());
+        assertNull(index.search("dune", 0, 10));
+        assertNull(index.suggest("du", 10));
+    }
+
+    @Test
+    void search_matchesWordPrefixes() {
+        SearchIndex index = index(titles(
+                "Harry Potter and the Chamber of Secrets",
+                "Harry Potter and the Philosopher's Stone",
+                "The Potter's Field",
+                "Les Misérables"
+        ), 100, 100);
+
+        SearchIndex.Hits hits = index.search("harry pot", 0, 10);
+        assertEquals(2, hits.total());
+        assertTrue(texts(hits).stream().allMatch(text -> text.startsWith("Harry Potter")));
+
+        assertEquals(List.of("Les Misérables"), texts(index.search("MISERABLES", 0, 10)));
+        assertEquals(0, index.search("chamber stone", 0, 10).total());
+        assertEquals(0, index.search(" ,. ", 0, 10).total());
+    }
+
+    @Test
+    void search_ranksExactThenPrefixThenWord() {
+        SearchIndex index = index(titles("Children of Dune", "Dune Messiah", "Dune", "Dunes of Mars"), 100, 100);
+
+        assertEquals(List.of("Dune", "Dune Messiah", "Dunes of Mars", "Children of Dune"), texts(index.search("dune", 0, 10)));
+    }
+
+    @Test
+    void search_pagesAndCountsUpToMaxCandidates() {
+        Map<ObjectId, String> documents = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) documents.put(new ObjectId(), "Book " + (100 + i));
+        SearchIndex index = index(documents, 20, 100);
+
+        SearchIndex.Hits first = index.search("book", 0, 10);
+        SearchIndex.Hits second = index.search("book", 10, 10);
+        SearchIndex.Hits beyond = index.search("book", 20, 10);
+
+        assertEquals(20, first.total());
+        assertEquals(10, first.hits().size());
+        assertEquals(10, second.hits().size());
+        assertTrue(beyond.hits().isEmpty());
+        assertEquals("Book 100", first.hits().getFirst().text());
+        assertEquals("Book 110", second.hits().getFirst().text());
+    }
+
+    @Test
+    void delta_shadowsTheSegment() {
+        ObjectId dune = new ObjectId();
+        ObjectId emma = new ObjectId();
+        Map<ObjectId, String> documents = new LinkedHashMap<>();
+        documents.put(dune, "Dune");
+        documents.put(emma, "Emma");
+        SearchIndex index = index(documents, 100, 100);
+
+        ObjectId added = new ObjectId();
+        index.put(added, "Dune Messiah");
+        index.put(dune, "Arrakis");
+        index.remove(emma);
+
+        assertEquals(List.of("Dune Messiah"), texts(index.search("dune", 0, 10)));
+        assertEquals(List.of("Arrakis"), texts(index.search("arr", 0, 10)));
+        assertEquals(0, index.search("emma", 0, 10).total());
+
+        index.put(emma, null);
+        assertEquals(0, index.search("emma", 0, 10).total());
+    }
+
+    @Test
+    void compactIfNeeded_keepsTheResults() {
+        ObjectId emma = new ObjectId();
+        Map<ObjectId, String> documents = titles("Dune", "Dune Messiah");
+        documents.put(emma, "Emma");
+        SearchIndex index = index(documents, 100, 2);
+
+        index.put(new ObjectId(), "Children of Dune");
+        index.remove(emma);
+        List<String> before = texts(index.search("dune", 0, 10));
+
+        index.compactIfNeeded();
+
+        assertEquals(before, texts(index.search("dune", 0, 10)));
+        assertEquals(0, index.search("emma", 0, 10).total());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void fallback_matchesLikeTheIndex() {
+        assertTrue(SearchIndex.matchesWordPrefixes("Harry Potter and the Chamber of Secrets", "harry pot"));
+        assertTrue(SearchIndex.matchesWordPrefixes("Children of Dune", "dune"));
+        assertFalse(SearchIndex.matchesWordPrefixes("Dunes", "une"));
+        assertFalse(SearchIndex.matchesWordPrefixes("Dune", " ,. "));
+
+        Pattern regex = Pattern.compile(SearchIndex.wordPrefixRegex("harry pot"), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        assertTrue(regex.matcher("Harry Potter and the Chamber of Secrets").find());
+        assertTrue(regex.matcher("The Potter's Field, by Harry").find());
+        assertFalse(regex.matcher("Harry's Teapot").find());
+        assertTrue(Pattern.compile(SearchIndex.wordPrefixRegex("mis"), Pattern.CASE_INSENSITIVE).matcher("Les Misérables").find());
+        assertNull(SearchIndex.wordPrefixRegex(" ,. "));
+    }
+
+    @Test
+    void suggest_returnsTheBestHits() {
+        SearchIndex index = index(titles("Dune", "Dune Messiah", "Children of Dune"), 100, 100);
+
+        assertEquals("Dune", index.suggest("dune", 1).getFirst().text());
+        assertEquals(2, index.suggest("dune", 2).size());
+    }
+
+}